@@ -0,0 +1,34 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Callback for asynchronous transfers submitted with
+ * {@link ArrayTransfers}.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public interface ArrayTransferCallback
+{
+    /**
+     * Called when the transfer is complete. For IN transfers the received
+     * data has already been copied into the array. The array can be used
+     * by the caller again and a new transfer can be submitted right from
+     * this method.
+     *
+     * @param data
+     *            The array the transfer was submitted with.
+     * @param offset
+     *            The offset the transfer was submitted with.
+     * @param status
+     *            The transfer status (One of the TRANSFER constants of
+     *            {@link LibUsb}).
+     * @param actualLength
+     *            The number of bytes actually transferred.
+     */
+    void processTransfer(byte[] data, int offset, int status,
+        int actualLength);
+}
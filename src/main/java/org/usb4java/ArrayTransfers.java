@@ -0,0 +1,620 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfers from and to byte arrays.
+ *
+ * libusb can only transfer data from and to direct buffers. The methods of
+ * this class accept a part of a byte array instead and stage the data
+ * through a direct buffer with a single copy: OUT data is copied into the
+ * staging buffer before the transfer, received IN data is copied into the
+ * array afterwards. Only the actually transferred bytes are copied back.
+ *
+ * Staging buffers are organized in power-of-two size classes from 64 bytes
+ * up to {@link #MAX_STAGING_SIZE}. The synchronous methods use buffers
+ * cached per thread, the asynchronous methods use buffers from a shared
+ * pool per size class. So no direct memory is allocated per call in steady
+ * state. Larger transfers are staged through a temporary buffer.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class ArrayTransfers
+{
+    /** The binary logarithm of the smallest staging buffer size. */
+    private static final int MIN_SHIFT = 6;
+
+    /** The binary logarithm of the largest staging buffer size. */
+    private static final int MAX_SHIFT = 16;
+
+    /**
+     * The largest transfer size staged through a reusable buffer. This
+     * covers the largest possible control transfer.
+     */
+    public static final int MAX_STAGING_SIZE = 1 << MAX_SHIFT;
+
+    /** The number of size classes. */
+    private static final int SIZE_CLASSES = MAX_SHIFT - MIN_SHIFT + 1;
+
+    /** The maximum number of idle buffers kept per size class. */
+    private static final int MAX_IDLE_BUFFERS = 16;
+
+    /** The maximum number of idle requests kept for reuse. */
+    private static final int MAX_IDLE_REQUESTS = 64;
+
+    /** The staging buffers of the synchronous methods cached per thread. */
+    private static final ThreadLocal<Staging> STAGING =
+        new ThreadLocal<Staging>();
+
+    /** The buffer pools of the asynchronous methods per size class. */
+    private static final BufferPool[] POOLS = createPools();
+
+    /** The idle requests. */
+    private static final Queue<Request> IDLE_REQUESTS =
+        new ConcurrentLinkedQueue<Request>();
+
+    /** The number of idle requests. */
+    private static final AtomicInteger IDLE_COUNT = new AtomicInteger();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ArrayTransfers()
+    {
+        // Empty
+    }
+
+    /**
+     * The staging buffers of a single thread. For each size class the
+     * buffer and the last view with the exact transfer length are cached
+     * so repeated transfers of the same length create no objects at all.
+     */
+    private static final class Staging
+    {
+        /** The staging buffers per size class. */
+        private final ByteBuffer[] buffers = new ByteBuffer[SIZE_CLASSES];
+
+        /** The last used views of the staging buffers per size class. */
+        private final ByteBuffer[] views = new ByteBuffer[SIZE_CLASSES];
+
+        /**
+         * Returns a cleared staging buffer with exactly the specified
+         * capacity.
+         *
+         * @param length
+         *            The required capacity.
+         * @return The staging buffer.
+         */
+        ByteBuffer get(final int length)
+        {
+            final int sizeClass = sizeClass(length);
+            if (sizeClass < 0)
+            {
+                return BufferUtils.allocateByteBuffer(length);
+            }
+            ByteBuffer view = this.views[sizeClass];
+            if ((view == null) || (view.capacity() != length))
+            {
+                ByteBuffer buffer = this.buffers[sizeClass];
+                if (buffer == null)
+                {
+                    buffer = BufferUtils.allocateByteBuffer(
+                        1 << (sizeClass + MIN_SHIFT));
+                    this.buffers[sizeClass] = buffer;
+                }
+                view = buffer.capacity() == length ? buffer
+                    : BufferUtils.slice(buffer, 0, length);
+                this.views[sizeClass] = view;
+            }
+            view.clear();
+            return view;
+        }
+    }
+
+    /**
+     * A reusable transfer together with the state of the array transfer it
+     * currently performs. The request is its own transfer callback.
+     */
+    private static final class Request implements TransferCallback
+    {
+        /** The transfer. */
+        private final Transfer transfer;
+
+        /** The staging buffer. */
+        private ByteBuffer buffer;
+
+        /** The array to transfer from or to. */
+        private byte[] data;
+
+        /** The offset within the array. */
+        private int offset;
+
+        /** The number of bytes to transfer. */
+        private int length;
+
+        /** If this is an IN transfer. */
+        private boolean in;
+
+        /** The callback to call when the transfer is complete. */
+        private ArrayTransferCallback callback;
+
+        /**
+         * Constructs a new request.
+         */
+        Request()
+        {
+            this.transfer = LibUsb.allocTransfer();
+            this.transfer.setCallback(this);
+        }
+
+        @Override
+        public void processTransfer(final Transfer transfer)
+        {
+            final byte[] data = this.data;
+            final int offset = this.offset;
+            final ArrayTransferCallback callback = this.callback;
+            final int status = transfer.status();
+            final int actualLength = Math.min(transfer.actualLength(),
+                this.length);
+            if (this.in)
+            {
+                this.buffer.clear();
+                this.buffer.get(data, offset, actualLength);
+            }
+            release(this);
+            callback.processTransfer(data, offset, status, actualLength);
+        }
+    }
+
+    /**
+     * Creates the buffer pools for the size classes.
+     *
+     * @return The buffer pools.
+     */
+    private static BufferPool[] createPools()
+    {
+        final BufferPool[] pools = new BufferPool[SIZE_CLASSES];
+        for (int i = 0; i < SIZE_CLASSES; i++)
+        {
+            pools[i] = new BufferPool(1 << (i + MIN_SHIFT), MAX_IDLE_BUFFERS);
+        }
+        return pools;
+    }
+
+    /**
+     * Returns the size class for the specified number of bytes.
+     *
+     * @param length
+     *            The number of bytes.
+     * @return The size class or -1 if the length is larger than
+     *         {@link #MAX_STAGING_SIZE}.
+     */
+    static int sizeClass(final int length)
+    {
+        if (length <= (1 << MIN_SHIFT))
+        {
+            return 0;
+        }
+        if (length > MAX_STAGING_SIZE)
+        {
+            return -1;
+        }
+        return Integer.SIZE - Integer.numberOfLeadingZeros(length - 1)
+            - MIN_SHIFT;
+    }
+
+    /**
+     * Returns the cleared staging buffer of the current thread with exactly
+     * the specified capacity.
+     *
+     * @param length
+     *            The required capacity.
+     * @return The staging buffer.
+     */
+    static ByteBuffer stagingBuffer(final int length)
+    {
+        Staging staging = STAGING.get();
+        if (staging == null)
+        {
+            staging = new Staging();
+            STAGING.set(staging);
+        }
+        return staging.get(length);
+    }
+
+    /**
+     * Returns an idle request or creates a new one.
+     *
+     * @return The request.
+     */
+    private static Request acquire()
+    {
+        final Request request = IDLE_REQUESTS.poll();
+        if (request == null)
+        {
+            return new Request();
+        }
+        IDLE_COUNT.decrementAndGet();
+        return request;
+    }
+
+    /**
+     * Returns the staging buffer of a finished request to its pool and the
+     * request itself for reuse. The transfer is freed when enough requests
+     * are idle already.
+     *
+     * @param request
+     *            The finished request.
+     */
+    private static void release(final Request request)
+    {
+        final ByteBuffer buffer = request.buffer;
+        final int sizeClass = sizeClass(buffer.capacity());
+        if (sizeClass >= 0)
+        {
+            POOLS[sizeClass].release(buffer);
+        }
+        request.buffer = null;
+        request.data = null;
+        request.callback = null;
+        request.transfer.setBuffer(null);
+        if (IDLE_COUNT.incrementAndGet() <= MAX_IDLE_REQUESTS)
+        {
+            IDLE_REQUESTS.offer(request);
+        }
+        else
+        {
+            IDLE_COUNT.decrementAndGet();
+            LibUsb.freeTransfer(request.transfer);
+        }
+    }
+
+    /**
+     * Validates the arguments common to all transfer methods.
+     *
+     * @param handle
+     *            The device handle.
+     * @param data
+     *            The array.
+     * @param offset
+     *            The offset within the array.
+     * @param length
+     *            The number of bytes to transfer.
+     */
+    private static void validate(final DeviceHandle handle,
+        final byte[] data, final int offset, final int length)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        if (data == null)
+        {
+            throw new IllegalArgumentException("data must not be null");
+        }
+        if ((offset < 0) || (length < 0) || (offset > data.length - length))
+        {
+            throw new IllegalArgumentException(
+                "offset and length must be within the array");
+        }
+    }
+
+    /**
+     * Checks if the specified endpoint address or request type has the IN
+     * direction.
+     *
+     * @param address
+     *            The endpoint address or request type.
+     * @return True for IN, false for OUT.
+     */
+    private static boolean isIn(final byte address)
+    {
+        return (address & LibUsb.ENDPOINT_DIR_MASK) == LibUsb.ENDPOINT_IN;
+    }
+
+    /**
+     * Perform a USB control transfer from or to a byte array.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param bmRequestType
+     *            The request type field for the setup packet.
+     * @param bRequest
+     *            The request field for the setup packet.
+     * @param wValue
+     *            The value field for the setup packet.
+     * @param wIndex
+     *            The index field for the setup packet.
+     * @param data
+     *            The array with the data to send or to receive data into
+     *            (depending on direction bits within bmRequestType).
+     * @param offset
+     *            The offset of the data within the array.
+     * @param length
+     *            The number of bytes to send or receive.
+     * @param timeout
+     *            Timeout (in milliseconds) that this function should wait
+     *            before giving up due to no response being received. For an
+     *            unlimited timeout, use value 0.
+     * @return The same as
+     *         {@link LibUsb#controlTransfer(DeviceHandle, byte, byte, short,
+     *         short, ByteBuffer, long)}.
+     */
+    public static int controlTransfer(final DeviceHandle handle,
+        final byte bmRequestType, final byte bRequest, final short wValue,
+        final short wIndex, final byte[] data, final int offset,
+        final int length, final long timeout)
+    {
+        validate(handle, data, offset, length);
+        final boolean in = isIn(bmRequestType);
+        final ByteBuffer buffer = stagingBuffer(length);
+        if (!in)
+        {
+            buffer.put(data, offset, length);
+            buffer.clear();
+        }
+        final int result = LibUsb.controlTransfer(handle, bmRequestType,
+            bRequest, wValue, wIndex, buffer, timeout);
+        if (in && (result > 0))
+        {
+            buffer.get(data, offset, Math.min(result, length));
+        }
+        return result;
+    }
+
+    /**
+     * Perform a USB bulk transfer from or to a byte array.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            The array with the data to send or to receive data into
+     *            (depending on endpoint).
+     * @param offset
+     *            The offset of the data within the array.
+     * @param length
+     *            The number of bytes to send or the maximum number of bytes
+     *            to receive.
+     * @param timeout
+     *            Timeout (in milliseconds) that this function should wait
+     *            before giving up due to no response being received. For an
+     *            unlimited timeout, use value 0.
+     * @return The same as
+     *         {@link LibUsb#bulkTransferPacked(DeviceHandle, byte, ByteBuffer,
+     *         long)}.
+     */
+    public static long bulkTransfer(final DeviceHandle handle,
+        final byte endpoint, final byte[] data, final int offset,
+        final int length, final long timeout)
+    {
+        return transfer(handle, endpoint, LibUsb.TRANSFER_TYPE_BULK, data,
+            offset, length, timeout);
+    }
+
+    /**
+     * Perform a USB interrupt transfer from or to a byte array.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            The array with the data to send or to receive data into
+     *            (depending on endpoint).
+     * @param offset
+     *            The offset of the data within the array.
+     * @param length
+     *            The number of bytes to send or the maximum number of bytes
+     *            to receive.
+     * @param timeout
+     *            Timeout (in milliseconds) that this function should wait
+     *            before giving up due to no response being received. For an
+     *            unlimited timeout, use value 0.
+     * @return The same as
+     *         {@link LibUsb#interruptTransferPacked(DeviceHandle, byte,
+     *         ByteBuffer, long)}.
+     */
+    public static long interruptTransfer(final DeviceHandle handle,
+        final byte endpoint, final byte[] data, final int offset,
+        final int length, final long timeout)
+    {
+        return transfer(handle, endpoint, LibUsb.TRANSFER_TYPE_INTERRUPT,
+            data, offset, length, timeout);
+    }
+
+    /**
+     * Performs a synchronous bulk or interrupt transfer from or to a byte
+     * array.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The endpoint address.
+     * @param type
+     *            The transfer type.
+     * @param data
+     *            The array.
+     * @param offset
+     *            The offset within the array.
+     * @param length
+     *            The number of bytes to transfer.
+     * @param timeout
+     *            The timeout in milliseconds.
+     * @return The packed result code and number of transferred bytes.
+     */
+    private static long transfer(final DeviceHandle handle,
+        final byte endpoint, final byte type, final byte[] data,
+        final int offset, final int length, final long timeout)
+    {
+        validate(handle, data, offset, length);
+        final boolean in = isIn(endpoint);
+        final ByteBuffer buffer = stagingBuffer(length);
+        if (!in)
+        {
+            buffer.put(data, offset, length);
+            buffer.clear();
+        }
+        final long result;
+        if (type == LibUsb.TRANSFER_TYPE_BULK)
+        {
+            result = LibUsb.bulkTransferPacked(handle, endpoint, buffer,
+                timeout);
+        }
+        else
+        {
+            result = LibUsb.interruptTransferPacked(handle, endpoint, buffer,
+                timeout);
+        }
+        if (in)
+        {
+            // Received data is valid even when the transfer failed later
+            buffer.get(data, offset,
+                Math.min(LibUsb.unpackTransferred(result), length));
+        }
+        return result;
+    }
+
+    /**
+     * Submits an asynchronous bulk transfer from or to a byte array. The
+     * array part must not be used by the caller until the callback has been
+     * called.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            The array with the data to send or to receive data into
+     *            (depending on endpoint).
+     * @param offset
+     *            The offset of the data within the array.
+     * @param length
+     *            The number of bytes to send or the maximum number of bytes
+     *            to receive.
+     * @param timeout
+     *            Timeout (in milliseconds) that the transfer should wait
+     *            before giving up due to no response being received. For an
+     *            unlimited timeout, use value 0.
+     * @param callback
+     *            The callback to call when the transfer is complete.
+     * @return The same as {@link LibUsb#submitTransfer(Transfer)}. When
+     *         submitting failed the callback is not called.
+     */
+    public static int submitBulkTransfer(final DeviceHandle handle,
+        final byte endpoint, final byte[] data, final int offset,
+        final int length, final long timeout,
+        final ArrayTransferCallback callback)
+    {
+        return submit(handle, endpoint, LibUsb.TRANSFER_TYPE_BULK, data,
+            offset, length, timeout, callback);
+    }
+
+    /**
+     * Submits an asynchronous interrupt transfer from or to a byte array.
+     * The array part must not be used by the caller until the callback has
+     * been called.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            The array with the data to send or to receive data into
+     *            (depending on endpoint).
+     * @param offset
+     *            The offset of the data within the array.
+     * @param length
+     *            The number of bytes to send or the maximum number of bytes
+     *            to receive.
+     * @param timeout
+     *            Timeout (in milliseconds) that the transfer should wait
+     *            before giving up due to no response being received. For an
+     *            unlimited timeout, use value 0.
+     * @param callback
+     *            The callback to call when the transfer is complete.
+     * @return The same as {@link LibUsb#submitTransfer(Transfer)}. When
+     *         submitting failed the callback is not called.
+     */
+    public static int submitInterruptTransfer(final DeviceHandle handle,
+        final byte endpoint, final byte[] data, final int offset,
+        final int length, final long timeout,
+        final ArrayTransferCallback callback)
+    {
+        return submit(handle, endpoint, LibUsb.TRANSFER_TYPE_INTERRUPT, data,
+            offset, length, timeout, callback);
+    }
+
+    /**
+     * Submits an asynchronous bulk or interrupt transfer from or to a byte
+     * array.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The endpoint address.
+     * @param type
+     *            The transfer type.
+     * @param data
+     *            The array.
+     * @param offset
+     *            The offset within the array.
+     * @param length
+     *            The number of bytes to transfer.
+     * @param timeout
+     *            The timeout in milliseconds.
+     * @param callback
+     *            The completion callback.
+     * @return 0 on success or an ERROR code.
+     */
+    private static int submit(final DeviceHandle handle, final byte endpoint,
+        final byte type, final byte[] data, final int offset,
+        final int length, final long timeout,
+        final ArrayTransferCallback callback)
+    {
+        validate(handle, data, offset, length);
+        if (callback == null)
+        {
+            throw new IllegalArgumentException("callback must not be null");
+        }
+        final boolean in = isIn(endpoint);
+        final int sizeClass = sizeClass(length);
+        final ByteBuffer buffer = sizeClass < 0
+            ? BufferUtils.allocateByteBuffer(length)
+            : POOLS[sizeClass].acquire();
+        if (!in)
+        {
+            buffer.put(data, offset, length);
+            buffer.clear();
+        }
+        final Request request = acquire();
+        request.buffer = buffer;
+        request.data = data;
+        request.offset = offset;
+        request.length = length;
+        request.in = in;
+        request.callback = callback;
+        final Transfer transfer = request.transfer;
+        transfer.setDevHandle(handle);
+        transfer.setEndpoint(endpoint);
+        transfer.setType(type);
+        transfer.setTimeout(timeout);
+        transfer.setBuffer(buffer);
+        transfer.setLength(length);
+        final int result = LibUsb.submitTransfer(transfer);
+        if (result != LibUsb.SUCCESS)
+        {
+            release(request);
+        }
+        return result;
+    }
+}
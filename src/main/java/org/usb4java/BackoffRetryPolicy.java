@@ -0,0 +1,303 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retry policy with exponential backoff and jitter.
+ *
+ * Timeouts and I/O errors are retried after a delay which starts with the
+ * initial delay and is multiplied with each failed attempt up to the
+ * maximum delay. A random part of the delay (The jitter) is subtracted so
+ * many transfers failing at the same time don't retry at the same time. A
+ * stalled endpoint ({@link LibUsb#ERROR_PIPE}) is retried right away after
+ * its halt condition has been cleared. Optionally the device is reset
+ * instead when an endpoint stalls repeatedly. All other errors (Including
+ * cancelled transfers and disconnected devices) are never retried.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class BackoffRetryPolicy implements RetryPolicy
+{
+    /** The default maximum number of attempts. */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /** The default initial delay in milliseconds. */
+    public static final long DEFAULT_INITIAL_DELAY = 10;
+
+    /** The default maximum delay in milliseconds. */
+    public static final long DEFAULT_MAX_DELAY = 1000;
+
+    /** The default delay multiplier. */
+    public static final double DEFAULT_MULTIPLIER = 2;
+
+    /** The default jitter. */
+    public static final double DEFAULT_JITTER = 0.5;
+
+    /** The random generator for the jitter. */
+    private final Random random = new Random();
+
+    /** The maximum number of attempts including the first one. */
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    /** The initial delay in nanoseconds. */
+    private volatile long initialDelay =
+        TimeUnit.MILLISECONDS.toNanos(DEFAULT_INITIAL_DELAY);
+
+    /** The maximum delay in nanoseconds. */
+    private volatile long maxDelay =
+        TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_DELAY);
+
+    /** The delay multiplier. */
+    private volatile double multiplier = DEFAULT_MULTIPLIER;
+
+    /** The fraction of the delay which is random. */
+    private volatile double jitter = DEFAULT_JITTER;
+
+    /** If halt conditions are cleared automatically. */
+    private volatile boolean clearHalt = true;
+
+    /** The number of stalls after which the device is reset. 0 for never. */
+    private volatile int resetAfter;
+
+    /**
+     * Returns the maximum number of attempts.
+     *
+     * @return The maximum number of attempts including the first one.
+     */
+    public int getMaxAttempts()
+    {
+        return this.maxAttempts;
+    }
+
+    /**
+     * Sets the maximum number of attempts.
+     *
+     * @param maxAttempts
+     *            The maximum number of attempts including the first one. 1
+     *            to never retry.
+     */
+    public void setMaxAttempts(final int maxAttempts)
+    {
+        if (maxAttempts <= 0)
+        {
+            throw new IllegalArgumentException(
+                "maxAttempts must be positive");
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Returns the initial delay.
+     *
+     * @param unit
+     *            The time unit to return.
+     * @return The initial delay.
+     */
+    public long getInitialDelay(final TimeUnit unit)
+    {
+        return unit.convert(this.initialDelay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the maximum delay.
+     *
+     * @param unit
+     *            The time unit to return.
+     * @return The maximum delay.
+     */
+    public long getMaxDelay(final TimeUnit unit)
+    {
+        return unit.convert(this.maxDelay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the initial and the maximum delay.
+     *
+     * @param initialDelay
+     *            The delay before the first retry.
+     * @param maxDelay
+     *            The maximum delay. Must not be lower than the initial delay.
+     * @param unit
+     *            The time unit of the delays.
+     */
+    public void setDelay(final long initialDelay, final long maxDelay,
+        final TimeUnit unit)
+    {
+        if (initialDelay < 0)
+        {
+            throw new IllegalArgumentException(
+                "initialDelay must not be negative");
+        }
+        if (maxDelay < initialDelay)
+        {
+            throw new IllegalArgumentException(
+                "maxDelay must not be lower than initialDelay");
+        }
+        this.initialDelay = unit.toNanos(initialDelay);
+        this.maxDelay = unit.toNanos(maxDelay);
+    }
+
+    /**
+     * Returns the delay multiplier.
+     *
+     * @return The delay multiplier.
+     */
+    public double getMultiplier()
+    {
+        return this.multiplier;
+    }
+
+    /**
+     * Sets the factor the delay is multiplied with after each failed
+     * attempt.
+     *
+     * @param multiplier
+     *            The delay multiplier. Must be at least 1.
+     */
+    public void setMultiplier(final double multiplier)
+    {
+        if (!(multiplier >= 1))
+        {
+            throw new IllegalArgumentException(
+                "multiplier must be at least 1");
+        }
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * Returns the jitter.
+     *
+     * @return The fraction of the delay which is random.
+     */
+    public double getJitter()
+    {
+        return this.jitter;
+    }
+
+    /**
+     * Sets the jitter.
+     *
+     * @param jitter
+     *            The fraction of the delay which is random. 0 for no
+     *            jitter, 1 for a delay between 0 and the full delay.
+     */
+    public void setJitter(final double jitter)
+    {
+        if (!((jitter >= 0) && (jitter <= 1)))
+        {
+            throw new IllegalArgumentException(
+                "jitter must be between 0 and 1");
+        }
+        this.jitter = jitter;
+    }
+
+    /**
+     * Checks if halt conditions are cleared automatically.
+     *
+     * @return True if halt conditions are cleared, false if stalled
+     *         transfers are not retried.
+     */
+    public boolean isClearHalt()
+    {
+        return this.clearHalt;
+    }
+
+    /**
+     * Sets if halt conditions are cleared automatically.
+     *
+     * @param clearHalt
+     *            True to clear halt conditions and retry stalled transfers,
+     *            false to not retry them.
+     */
+    public void setClearHalt(final boolean clearHalt)
+    {
+        this.clearHalt = clearHalt;
+    }
+
+    /**
+     * Returns the number of stalls of the same transfer after which the
+     * device is reset.
+     *
+     * @return The number of stalls. 0 if the device is never reset.
+     */
+    public int getResetAfter()
+    {
+        return this.resetAfter;
+    }
+
+    /**
+     * Sets the number of stalls of the same transfer after which the device
+     * is reset instead of clearing the halt condition. Resetting a device
+     * resets all its endpoints and alternate settings, so this should only
+     * be enabled when the application can cope with that.
+     *
+     * @param resetAfter
+     *            The number of stalls. 0 to never reset the device.
+     */
+    public void setResetAfter(final int resetAfter)
+    {
+        if (resetAfter < 0)
+        {
+            throw new IllegalArgumentException(
+                "resetAfter must not be negative");
+        }
+        this.resetAfter = resetAfter;
+    }
+
+    /**
+     * Returns the delay before the specified retry without jitter.
+     *
+     * @param attempt
+     *            The number of failed attempts so far.
+     * @return The delay in nanoseconds.
+     */
+    long getBaseDelay(final int attempt)
+    {
+        final double delay = this.initialDelay
+            * Math.pow(this.multiplier, attempt - 1);
+        return (long) Math.min(delay, this.maxDelay);
+    }
+
+    @Override
+    public long getRetryDelay(final int error, final int attempt)
+    {
+        if (attempt >= this.maxAttempts)
+        {
+            return -1;
+        }
+        switch (error)
+        {
+            case LibUsb.ERROR_PIPE:
+                return this.clearHalt ? 0 : -1;
+
+            case LibUsb.ERROR_TIMEOUT:
+            case LibUsb.ERROR_IO:
+                final long delay = getBaseDelay(attempt);
+                return delay - (long) (delay * this.jitter
+                    * this.random.nextDouble());
+
+            default:
+                return -1;
+        }
+    }
+
+    @Override
+    public int getRecovery(final int error, final int attempt)
+    {
+        if (error != LibUsb.ERROR_PIPE)
+        {
+            return RECOVER_NONE;
+        }
+        if ((this.resetAfter > 0) && (attempt >= this.resetAfter))
+        {
+            return RECOVER_RESET_DEVICE;
+        }
+        return RECOVER_CLEAR_HALT;
+    }
+}
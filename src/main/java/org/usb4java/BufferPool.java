@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe pool of equally sized direct byte buffers.
+ *
+ * Allocating direct buffers is expensive and their memory is only reclaimed
+ * by the garbage collector, so buffers used for transfers should be recycled
+ * through a pool like this instead of being allocated per transfer.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class BufferPool
+{
+    /** The size of the pooled buffers. */
+    private final int bufferSize;
+
+    /** The maximum number of idle buffers kept in the pool. */
+    private final int maxIdle;
+
+    /** The idle buffers. */
+    private final Queue<ByteBuffer> idle =
+        new ConcurrentLinkedQueue<ByteBuffer>();
+
+    /** The number of idle buffers. */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * Constructs a new buffer pool.
+     *
+     * @param bufferSize
+     *            The size of the pooled buffers in bytes.
+     * @param maxIdle
+     *            The maximum number of idle buffers kept in the pool.
+     *            Buffers released while the pool is full are left to the
+     *            garbage collector.
+     */
+    public BufferPool(final int bufferSize, final int maxIdle)
+    {
+        if (bufferSize <= 0)
+        {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        if (maxIdle < 0)
+        {
+            throw new IllegalArgumentException("maxIdle must not be negative");
+        }
+        this.bufferSize = bufferSize;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns the size of the pooled buffers.
+     *
+     * @return The buffer size in bytes.
+     */
+    public int getBufferSize()
+    {
+        return this.bufferSize;
+    }
+
+    /**
+     * Returns the number of idle buffers currently in the pool.
+     *
+     * @return The number of idle buffers.
+     */
+    public int getIdleCount()
+    {
+        return this.idleCount.get();
+    }
+
+    /**
+     * Returns a cleared buffer from the pool. A new buffer is allocated when
+     * the pool is empty.
+     *
+     * @return The buffer.
+     */
+    public ByteBuffer acquire()
+    {
+        final ByteBuffer buffer = this.idle.poll();
+        if (buffer == null)
+        {
+            return BufferUtils.allocateByteBuffer(this.bufferSize);
+        }
+        this.idleCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. The buffer must not be used by the
+     * caller afterwards.
+     *
+     * @param buffer
+     *            The buffer to return. Must be a direct buffer with the
+     *            capacity of this pool.
+     */
+    public void release(final ByteBuffer buffer)
+    {
+        if (!buffer.isDirect() || (buffer.capacity() != this.bufferSize))
+        {
+            throw new IllegalArgumentException(
+                "buffer does not belong to this pool");
+        }
+        if (this.idleCount.incrementAndGet() <= this.maxIdle)
+        {
+            this.idle.offer(buffer);
+        }
+        else
+        {
+            this.idleCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Listener interface for transfers submitted through {@link BulkStreams}.
+ *
+ * The method is called by the thread handling libusb events (Or by the
+ * thread cancelling a stream for transfers which were still queued) so it
+ * should do minimal processing before returning.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public interface BulkStreamListener
+{
+    /**
+     * Called when a transfer has been finished.
+     *
+     * @param streamId
+     *            The stream id of the transfer.
+     * @param endpoint
+     *            The endpoint of the transfer.
+     * @param buffer
+     *            The data buffer of the transfer.
+     * @param status
+     *            The transfer status (One of the TRANSFER_* constants).
+     *            {@link LibUsb#TRANSFER_CANCELLED} for transfers which were
+     *            cancelled before they were submitted and
+     *            {@link LibUsb#TRANSFER_ERROR} for transfers which could not
+     *            be submitted.
+     * @param actualLength
+     *            The number of actually transferred bytes.
+     */
+    void transferFinished(int streamId, byte endpoint, ByteBuffer buffer,
+        int status, int actualLength);
+}
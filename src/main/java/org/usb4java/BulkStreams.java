@@ -0,0 +1,526 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multiplexes asynchronous transfers over USB 3 bulk streams.
+ *
+ * {@link #open(int)} allocates the bulk streams on a set of endpoints of one
+ * interface. Transfers are then submitted to a specific stream id. Each
+ * stream has its own queue and its own limit of transfers in flight, so a
+ * slow command on one stream never blocks the commands on other streams as
+ * it would on a plain bulk pipe. When a transfer completes, the next queued
+ * transfer of the same stream is submitted before the listener is called.
+ *
+ * Transfer structures are recycled internally and their callback is set
+ * only once, so submitting a transfer allocates no native memory in steady
+ * state.
+ *
+ * Another thread must handle libusb events while transfers are running
+ * (See {@link EventHandlingThread}).
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class BulkStreams
+{
+    /** The device handle. */
+    private final DeviceHandle handle;
+
+    /** The endpoints the streams are allocated on. */
+    private final byte[] endpoints;
+
+    /** The maximum number of transfers in flight per stream. */
+    private final int maxInFlight;
+
+    /** The callback used for all transfers. */
+    private final TransferCallback callback = new TransferCallback()
+    {
+        @Override
+        public void processTransfer(final Transfer transfer)
+        {
+            BulkStreams.this.processTransfer(transfer);
+        }
+    };
+
+    /** Lock guarding the streams, the pool and the transfers in flight. */
+    private final Object lock = new Object();
+
+    /** The submitted requests mapped by their transfer. */
+    private final Map<Transfer, Request> inFlight =
+        new HashMap<Transfer, Request>();
+
+    /** Idle transfers for reuse. */
+    private final ArrayDeque<Transfer> idleTransfers =
+        new ArrayDeque<Transfer>();
+
+    /** The stream states indexed by stream id. Null until opened. */
+    private Stream[] streams;
+
+    /** If the streams have been closed. */
+    private boolean closed;
+
+    /**
+     * A transfer request.
+     */
+    private static final class Request
+    {
+        /** The stream id. */
+        final int streamId;
+
+        /** The endpoint. */
+        final byte endpoint;
+
+        /** The data buffer. */
+        final ByteBuffer buffer;
+
+        /** The timeout in milliseconds. */
+        final long timeout;
+
+        /** The listener to notify. */
+        final BulkStreamListener listener;
+
+        /**
+         * Constructs a new request.
+         *
+         * @param streamId
+         *            The stream id.
+         * @param endpoint
+         *            The endpoint.
+         * @param buffer
+         *            The data buffer.
+         * @param timeout
+         *            The timeout in milliseconds.
+         * @param listener
+         *            The listener to notify.
+         */
+        Request(final int streamId, final byte endpoint,
+            final ByteBuffer buffer, final long timeout,
+            final BulkStreamListener listener)
+        {
+            this.streamId = streamId;
+            this.endpoint = endpoint;
+            this.buffer = buffer;
+            this.timeout = timeout;
+            this.listener = listener;
+        }
+
+        /**
+         * Notifies the listener.
+         *
+         * @param status
+         *            The transfer status.
+         * @param actualLength
+         *            The number of transferred bytes.
+         */
+        void finish(final int status, final int actualLength)
+        {
+            this.listener.transferFinished(this.streamId, this.endpoint,
+                this.buffer, status, actualLength);
+        }
+    }
+
+    /**
+     * The state of a single stream.
+     */
+    private static final class Stream
+    {
+        /** The requests waiting for submission. */
+        final ArrayDeque<Request> queue = new ArrayDeque<Request>();
+
+        /** The number of transfers in flight. */
+        int inFlight;
+    }
+
+    /**
+     * Constructs a new bulk streams multiplexer. Call {@link #open(int)} to
+     * allocate the streams.
+     *
+     * @param handle
+     *            The handle of the opened device.
+     * @param endpoints
+     *            The bulk endpoints to allocate the streams on. They must
+     *            all belong to the same claimed interface.
+     * @param maxInFlight
+     *            The maximum number of transfers in flight per stream.
+     */
+    public BulkStreams(final DeviceHandle handle, final byte[] endpoints,
+        final int maxInFlight)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        if ((endpoints == null) || (endpoints.length == 0))
+        {
+            throw new IllegalArgumentException(
+                "endpoints must not be null or empty");
+        }
+        if (maxInFlight <= 0)
+        {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.handle = handle;
+        this.endpoints = endpoints.clone();
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Returns the maximum number of transfers in flight per stream.
+     *
+     * @return The maximum number of transfers in flight.
+     */
+    public int getMaxInFlight()
+    {
+        return this.maxInFlight;
+    }
+
+    /**
+     * Returns the number of allocated streams. Valid stream ids are 1 to
+     * this number.
+     *
+     * @return The number of allocated streams. 0 if not open.
+     */
+    public int getStreamCount()
+    {
+        synchronized (this.lock)
+        {
+            return this.streams == null ? 0 : this.streams.length - 1;
+        }
+    }
+
+    /**
+     * Allocates the bulk streams.
+     *
+     * @param numStreams
+     *            The number of streams to allocate.
+     * @return The number of actually allocated streams. May be less than
+     *         requested.
+     * @throws LibUsbException
+     *             When the streams could not be allocated.
+     */
+    public int open(final int numStreams)
+    {
+        if (numStreams <= 0)
+        {
+            throw new IllegalArgumentException("numStreams must be positive");
+        }
+        synchronized (this.lock)
+        {
+            if ((this.streams != null) || this.closed)
+            {
+                throw new IllegalStateException("Streams already opened");
+            }
+            final int result = LibUsb.allocStreams(this.handle, numStreams,
+                this.endpoints);
+            if (result < 0)
+            {
+                throw new LibUsbException("Unable to allocate bulk streams",
+                    result);
+            }
+            this.streams = new Stream[result + 1];
+            for (int i = 1; i <= result; i++)
+            {
+                this.streams[i] = new Stream();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Frees the bulk streams and the recycled transfers. All transfers must
+     * have been finished before (See {@link #cancel(int)}).
+     *
+     * @throws LibUsbException
+     *             When the streams could not be freed.
+     */
+    public void close()
+    {
+        synchronized (this.lock)
+        {
+            if ((this.streams == null) || this.closed)
+            {
+                return;
+            }
+            if (!this.inFlight.isEmpty())
+            {
+                throw new IllegalStateException("Transfers still in flight");
+            }
+            this.closed = true;
+            for (final Transfer transfer: this.idleTransfers)
+            {
+                LibUsb.freeTransfer(transfer);
+            }
+            this.idleTransfers.clear();
+            final int result = LibUsb.freeStreams(this.handle, this.endpoints);
+            if (result != LibUsb.SUCCESS)
+            {
+                throw new LibUsbException("Unable to free bulk streams",
+                    result);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of transfers of a stream which are currently
+     * submitted.
+     *
+     * @param streamId
+     *            The stream id.
+     * @return The number of transfers in flight.
+     */
+    public int getInFlight(final int streamId)
+    {
+        synchronized (this.lock)
+        {
+            return stream(streamId).inFlight;
+        }
+    }
+
+    /**
+     * Returns the number of transfers of a stream which are waiting for
+     * submission.
+     *
+     * @param streamId
+     *            The stream id.
+     * @return The number of queued transfers.
+     */
+    public int getQueued(final int streamId)
+    {
+        synchronized (this.lock)
+        {
+            return stream(streamId).queue.size();
+        }
+    }
+
+    /**
+     * Submits a transfer on a stream. When the stream already has the
+     * maximum number of transfers in flight then the transfer is queued and
+     * submitted when a previous transfer of the same stream has finished.
+     * The whole capacity of the buffer is transferred.
+     *
+     * @param streamId
+     *            The stream id.
+     * @param endpoint
+     *            The endpoint to transfer the data with. Must be one of the
+     *            endpoints the streams were allocated on.
+     * @param buffer
+     *            The direct data buffer. Must not be modified until the
+     *            listener is called.
+     * @param timeout
+     *            The timeout in milliseconds. 0 for no timeout.
+     * @param listener
+     *            The listener to notify when the transfer is finished.
+     * @throws LibUsbException
+     *             When the transfer could not be submitted immediately. The
+     *             listener is not called in this case.
+     */
+    public void submit(final int streamId, final byte endpoint,
+        final ByteBuffer buffer, final long timeout,
+        final BulkStreamListener listener)
+    {
+        if (!hasEndpoint(endpoint))
+        {
+            throw new IllegalArgumentException("Unknown endpoint: "
+                + (endpoint & 0xff));
+        }
+        if (buffer == null)
+        {
+            throw new IllegalArgumentException("buffer must not be null");
+        }
+        if (!buffer.isDirect())
+        {
+            throw new IllegalArgumentException(
+                "buffer must be a direct buffer");
+        }
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        final Request request = new Request(streamId, endpoint, buffer,
+            timeout, listener);
+        synchronized (this.lock)
+        {
+            final Stream stream = stream(streamId);
+            if (this.closed)
+            {
+                throw new IllegalStateException("Streams are closed");
+            }
+            if (stream.inFlight >= this.maxInFlight)
+            {
+                stream.queue.add(request);
+                return;
+            }
+            final int result = submit(stream, request);
+            if (result != LibUsb.SUCCESS)
+            {
+                throw new LibUsbException("Unable to submit transfer",
+                    result);
+            }
+        }
+    }
+
+    /**
+     * Cancels all transfers of a stream. Queued transfers are reported to
+     * their listeners as cancelled right away, submitted transfers when
+     * their cancellation is complete.
+     *
+     * @param streamId
+     *            The stream id.
+     */
+    public void cancel(final int streamId)
+    {
+        final List<Request> dropped;
+        synchronized (this.lock)
+        {
+            final Stream stream = stream(streamId);
+            dropped = new ArrayList<Request>(stream.queue);
+            stream.queue.clear();
+            for (final Map.Entry<Transfer, Request> entry: this.inFlight
+                .entrySet())
+            {
+                if (entry.getValue().streamId == streamId)
+                {
+                    LibUsb.cancelTransfer(entry.getKey());
+                }
+            }
+        }
+        for (final Request request: dropped)
+        {
+            request.finish(LibUsb.TRANSFER_CANCELLED, 0);
+        }
+    }
+
+    /**
+     * Checks if the streams were allocated on the specified endpoint.
+     *
+     * @param endpoint
+     *            The endpoint address.
+     * @return True if the endpoint is known, false if not.
+     */
+    private boolean hasEndpoint(final byte endpoint)
+    {
+        for (final byte known: this.endpoints)
+        {
+            if (known == endpoint)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the state of the specified stream. Must be called with the
+     * lock held.
+     *
+     * @param streamId
+     *            The stream id.
+     * @return The stream state.
+     */
+    private Stream stream(final int streamId)
+    {
+        if (this.streams == null)
+        {
+            throw new IllegalStateException("Streams not opened");
+        }
+        if ((streamId <= 0) || (streamId >= this.streams.length))
+        {
+            throw new IllegalArgumentException("Invalid stream id: "
+                + streamId);
+        }
+        return this.streams[streamId];
+    }
+
+    /**
+     * Submits a request. Must be called with the lock held.
+     *
+     * @param stream
+     *            The stream state.
+     * @param request
+     *            The request to submit.
+     * @return The result of the submission.
+     */
+    private int submit(final Stream stream, final Request request)
+    {
+        Transfer transfer = this.idleTransfers.poll();
+        if (transfer == null)
+        {
+            transfer = LibUsb.allocTransfer();
+            transfer.setCallback(this.callback);
+        }
+        transfer.setDevHandle(this.handle);
+        transfer.setEndpoint(request.endpoint);
+        transfer.setType(LibUsb.TRANSFER_TYPE_BULK_STREAM);
+        transfer.setStreamId(request.streamId);
+        transfer.setTimeout(request.timeout);
+        transfer.setBuffer(request.buffer);
+        final int result = LibUsb.submitTransfer(transfer);
+        if (result == LibUsb.SUCCESS)
+        {
+            this.inFlight.put(transfer, request);
+            stream.inFlight++;
+        }
+        else
+        {
+            transfer.setBuffer(null);
+            this.idleTransfers.add(transfer);
+        }
+        return result;
+    }
+
+    /**
+     * Processes a finished transfer. Submits the next queued transfers of
+     * the same stream and then notifies the listener.
+     *
+     * @param transfer
+     *            The finished transfer.
+     */
+    void processTransfer(final Transfer transfer)
+    {
+        final int status = transfer.status();
+        final int actualLength = transfer.actualLength();
+        final Request request;
+        List<Request> failed = null;
+        synchronized (this.lock)
+        {
+            request = this.inFlight.remove(transfer);
+            final Stream stream = this.streams[transfer.streamId()];
+            stream.inFlight--;
+            transfer.setBuffer(null);
+            this.idleTransfers.add(transfer);
+            final Iterator<Request> queued = stream.queue.iterator();
+            while (queued.hasNext() && (stream.inFlight < this.maxInFlight))
+            {
+                final Request next = queued.next();
+                queued.remove();
+                if (submit(stream, next) != LibUsb.SUCCESS)
+                {
+                    if (failed == null)
+                    {
+                        failed = new ArrayList<Request>();
+                    }
+                    failed.add(next);
+                }
+            }
+        }
+        request.finish(status, actualLength);
+        if (failed != null)
+        {
+            for (final Request next: failed)
+            {
+                next.finish(LibUsb.TRANSFER_ERROR, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,630 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Captures data received by transfers directly into memory mapped files.
+ *
+ * Transfer buffers are handed out by {@link #acquire()} as slices of a
+ * memory mapped file region, so received data lands in the file without
+ * being copied. The data is written into segment files named
+ * {@code <prefix>-00000.bin}, {@code <prefix>-00001.bin} and so on, each
+ * preallocated to the segment size. A new segment is started when the
+ * current one has no room for another slot. A segment is flushed and closed
+ * when all of its slots have been committed.
+ *
+ * All file I/O is done by a background writer thread: It writes the index
+ * records, flushes and closes completed segments and creates and maps the
+ * next segment ahead of time. So {@link #acquire()} and
+ * {@link #commit(ByteBuffer, int, int)} only touch memory and are safe to
+ * call in a transfer callback. Only when the slots of the prepared segment
+ * are used up before the writer has prepared the next one does
+ * {@link #acquire()} wait for it.
+ *
+ * Each slot has the fixed slot size while transfers may receive less data,
+ * so the segment files contain gaps. The index file {@code <prefix>.idx}
+ * records the boundaries of the received data. It starts with the magic
+ * {@code USBCAPIX}, a version int (1) and the capture start time as a long
+ * (Milliseconds since the epoch), followed by one record per committed
+ * slot: segment number (int), offset in the segment (int), number of
+ * received bytes (int), transfer status (int) and the nanoseconds since the
+ * capture start (long). All values are big endian.
+ *
+ * Typical usage in a transfer callback:
+ *
+ * <pre>
+ * sink.capture(transfer);
+ * LibUsb.submitTransfer(transfer);
+ * </pre>
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class CaptureSink
+{
+    /** The index file magic. */
+    private static final byte[] MAGIC = { 'U', 'S', 'B', 'C', 'A', 'P', 'I',
+        'X' };
+
+    /** The index file version. */
+    private static final int VERSION = 1;
+
+    /** The directory of the capture files. */
+    private final File directory;
+
+    /** The file name prefix. */
+    private final String prefix;
+
+    /** The segment size in bytes. */
+    private final int segmentSize;
+
+    /** The slot size in bytes. */
+    private final int slotSize;
+
+    /** The index output. Only used by the writer thread. */
+    private final DataOutputStream index;
+
+    /** The index records not yet written by the writer thread. */
+    private final ByteArrayOutputStream recordBuffer =
+        new ByteArrayOutputStream();
+
+    /** The output for the index records not yet written. */
+    private final DataOutputStream records =
+        new DataOutputStream(this.recordBuffer);
+
+    /** The completed segments to be closed by the writer thread. */
+    private final ArrayDeque<Segment> completed = new ArrayDeque<Segment>();
+
+    /** The writer thread. */
+    private final Thread writer;
+
+    /** The capture start time in nanoseconds. */
+    private final long startTime;
+
+    /** The slots in use. */
+    private final Map<ByteBuffer, Slot> slots =
+        new IdentityHashMap<ByteBuffer, Slot>();
+
+    /** The current segment. Null if none has been started yet. */
+    private Segment segment;
+
+    /** The segment prepared by the writer thread. Null if not yet ready. */
+    private Segment spare;
+
+    /** The error of the writer thread. Null if none. */
+    private IOException failure;
+
+    /** The number of started segments. */
+    private int segmentCount;
+
+    /** The number of committed slots. */
+    private long slotCount;
+
+    /** The number of captured bytes. */
+    private long byteCount;
+
+    /** If the sink has been closed. */
+    private boolean closed;
+
+    /**
+     * A mapped segment file.
+     */
+    private static final class Segment
+    {
+        /** The segment number. */
+        final int number;
+
+        /** The file. */
+        final RandomAccessFile file;
+
+        /** The mapped file region. */
+        final MappedByteBuffer map;
+
+        /** The offset of the next slot. */
+        int used;
+
+        /** The number of slots which are not yet committed. */
+        int pending;
+
+        /** If no more slots are handed out from this segment. */
+        boolean full;
+
+        /** If the segment file has been closed. */
+        boolean closed;
+
+        /**
+         * Creates and maps a new segment file.
+         *
+         * @param number
+         *            The segment number.
+         * @param path
+         *            The file.
+         * @param size
+         *            The segment size.
+         * @throws IOException
+         *             When the file could not be created or mapped.
+         */
+        Segment(final int number, final File path, final int size)
+            throws IOException
+        {
+            this.number = number;
+            this.file = new RandomAccessFile(path, "rw");
+            try
+            {
+                this.file.setLength(size);
+                this.map = this.file.getChannel().map(
+                    FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            catch (final IOException e)
+            {
+                this.file.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Flushes the mapped data and closes the file. The mapping itself is
+         * released by the garbage collector.
+         *
+         * @throws IOException
+         *             When the file could not be closed.
+         */
+        void close() throws IOException
+        {
+            if (!this.closed)
+            {
+                this.closed = true;
+                this.map.force();
+                this.file.close();
+            }
+        }
+    }
+
+    /**
+     * A slot handed out to a transfer.
+     */
+    private static final class Slot
+    {
+        /** The segment of the slot. */
+        final Segment segment;
+
+        /** The offset of the slot in the segment. */
+        final int offset;
+
+        /**
+         * Constructs a new slot.
+         *
+         * @param segment
+         *            The segment of the slot.
+         * @param offset
+         *            The offset of the slot in the segment.
+         */
+        Slot(final Segment segment, final int offset)
+        {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Constructs a new capture sink and creates the index file.
+     *
+     * @param directory
+     *            The directory to write the files to.
+     * @param prefix
+     *            The file name prefix.
+     * @param segmentSize
+     *            The size of a segment file in bytes.
+     * @param slotSize
+     *            The size of a transfer buffer in bytes. Must not be larger
+     *            than the segment size.
+     * @throws IOException
+     *             When the index file could not be created.
+     */
+    public CaptureSink(final File directory, final String prefix,
+        final int segmentSize, final int slotSize) throws IOException
+    {
+        if (directory == null)
+        {
+            throw new IllegalArgumentException("directory must not be null");
+        }
+        if ((prefix == null) || prefix.isEmpty())
+        {
+            throw new IllegalArgumentException(
+                "prefix must not be null or empty");
+        }
+        if (slotSize <= 0)
+        {
+            throw new IllegalArgumentException("slotSize must be positive");
+        }
+        if (segmentSize < slotSize)
+        {
+            throw new IllegalArgumentException(
+                "segmentSize must not be smaller than slotSize");
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.slotSize = slotSize;
+        this.index = new DataOutputStream(new BufferedOutputStream(
+            new FileOutputStream(new File(directory, prefix + ".idx"))));
+        this.index.write(MAGIC);
+        this.index.writeInt(VERSION);
+        this.index.writeLong(System.currentTimeMillis());
+        this.startTime = System.nanoTime();
+        this.writer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                write();
+            }
+        }, "usb4java capture writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Returns the slot size.
+     *
+     * @return The slot size in bytes.
+     */
+    public int getSlotSize()
+    {
+        return this.slotSize;
+    }
+
+    /**
+     * Returns the segment size.
+     *
+     * @return The segment size in bytes.
+     */
+    public int getSegmentSize()
+    {
+        return this.segmentSize;
+    }
+
+    /**
+     * Returns the number of started segment files.
+     *
+     * @return The number of segments.
+     */
+    public synchronized int getSegmentCount()
+    {
+        return this.segmentCount;
+    }
+
+    /**
+     * Returns the number of committed slots.
+     *
+     * @return The number of committed slots.
+     */
+    public synchronized long getSlotCount()
+    {
+        return this.slotCount;
+    }
+
+    /**
+     * Returns the number of captured bytes.
+     *
+     * @return The number of captured bytes.
+     */
+    public synchronized long getByteCount()
+    {
+        return this.byteCount;
+    }
+
+    /**
+     * Returns the segment file with the specified number.
+     *
+     * @param number
+     *            The segment number.
+     * @return The segment file.
+     */
+    public File getSegmentFile(final int number)
+    {
+        return new File(this.directory, String.format("%s-%05d.bin",
+            this.prefix, number));
+    }
+
+    /**
+     * Returns the next free slot of the current segment. The segment
+     * prepared by the writer thread is started when the current one is full.
+     *
+     * @return The slot. A direct buffer with the slot size backed by the
+     *         mapped segment file.
+     * @throws IOException
+     *             When the writer thread failed or the calling thread was
+     *             interrupted while waiting for the next segment.
+     */
+    public synchronized ByteBuffer acquire() throws IOException
+    {
+        if (this.closed)
+        {
+            throw new IllegalStateException("Capture sink is closed");
+        }
+        checkFailure();
+        if ((this.segment == null)
+            || (this.segmentSize - this.segment.used < this.slotSize))
+        {
+            if (this.segment != null)
+            {
+                this.segment.full = true;
+                if (this.segment.pending == 0)
+                {
+                    this.completed.add(this.segment);
+                }
+            }
+            while (this.spare == null)
+            {
+                checkFailure();
+                try
+                {
+                    wait();
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(
+                        "Interrupted while waiting for the next segment");
+                }
+            }
+            this.segment = this.spare;
+            this.spare = null;
+            this.segmentCount++;
+            notifyAll();
+        }
+        final Segment current = this.segment;
+        final ByteBuffer view = current.map.duplicate();
+        view.position(current.used);
+        view.limit(current.used + this.slotSize);
+        final ByteBuffer slot = view.slice();
+        this.slots.put(slot, new Slot(current, current.used));
+        current.used += this.slotSize;
+        current.pending++;
+        return slot;
+    }
+
+    /**
+     * Commits a slot after data has been received into it. Queues an index
+     * record for the slot. The slot must not be used afterwards.
+     *
+     * @param slot
+     *            The slot obtained from {@link #acquire()}.
+     * @param length
+     *            The number of received bytes.
+     * @param status
+     *            The transfer status.
+     * @throws IOException
+     *             When the writer thread failed.
+     */
+    public synchronized void commit(final ByteBuffer slot, final int length,
+        final int status) throws IOException
+    {
+        if ((length < 0) || (length > this.slotSize))
+        {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        final Slot entry = this.slots.remove(slot);
+        if (entry == null)
+        {
+            throw new IllegalArgumentException("Unknown slot");
+        }
+        checkFailure();
+        final Segment owner = entry.segment;
+        this.records.writeInt(owner.number);
+        this.records.writeInt(entry.offset);
+        this.records.writeInt(length);
+        this.records.writeInt(status);
+        this.records.writeLong(System.nanoTime() - this.startTime);
+        this.slotCount++;
+        this.byteCount += length;
+        owner.pending--;
+        if (owner.full && (owner.pending == 0))
+        {
+            this.completed.add(owner);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Commits the buffer of a completed transfer and gives the transfer a
+     * fresh slot so it can be resubmitted right away.
+     *
+     * @param transfer
+     *            The completed transfer. Its buffer must be a slot obtained
+     *            from this sink.
+     * @throws IOException
+     *             When the writer thread failed or the calling thread was
+     *             interrupted while waiting for the next segment.
+     */
+    public void capture(final Transfer transfer) throws IOException
+    {
+        commit(transfer.buffer(), transfer.actualLength(), transfer.status());
+        transfer.setBuffer(acquire());
+    }
+
+    /**
+     * Waits for the writer thread to write all queued index records and then
+     * flushes and closes all files. Slots which were not committed yet are
+     * flushed but not indexed. The segment prepared for future slots is
+     * deleted.
+     *
+     * @throws IOException
+     *             When the writer thread failed, a file could not be closed
+     *             or the calling thread was interrupted while waiting for
+     *             the writer thread.
+     */
+    public void close() throws IOException
+    {
+        synchronized (this)
+        {
+            if (this.closed)
+            {
+                return;
+            }
+            this.closed = true;
+            notifyAll();
+        }
+        try
+        {
+            this.writer.join();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(
+                "Interrupted while waiting for the capture writer");
+        }
+        synchronized (this)
+        {
+            try
+            {
+                for (final Segment owner: this.completed)
+                {
+                    owner.close();
+                }
+                this.completed.clear();
+                for (final Slot slot: this.slots.values())
+                {
+                    slot.segment.close();
+                }
+                this.slots.clear();
+                if (this.segment != null)
+                {
+                    this.segment.close();
+                }
+                if (this.spare != null)
+                {
+                    this.spare.close();
+                    getSegmentFile(this.spare.number).delete();
+                    this.spare = null;
+                }
+            }
+            finally
+            {
+                this.index.close();
+            }
+            checkFailure();
+        }
+    }
+
+    /**
+     * Throws the error of the writer thread if there is one. Must be called
+     * with the lock held.
+     *
+     * @throws IOException
+     *             The error of the writer thread.
+     */
+    private void checkFailure() throws IOException
+    {
+        if (this.failure != null)
+        {
+            throw new IOException("Capture writer failed", this.failure);
+        }
+    }
+
+    /**
+     * Runs the writer thread. Writes the queued index records, closes the
+     * completed segments and prepares the next segment until the sink is
+     * closed and everything queued has been written.
+     */
+    private void write()
+    {
+        final List<Segment> closing = new ArrayList<Segment>();
+        try
+        {
+            while (true)
+            {
+                final byte[] data;
+                final boolean prepare;
+                final int number;
+                synchronized (this)
+                {
+                    while (!this.closed && (this.recordBuffer.size() == 0)
+                        && this.completed.isEmpty() && (this.spare != null))
+                    {
+                        wait();
+                    }
+                    if (this.closed && (this.recordBuffer.size() == 0)
+                        && this.completed.isEmpty())
+                    {
+                        return;
+                    }
+                    data = this.recordBuffer.toByteArray();
+                    this.recordBuffer.reset();
+                    closing.addAll(this.completed);
+                    this.completed.clear();
+                    prepare = !this.closed && (this.spare == null);
+                    number = this.segmentCount;
+                }
+                if (data.length > 0)
+                {
+                    this.index.write(data);
+                    this.index.flush();
+                }
+                for (final Segment owner: closing)
+                {
+                    owner.close();
+                }
+                closing.clear();
+                if (prepare)
+                {
+                    final Segment next = new Segment(number,
+                        getSegmentFile(number), this.segmentSize);
+                    synchronized (this)
+                    {
+                        this.spare = next;
+                        notifyAll();
+                    }
+                }
+            }
+        }
+        catch (final IOException e)
+        {
+            fail(e, closing);
+        }
+        catch (final InterruptedException e)
+        {
+            fail(new InterruptedIOException("Capture writer interrupted"),
+                closing);
+        }
+    }
+
+    /**
+     * Records the error of the writer thread and wakes up the threads
+     * waiting for it. Segments which were taken for closing are put back so
+     * {@link #close()} closes them.
+     *
+     * @param error
+     *            The error.
+     * @param closing
+     *            The segments taken for closing by the writer thread.
+     */
+    private synchronized void fail(final IOException error,
+        final List<Segment> closing)
+    {
+        this.failure = error;
+        this.completed.addAll(closing);
+        notifyAll();
+    }
+}
@@ -0,0 +1,672 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * In-memory index of the connected devices which supports lookups by
+ * vendor/product ID, device class, serial number and port path without
+ * iterating the device list.
+ *
+ * When libusb supports hotplug the index registers a hotplug callback and is
+ * updated automatically. Otherwise {@link #refresh()} must be called to
+ * update it. Serial numbers require opening the device, so they are read by
+ * a background thread after the device arrived and are not immediately
+ * available.
+ *
+ * All lookups are thread-safe and return snapshots which are not affected
+ * by later changes of the index.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class DeviceIndex implements HotplugCallback
+{
+    /** The maximum port path depth according to the USB 3.0 specification. */
+    private static final int MAX_PORT_DEPTH = 7;
+
+    /** The context or null for the default context. */
+    private final Context context;
+
+    /** Whether serial numbers are read. */
+    private final boolean readSerialNumbers;
+
+    /** The entries mapped by bus number and address. */
+    private final Map<Integer, IndexedDevice> byAddress =
+        new HashMap<Integer, IndexedDevice>();
+
+    /** The entries mapped by vendor and product ID. */
+    private final Map<Integer, List<IndexedDevice>> byId =
+        new HashMap<Integer, List<IndexedDevice>>();
+
+    /** The entries mapped by device class. */
+    private final Map<Byte, List<IndexedDevice>> byClass =
+        new HashMap<Byte, List<IndexedDevice>>();
+
+    /** The entries mapped by serial number. */
+    private final Map<String, List<IndexedDevice>> bySerialNumber =
+        new HashMap<String, List<IndexedDevice>>();
+
+    /** The entries sorted by port path. */
+    private final TreeMap<String, IndexedDevice> byPortPath =
+        new TreeMap<String, IndexedDevice>();
+
+    /** The port numbers buffer. Only used by the updating thread. */
+    private final ByteBuffer path = BufferUtils.allocateByteBuffer(
+        MAX_PORT_DEPTH);
+
+    /** The hotplug callback handle. Null if not registered. */
+    private HotplugCallbackHandle callbackHandle;
+
+    /** The executor reading serial numbers. Null if not started. */
+    private ExecutorService executor;
+
+    /**
+     * Constructs a new device index.
+     *
+     * @param context
+     *            The context or null for the default context.
+     * @param readSerialNumbers
+     *            Whether devices are opened to read their serial numbers.
+     */
+    public DeviceIndex(final Context context, final boolean readSerialNumbers)
+    {
+        this.context = context;
+        this.readSerialNumbers = readSerialNumbers;
+    }
+
+    /**
+     * Starts the index. When hotplug is supported a hotplug callback is
+     * registered which enumerates all connected devices and keeps the index
+     * up to date. Otherwise the index is filled once with the current device
+     * list.
+     *
+     * @return True if the index is kept up to date by hotplug events, false
+     *         if {@link #refresh()} must be called to update it.
+     * @throws LibUsbException
+     *             When the callback could not be registered or the device
+     *             list could not be read.
+     */
+    public boolean start()
+    {
+        synchronized (this)
+        {
+            if (this.executor != null)
+            {
+                throw new IllegalStateException("Index is already started");
+            }
+            this.executor = Executors.newSingleThreadExecutor(
+                new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(final Runnable runnable)
+                    {
+                        final Thread thread = new Thread(runnable,
+                            "usb4java device index");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            if (!LibUsb.hasCapability(LibUsb.CAP_HAS_HOTPLUG))
+            {
+                refresh();
+                return false;
+            }
+        }
+
+        // Registering must not be done while holding the lock because libusb
+        // holds its own lock while calling the callback which needs ours.
+        final HotplugCallbackHandle handle = new HotplugCallbackHandle();
+        final int result = LibUsb.hotplugRegisterCallback(this.context,
+            LibUsb.HOTPLUG_EVENT_DEVICE_ARRIVED
+                | LibUsb.HOTPLUG_EVENT_DEVICE_LEFT,
+            LibUsb.HOTPLUG_ENUMERATE, LibUsb.HOTPLUG_MATCH_ANY,
+            LibUsb.HOTPLUG_MATCH_ANY, LibUsb.HOTPLUG_MATCH_ANY, this, null,
+            handle);
+        synchronized (this)
+        {
+            if (result != LibUsb.SUCCESS)
+            {
+                this.executor.shutdown();
+                this.executor = null;
+                throw new LibUsbException(
+                    "Unable to register hotplug callback", result);
+            }
+            this.callbackHandle = handle;
+        }
+        return true;
+    }
+
+    /**
+     * Stops the index. The hotplug callback is deregistered and all entries
+     * are removed.
+     */
+    public void stop()
+    {
+        final HotplugCallbackHandle handle;
+        synchronized (this)
+        {
+            if (this.executor == null)
+            {
+                throw new IllegalStateException("Index is not started");
+            }
+            this.executor.shutdown();
+            this.executor = null;
+            handle = this.callbackHandle;
+            this.callbackHandle = null;
+        }
+        if (handle != null)
+        {
+            LibUsb.hotplugDeregisterCallback(this.context, handle);
+        }
+        synchronized (this)
+        {
+            for (final IndexedDevice entry: new ArrayList<IndexedDevice>(
+                this.byAddress.values()))
+            {
+                unindex(entry);
+                LibUsb.unrefDevice(entry.getDevice());
+            }
+        }
+    }
+
+    /**
+     * Synchronizes the index with the current device list. Only needed when
+     * hotplug is not supported.
+     *
+     * @throws LibUsbException
+     *             When the device list could not be read.
+     */
+    public synchronized void refresh()
+    {
+        if (this.executor == null)
+        {
+            throw new IllegalStateException("Index is not started");
+        }
+        final DeviceList list = new DeviceList();
+        final int result = LibUsb.getDeviceList(this.context, list);
+        if (result < 0)
+        {
+            throw new LibUsbException("Unable to get device list", result);
+        }
+        try
+        {
+            final Set<Integer> present = new HashSet<Integer>();
+            for (final Device device: list)
+            {
+                final Integer key = key(LibUsb.getBusNumber(device),
+                    LibUsb.getDeviceAddress(device));
+                present.add(key);
+                final IndexedDevice entry = this.byAddress.get(key);
+                if ((entry == null) || !entry.getDevice().equals(device))
+                {
+                    arrived(device);
+                }
+            }
+            for (final Integer key: new ArrayList<Integer>(
+                this.byAddress.keySet()))
+            {
+                if (!present.contains(key))
+                {
+                    final IndexedDevice entry = this.byAddress.get(key);
+                    unindex(entry);
+                    LibUsb.unrefDevice(entry.getDevice());
+                }
+            }
+        }
+        finally
+        {
+            LibUsb.freeDeviceList(list, true);
+        }
+    }
+
+    @Override
+    public int processEvent(final Context context, final Device device,
+        final int event, final Object userData)
+    {
+        synchronized (this)
+        {
+            if (this.executor == null)
+            {
+                // Index was stopped while this event was pending
+                return 0;
+            }
+            if (event == LibUsb.HOTPLUG_EVENT_DEVICE_ARRIVED)
+            {
+                arrived(device);
+            }
+            else if (event == LibUsb.HOTPLUG_EVENT_DEVICE_LEFT)
+            {
+                final IndexedDevice entry = remove(
+                    LibUsb.getBusNumber(device),
+                    LibUsb.getDeviceAddress(device));
+                if (entry != null)
+                {
+                    LibUsb.unrefDevice(entry.getDevice());
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds an arrived device to the index and schedules reading its serial
+     * number. Must be called while holding the lock.
+     *
+     * @param device
+     *            The arrived device.
+     */
+    private void arrived(final Device device)
+    {
+        final DeviceDescriptor descriptor = new DeviceDescriptor();
+        if (LibUsb.getDeviceDescriptor(device, descriptor) != LibUsb.SUCCESS)
+        {
+            return;
+        }
+        final int busNumber = LibUsb.getBusNumber(device);
+        final int depth = LibUsb.getPortNumbers(device, this.path);
+        final byte[] portNumbers = new byte[Math.max(0, depth)];
+        for (int i = 0; i < portNumbers.length; i++)
+        {
+            portNumbers[i] = this.path.get(i);
+        }
+        final IndexedDevice entry = new IndexedDevice(
+            LibUsb.refDevice(device), busNumber,
+            LibUsb.getDeviceAddress(device),
+            ScannedDevice.portPath(busNumber, portNumbers),
+            descriptor.idVendor(), descriptor.idProduct(),
+            descriptor.bDeviceClass(), descriptor.iSerialNumber(), null);
+        final IndexedDevice previous = put(entry);
+        if (previous != null)
+        {
+            LibUsb.unrefDevice(previous.getDevice());
+        }
+        if (this.readSerialNumbers && (entry.getSerialNumberIndex() != 0))
+        {
+            // The device is referenced again so it stays valid even when it
+            // is removed from the index before the serial number is read
+            LibUsb.refDevice(device);
+            this.executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    readSerialNumber(entry);
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the serial number of the specified entry and updates the index
+     * if the entry is still present. Called by the executor thread.
+     *
+     * @param entry
+     *            The entry.
+     */
+    void readSerialNumber(final IndexedDevice entry)
+    {
+        try
+        {
+            final DeviceHandle handle = new DeviceHandle();
+            if (LibUsb.open(entry.getDevice(), handle) != LibUsb.SUCCESS)
+            {
+                return;
+            }
+            final String serialNumber;
+            try
+            {
+                serialNumber = LibUsb.getStringDescriptor(handle,
+                    entry.getSerialNumberIndex());
+            }
+            finally
+            {
+                LibUsb.close(handle);
+            }
+            if (serialNumber != null)
+            {
+                setSerialNumber(entry, serialNumber);
+            }
+        }
+        finally
+        {
+            LibUsb.unrefDevice(entry.getDevice());
+        }
+    }
+
+    /**
+     * Replaces the specified entry with a copy containing the serial number.
+     * Does nothing when the entry is no longer in the index.
+     *
+     * @param entry
+     *            The entry.
+     * @param serialNumber
+     *            The serial number.
+     */
+    synchronized void setSerialNumber(final IndexedDevice entry,
+        final String serialNumber)
+    {
+        if (this.byAddress.get(key(entry.getBusNumber(),
+            entry.getAddress())) == entry)
+        {
+            unindex(entry);
+            index(entry.withSerialNumber(serialNumber));
+        }
+    }
+
+    /**
+     * Adds the specified entry to the index, replacing an entry with the same
+     * bus number and address.
+     *
+     * @param entry
+     *            The entry to add.
+     * @return The replaced entry or null if none.
+     */
+    synchronized IndexedDevice put(final IndexedDevice entry)
+    {
+        final IndexedDevice previous = this.byAddress.get(
+            key(entry.getBusNumber(), entry.getAddress()));
+        if (previous != null)
+        {
+            unindex(previous);
+        }
+        index(entry);
+        return previous;
+    }
+
+    /**
+     * Removes the entry with the specified bus number and address.
+     *
+     * @param busNumber
+     *            The bus number.
+     * @param address
+     *            The device address.
+     * @return The removed entry or null if none.
+     */
+    synchronized IndexedDevice remove(final int busNumber, final int address)
+    {
+        final IndexedDevice entry = this.byAddress.get(key(busNumber,
+            address));
+        if (entry != null)
+        {
+            unindex(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds the entry to all maps. Must be called while holding the lock.
+     *
+     * @param entry
+     *            The entry.
+     */
+    private void index(final IndexedDevice entry)
+    {
+        this.byAddress.put(key(entry.getBusNumber(), entry.getAddress()),
+            entry);
+        this.byPortPath.put(entry.getPortPath(), entry);
+        add(this.byId, id(entry.getVendorId(), entry.getProductId()), entry);
+        add(this.byClass, Byte.valueOf(entry.getDeviceClass()), entry);
+        if (entry.getSerialNumber() != null)
+        {
+            add(this.bySerialNumber, entry.getSerialNumber(), entry);
+        }
+    }
+
+    /**
+     * Removes the entry from all maps. Must be called while holding the
+     * lock.
+     *
+     * @param entry
+     *            The entry.
+     */
+    private void unindex(final IndexedDevice entry)
+    {
+        this.byAddress.remove(key(entry.getBusNumber(), entry.getAddress()));
+        if (this.byPortPath.get(entry.getPortPath()) == entry)
+        {
+            this.byPortPath.remove(entry.getPortPath());
+        }
+        remove(this.byId, id(entry.getVendorId(), entry.getProductId()),
+            entry);
+        remove(this.byClass, Byte.valueOf(entry.getDeviceClass()), entry);
+        if (entry.getSerialNumber() != null)
+        {
+            remove(this.bySerialNumber, entry.getSerialNumber(), entry);
+        }
+    }
+
+    /**
+     * Adds an entry to a multi map.
+     *
+     * @param map
+     *            The map.
+     * @param key
+     *            The key.
+     * @param entry
+     *            The entry to add.
+     * @param <K>
+     *            The key type.
+     */
+    private static <K> void add(final Map<K, List<IndexedDevice>> map,
+        final K key, final IndexedDevice entry)
+    {
+        List<IndexedDevice> list = map.get(key);
+        if (list == null)
+        {
+            list = new ArrayList<IndexedDevice>(1);
+            map.put(key, list);
+        }
+        list.add(entry);
+    }
+
+    /**
+     * Removes an entry from a multi map.
+     *
+     * @param map
+     *            The map.
+     * @param key
+     *            The key.
+     * @param entry
+     *            The entry to remove.
+     * @param <K>
+     *            The key type.
+     */
+    private static <K> void remove(final Map<K, List<IndexedDevice>> map,
+        final K key, final IndexedDevice entry)
+    {
+        final List<IndexedDevice> list = map.get(key);
+        if ((list != null) && list.remove(entry) && list.isEmpty())
+        {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * Returns the map key for a bus number and device address.
+     *
+     * @param busNumber
+     *            The bus number.
+     * @param address
+     *            The device address.
+     * @return The map key.
+     */
+    private static Integer key(final int busNumber, final int address)
+    {
+        return Integer.valueOf((busNumber << 8) | (address & 0xff));
+    }
+
+    /**
+     * Returns the map key for a vendor and product ID.
+     *
+     * @param vendorId
+     *            The vendor ID.
+     * @param productId
+     *            The product ID.
+     * @return The map key.
+     */
+    private static Integer id(final short vendorId, final short productId)
+    {
+        return Integer.valueOf(((vendorId & 0xffff) << 16)
+            | (productId & 0xffff));
+    }
+
+    /**
+     * Returns an unmodifiable copy of the specified entries.
+     *
+     * @param entries
+     *            The entries. May be null.
+     * @return The copy.
+     */
+    private static List<IndexedDevice> copy(
+        final Collection<IndexedDevice> entries)
+    {
+        if (entries == null)
+        {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(
+            new ArrayList<IndexedDevice>(entries));
+    }
+
+    /**
+     * Returns the number of indexed devices.
+     *
+     * @return The number of devices.
+     */
+    public synchronized int size()
+    {
+        return this.byAddress.size();
+    }
+
+    /**
+     * Returns all indexed devices sorted by port path.
+     *
+     * @return The devices.
+     */
+    public synchronized List<IndexedDevice> getAll()
+    {
+        return copy(this.byPortPath.values());
+    }
+
+    /**
+     * Returns the device with the specified bus number and address.
+     *
+     * @param busNumber
+     *            The bus number.
+     * @param address
+     *            The device address.
+     * @return The device or null if not found.
+     */
+    public synchronized IndexedDevice get(final int busNumber,
+        final int address)
+    {
+        return this.byAddress.get(key(busNumber, address));
+    }
+
+    /**
+     * Returns all devices with the specified vendor and product ID.
+     *
+     * @param vendorId
+     *            The vendor ID.
+     * @param productId
+     *            The product ID.
+     * @return The matching devices. Empty if none.
+     */
+    public synchronized List<IndexedDevice> getById(final short vendorId,
+        final short productId)
+    {
+        return copy(this.byId.get(id(vendorId, productId)));
+    }
+
+    /**
+     * Returns all devices with the specified device class. Note that most
+     * devices specify their class per interface and therefore have the
+     * device class {@link LibUsb#CLASS_PER_INTERFACE}.
+     *
+     * @param deviceClass
+     *            The device class.
+     * @return The matching devices. Empty if none.
+     */
+    public synchronized List<IndexedDevice> getByClass(final byte deviceClass)
+    {
+        return copy(this.byClass.get(Byte.valueOf(deviceClass)));
+    }
+
+    /**
+     * Returns all devices with the specified serial number. Serial numbers
+     * should be unique but many cheap devices share a fixed one.
+     *
+     * @param serialNumber
+     *            The serial number.
+     * @return The matching devices. Empty if none.
+     */
+    public synchronized List<IndexedDevice> getBySerialNumber(
+        final String serialNumber)
+    {
+        return copy(this.bySerialNumber.get(serialNumber));
+    }
+
+    /**
+     * Returns the device with the specified port path.
+     *
+     * @param portPath
+     *            The port path, for example "1-2.4".
+     * @return The device or null if not found.
+     */
+    public synchronized IndexedDevice getByPortPath(final String portPath)
+    {
+        return this.byPortPath.get(portPath);
+    }
+
+    /**
+     * Returns the device with the specified port path and all devices
+     * connected below it. "1-2" for example returns the hub at "1-2" and
+     * the devices "1-2.1" and "1-2.4.3" but not "1-21". A root hub path
+     * like "usb1" returns all devices of the bus.
+     *
+     * @param portPath
+     *            The port path.
+     * @return The matching devices sorted by port path. Empty if none.
+     */
+    public synchronized List<IndexedDevice> getByPortPathPrefix(
+        final String portPath)
+    {
+        final List<IndexedDevice> result = new ArrayList<IndexedDevice>();
+        final IndexedDevice entry = this.byPortPath.get(portPath);
+        if (entry != null)
+        {
+            result.add(entry);
+        }
+        final String below;
+        if (portPath.startsWith("usb"))
+        {
+            below = portPath.substring(3) + '-';
+        }
+        else
+        {
+            below = portPath + '.';
+        }
+        // The character following '-' and '.' limits the range to paths
+        // starting with the prefix.
+        result.addAll(this.byPortPath.subMap(below,
+            below.substring(0, below.length() - 1)
+                + (char) (below.charAt(below.length() - 1) + 1)).values());
+        return Collections.unmodifiableList(result);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of all devices found by a {@link DeviceScanner},
+ * arranged as a topology tree of hubs and the devices connected to them.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class DeviceInventory
+{
+    /** The scanned devices in enumeration order. */
+    private final List<ScannedDevice> devices;
+
+    /** The root hubs. */
+    private final List<ScannedDevice> roots;
+
+    /** The devices mapped by bus number and address. */
+    private final Map<Integer, ScannedDevice> byAddress;
+
+    /** The children of the devices mapped by bus number and address. */
+    private final Map<Integer, List<ScannedDevice>> children;
+
+    /** The devices mapped by port path. */
+    private final Map<String, ScannedDevice> byPortPath;
+
+    /** The total duration of the scan in nanoseconds. */
+    private final long scanNanos;
+
+    /**
+     * Constructs a new inventory.
+     *
+     * @param devices
+     *            The scanned devices. The list is copied.
+     * @param scanNanos
+     *            The total duration of the scan in nanoseconds.
+     */
+    DeviceInventory(final List<ScannedDevice> devices, final long scanNanos)
+    {
+        this.devices = Collections.unmodifiableList(
+            new ArrayList<ScannedDevice>(devices));
+        this.scanNanos = scanNanos;
+        this.byAddress = new HashMap<Integer, ScannedDevice>();
+        this.byPortPath = new HashMap<String, ScannedDevice>();
+        for (final ScannedDevice device: devices)
+        {
+            this.byAddress.put(key(device.getBusNumber(),
+                device.getAddress()), device);
+            this.byPortPath.put(device.getPortPath(), device);
+        }
+
+        final List<ScannedDevice> roots = new ArrayList<ScannedDevice>();
+        final Map<Integer, List<ScannedDevice>> children =
+            new HashMap<Integer, List<ScannedDevice>>();
+        for (final ScannedDevice device: devices)
+        {
+            final Integer parentKey = key(device.getBusNumber(),
+                device.getParentAddress());
+            if ((device.getParentAddress() < 0)
+                || !this.byAddress.containsKey(parentKey))
+            {
+                roots.add(device);
+                continue;
+            }
+            List<ScannedDevice> list = children.get(parentKey);
+            if (list == null)
+            {
+                list = new ArrayList<ScannedDevice>();
+                children.put(parentKey, list);
+            }
+            list.add(device);
+        }
+        this.roots = Collections.unmodifiableList(roots);
+        this.children = new HashMap<Integer, List<ScannedDevice>>();
+        for (final Map.Entry<Integer, List<ScannedDevice>> entry: children
+            .entrySet())
+        {
+            this.children.put(entry.getKey(),
+                Collections.unmodifiableList(entry.getValue()));
+        }
+    }
+
+    /**
+     * Returns the map key for the specified device.
+     *
+     * @param busNumber
+     *            The bus number.
+     * @param address
+     *            The device address.
+     * @return The map key.
+     */
+    private static Integer key(final int busNumber, final int address)
+    {
+        return Integer.valueOf((busNumber << 8) | (address & 0xff));
+    }
+
+    /**
+     * Returns all devices in enumeration order.
+     *
+     * @return The unmodifiable list of devices.
+     */
+    public List<ScannedDevice> getDevices()
+    {
+        return this.devices;
+    }
+
+    /**
+     * Returns the devices at the top of the topology tree. These are
+     * normally the root hubs but also devices whose parent could not be
+     * determined.
+     *
+     * @return The unmodifiable list of root devices.
+     */
+    public List<ScannedDevice> getRoots()
+    {
+        return this.roots;
+    }
+
+    /**
+     * Returns the parent of the specified device.
+     *
+     * @param device
+     *            The device.
+     * @return The parent device or null if the device is a root device.
+     */
+    public ScannedDevice getParent(final ScannedDevice device)
+    {
+        if (device.getParentAddress() < 0)
+        {
+            return null;
+        }
+        return this.byAddress.get(key(device.getBusNumber(),
+            device.getParentAddress()));
+    }
+
+    /**
+     * Returns the devices connected to the specified hub.
+     *
+     * @param device
+     *            The hub.
+     * @return The unmodifiable list of children. Empty if none.
+     */
+    public List<ScannedDevice> getChildren(final ScannedDevice device)
+    {
+        final List<ScannedDevice> list = this.children.get(key(
+            device.getBusNumber(), device.getAddress()));
+        if (list == null)
+        {
+            return Collections.emptyList();
+        }
+        return list;
+    }
+
+    /**
+     * Returns the device with the specified bus number and address.
+     *
+     * @param busNumber
+     *            The bus number.
+     * @param address
+     *            The device address.
+     * @return The device or null if not found.
+     */
+    public ScannedDevice getDevice(final int busNumber, final int address)
+    {
+        return this.byAddress.get(key(busNumber, address));
+    }
+
+    /**
+     * Returns the device with the specified port path.
+     *
+     * @param portPath
+     *            The port path as returned by
+     *            {@link ScannedDevice#getPortPath()}.
+     * @return The device or null if not found.
+     */
+    public ScannedDevice getDevice(final String portPath)
+    {
+        return this.byPortPath.get(portPath);
+    }
+
+    /**
+     * Returns the total duration of the scan.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getScanNanos()
+    {
+        return this.scanNanos;
+    }
+
+    /**
+     * Returns the sum of the probe times of all devices. Compared with
+     * {@link #getScanNanos()} this shows how much time was saved by
+     * probing in parallel.
+     *
+     * @return The summed probe time in nanoseconds.
+     */
+    public long getTotalProbeNanos()
+    {
+        long total = 0;
+        for (final ScannedDevice device: this.devices)
+        {
+            total += device.getProbeNanos();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the device which took longest to probe.
+     *
+     * @return The slowest device or null if inventory is empty.
+     */
+    public ScannedDevice getSlowestDevice()
+    {
+        ScannedDevice slowest = null;
+        for (final ScannedDevice device: this.devices)
+        {
+            if ((slowest == null)
+                || (device.getProbeNanos() > slowest.getProbeNanos()))
+            {
+                slowest = device;
+            }
+        }
+        return slowest;
+    }
+}
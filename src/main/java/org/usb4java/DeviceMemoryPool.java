@@ -0,0 +1,458 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Per-device pool of transfer buffers backed by device memory.
+ *
+ * Buffers are allocated with {@link LibUsb#devMemAlloc(DeviceHandle, int)}
+ * which on Linux maps DMA-able kernel memory into the process, so usbfs
+ * doesn't need to copy the data between user space and a kernel bounce
+ * buffer. When the platform doesn't support device memory then the pool
+ * transparently falls back to normal direct buffers and doesn't try to
+ * allocate device memory again.
+ *
+ * Device memory is not reclaimed by the garbage collector and must be freed
+ * before the device is closed. So the pool takes ownership of the device
+ * handle and closes it in {@link #close()} instead of the application
+ * calling {@link LibUsb#close(DeviceHandle)}. When buffers are still in use
+ * (For example by transfers in flight) then freeing their memory and
+ * closing the handle is deferred until the last of them is released.
+ *
+ * Only buffers obtained from {@link #acquire(int)} and not yet released
+ * can be released, so a buffer can't end up in the pool twice.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class DeviceMemoryPool
+{
+    /** The default maximum number of idle buffers per buffer size. */
+    public static final int DEFAULT_MAX_IDLE = 16;
+
+    /** The device handle. */
+    private final DeviceHandle handle;
+
+    /** The idle buffers mapped by their size. */
+    private final Map<Integer, ArrayDeque<ByteBuffer>> idle =
+        new HashMap<Integer, ArrayDeque<ByteBuffer>>();
+
+    /** All allocated buffers backed by device memory. */
+    private final Map<ByteBuffer, Boolean> deviceBuffers =
+        new IdentityHashMap<ByteBuffer, Boolean>();
+
+    /** The buffers currently handed out by {@link #acquire(int)}. */
+    private final Map<ByteBuffer, Boolean> outstanding =
+        new IdentityHashMap<ByteBuffer, Boolean>();
+
+    /** The libusb operations. */
+    private final Operations operations;
+
+    /** The maximum number of idle buffers per buffer size. */
+    private int maxIdle = DEFAULT_MAX_IDLE;
+
+    /** The number of device memory buffers currently in use. */
+    private int inUse;
+
+    /** If device memory is supported. Assumed until an allocation fails. */
+    private boolean supported = true;
+
+    /** If the pool has been closed. */
+    private boolean closed;
+
+    /**
+     * The libusb operations used by the pool. Replaced by tests.
+     */
+    interface Operations
+    {
+        /**
+         * Allocates device memory.
+         *
+         * @param handle
+         *            The device handle.
+         * @param size
+         *            The size in bytes.
+         * @return The buffer or null if device memory is not supported.
+         */
+        ByteBuffer devMemAlloc(DeviceHandle handle, int size);
+
+        /**
+         * Frees device memory.
+         *
+         * @param handle
+         *            The device handle.
+         * @param buffer
+         *            The buffer.
+         * @param size
+         *            The size in bytes.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int devMemFree(DeviceHandle handle, ByteBuffer buffer, int size);
+
+        /**
+         * Closes the device handle.
+         *
+         * @param handle
+         *            The device handle.
+         */
+        void close(DeviceHandle handle);
+    }
+
+    /**
+     * The operations calling libusb.
+     */
+    private static final class LibUsbOperations implements Operations
+    {
+        /**
+         * Constructs new libusb operations.
+         */
+        LibUsbOperations()
+        {
+            // Empty
+        }
+
+        @Override
+        public ByteBuffer devMemAlloc(final DeviceHandle handle,
+            final int size)
+        {
+            return LibUsb.devMemAlloc(handle, size);
+        }
+
+        @Override
+        public int devMemFree(final DeviceHandle handle,
+            final ByteBuffer buffer, final int size)
+        {
+            return LibUsb.devMemFree(handle, buffer, size);
+        }
+
+        @Override
+        public void close(final DeviceHandle handle)
+        {
+            LibUsb.close(handle);
+        }
+    }
+
+    /**
+     * Constructs a new pool for the specified device handle. The pool takes
+     * ownership of the handle, which must be closed with {@link #close()}
+     * from now on.
+     *
+     * @param handle
+     *            The open device handle.
+     */
+    public DeviceMemoryPool(final DeviceHandle handle)
+    {
+        this(handle, new LibUsbOperations());
+    }
+
+    /**
+     * Constructs a new pool with the specified libusb operations.
+     *
+     * @param handle
+     *            The open device handle.
+     * @param operations
+     *            The libusb operations.
+     */
+    DeviceMemoryPool(final DeviceHandle handle, final Operations operations)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        this.handle = handle;
+        this.operations = operations;
+    }
+
+    /**
+     * Returns the device handle.
+     *
+     * @return The device handle.
+     */
+    public DeviceHandle getHandle()
+    {
+        return this.handle;
+    }
+
+    /**
+     * Checks if device memory is supported. This is assumed until an
+     * allocation of device memory fails.
+     *
+     * @return True if device memory is supported, false if the pool falls
+     *         back to direct buffers.
+     */
+    public synchronized boolean isSupported()
+    {
+        return this.supported;
+    }
+
+    /**
+     * Returns the maximum number of idle buffers kept per buffer size.
+     *
+     * @return The maximum number of idle buffers.
+     */
+    public synchronized int getMaxIdle()
+    {
+        return this.maxIdle;
+    }
+
+    /**
+     * Sets the maximum number of idle buffers kept per buffer size.
+     * Released buffers exceeding this limit are freed.
+     *
+     * @param maxIdle
+     *            The maximum number of idle buffers.
+     */
+    public synchronized void setMaxIdle(final int maxIdle)
+    {
+        if (maxIdle < 0)
+        {
+            throw new IllegalArgumentException("maxIdle must not be negative");
+        }
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns the number of allocated buffers backed by device memory,
+     * idle or in use.
+     *
+     * @return The number of device memory buffers.
+     */
+    public synchronized int getDeviceBufferCount()
+    {
+        return this.deviceBuffers.size();
+    }
+
+    /**
+     * Returns the number of buffers backed by device memory which are
+     * currently in use.
+     *
+     * @return The number of device memory buffers in use.
+     */
+    public synchronized int getInUseCount()
+    {
+        return this.inUse;
+    }
+
+    /**
+     * Returns the number of idle buffers with the specified size.
+     *
+     * @param size
+     *            The buffer size.
+     * @return The number of idle buffers.
+     */
+    public synchronized int getIdleCount(final int size)
+    {
+        final ArrayDeque<ByteBuffer> buffers = this.idle.get(size);
+        return buffers == null ? 0 : buffers.size();
+    }
+
+    /**
+     * Returns a cleared buffer with the specified capacity. An idle buffer
+     * is reused if available. Otherwise device memory is allocated or a
+     * direct buffer if device memory is not supported.
+     *
+     * @param size
+     *            The buffer size in bytes.
+     * @return The buffer.
+     */
+    public synchronized ByteBuffer acquire(final int size)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        if (this.closed)
+        {
+            throw new IllegalStateException("Pool has been closed");
+        }
+        final ArrayDeque<ByteBuffer> buffers = this.idle.get(size);
+        if ((buffers != null) && !buffers.isEmpty())
+        {
+            final ByteBuffer buffer = buffers.poll();
+            if (this.deviceBuffers.containsKey(buffer))
+            {
+                this.inUse++;
+            }
+            buffer.clear();
+            this.outstanding.put(buffer, Boolean.TRUE);
+            return buffer;
+        }
+        if (this.supported)
+        {
+            final ByteBuffer buffer = this.operations.devMemAlloc(this.handle,
+                size);
+            if (buffer != null)
+            {
+                this.deviceBuffers.put(buffer, Boolean.TRUE);
+                this.inUse++;
+                this.outstanding.put(buffer, Boolean.TRUE);
+                return buffer;
+            }
+            this.supported = false;
+        }
+        final ByteBuffer buffer = BufferUtils.allocateByteBuffer(size);
+        this.outstanding.put(buffer, Boolean.TRUE);
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool. Device memory buffers released after the
+     * pool has been closed are freed and the device handle is closed with
+     * the last of them.
+     *
+     * @param buffer
+     *            A buffer previously obtained from {@link #acquire(int)}.
+     *            Must not be used afterwards.
+     * @throws IllegalArgumentException
+     *             When the buffer was not obtained from this pool or has
+     *             already been released.
+     */
+    public synchronized void release(final ByteBuffer buffer)
+    {
+        if (buffer == null)
+        {
+            throw new IllegalArgumentException("buffer must not be null");
+        }
+        if (this.outstanding.remove(buffer) == null)
+        {
+            throw new IllegalArgumentException(
+                "buffer is not in use by this pool");
+        }
+        final boolean device = this.deviceBuffers.containsKey(buffer);
+        if (device)
+        {
+            this.inUse--;
+        }
+        if (this.closed)
+        {
+            if (device)
+            {
+                this.deviceBuffers.remove(buffer);
+                try
+                {
+                    free(buffer);
+                }
+                finally
+                {
+                    closeHandleIfUnused();
+                }
+            }
+            return;
+        }
+        final int size = buffer.capacity();
+        ArrayDeque<ByteBuffer> buffers = this.idle.get(size);
+        if (buffers == null)
+        {
+            buffers = new ArrayDeque<ByteBuffer>();
+            this.idle.put(size, buffers);
+        }
+        if (buffers.size() < this.maxIdle)
+        {
+            buffers.add(buffer);
+        }
+        else if (device)
+        {
+            this.deviceBuffers.remove(buffer);
+            free(buffer);
+        }
+    }
+
+    /**
+     * Closes the pool. All idle device memory is freed and the device handle
+     * is closed. When device memory buffers are still in use then they are
+     * freed when released and the handle is closed with the last of them.
+     *
+     * @throws LibUsbException
+     *             When device memory could not be freed. The handle is
+     *             closed anyway.
+     */
+    public synchronized void close()
+    {
+        if (this.closed)
+        {
+            throw new IllegalStateException("Pool is already closed");
+        }
+        try
+        {
+            dispose();
+        }
+        finally
+        {
+            closeHandleIfUnused();
+        }
+    }
+
+    /**
+     * Marks the pool as closed and frees the idle device memory. Device
+     * memory in use is freed when it is released.
+     *
+     * @throws LibUsbException
+     *             When device memory could not be freed.
+     */
+    synchronized void dispose()
+    {
+        this.closed = true;
+        int error = LibUsb.SUCCESS;
+        for (final ArrayDeque<ByteBuffer> buffers: this.idle.values())
+        {
+            final Iterator<ByteBuffer> iterator = buffers.iterator();
+            while (iterator.hasNext())
+            {
+                final ByteBuffer buffer = iterator.next();
+                iterator.remove();
+                if (this.deviceBuffers.remove(buffer) == null)
+                {
+                    continue;
+                }
+                final int result = this.operations.devMemFree(this.handle,
+                    buffer, buffer.capacity());
+                if (result != LibUsb.SUCCESS)
+                {
+                    error = result;
+                }
+            }
+        }
+        this.idle.clear();
+        if (error != LibUsb.SUCCESS)
+        {
+            throw new LibUsbException("Unable to free device memory", error);
+        }
+    }
+
+    /**
+     * Closes the device handle when the pool is closed and no device memory
+     * is in use anymore. Must be called with the lock held.
+     */
+    private void closeHandleIfUnused()
+    {
+        if (this.closed && (this.inUse == 0) && this.deviceBuffers.isEmpty())
+        {
+            this.operations.close(this.handle);
+        }
+    }
+
+    /**
+     * Frees a device memory buffer.
+     *
+     * @param buffer
+     *            The buffer to free.
+     */
+    private void free(final ByteBuffer buffer)
+    {
+        final int result = this.operations.devMemFree(this.handle, buffer,
+            buffer.capacity());
+        if (result != LibUsb.SUCCESS)
+        {
+            throw new LibUsbException("Unable to free device memory", result);
+        }
+    }
+}
@@ -0,0 +1,506 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans all connected devices and creates an immutable
+ * {@link DeviceInventory}.
+ *
+ * Reading the descriptors and the topology does not involve any bus traffic
+ * so this is done sequentially. Opening the devices and reading the
+ * manufacturer, product and serial number strings is slow so this is done
+ * by a pool of threads in parallel. The number of devices probed at the same
+ * time behind a single hub is limited so the hub (and its transaction
+ * translator) is not flooded with control requests. The probes of each hub
+ * are queued and a finished probe starts the next one of its hub, so the
+ * threads never wait for a busy hub while other hubs have work.
+ *
+ * The strings are read in the preferred language of the
+ * {@link StringDescriptorService} and decoded from UTF-16.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class DeviceScanner
+{
+    /** The default number of probing threads. */
+    public static final int DEFAULT_THREADS = 8;
+
+    /** The default number of devices probed at the same time per hub. */
+    public static final int DEFAULT_HUB_LIMIT = 2;
+
+    /** The maximum port path depth according to the USB 3.0 specification. */
+    private static final int MAX_PORT_DEPTH = 7;
+
+    /** The maximum size of a string descriptor. */
+    private static final int MAX_DESCRIPTOR_SIZE = 255;
+
+    /** The context to scan or null for the default context. */
+    private final Context context;
+
+    /** The number of probing threads. */
+    private final int threads;
+
+    /** The number of devices probed at the same time per hub. */
+    private final int hubLimit;
+
+    /** Whether devices are opened to read the strings. */
+    private volatile boolean readStrings = true;
+
+    /**
+     * Constructs a new scanner with default settings.
+     *
+     * @param context
+     *            The context to scan or null for the default context.
+     */
+    public DeviceScanner(final Context context)
+    {
+        this(context, DEFAULT_THREADS, DEFAULT_HUB_LIMIT);
+    }
+
+    /**
+     * Constructs a new scanner.
+     *
+     * @param context
+     *            The context to scan or null for the default context.
+     * @param threads
+     *            The number of probing threads. Must be at least 1.
+     * @param hubLimit
+     *            The number of devices probed at the same time behind a
+     *            single hub. Must be at least 1.
+     */
+    public DeviceScanner(final Context context, final int threads,
+        final int hubLimit)
+    {
+        if (threads < 1)
+        {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        if (hubLimit < 1)
+        {
+            throw new IllegalArgumentException(
+                "hubLimit must be at least 1");
+        }
+        this.context = context;
+        this.threads = threads;
+        this.hubLimit = hubLimit;
+    }
+
+    /**
+     * Checks whether devices are opened to read their strings.
+     *
+     * @return True if strings are read (Default), false if not.
+     */
+    public boolean isReadStrings()
+    {
+        return this.readStrings;
+    }
+
+    /**
+     * Sets whether devices are opened to read their strings. When disabled
+     * the scan only collects descriptors and topology which does not
+     * involve any bus traffic.
+     *
+     * @param readStrings
+     *            True to read strings, false to not.
+     */
+    public void setReadStrings(final boolean readStrings)
+    {
+        this.readStrings = readStrings;
+    }
+
+    /**
+     * Returns the number of probing threads.
+     *
+     * @return The number of probing threads.
+     */
+    public int getThreads()
+    {
+        return this.threads;
+    }
+
+    /**
+     * Returns the number of devices probed at the same time behind a single
+     * hub.
+     *
+     * @return The hub limit.
+     */
+    public int getHubLimit()
+    {
+        return this.hubLimit;
+    }
+
+    /**
+     * Scans all connected devices.
+     *
+     * @return The inventory.
+     * @throws LibUsbException
+     *             When the device list could not be retrieved.
+     * @throws InterruptedException
+     *             When the current thread was interrupted while waiting for
+     *             the probes. The device list is still released properly.
+     */
+    public DeviceInventory scan() throws InterruptedException
+    {
+        final long start = System.nanoTime();
+        final DeviceList list = new DeviceList();
+        final int result = LibUsb.getDeviceList(this.context, list);
+        if (result < 0)
+        {
+            throw new LibUsbException("Unable to get device list", result);
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.min(this.threads, Math.max(1, result)), new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(final Runnable runnable)
+                {
+                    final Thread thread = new Thread(runnable,
+                        "usb4java device scanner");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        try
+        {
+            final Map<Integer, ArrayDeque<Probe>> hubs =
+                new LinkedHashMap<Integer, ArrayDeque<Probe>>();
+            final List<Probe> probes = new ArrayList<Probe>(result);
+            final CountDownLatch done = new CountDownLatch(
+                this.readStrings ? result : 0);
+            final ByteBuffer path = BufferUtils.allocateByteBuffer(
+                MAX_PORT_DEPTH);
+            for (final Device device: list)
+            {
+                final Probe probe = new Probe(device, path);
+                probes.add(probe);
+                final Integer hub = Integer.valueOf((probe.busNumber << 8)
+                    | (probe.parentAddress & 0xff));
+                ArrayDeque<Probe> queue = hubs.get(hub);
+                if (queue == null)
+                {
+                    queue = new ArrayDeque<Probe>();
+                    hubs.put(hub, queue);
+                }
+                probe.hub = queue;
+                probe.executor = executor;
+                probe.done = done;
+                queue.add(probe);
+            }
+            if (this.readStrings)
+            {
+                // Start up to hubLimit probes per hub. Every finished probe
+                // starts the next one of its hub so no thread ever waits
+                // for a hub slot.
+                for (final ArrayDeque<Probe> queue: hubs.values())
+                {
+                    for (int i = 0; i < this.hubLimit; i++)
+                    {
+                        final Probe probe;
+                        synchronized (queue)
+                        {
+                            probe = queue.poll();
+                        }
+                        if (probe == null)
+                        {
+                            break;
+                        }
+                        executor.execute(probe);
+                    }
+                }
+                done.await();
+            }
+            final List<ScannedDevice> devices =
+                new ArrayList<ScannedDevice>(result);
+            for (final Probe probe: probes)
+            {
+                devices.add(probe.result());
+            }
+            return new DeviceInventory(devices, System.nanoTime() - start);
+        }
+        finally
+        {
+            executor.shutdownNow();
+            awaitUninterruptibly(executor);
+            LibUsb.freeDeviceList(list, true);
+        }
+    }
+
+
+    /**
+     * Waits until all threads of the specified executor are finished. The
+     * device list must not be freed while a probe still uses one of its
+     * devices.
+     *
+     * @param executor
+     *            The executor to wait for.
+     */
+    private static void awaitUninterruptibly(final ExecutorService executor)
+    {
+        boolean interrupted = false;
+        while (true)
+        {
+            try
+            {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS))
+                {
+                    break;
+                }
+            }
+            catch (final InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Probes a single device.
+     */
+    private static final class Probe implements Runnable
+    {
+        /** The device to probe. */
+        final Device device;
+
+        /** The bus number. */
+        final int busNumber;
+
+        /** The device address. */
+        final int address;
+
+        /** The address of the parent device or -1 if none. */
+        final int parentAddress;
+
+        /** The port numbers from the root hub to the device. */
+        final byte[] portNumbers;
+
+        /** The device speed. */
+        final int speed;
+
+        /** The vendor ID. */
+        final short vendorId;
+
+        /** The product ID. */
+        final short productId;
+
+        /** The device class. */
+        final byte deviceClass;
+
+        /** The string descriptor indices. */
+        final byte[] stringIndices;
+
+        /** The time when the probe was queued. */
+        final long queued;
+
+        /** The queued probes of the parent hub. Guarded by itself. */
+        ArrayDeque<Probe> hub;
+
+        /** The executor running the probes. */
+        Executor executor;
+
+        /** The latch counted down when a probe is finished. */
+        CountDownLatch done;
+
+        /** The open result. Published by the latch. */
+        private int openResult = LibUsb.SUCCESS;
+
+        /** The read strings. Published by the latch. */
+        private final String[] strings;
+
+        /** The time spent waiting for the hub. Published by the latch. */
+        private long waitNanos;
+
+        /** The time spent probing. Published by the latch. */
+        private long probeNanos;
+
+        /** The error thrown by the probe. Published by the latch. */
+        private Throwable error;
+
+        /**
+         * Collects the information which is available without bus traffic.
+         *
+         * @param device
+         *            The device to probe.
+         * @param path
+         *            A buffer to receive the port numbers.
+         */
+        Probe(final Device device, final ByteBuffer path)
+        {
+            this.device = device;
+            this.busNumber = LibUsb.getBusNumber(device);
+            this.address = LibUsb.getDeviceAddress(device);
+            final Device parent = LibUsb.getParent(device);
+            this.parentAddress = parent == null ? -1
+                : LibUsb.getDeviceAddress(parent);
+            final int depth = LibUsb.getPortNumbers(device, path);
+            this.portNumbers = new byte[Math.max(0, depth)];
+            for (int i = 0; i < this.portNumbers.length; i++)
+            {
+                this.portNumbers[i] = path.get(i);
+            }
+            this.speed = LibUsb.getDeviceSpeed(device);
+            final DeviceDescriptor descriptor = new DeviceDescriptor();
+            final int result = LibUsb.getDeviceDescriptor(device, descriptor);
+            if (result != LibUsb.SUCCESS)
+            {
+                throw new LibUsbException("Unable to read device descriptor",
+                    result);
+            }
+            this.vendorId = descriptor.idVendor();
+            this.productId = descriptor.idProduct();
+            this.deviceClass = descriptor.bDeviceClass();
+            this.stringIndices = new byte[] { descriptor.iManufacturer(),
+                descriptor.iProduct(), descriptor.iSerialNumber() };
+            this.strings = new String[this.stringIndices.length];
+            this.queued = System.nanoTime();
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                final long probeStart = System.nanoTime();
+                this.waitNanos = probeStart - this.queued;
+                final DeviceHandle handle = new DeviceHandle();
+                this.openResult = LibUsb.open(this.device, handle);
+                if (this.openResult == LibUsb.SUCCESS)
+                {
+                    try
+                    {
+                        readStrings(handle);
+                    }
+                    finally
+                    {
+                        LibUsb.close(handle);
+                    }
+                }
+                this.probeNanos = System.nanoTime() - probeStart;
+            }
+            catch (final Throwable e)
+            {
+                this.error = e;
+            }
+            finally
+            {
+                startNext();
+                this.done.countDown();
+            }
+        }
+
+        /**
+         * Starts the next queued probe of the parent hub, if any.
+         */
+        private void startNext()
+        {
+            final Probe next;
+            synchronized (this.hub)
+            {
+                next = this.hub.poll();
+            }
+            if (next != null)
+            {
+                try
+                {
+                    this.executor.execute(next);
+                }
+                catch (final RejectedExecutionException e)
+                {
+                    // The scan has been aborted
+                }
+            }
+        }
+
+        /**
+         * Reads the strings in the language preferred by
+         * {@link StringDescriptorService#DEFAULT_LANGUAGE} (or the first
+         * supported one) and decodes them from UTF-16.
+         *
+         * @param handle
+         *            The device handle.
+         */
+        private void readStrings(final DeviceHandle handle)
+        {
+            final ByteBuffer buffer = BufferUtils.allocateByteBuffer(
+                MAX_DESCRIPTOR_SIZE);
+            int language = -1;
+            for (int i = 0; i < this.strings.length; i++)
+            {
+                final byte index = this.stringIndices[i];
+                if (index == 0)
+                {
+                    continue;
+                }
+                if (language < 0)
+                {
+                    final int length = LibUsb.getStringDescriptor(handle,
+                        (byte) 0, (short) 0, buffer);
+                    language = length < 0 ? 0
+                        : StringDescriptorService.selectLanguage(buffer, 0,
+                            length, StringDescriptorService.DEFAULT_LANGUAGE);
+                }
+                if (language == 0)
+                {
+                    return;
+                }
+                final int length = LibUsb.getStringDescriptor(handle, index,
+                    (short) language, buffer);
+                if (length >= 0)
+                {
+                    this.strings[i] = StringDescriptorService.decode(buffer, 0,
+                        length);
+                }
+            }
+        }
+
+        /**
+         * Returns the scanned device information. Must only be called after
+         * the probe is finished or if it was never started because strings
+         * are not read.
+         *
+         * @return The scanned device information.
+         */
+        ScannedDevice result()
+        {
+            if (this.error instanceof RuntimeException)
+            {
+                throw (RuntimeException) this.error;
+            }
+            if (this.error instanceof Error)
+            {
+                throw (Error) this.error;
+            }
+            if (this.error != null)
+            {
+                throw new IllegalStateException(this.error.toString(),
+                    this.error);
+            }
+            return new ScannedDevice(this.busNumber, this.address,
+                this.parentAddress, this.portNumbers, this.speed,
+                this.vendorId, this.productId, this.deviceClass,
+                this.strings[0], this.strings[1], this.strings[2],
+                this.openResult, this.waitNanos, this.probeNanos);
+        }
+    }
+}
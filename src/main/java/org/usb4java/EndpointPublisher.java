@@ -0,0 +1,816 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Publishes the data read from a bulk, interrupt or isochronous IN endpoint
+ * to a single {@link Flow.Subscriber}.
+ *
+ * The demand signalled by the subscriber directly controls the number of
+ * transfers submitted to the endpoint: Each submitted transfer consumes one
+ * unit of demand and results in one published buffer, and never more than
+ * the configured maximum of transfers are in flight at once. So when the
+ * subscriber stops requesting data then the publisher stops reading from the
+ * device instead of buffering data.
+ *
+ * Published buffers come from a {@link BufferPool}. Their position is 0
+ * and their limit is the number of received bytes. Subscribers should pass
+ * them back to {@link #release(ByteBuffer)} when they are done with them so
+ * they can be reused for new transfers. For isochronous endpoints the
+ * payloads of all successfully received packets of a transfer are packed
+ * together into one buffer. Transfers which received no isochronous data at
+ * all are resubmitted without being published.
+ *
+ * Items are published by the thread handling libusb events (See
+ * {@link EventHandlingThread}). All signals to the subscriber are
+ * serialized: An error detected on another thread while the subscriber is
+ * still processing an item is signalled by the thread delivering the item
+ * after the subscriber has returned.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class EndpointPublisher implements Flow.Publisher<ByteBuffer>
+{
+    /** The device handle. */
+    private final DeviceHandle handle;
+
+    /** The IN endpoint address. */
+    private final byte endpoint;
+
+    /** The transfer type. One of the TRANSFER_TYPE_* constants. */
+    private final byte type;
+
+    /** The number of isochronous packets per transfer. */
+    private final int numIsoPackets;
+
+    /** The size of a single isochronous packet. */
+    private final int packetSize;
+
+    /** The maximum number of transfers in flight. */
+    private final int maxInFlight;
+
+    /** The pool of transfer buffers. */
+    private final BufferPool pool;
+
+    /** The libusb operations. */
+    private final Operations operations;
+
+    /** The callback used for all transfers of this publisher. */
+    private final TransferCallback callback = new TransferCallback()
+    {
+        @Override
+        public void processTransfer(final Transfer transfer)
+        {
+            EndpointPublisher.this.processTransfer(transfer);
+        }
+    };
+
+    /** Lock guarding the state of the subscription. */
+    private final Object lock = new Object();
+
+    /** Transfers which are currently not submitted. */
+    private final Deque<Transfer> idleTransfers = new ArrayDeque<Transfer>();
+
+    /** Transfers which are currently submitted. */
+    private final List<Transfer> pendingTransfers = new ArrayList<Transfer>();
+
+    /** Scratch buffer for packing isochronous packets. */
+    private final byte[] scratch;
+
+    /** Received buffers not yet passed to the subscriber. */
+    private final Deque<ByteBuffer> ready = new ArrayDeque<ByteBuffer>();
+
+    /** The subscriber. Null if not yet subscribed. */
+    private Flow.Subscriber<? super ByteBuffer> subscriber;
+
+    /** The error not yet passed to the subscriber. Null if none. */
+    private Throwable error;
+
+    /** If a thread is currently signalling the subscriber. */
+    private boolean signalling;
+
+    /** The demand not yet covered by submitted transfers. */
+    private long demand;
+
+    /** If the subscription has been cancelled or has failed. */
+    private boolean terminated;
+
+    /** The number of isochronous packets which were received with errors. */
+    private volatile long packetErrors;
+
+    /**
+     * The libusb operations used by the publisher. Replaced by tests.
+     */
+    interface Operations
+    {
+        /**
+         * Allocates and fills a new transfer without buffer.
+         *
+         * @param handle
+         *            The device handle.
+         * @param endpoint
+         *            The endpoint address.
+         * @param type
+         *            The transfer type.
+         * @param numIsoPackets
+         *            The number of isochronous packets.
+         * @param packetSize
+         *            The size of a single isochronous packet.
+         * @param callback
+         *            The transfer callback.
+         * @return The new transfer.
+         */
+        Transfer allocTransfer(DeviceHandle handle, byte endpoint, byte type,
+            int numIsoPackets, int packetSize, TransferCallback callback);
+
+        /**
+         * Frees a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         */
+        void freeTransfer(Transfer transfer);
+
+        /**
+         * Sets the buffer of a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param buffer
+         *            The buffer.
+         */
+        void setBuffer(Transfer transfer, ByteBuffer buffer);
+
+        /**
+         * Returns the buffer of a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The buffer.
+         */
+        ByteBuffer buffer(Transfer transfer);
+
+        /**
+         * Returns the status of a completed transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The transfer status.
+         */
+        int status(Transfer transfer);
+
+        /**
+         * Returns the actual length of a completed transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The number of transferred bytes.
+         */
+        int actualLength(Transfer transfer);
+
+        /**
+         * Converts a transfer status into an ERROR code.
+         *
+         * @param status
+         *            The transfer status.
+         * @return The ERROR code.
+         */
+        int transferStatusToError(int status);
+
+        /**
+         * Submits a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int submitTransfer(Transfer transfer);
+
+        /**
+         * Cancels a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int cancelTransfer(Transfer transfer);
+    }
+
+    /**
+     * The operations calling libusb.
+     */
+    private static final class LibUsbOperations implements Operations
+    {
+        /**
+         * Constructs new libusb operations.
+         */
+        LibUsbOperations()
+        {
+            // Empty
+        }
+
+        @Override
+        public Transfer allocTransfer(final DeviceHandle handle,
+            final byte endpoint, final byte type, final int numIsoPackets,
+            final int packetSize, final TransferCallback callback)
+        {
+            final Transfer transfer = LibUsb.allocTransfer(numIsoPackets);
+            if (type == LibUsb.TRANSFER_TYPE_ISOCHRONOUS)
+            {
+                LibUsb.fillIsoTransfer(transfer, handle, endpoint, null,
+                    numIsoPackets, callback, null, 0);
+                LibUsb.setIsoPacketLengths(transfer, packetSize);
+            }
+            else
+            {
+                LibUsb.fillBulkTransfer(transfer, handle, endpoint, null,
+                    callback, null, 0);
+                transfer.setType(type);
+            }
+            return transfer;
+        }
+
+        @Override
+        public void freeTransfer(final Transfer transfer)
+        {
+            LibUsb.freeTransfer(transfer);
+        }
+
+        @Override
+        public void setBuffer(final Transfer transfer, final ByteBuffer buffer)
+        {
+            transfer.setBuffer(buffer);
+        }
+
+        @Override
+        public ByteBuffer buffer(final Transfer transfer)
+        {
+            return transfer.buffer();
+        }
+
+        @Override
+        public int status(final Transfer transfer)
+        {
+            return transfer.status();
+        }
+
+        @Override
+        public int actualLength(final Transfer transfer)
+        {
+            return transfer.actualLength();
+        }
+
+        @Override
+        public int transferStatusToError(final int status)
+        {
+            return LibUsb.transferStatusToError(status);
+        }
+
+        @Override
+        public int submitTransfer(final Transfer transfer)
+        {
+            return LibUsb.submitTransfer(transfer);
+        }
+
+        @Override
+        public int cancelTransfer(final Transfer transfer)
+        {
+            return LibUsb.cancelTransfer(transfer);
+        }
+    }
+
+    /**
+     * Constructs a new endpoint publisher.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The IN endpoint address.
+     * @param type
+     *            The transfer type.
+     * @param numIsoPackets
+     *            The number of isochronous packets per transfer.
+     * @param packetSize
+     *            The size of a single isochronous packet.
+     * @param bufferSize
+     *            The size of the transfer buffers.
+     * @param maxInFlight
+     *            The maximum number of transfers in flight.
+     * @param operations
+     *            The libusb operations.
+     */
+    EndpointPublisher(final DeviceHandle handle, final byte endpoint,
+        final byte type, final int numIsoPackets, final int packetSize,
+        final int bufferSize, final int maxInFlight,
+        final Operations operations)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        if ((endpoint & LibUsb.ENDPOINT_DIR_MASK) != LibUsb.ENDPOINT_IN)
+        {
+            throw new IllegalArgumentException(
+                "endpoint must be an IN endpoint");
+        }
+        if (bufferSize <= 0)
+        {
+            throw new IllegalArgumentException("bufferSize must be positive");
+        }
+        if (maxInFlight <= 0)
+        {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.handle = handle;
+        this.endpoint = endpoint;
+        this.type = type;
+        this.numIsoPackets = numIsoPackets;
+        this.packetSize = packetSize;
+        this.maxInFlight = maxInFlight;
+        this.pool = new BufferPool(bufferSize, maxInFlight * 2);
+        this.scratch = new byte[packetSize];
+        this.operations = operations;
+    }
+
+    /**
+     * Creates a publisher for a bulk IN endpoint.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The bulk IN endpoint address.
+     * @param bufferSize
+     *            The size of the transfer buffers. Should be a multiple of
+     *            the maximum packet size of the endpoint.
+     * @param maxInFlight
+     *            The maximum number of transfers in flight.
+     * @return The publisher.
+     */
+    public static EndpointPublisher bulk(final DeviceHandle handle,
+        final byte endpoint, final int bufferSize, final int maxInFlight)
+    {
+        return new EndpointPublisher(handle, endpoint,
+            LibUsb.TRANSFER_TYPE_BULK, 0, 0, bufferSize, maxInFlight,
+            new LibUsbOperations());
+    }
+
+    /**
+     * Creates a publisher for an interrupt IN endpoint.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The interrupt IN endpoint address.
+     * @param bufferSize
+     *            The size of the transfer buffers. Usually the maximum
+     *            packet size of the endpoint.
+     * @param maxInFlight
+     *            The maximum number of transfers in flight.
+     * @return The publisher.
+     */
+    public static EndpointPublisher interrupt(final DeviceHandle handle,
+        final byte endpoint, final int bufferSize, final int maxInFlight)
+    {
+        return new EndpointPublisher(handle, endpoint,
+            LibUsb.TRANSFER_TYPE_INTERRUPT, 0, 0, bufferSize, maxInFlight,
+            new LibUsbOperations());
+    }
+
+    /**
+     * Creates a publisher for an isochronous IN endpoint.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The isochronous IN endpoint address.
+     * @param numIsoPackets
+     *            The number of isochronous packets per transfer.
+     * @param packetSize
+     *            The size of a single isochronous packet. Usually the value
+     *            returned by
+     *            {@link LibUsb#getMaxIsoPacketSize(Device, byte)}.
+     * @param maxInFlight
+     *            The maximum number of transfers in flight.
+     * @return The publisher.
+     */
+    public static EndpointPublisher isochronous(final DeviceHandle handle,
+        final byte endpoint, final int numIsoPackets, final int packetSize,
+        final int maxInFlight)
+    {
+        if (numIsoPackets <= 0)
+        {
+            throw new IllegalArgumentException(
+                "numIsoPackets must be positive");
+        }
+        if (packetSize <= 0)
+        {
+            throw new IllegalArgumentException("packetSize must be positive");
+        }
+        return new EndpointPublisher(handle, endpoint,
+            LibUsb.TRANSFER_TYPE_ISOCHRONOUS, numIsoPackets, packetSize,
+            numIsoPackets * packetSize, maxInFlight, new LibUsbOperations());
+    }
+
+    /**
+     * Returns the size of the published buffers.
+     *
+     * @return The buffer size in bytes.
+     */
+    public int getBufferSize()
+    {
+        return this.pool.getBufferSize();
+    }
+
+    /**
+     * Returns the maximum number of transfers in flight.
+     *
+     * @return The maximum number of transfers in flight.
+     */
+    public int getMaxInFlight()
+    {
+        return this.maxInFlight;
+    }
+
+    /**
+     * Returns the number of transfers currently in flight.
+     *
+     * @return The number of transfers in flight.
+     */
+    public int getInFlight()
+    {
+        synchronized (this.lock)
+        {
+            return this.pendingTransfers.size();
+        }
+    }
+
+    /**
+     * Returns the number of isochronous packets which were received with
+     * errors and therefore were not published.
+     *
+     * @return The number of failed isochronous packets.
+     */
+    public long getPacketErrors()
+    {
+        return this.packetErrors;
+    }
+
+    /**
+     * Returns a published buffer to the pool so it can be reused for new
+     * transfers.
+     *
+     * @param buffer
+     *            The published buffer. Must not be used by the caller
+     *            afterwards.
+     */
+    public void release(final ByteBuffer buffer)
+    {
+        this.pool.release(buffer);
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super ByteBuffer> subscriber)
+    {
+        if (subscriber == null)
+        {
+            throw new NullPointerException("subscriber must not be null");
+        }
+        final boolean accepted;
+        synchronized (this.lock)
+        {
+            accepted = this.subscriber == null;
+            if (accepted)
+            {
+                this.subscriber = subscriber;
+            }
+        }
+        if (accepted)
+        {
+            subscriber.onSubscribe(new Flow.Subscription()
+            {
+                @Override
+                public void request(final long n)
+                {
+                    EndpointPublisher.this.request(n);
+                }
+
+                @Override
+                public void cancel()
+                {
+                    EndpointPublisher.this.cancel();
+                }
+            });
+        }
+        else
+        {
+            subscriber.onSubscribe(new Flow.Subscription()
+            {
+                @Override
+                public void request(final long n)
+                {
+                    // Ignored, subscription was rejected
+                }
+
+                @Override
+                public void cancel()
+                {
+                    // Ignored, subscription was rejected
+                }
+            });
+            subscriber.onError(new IllegalStateException(
+                "Publisher supports only a single subscriber"));
+        }
+    }
+
+    /**
+     * Adds demand and submits transfers to cover it.
+     *
+     * @param n
+     *            The number of additionally requested items.
+     */
+    void request(final long n)
+    {
+        if (n <= 0)
+        {
+            fail(new IllegalArgumentException(
+                "Requested number of items must be positive"));
+            return;
+        }
+        final int result;
+        synchronized (this.lock)
+        {
+            if (this.terminated)
+            {
+                return;
+            }
+            this.demand += n;
+            if (this.demand < 0)
+            {
+                this.demand = Long.MAX_VALUE;
+            }
+            result = submitTransfers();
+        }
+        if (result != LibUsb.SUCCESS)
+        {
+            fail(new LibUsbException("Unable to submit transfer", result));
+        }
+    }
+
+    /**
+     * Cancels the subscription. Pending transfers are cancelled and freed
+     * when they are retired.
+     */
+    void cancel()
+    {
+        synchronized (this.lock)
+        {
+            terminate();
+        }
+    }
+
+    /**
+     * Submits transfers until the demand is covered or the maximum number of
+     * transfers is in flight. Must be called with the lock held.
+     *
+     * @return {@link LibUsb#SUCCESS} or the error code of a failed
+     *         submission.
+     */
+    private int submitTransfers()
+    {
+        while (!this.terminated && (this.demand > 0)
+            && (this.pendingTransfers.size() < this.maxInFlight))
+        {
+            Transfer transfer = this.idleTransfers.poll();
+            if (transfer == null)
+            {
+                transfer = this.operations.allocTransfer(this.handle,
+                    this.endpoint, this.type, this.numIsoPackets,
+                    this.packetSize, this.callback);
+            }
+            final ByteBuffer buffer = this.pool.acquire();
+            this.operations.setBuffer(transfer, buffer);
+            final int result = this.operations.submitTransfer(transfer);
+            if (result != LibUsb.SUCCESS)
+            {
+                this.pool.release(buffer);
+                this.idleTransfers.push(transfer);
+                return result;
+            }
+            this.pendingTransfers.add(transfer);
+            this.demand--;
+        }
+        return LibUsb.SUCCESS;
+    }
+
+    /**
+     * Terminates the subscription. Cancels all pending transfers and frees
+     * the idle ones. Must be called with the lock held.
+     */
+    private void terminate()
+    {
+        if (this.terminated)
+        {
+            return;
+        }
+        this.terminated = true;
+        for (final Transfer transfer: this.pendingTransfers)
+        {
+            this.operations.cancelTransfer(transfer);
+        }
+        for (final Transfer transfer: this.idleTransfers)
+        {
+            this.operations.freeTransfer(transfer);
+        }
+        this.idleTransfers.clear();
+    }
+
+    /**
+     * Terminates the subscription and signals an error to the subscriber.
+     *
+     * @param failure
+     *            The error to signal.
+     */
+    private void fail(final Throwable failure)
+    {
+        synchronized (this.lock)
+        {
+            if (this.terminated)
+            {
+                return;
+            }
+            terminate();
+            this.error = failure;
+        }
+        signal();
+    }
+
+    /**
+     * Passes the ready buffers and then the error to the subscriber. Only
+     * one thread signals the subscriber at a time. Signals arriving while
+     * another thread is signalling are left to that thread, which picks them
+     * up when the subscriber returns.
+     */
+    private void signal()
+    {
+        synchronized (this.lock)
+        {
+            if (this.signalling)
+            {
+                return;
+            }
+            this.signalling = true;
+        }
+        boolean idle = false;
+        try
+        {
+            while (!idle)
+            {
+                final ByteBuffer item;
+                final Throwable failure;
+                synchronized (this.lock)
+                {
+                    if (this.terminated && (this.error == null))
+                    {
+                        // Cancelled or failure already signalled
+                        while (!this.ready.isEmpty())
+                        {
+                            this.pool.release(this.ready.poll());
+                        }
+                    }
+                    item = this.ready.poll();
+                    failure = (item == null) ? this.error : null;
+                    if (failure != null)
+                    {
+                        this.error = null;
+                    }
+                    idle = (item == null) && (failure == null);
+                    this.signalling = !idle;
+                }
+                if (item != null)
+                {
+                    this.subscriber.onNext(item);
+                }
+                else if (failure != null)
+                {
+                    this.subscriber.onError(failure);
+                }
+            }
+        }
+        finally
+        {
+            if (!idle)
+            {
+                synchronized (this.lock)
+                {
+                    this.signalling = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes a completed transfer. Publishes the received data and
+     * submits further transfers if there is still demand.
+     *
+     * @param transfer
+     *            The completed transfer.
+     */
+    void processTransfer(final Transfer transfer)
+    {
+        final ByteBuffer buffer = this.operations.buffer(transfer);
+        final int status = this.operations.status(transfer);
+        synchronized (this.lock)
+        {
+            this.pendingTransfers.remove(transfer);
+            if (this.terminated)
+            {
+                this.pool.release(buffer);
+                this.operations.freeTransfer(transfer);
+                return;
+            }
+            this.idleTransfers.push(transfer);
+            if ((status == LibUsb.TRANSFER_COMPLETED)
+                && prepareBuffer(transfer, buffer))
+            {
+                this.ready.add(buffer);
+            }
+            else
+            {
+                // Nothing to publish, so the demand is still open
+                this.pool.release(buffer);
+                this.demand++;
+            }
+        }
+        if ((status != LibUsb.TRANSFER_COMPLETED)
+            && (status != LibUsb.TRANSFER_TIMED_OUT))
+        {
+            fail(new LibUsbException("Transfer failed",
+                this.operations.transferStatusToError(status)));
+            return;
+        }
+        signal();
+        final int result;
+        synchronized (this.lock)
+        {
+            result = submitTransfers();
+        }
+        if (result != LibUsb.SUCCESS)
+        {
+            fail(new LibUsbException("Unable to submit transfer", result));
+        }
+    }
+
+    /**
+     * Prepares the buffer of a completed transfer for publishing.
+     *
+     * @param transfer
+     *            The completed transfer.
+     * @param buffer
+     *            The transfer buffer.
+     * @return True if the buffer contains data to publish, false if not.
+     */
+    private boolean prepareBuffer(final Transfer transfer,
+        final ByteBuffer buffer)
+    {
+        buffer.clear();
+        if (this.type != LibUsb.TRANSFER_TYPE_ISOCHRONOUS)
+        {
+            buffer.limit(this.operations.actualLength(transfer));
+            return true;
+        }
+        int write = 0;
+        int read = 0;
+        for (final IsoPacketDescriptor packet: transfer.isoPacketDesc())
+        {
+            final int length = packet.actualLength();
+            if (packet.status() != LibUsb.TRANSFER_COMPLETED)
+            {
+                this.packetErrors++;
+            }
+            else if (length > 0)
+            {
+                if (read != write)
+                {
+                    buffer.position(read);
+                    buffer.get(this.scratch, 0, length);
+                    buffer.position(write);
+                    buffer.put(this.scratch, 0, length);
+                }
+                write += length;
+            }
+            read += packet.length();
+        }
+        buffer.position(0);
+        buffer.limit(write);
+        return write > 0;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread which handles libusb events for a context in the background.
+ *
+ * By default the thread simply calls
+ * {@link LibUsb#handleEventsTimeout(Context, long)} with a blocking timeout
+ * in a loop. Applications which need the lowest possible completion latency
+ * can enable a busy-poll mode with {@link #setSpinBudget(long)}. In this mode
+ * the thread polls libusb with a zero timeout and only falls back to blocking
+ * when no activity was seen for the configured spin budget. This trades a
+ * full CPU core for the wakeup latency of the blocking poll() call.
+ *
+ * Activity is detected through {@link #markActivity()} which should be
+ * called by transfer callbacks. Without these calls the thread keeps spinning
+ * for the spin budget after each wakeup from a blocking wait.
+ *
+ * The thread must be started after the context has been initialized and must
+ * be stopped with {@link #abort()} (followed by {@link #join()}) before the
+ * context is deinitialized.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class EventHandlingThread extends Thread
+{
+    /** The default blocking timeout in microseconds. */
+    public static final long DEFAULT_TIMEOUT = 250000;
+
+    /** The Thread.onSpinWait() method if supported by the JVM. */
+    private static final Method ON_SPIN_WAIT = findOnSpinWait();
+
+    /** The context to handle events for. Null for the default context. */
+    private final Context context;
+
+    /** Counter incremented by {@link #markActivity()}. */
+    private final AtomicLong activity = new AtomicLong();
+
+    /** If thread should abort. */
+    private volatile boolean abort;
+
+    /** The blocking timeout in microseconds. */
+    private volatile long timeout = DEFAULT_TIMEOUT;
+
+    /** The spin budget in nanoseconds. 0 disables busy polling. */
+    private volatile long spinBudget;
+
+    /** The number of non-blocking polls done while spinning. */
+    private volatile long spinPolls;
+
+    /** The number of spinning polls during which activity was seen. */
+    private volatile long productiveSpinPolls;
+
+    /** The number of blocking event handling calls. */
+    private volatile long blockingCalls;
+
+    /** The total time in nanoseconds spent spinning. */
+    private volatile long spinTime;
+
+    /**
+     * Constructs a new event handling thread for the default context.
+     */
+    public EventHandlingThread()
+    {
+        this(null);
+    }
+
+    /**
+     * Constructs a new event handling thread.
+     *
+     * @param context
+     *            The context to handle events for, or null for the default
+     *            context.
+     */
+    public EventHandlingThread(final Context context)
+    {
+        super("usb4java event handling");
+        this.context = context;
+    }
+
+    /**
+     * Returns the context this thread handles events for.
+     *
+     * @return The context or null for the default context.
+     */
+    public Context getContext()
+    {
+        return this.context;
+    }
+
+    /**
+     * Aborts the event handling thread. The thread stops after the currently
+     * running event handling call has returned.
+     */
+    public void abort()
+    {
+        this.abort = true;
+    }
+
+    /**
+     * Returns the timeout used for blocking event handling.
+     *
+     * @return The timeout in microseconds.
+     */
+    public long getTimeout()
+    {
+        return this.timeout;
+    }
+
+    /**
+     * Sets the timeout used for blocking event handling. This also limits
+     * how long {@link #abort()} may take to stop the thread.
+     *
+     * @param timeout
+     *            The timeout in microseconds. Must be positive.
+     */
+    public void setTimeout(final long timeout)
+    {
+        if (timeout <= 0)
+        {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the spin budget.
+     *
+     * @return The spin budget in nanoseconds. 0 if busy polling is disabled.
+     */
+    public long getSpinBudget()
+    {
+        return this.spinBudget;
+    }
+
+    /**
+     * Sets the spin budget. This is the time the thread keeps polling libusb
+     * without blocking after the last seen activity. Setting it to 0 (the
+     * default) disables busy polling.
+     *
+     * @param spinBudget
+     *            The spin budget in nanoseconds.
+     */
+    public void setSpinBudget(final long spinBudget)
+    {
+        if (spinBudget < 0)
+        {
+            throw new IllegalArgumentException(
+                "spinBudget must not be negative");
+        }
+        this.spinBudget = spinBudget;
+    }
+
+    /**
+     * Signals activity to the busy-poll loop so the spin budget starts over.
+     * Usually called from transfer callbacks. Can be called from any thread.
+     */
+    public void markActivity()
+    {
+        this.activity.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of non-blocking polls done while spinning.
+     *
+     * @return The number of spinning polls.
+     */
+    public long getSpinPolls()
+    {
+        return this.spinPolls;
+    }
+
+    /**
+     * Returns the number of spinning polls during which activity was seen.
+     *
+     * @return The number of productive spinning polls.
+     */
+    public long getProductiveSpinPolls()
+    {
+        return this.productiveSpinPolls;
+    }
+
+    /**
+     * Returns the number of blocking event handling calls. Each of them
+     * means the spin budget was used up without activity.
+     *
+     * @return The number of blocking calls.
+     */
+    public long getBlockingCalls()
+    {
+        return this.blockingCalls;
+    }
+
+    /**
+     * Returns the total time spent spinning.
+     *
+     * @return The spin time in nanoseconds.
+     */
+    public long getSpinTime()
+    {
+        return this.spinTime;
+    }
+
+    /**
+     * Returns the spin efficiency. This is the ratio of productive spinning
+     * polls to all spinning polls. Statistics are published each time a
+     * spin phase ends.
+     *
+     * @return The spin efficiency between 0 and 1. 0 if there were no
+     *         spinning polls yet.
+     */
+    public double getSpinEfficiency()
+    {
+        final long polls = this.spinPolls;
+        if (polls == 0)
+        {
+            return 0;
+        }
+        return (double) this.productiveSpinPolls / polls;
+    }
+
+    @Override
+    public void run()
+    {
+        while (!this.abort)
+        {
+            if (this.spinBudget > 0)
+            {
+                spin();
+                if (this.abort)
+                {
+                    break;
+                }
+            }
+            final int result = LibUsb.handleEventsTimeout(this.context,
+                this.timeout);
+            if (result != LibUsb.SUCCESS)
+            {
+                throw new LibUsbException("Unable to handle events", result);
+            }
+            this.blockingCalls++;
+        }
+    }
+
+    /**
+     * Polls libusb without blocking until no activity was seen for the spin
+     * budget. Statistics are counted locally and published when the spin
+     * phase ends to keep volatile writes out of the loop.
+     */
+    private void spin()
+    {
+        final long budget = this.spinBudget;
+        final long start = System.nanoTime();
+        long deadline = start + budget;
+        long polls = 0;
+        long productive = 0;
+        try
+        {
+            while (!this.abort)
+            {
+                final long before = this.activity.get();
+                final int result = LibUsb.handleEventsTimeout(this.context, 0);
+                if (result != LibUsb.SUCCESS)
+                {
+                    throw new LibUsbException("Unable to handle events",
+                        result);
+                }
+                polls++;
+                final long now = System.nanoTime();
+                if (this.activity.get() != before)
+                {
+                    productive++;
+                    deadline = now + budget;
+                }
+                else if (now - deadline >= 0)
+                {
+                    break;
+                }
+                else
+                {
+                    onSpinWait();
+                }
+            }
+        }
+        finally
+        {
+            this.spinPolls += polls;
+            this.productiveSpinPolls += productive;
+            this.spinTime += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Calls Thread.onSpinWait() if supported by the JVM.
+     */
+    private static void onSpinWait()
+    {
+        if (ON_SPIN_WAIT != null)
+        {
+            try
+            {
+                ON_SPIN_WAIT.invoke(null);
+            }
+            catch (final Exception e)
+            {
+                // Ignored. The hint is optional.
+            }
+        }
+    }
+
+    /**
+     * Looks up the Thread.onSpinWait() method which is only available in
+     * Java 9 and newer.
+     *
+     * @return The method or null if not available.
+     */
+    private static Method findOnSpinWait()
+    {
+        try
+        {
+            return Thread.class.getMethod("onSpinWait");
+        }
+        catch (final NoSuchMethodException e)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Interfaces for demand-driven publish-subscribe streams.
+ *
+ * These interfaces mirror the ones in java.util.concurrent.Flow (and the
+ * Reactive Streams specification) method by method. usb4java still supports
+ * Java versions without java.util.concurrent.Flow so it can't use the JDK
+ * interfaces directly, but adapting them is a one-liner per method.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class Flow
+{
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private Flow()
+    {
+        // Empty
+    }
+
+    /**
+     * A producer of items received by subscribers.
+     *
+     * @param <T>
+     *            The published item type.
+     */
+    public interface Publisher<T>
+    {
+        /**
+         * Adds the given subscriber. The publisher calls
+         * {@link Subscriber#onSubscribe(Subscription)} before any other
+         * method of the subscriber. If the subscription is rejected then
+         * {@link Subscriber#onError(Throwable)} is called afterwards.
+         *
+         * @param subscriber
+         *            The subscriber to add.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of items. The methods are invoked in strict sequential
+     * order for each subscription.
+     *
+     * @param <T>
+     *            The subscribed item type.
+     */
+    public interface Subscriber<T>
+    {
+        /**
+         * Called before any other method for a new subscription. No items
+         * are received until {@link Subscription#request(long)} is called.
+         *
+         * @param subscription
+         *            The new subscription.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next item of the subscription.
+         *
+         * @param item
+         *            The item.
+         */
+        void onNext(T item);
+
+        /**
+         * Called when the publisher or subscription encountered an
+         * unrecoverable error. No other methods are called afterwards.
+         *
+         * @param throwable
+         *            The error.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when no further items will be published. No other methods
+         * are called afterwards.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Link between a publisher and a subscriber.
+     */
+    public interface Subscription
+    {
+        /**
+         * Adds the given number of items to the unfulfilled demand of this
+         * subscription. A non-positive number results in an
+         * {@link IllegalArgumentException} passed to
+         * {@link Subscriber#onError(Throwable)}.
+         *
+         * @param n
+         *            The number of additionally requested items.
+         */
+        void request(long n);
+
+        /**
+         * Stops receiving items. Items may still be received for a short
+         * while after cancelling.
+         */
+        void cancel();
+    }
+}
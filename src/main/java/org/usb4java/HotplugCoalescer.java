@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Debounces hotplug events per port path. Events are held back until no
+ * further event occurred on the same port for the debounce window. A device
+ * which arrives and leaves again within the window is never reported and
+ * repeated changes collapse into at most one departure of the previously
+ * reported device followed by one arrival of the current device.
+ *
+ * This class is not thread-safe. It is only used by the dispatcher thread.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+final class HotplugCoalescer
+{
+    /** The debounce window in nanoseconds. */
+    private final long window;
+
+    /** The pending changes mapped by port path. */
+    private final Map<String, Pending> pending = new HashMap<String, Pending>();
+
+    /**
+     * Constructs a new coalescer.
+     *
+     * @param window
+     *            The debounce window in nanoseconds.
+     */
+    HotplugCoalescer(final long window)
+    {
+        this.window = window;
+    }
+
+    /**
+     * Adds an event.
+     *
+     * @param event
+     *            The event to add.
+     * @param now
+     *            The current time in nanoseconds.
+     * @return The events which were cancelled out and will never be
+     *         delivered. Empty if none.
+     */
+    List<HotplugEvent> add(final HotplugEvent event, final long now)
+    {
+        final List<HotplugEvent> dropped = new ArrayList<HotplugEvent>(2);
+        final String key = event.getPortPath();
+        Pending change = this.pending.get(key);
+        if (change == null)
+        {
+            change = new Pending();
+            this.pending.put(key, change);
+        }
+        change.deadline = now + this.window;
+        if (event.isArrived())
+        {
+            if (change.arrived != null)
+            {
+                dropped.add(change.arrived);
+            }
+            change.arrived = event;
+        }
+        else if ((change.arrived != null)
+            && change.arrived.getDevice().equals(event.getDevice()))
+        {
+            // Device left before its arrival was reported
+            dropped.add(change.arrived);
+            dropped.add(event);
+            change.arrived = null;
+        }
+        else if (change.left == null)
+        {
+            change.left = event;
+        }
+        else
+        {
+            dropped.add(event);
+        }
+        if ((change.left == null) && (change.arrived == null))
+        {
+            this.pending.remove(key);
+        }
+        return dropped;
+    }
+
+    /**
+     * Removes and returns the events whose debounce window has expired.
+     *
+     * @param now
+     *            The current time in nanoseconds.
+     * @return The events to deliver. For each port a departure comes before
+     *         an arrival. Empty if none.
+     */
+    List<HotplugEvent> poll(final long now)
+    {
+        final List<HotplugEvent> due = new ArrayList<HotplugEvent>();
+        final Iterator<Pending> iterator = this.pending.values().iterator();
+        while (iterator.hasNext())
+        {
+            final Pending change = iterator.next();
+            if (now - change.deadline >= 0)
+            {
+                if (change.left != null)
+                {
+                    due.add(change.left);
+                }
+                if (change.arrived != null)
+                {
+                    due.add(change.arrived);
+                }
+                iterator.remove();
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Removes and returns all pending events.
+     *
+     * @return The pending events.
+     */
+    List<HotplugEvent> clear()
+    {
+        final List<HotplugEvent> events = new ArrayList<HotplugEvent>();
+        for (final Pending change: this.pending.values())
+        {
+            if (change.left != null)
+            {
+                events.add(change.left);
+            }
+            if (change.arrived != null)
+            {
+                events.add(change.arrived);
+            }
+        }
+        this.pending.clear();
+        return events;
+    }
+
+    /**
+     * Returns the time when the next debounce window expires.
+     *
+     * @param now
+     *            The current time in nanoseconds.
+     * @return The number of nanoseconds until the next window expires, 0 if
+     *         already expired, or -1 if no events are pending.
+     */
+    long getDelay(final long now)
+    {
+        long delay = -1;
+        for (final Pending change: this.pending.values())
+        {
+            final long remaining = Math.max(0, change.deadline - now);
+            if ((delay < 0) || (remaining < delay))
+            {
+                delay = remaining;
+            }
+        }
+        return delay;
+    }
+
+    /**
+     * Returns the number of ports with pending changes.
+     *
+     * @return The number of pending ports.
+     */
+    int size()
+    {
+        return this.pending.size();
+    }
+
+    /**
+     * The pending change of a single port.
+     */
+    private static final class Pending
+    {
+        /** The departure of a previously reported device. */
+        HotplugEvent left;
+
+        /** The arrival of a device. */
+        HotplugEvent arrived;
+
+        /** The time when the debounce window expires. */
+        long deadline;
+    }
+}
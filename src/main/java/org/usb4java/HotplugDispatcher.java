@@ -0,0 +1,476 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hotplug callback which moves hotplug event processing off the thread
+ * handling libusb events.
+ *
+ * libusb calls hotplug callbacks on the event handling thread, so a slow
+ * callback (one which opens the device and reads descriptors for example)
+ * delays all transfer completions. This dispatcher only references the
+ * device and puts the event into a bounded queue. A dispatcher thread
+ * debounces the events per port (see {@link #getWindow(TimeUnit)}) and
+ * then hands them to the registered {@link HotplugListener}s on an
+ * {@link Executor}. Each listener receives its events in order but a slow
+ * listener does not delay the others.
+ *
+ * The dispatcher must be registered by the application:
+ *
+ * <pre>
+ * dispatcher.start();
+ * LibUsb.hotplugRegisterCallback(context,
+ *     LibUsb.HOTPLUG_EVENT_DEVICE_ARRIVED | LibUsb.HOTPLUG_EVENT_DEVICE_LEFT,
+ *     LibUsb.HOTPLUG_ENUMERATE, LibUsb.HOTPLUG_MATCH_ANY,
+ *     LibUsb.HOTPLUG_MATCH_ANY, LibUsb.HOTPLUG_MATCH_ANY, dispatcher, null,
+ *     handle);
+ * </pre>
+ *
+ * When the queue is full new events are dropped and counted, see
+ * {@link #getDroppedEvents()}.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class HotplugDispatcher implements HotplugCallback
+{
+    /** The default queue capacity. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** The default debounce window in milliseconds. */
+    public static final long DEFAULT_WINDOW = 250;
+
+    /** The maximum port path depth according to the USB 3.0 specification. */
+    private static final int MAX_PORT_DEPTH = 7;
+
+    /** The executor calling the listeners. */
+    private final Executor executor;
+
+    /** The queue of events received from libusb. */
+    private final BlockingQueue<HotplugEvent> queue;
+
+    /** The debounce window in nanoseconds. */
+    private final long window;
+
+    /** The registered listeners. */
+    private final List<Subscriber> subscribers =
+        new CopyOnWriteArrayList<Subscriber>();
+
+    /** The number of events dropped because the queue was full. */
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    /** The number of events delivered to the listeners. */
+    private final AtomicLong deliveredEvents = new AtomicLong();
+
+    /** The number of events cancelled out by debouncing. */
+    private final AtomicLong coalescedEvents = new AtomicLong();
+
+    /** The dispatcher thread. */
+    private final Thread thread;
+
+    /** If dispatcher has been started. */
+    private boolean started;
+
+    /** If dispatcher should stop. */
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new dispatcher with default queue capacity and debounce
+     * window.
+     *
+     * @param executor
+     *            The executor calling the listeners.
+     */
+    public HotplugDispatcher(final Executor executor)
+    {
+        this(executor, DEFAULT_CAPACITY, DEFAULT_WINDOW,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Constructs a new dispatcher.
+     *
+     * @param executor
+     *            The executor calling the listeners.
+     * @param capacity
+     *            The maximum number of events waiting for the dispatcher
+     *            thread. Must be positive.
+     * @param window
+     *            The debounce window. A device which arrives and leaves
+     *            again within this time is not reported at all. 0 disables
+     *            debouncing.
+     * @param unit
+     *            The time unit of the debounce window.
+     */
+    public HotplugDispatcher(final Executor executor, final int capacity,
+        final long window, final TimeUnit unit)
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        if (window < 0)
+        {
+            throw new IllegalArgumentException("window must not be negative");
+        }
+        this.executor = executor;
+        this.queue = new ArrayBlockingQueue<HotplugEvent>(capacity);
+        this.window = unit.toNanos(window);
+        this.thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                dispatch();
+            }
+        }, "usb4java hotplug dispatcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Returns the debounce window.
+     *
+     * @param unit
+     *            The time unit to return.
+     * @return The debounce window.
+     */
+    public long getWindow(final TimeUnit unit)
+    {
+        return unit.convert(this.window, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds a listener.
+     *
+     * @param listener
+     *            The listener to add.
+     */
+    public void addListener(final HotplugListener listener)
+    {
+        this.subscribers.add(new Subscriber(listener));
+    }
+
+    /**
+     * Removes a listener. Events already scheduled for the listener are
+     * still delivered.
+     *
+     * @param listener
+     *            The listener to remove.
+     */
+    public void removeListener(final HotplugListener listener)
+    {
+        for (final Subscriber subscriber: this.subscribers)
+        {
+            if (subscriber.listener == listener)
+            {
+                this.subscribers.remove(subscriber);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events dropped because the queue was full.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedEvents()
+    {
+        return this.droppedEvents.get();
+    }
+
+    /**
+     * Returns the number of events which were cancelled out by debouncing.
+     *
+     * @return The number of coalesced events.
+     */
+    public long getCoalescedEvents()
+    {
+        return this.coalescedEvents.get();
+    }
+
+    /**
+     * Returns the number of events handed to the listeners.
+     *
+     * @return The number of delivered events.
+     */
+    public long getDeliveredEvents()
+    {
+        return this.deliveredEvents.get();
+    }
+
+    /**
+     * Starts the dispatcher thread. Must be called before the dispatcher is
+     * registered as hotplug callback.
+     */
+    public synchronized void start()
+    {
+        if (this.started)
+        {
+            throw new IllegalStateException("Dispatcher is already started");
+        }
+        this.started = true;
+        this.thread.start();
+    }
+
+    /**
+     * Stops the dispatcher thread and releases all events which were not
+     * yet delivered. The dispatcher must be deregistered as hotplug callback
+     * before calling this method.
+     *
+     * @throws InterruptedException
+     *             When interrupted while waiting for the dispatcher thread.
+     */
+    public synchronized void close() throws InterruptedException
+    {
+        if (!this.started || this.closed)
+        {
+            throw new IllegalStateException("Dispatcher is not running");
+        }
+        this.closed = true;
+        this.thread.interrupt();
+        this.thread.join();
+    }
+
+    @Override
+    public int processEvent(final Context context, final Device device,
+        final int event, final Object userData)
+    {
+        if (this.closed)
+        {
+            return 0;
+        }
+
+        // libusb releases the device after this callback returns so it must
+        // be referenced until all listeners are done.
+        LibUsb.refDevice(device);
+        if (!this.queue.offer(new HotplugEvent(device, event,
+            System.nanoTime())))
+        {
+            LibUsb.unrefDevice(device);
+            this.droppedEvents.incrementAndGet();
+        }
+        return 0;
+    }
+
+    /**
+     * Main loop of the dispatcher thread.
+     */
+    private void dispatch()
+    {
+        final HotplugCoalescer coalescer = new HotplugCoalescer(this.window);
+        final ByteBuffer path = BufferUtils.allocateByteBuffer(
+            MAX_PORT_DEPTH);
+        try
+        {
+            while (!this.closed)
+            {
+                final long delay = coalescer.getDelay(System.nanoTime());
+                HotplugEvent event;
+                if (delay < 0)
+                {
+                    event = this.queue.take();
+                }
+                else
+                {
+                    event = this.queue.poll(delay, TimeUnit.NANOSECONDS);
+                }
+                while (event != null)
+                {
+                    event.portPath = portPath(event.getDevice(), path);
+                    final List<HotplugEvent> dropped = coalescer.add(event,
+                        System.nanoTime());
+                    this.coalescedEvents.addAndGet(dropped.size());
+                    release(dropped);
+                    event = this.queue.poll();
+                }
+                for (final HotplugEvent due: coalescer.poll(
+                    System.nanoTime()))
+                {
+                    deliver(due);
+                }
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            // Closed
+        }
+        finally
+        {
+            release(coalescer.clear());
+            final Queue<HotplugEvent> remaining =
+                new ArrayDeque<HotplugEvent>();
+            this.queue.drainTo(remaining);
+            release(remaining);
+        }
+    }
+
+    /**
+     * Returns the port path of the specified device.
+     *
+     * @param device
+     *            The device.
+     * @param path
+     *            Buffer to receive the port numbers.
+     * @return The port path.
+     */
+    private static String portPath(final Device device, final ByteBuffer path)
+    {
+        final int depth = LibUsb.getPortNumbers(device, path);
+        final byte[] portNumbers = new byte[Math.max(0, depth)];
+        for (int i = 0; i < portNumbers.length; i++)
+        {
+            portNumbers[i] = path.get(i);
+        }
+        return ScannedDevice.portPath(LibUsb.getBusNumber(device),
+            portNumbers);
+    }
+
+    /**
+     * Hands the event to all listeners.
+     *
+     * @param event
+     *            The event to deliver.
+     */
+    private void deliver(final HotplugEvent event)
+    {
+        final Subscriber[] subscribers = this.subscribers.toArray(
+            new Subscriber[0]);
+        if (subscribers.length == 0)
+        {
+            release(event);
+            return;
+        }
+        this.deliveredEvents.incrementAndGet();
+        event.references.set(subscribers.length);
+        for (final Subscriber subscriber: subscribers)
+        {
+            subscriber.schedule(event);
+        }
+    }
+
+    /**
+     * Releases the device references of the specified events.
+     *
+     * @param events
+     *            The events to release.
+     */
+    private static void release(final Iterable<HotplugEvent> events)
+    {
+        for (final HotplugEvent event: events)
+        {
+            release(event);
+        }
+    }
+
+    /**
+     * Releases the device reference of the specified event.
+     *
+     * @param event
+     *            The event to release.
+     */
+    private static void release(final HotplugEvent event)
+    {
+        LibUsb.unrefDevice(event.getDevice());
+    }
+
+    /**
+     * A listener with its own queue of events. At most one task per
+     * subscriber is running on the executor at any time so events are
+     * delivered in order.
+     */
+    private final class Subscriber implements Runnable
+    {
+        /** The listener. */
+        final HotplugListener listener;
+
+        /** The events waiting for delivery. */
+        private final Queue<HotplugEvent> events =
+            new ArrayDeque<HotplugEvent>();
+
+        /** If a task is scheduled on the executor. */
+        private boolean scheduled;
+
+        /**
+         * Constructs a new subscriber.
+         *
+         * @param listener
+         *            The listener.
+         */
+        Subscriber(final HotplugListener listener)
+        {
+            this.listener = listener;
+        }
+
+        /**
+         * Schedules an event for delivery.
+         *
+         * @param event
+         *            The event.
+         */
+        void schedule(final HotplugEvent event)
+        {
+            synchronized (this)
+            {
+                this.events.add(event);
+                if (this.scheduled)
+                {
+                    return;
+                }
+                this.scheduled = true;
+            }
+            HotplugDispatcher.this.executor.execute(this);
+        }
+
+        @Override
+        public void run()
+        {
+            final HotplugEvent event;
+            synchronized (this)
+            {
+                event = this.events.poll();
+            }
+            try
+            {
+                this.listener.hotplugEvent(event);
+            }
+            finally
+            {
+                if (event.references.decrementAndGet() == 0)
+                {
+                    release(event);
+                }
+
+                // Only one event per task so an exception thrown by the
+                // listener does not stall the remaining events.
+                final boolean more;
+                synchronized (this)
+                {
+                    more = !this.events.isEmpty();
+                    this.scheduled = more;
+                }
+                if (more)
+                {
+                    HotplugDispatcher.this.executor.execute(this);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A hotplug event delivered by a {@link HotplugDispatcher}.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class HotplugEvent
+{
+    /** The device. */
+    private final Device device;
+
+    /** The event type. */
+    private final int event;
+
+    /** The time in nanoseconds when the event was received. */
+    private final long time;
+
+    /** The port path. Set by the dispatcher thread before delivery. */
+    String portPath;
+
+    /** The number of listeners which have not yet processed the event. */
+    final AtomicInteger references = new AtomicInteger();
+
+    /**
+     * Constructs a new hotplug event.
+     *
+     * @param device
+     *            The device.
+     * @param event
+     *            The event type.
+     * @param time
+     *            The time in nanoseconds when the event was received.
+     */
+    HotplugEvent(final Device device, final int event, final long time)
+    {
+        this.device = device;
+        this.event = event;
+        this.time = time;
+    }
+
+    /**
+     * Returns the device.
+     *
+     * @return The device.
+     */
+    public Device getDevice()
+    {
+        return this.device;
+    }
+
+    /**
+     * Returns the event type.
+     *
+     * @return {@link LibUsb#HOTPLUG_EVENT_DEVICE_ARRIVED} or
+     *         {@link LibUsb#HOTPLUG_EVENT_DEVICE_LEFT}.
+     */
+    public int getEvent()
+    {
+        return this.event;
+    }
+
+    /**
+     * Checks if this is an arrival event.
+     *
+     * @return True if device arrived, false if it left.
+     */
+    public boolean isArrived()
+    {
+        return this.event == LibUsb.HOTPLUG_EVENT_DEVICE_ARRIVED;
+    }
+
+    /**
+     * Returns the time when the event was received from libusb. The time is
+     * a value of {@link System#nanoTime()} so it can be used to measure how
+     * long the event was delayed by debouncing and queuing.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getTime()
+    {
+        return this.time;
+    }
+
+    /**
+     * Returns the port path of the device in the form used by Linux sysfs,
+     * for example "1-2.4". Events are debounced per port path.
+     *
+     * @return The port path.
+     */
+    public String getPortPath()
+    {
+        return this.portPath;
+    }
+
+    @Override
+    public String toString()
+    {
+        return (isArrived() ? "arrived " : "left ") + this.portPath;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Listener interface for hotplug events delivered by a
+ * {@link HotplugDispatcher}.
+ *
+ * The method is called by a thread of the executor passed to the
+ * dispatcher, never by the thread handling libusb events, so it may block
+ * and perform synchronous I/O. Events are delivered to each listener in the
+ * order they occurred.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public interface HotplugListener
+{
+    /**
+     * Called when a device arrived or left.
+     *
+     * @param event
+     *            The hotplug event. The device of the event is referenced
+     *            until this method returns, so it must be referenced with
+     *            {@link LibUsb#refDevice(Device)} if it is needed later.
+     */
+    void hotplugEvent(HotplugEvent event);
+}
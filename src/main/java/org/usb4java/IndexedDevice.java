@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Immutable entry of a {@link DeviceIndex}. It holds the device together
+ * with the values the index is keyed by.
+ *
+ * The device is referenced by the index as long as it is connected so it
+ * can be opened with {@link LibUsb#open(Device, DeviceHandle)} without
+ * getting a new device list.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class IndexedDevice
+{
+    /** The device. */
+    private final Device device;
+
+    /** The bus number. */
+    private final int busNumber;
+
+    /** The device address. */
+    private final int address;
+
+    /** The port path. */
+    private final String portPath;
+
+    /** The vendor ID. */
+    private final short vendorId;
+
+    /** The product ID. */
+    private final short productId;
+
+    /** The device class. */
+    private final byte deviceClass;
+
+    /** The serial number string index. */
+    private final byte serialNumberIndex;
+
+    /** The serial number or null if not (yet) known. */
+    private final String serialNumber;
+
+    /**
+     * Constructs a new index entry.
+     *
+     * @param device
+     *            The device.
+     * @param busNumber
+     *            The bus number.
+     * @param address
+     *            The device address.
+     * @param portPath
+     *            The port path.
+     * @param vendorId
+     *            The vendor ID.
+     * @param productId
+     *            The product ID.
+     * @param deviceClass
+     *            The device class.
+     * @param serialNumberIndex
+     *            The serial number string index. 0 if device has no serial
+     *            number.
+     * @param serialNumber
+     *            The serial number or null if not known.
+     */
+    IndexedDevice(final Device device, final int busNumber, final int address,
+        final String portPath, final short vendorId, final short productId,
+        final byte deviceClass, final byte serialNumberIndex,
+        final String serialNumber)
+    {
+        this.device = device;
+        this.busNumber = busNumber;
+        this.address = address;
+        this.portPath = portPath;
+        this.vendorId = vendorId;
+        this.productId = productId;
+        this.deviceClass = deviceClass;
+        this.serialNumberIndex = serialNumberIndex;
+        this.serialNumber = serialNumber;
+    }
+
+    /**
+     * Returns a copy of this entry with the specified serial number.
+     *
+     * @param serialNumber
+     *            The serial number.
+     * @return The new entry.
+     */
+    IndexedDevice withSerialNumber(final String serialNumber)
+    {
+        return new IndexedDevice(this.device, this.busNumber, this.address,
+            this.portPath, this.vendorId, this.productId, this.deviceClass,
+            this.serialNumberIndex, serialNumber);
+    }
+
+    /**
+     * Returns the device.
+     *
+     * @return The device. Only valid while the entry is in the index.
+     */
+    public Device getDevice()
+    {
+        return this.device;
+    }
+
+    /**
+     * Returns the bus number.
+     *
+     * @return The bus number.
+     */
+    public int getBusNumber()
+    {
+        return this.busNumber;
+    }
+
+    /**
+     * Returns the device address.
+     *
+     * @return The device address.
+     */
+    public int getAddress()
+    {
+        return this.address;
+    }
+
+    /**
+     * Returns the port path in the form used by Linux sysfs, for example
+     * "1-2.4". Root hubs are named "usb1".
+     *
+     * @return The port path.
+     */
+    public String getPortPath()
+    {
+        return this.portPath;
+    }
+
+    /**
+     * Returns the vendor ID.
+     *
+     * @return The vendor ID.
+     */
+    public short getVendorId()
+    {
+        return this.vendorId;
+    }
+
+    /**
+     * Returns the product ID.
+     *
+     * @return The product ID.
+     */
+    public short getProductId()
+    {
+        return this.productId;
+    }
+
+    /**
+     * Returns the device class.
+     *
+     * @return The device class.
+     */
+    public byte getDeviceClass()
+    {
+        return this.deviceClass;
+    }
+
+    /**
+     * Returns the serial number string index.
+     *
+     * @return The serial number index. 0 if device has no serial number.
+     */
+    public byte getSerialNumberIndex()
+    {
+        return this.serialNumberIndex;
+    }
+
+    /**
+     * Returns the serial number. Serial numbers are read in the background
+     * after the device arrived so this may be null for a short time even
+     * when the device has one.
+     *
+     * @return The serial number or null if not known.
+     */
+    public String getSerialNumber()
+    {
+        return this.serialNumber;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s %04x:%04x", this.portPath,
+            this.vendorId & 0xffff, this.productId & 0xffff);
+    }
+}
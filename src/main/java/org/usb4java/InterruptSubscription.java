@@ -0,0 +1,421 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuously reads reports from an interrupt IN endpoint.
+ *
+ * The subscription keeps a configurable number of asynchronous interrupt
+ * transfers queued on the endpoint and resubmits each of them as soon as its
+ * report has been passed to the {@link ReportListener}. No thread is needed
+ * per device, all reports are delivered by the thread handling libusb events
+ * (See {@link EventHandlingThread}), so a single event thread can service
+ * many devices.
+ *
+ * A queue depth of two or more makes sure a transfer is always pending on
+ * the endpoint while the listener processes a report.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class InterruptSubscription
+{
+    /** The device handle. */
+    private final DeviceHandle handle;
+
+    /** The interrupt IN endpoint address. */
+    private final byte endpoint;
+
+    /** The maximum size of a single report. */
+    private final int reportSize;
+
+    /** The number of transfers kept queued on the endpoint. */
+    private final int queueDepth;
+
+    /** The report listener. */
+    private final ReportListener listener;
+
+    /** The callback used for all transfers of this subscription. */
+    private final TransferCallback callback = new TransferCallback()
+    {
+        @Override
+        public void processTransfer(final Transfer transfer)
+        {
+            InterruptSubscription.this.processTransfer(transfer);
+        }
+    };
+
+    /** Lock guarding submission against cancellation. */
+    private final Object lock = new Object();
+
+    /** Latch released when all transfers have been retired. */
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    /** The transfers. Null until started. */
+    private Transfer[] transfers;
+
+    /** The number of transfers which are not yet retired. */
+    private int activeTransfers;
+
+    /** If the subscription is stopping. */
+    private boolean stopping;
+
+    /** The termination status. */
+    private int terminationStatus = LibUsb.TRANSFER_CANCELLED;
+
+    /** The number of received reports. */
+    private volatile long reports;
+
+    /**
+     * Constructs a new interrupt subscription. Call {@link #start()} to
+     * start receiving reports.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The address of the interrupt IN endpoint.
+     * @param reportSize
+     *            The maximum size of a single report. Usually the
+     *            maximum packet size of the endpoint.
+     * @param queueDepth
+     *            The number of transfers to keep queued on the endpoint.
+     * @param listener
+     *            The listener to pass the reports to.
+     */
+    public InterruptSubscription(final DeviceHandle handle,
+        final byte endpoint, final int reportSize, final int queueDepth,
+        final ReportListener listener)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        if ((endpoint & LibUsb.ENDPOINT_DIR_MASK) != LibUsb.ENDPOINT_IN)
+        {
+            throw new IllegalArgumentException(
+                "endpoint must be an IN endpoint");
+        }
+        if (reportSize <= 0)
+        {
+            throw new IllegalArgumentException("reportSize must be positive");
+        }
+        if (queueDepth <= 0)
+        {
+            throw new IllegalArgumentException("queueDepth must be positive");
+        }
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        this.handle = handle;
+        this.endpoint = endpoint;
+        this.reportSize = reportSize;
+        this.queueDepth = queueDepth;
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the device handle.
+     *
+     * @return The device handle.
+     */
+    public DeviceHandle getHandle()
+    {
+        return this.handle;
+    }
+
+    /**
+     * Returns the interrupt IN endpoint address.
+     *
+     * @return The endpoint address.
+     */
+    public byte getEndpoint()
+    {
+        return this.endpoint;
+    }
+
+    /**
+     * Returns the maximum size of a single report.
+     *
+     * @return The report size.
+     */
+    public int getReportSize()
+    {
+        return this.reportSize;
+    }
+
+    /**
+     * Returns the number of transfers kept queued on the endpoint.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth()
+    {
+        return this.queueDepth;
+    }
+
+    /**
+     * Returns the number of reports received so far.
+     *
+     * @return The number of received reports.
+     */
+    public long getReportCount()
+    {
+        return this.reports;
+    }
+
+    /**
+     * Checks if the subscription has been started and not yet terminated.
+     *
+     * @return True if active, false if not.
+     */
+    public boolean isActive()
+    {
+        synchronized (this.lock)
+        {
+            return this.activeTransfers > 0;
+        }
+    }
+
+    /**
+     * Allocates the transfers and submits them.
+     *
+     * @throws LibUsbException
+     *             When a transfer could not be submitted. Already submitted
+     *             transfers are cancelled in this case. The listener is
+     *             notified about the termination with the submission error
+     *             when all of them have been retired, or right away when no
+     *             transfer was submitted at all.
+     */
+    public void start()
+    {
+        int status = LibUsb.SUCCESS;
+        final boolean retired;
+        synchronized (this.lock)
+        {
+            if (this.transfers != null)
+            {
+                throw new IllegalStateException(
+                    "Subscription already started");
+            }
+            this.transfers = new Transfer[this.queueDepth];
+            for (int i = 0; i < this.queueDepth; i++)
+            {
+                final Transfer transfer = LibUsb.allocTransfer();
+                LibUsb.fillInterruptTransfer(transfer, this.handle,
+                    this.endpoint,
+                    BufferUtils.allocateByteBuffer(this.reportSize),
+                    this.callback, null, 0);
+                this.transfers[i] = transfer;
+            }
+            int submitted = 0;
+            while ((submitted < this.queueDepth)
+                && (status == LibUsb.SUCCESS))
+            {
+                status = LibUsb.submitTransfer(this.transfers[submitted]);
+                if (status == LibUsb.SUCCESS)
+                {
+                    submitted++;
+                    this.activeTransfers++;
+                }
+            }
+            if (status == LibUsb.SUCCESS)
+            {
+                return;
+            }
+            for (int i = submitted; i < this.queueDepth; i++)
+            {
+                LibUsb.freeTransfer(this.transfers[i]);
+                this.transfers[i] = null;
+            }
+            this.stopping = true;
+            this.terminationStatus = status;
+            cancelAll();
+            retired = submitted == 0;
+        }
+        if (retired)
+        {
+            terminate();
+        }
+        throw new LibUsbException("Unable to submit interrupt transfer",
+            status);
+    }
+
+    /**
+     * Stops the subscription. All pending transfers are cancelled. The
+     * listener is notified when all of them have been retired. Use
+     * {@link #awaitTermination(long, TimeUnit)} to wait for this.
+     */
+    public void stop()
+    {
+        synchronized (this.lock)
+        {
+            if (this.stopping || (this.transfers == null))
+            {
+                return;
+            }
+            this.stopping = true;
+            cancelAll();
+        }
+    }
+
+    /**
+     * Waits until all transfers of a stopped subscription have been retired.
+     * Events must still be handled while waiting.
+     *
+     * @param timeout
+     *            The maximum time to wait.
+     * @param unit
+     *            The time unit of the timeout.
+     * @return True if the subscription has terminated, false if the timeout
+     *         expired.
+     * @throws InterruptedException
+     *             When the current thread was interrupted while waiting.
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit)
+        throws InterruptedException
+    {
+        return this.terminated.await(timeout, unit);
+    }
+
+    /**
+     * Cancels all transfers which are not yet retired. Transfers which are
+     * currently not pending are silently ignored by libusb. Must be called
+     * with the lock held.
+     */
+    private void cancelAll()
+    {
+        for (final Transfer transfer: this.transfers)
+        {
+            if (transfer != null)
+            {
+                LibUsb.cancelTransfer(transfer);
+            }
+        }
+    }
+
+    /**
+     * Processes a completed transfer. Passes the report to the listener and
+     * resubmits the transfer or retires it when the subscription is stopping
+     * or the transfer failed.
+     *
+     * @param transfer
+     *            The completed transfer.
+     */
+    void processTransfer(final Transfer transfer)
+    {
+        final int status = transfer.status();
+        if (status != LibUsb.TRANSFER_COMPLETED)
+        {
+            resubmit(transfer, status);
+            return;
+        }
+        final ByteBuffer buffer = transfer.buffer();
+        buffer.clear();
+        buffer.limit(transfer.actualLength());
+        this.reports++;
+        try
+        {
+            this.listener.reportReceived(this, buffer);
+        }
+        finally
+        {
+            buffer.clear();
+            resubmit(transfer, status);
+        }
+    }
+
+    /**
+     * Resubmits a completed or timed out transfer. Retires it when the
+     * subscription is stopping, the transfer failed or the resubmission
+     * failed.
+     *
+     * @param transfer
+     *            The transfer.
+     * @param status
+     *            The transfer status.
+     */
+    private void resubmit(final Transfer transfer, final int status)
+    {
+        int result = status;
+        if ((status == LibUsb.TRANSFER_COMPLETED)
+            || (status == LibUsb.TRANSFER_TIMED_OUT))
+        {
+            synchronized (this.lock)
+            {
+                if (!this.stopping)
+                {
+                    result = LibUsb.submitTransfer(transfer);
+                    if (result == LibUsb.SUCCESS)
+                    {
+                        return;
+                    }
+                }
+                else
+                {
+                    result = LibUsb.TRANSFER_CANCELLED;
+                }
+            }
+        }
+        retire(transfer, result);
+    }
+
+    /**
+     * Retires a transfer which is not going to be resubmitted. When the
+     * first transfer fails then all others are cancelled. When the last
+     * transfer is retired then the listener is notified.
+     *
+     * @param transfer
+     *            The transfer to retire.
+     * @param status
+     *            The final transfer status or submission error code.
+     */
+    private void retire(final Transfer transfer, final int status)
+    {
+        final boolean last;
+        synchronized (this.lock)
+        {
+            if (!this.stopping)
+            {
+                this.stopping = true;
+                this.terminationStatus = status;
+            }
+            for (int i = 0; i < this.transfers.length; i++)
+            {
+                if (this.transfers[i] == transfer)
+                {
+                    this.transfers[i] = null;
+                }
+            }
+            cancelAll();
+            last = --this.activeTransfers == 0;
+        }
+        LibUsb.freeTransfer(transfer);
+        if (last)
+        {
+            terminate();
+        }
+    }
+
+    /**
+     * Notifies the listener about the termination and releases the threads
+     * waiting for it.
+     */
+    private void terminate()
+    {
+        try
+        {
+            this.listener.subscriptionTerminated(this, this.terminationStatus);
+        }
+        finally
+        {
+            this.terminated.countDown();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Continuously reads from an isochronous IN endpoint into a
+ * {@link RingBuffer}.
+ *
+ * When a transfer completes, the payload of each successfully received
+ * packet (Honouring the actual length of the packet) is appended to the ring
+ * buffer and the transfer is immediately resubmitted. The application
+ * consumes the data from the ring buffer in its own thread.
+ *
+ * For quality monitoring the stream counts packets with errors, empty
+ * packets, bytes lost because the ring buffer was full and the number of
+ * missed service intervals (See {@link IsoStream}).
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class IsoInStream extends IsoStream
+{
+    /** The number of successfully received packets. */
+    private volatile long packetCount;
+
+    /** The number of packets received with errors. */
+    private volatile long packetErrors;
+
+    /** The number of successfully received empty packets. */
+    private volatile long emptyPackets;
+
+    /** The number of bytes lost because the ring buffer was full. */
+    private volatile long overrunBytes;
+
+    /**
+     * Constructs a new isochronous IN stream. Call {@link #start()} to start
+     * streaming.
+     *
+     * @param device
+     *            The device.
+     * @param handle
+     *            The handle of the opened device.
+     * @param endpoint
+     *            The address of the isochronous IN endpoint.
+     * @param numTransfers
+     *            The number of transfers to keep in flight.
+     * @param numPackets
+     *            The number of packets per transfer.
+     * @param ring
+     *            The ring buffer receiving the data.
+     */
+    public IsoInStream(final Device device, final DeviceHandle handle,
+        final byte endpoint, final int numTransfers, final int numPackets,
+        final RingBuffer ring)
+    {
+        super(device, handle, endpoint, LibUsb.ENDPOINT_IN, numTransfers,
+            numPackets, ring);
+    }
+
+    /**
+     * Returns the number of successfully received packets.
+     *
+     * @return The number of received packets.
+     */
+    public long getPacketCount()
+    {
+        return this.packetCount;
+    }
+
+    /**
+     * Returns the number of packets received with errors. Their data is
+     * dropped.
+     *
+     * @return The number of failed packets.
+     */
+    public long getPacketErrors()
+    {
+        return this.packetErrors;
+    }
+
+    /**
+     * Returns the number of successfully received packets without data.
+     *
+     * @return The number of empty packets.
+     */
+    public long getEmptyPackets()
+    {
+        return this.emptyPackets;
+    }
+
+    /**
+     * Returns the number of bytes which were dropped because the ring buffer
+     * was full.
+     *
+     * @return The number of dropped bytes.
+     */
+    public long getOverrunBytes()
+    {
+        return this.overrunBytes;
+    }
+
+    @Override
+    void prepare(final Transfer transfer,
+        final IsoPacketDescriptor[] descriptors)
+    {
+        // Nothing to prepare, received data is overwritten by the device
+    }
+
+    @Override
+    void complete(final Transfer transfer,
+        final IsoPacketDescriptor[] descriptors)
+    {
+        copyPackets(transfer.buffer(), descriptors);
+    }
+
+    /**
+     * Copies the payload of all successfully received packets into the ring
+     * buffer and updates the statistics.
+     *
+     * @param buffer
+     *            The transfer buffer.
+     * @param descriptors
+     *            The packet descriptors of the transfer.
+     */
+    private void copyPackets(final ByteBuffer buffer,
+        final IsoPacketDescriptor[] descriptors)
+    {
+        long received = 0;
+        long errors = 0;
+        long empty = 0;
+        long overrun = 0;
+        int offset = 0;
+        for (final IsoPacketDescriptor descriptor: descriptors)
+        {
+            if (descriptor.status() != LibUsb.TRANSFER_COMPLETED)
+            {
+                errors++;
+            }
+            else
+            {
+                received++;
+                final int length = descriptor.actualLength();
+                if (length == 0)
+                {
+                    empty++;
+                }
+                else
+                {
+                    overrun += length - this.ring.write(buffer, offset,
+                        length);
+                }
+            }
+            offset += this.packetSize;
+        }
+        this.packetCount += received;
+        this.packetErrors += errors;
+        this.emptyPackets += empty;
+        this.overrunBytes += overrun;
+    }
+}
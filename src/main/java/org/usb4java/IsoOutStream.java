@@ -0,0 +1,399 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Continuously writes data from a {@link RingBuffer} to an isochronous OUT
+ * endpoint.
+ *
+ * Before a transfer is submitted, its packets are filled from the ring
+ * buffer and the length of each packet is set individually. When the
+ * transfer completes it is refilled and immediately resubmitted. The
+ * application produces the data into the ring buffer in its own thread and
+ * should fill it before starting the stream.
+ *
+ * By default every packet takes as many bytes from the ring buffer as are
+ * available, up to the maximum packet size. For clock-driven data like
+ * audio a frame size can be set with {@link #setFrameSize(int)} together
+ * with the number of frames per packet (See
+ * {@link #setFramesPerPacket(double)}). Fractional rates are distributed
+ * over the packets (44.1 frames per packet results in packets with 44 and
+ * 45 frames for example) and packets always contain whole frames. In this
+ * mode a packet which can't be filled completely is padded with zeros so
+ * the device clock never runs dry.
+ *
+ * Asynchronous devices report their actual rate through an isochronous
+ * feedback endpoint (An endpoint with the usage type
+ * {@link LibUsb#ISO_USAGE_TYPE_FEEDBACK}). When such an endpoint is set
+ * with {@link #setFeedbackEndpoint(byte)} then the stream keeps a transfer
+ * queued on it and adapts the number of frames per packet to the reported
+ * value.
+ *
+ * Packets which could not be filled completely from the ring buffer are
+ * counted as underruns.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class IsoOutStream extends IsoStream
+{
+    /** The number of fraction bits of the fixed-point packet rate. */
+    private static final int RATE_SHIFT = 16;
+
+    /** The maximum size of a feedback value. */
+    private static final int FEEDBACK_SIZE = 4;
+
+    /** The frame size in bytes. 0 if not clock-driven. */
+    private volatile int frameSize;
+
+    /** The nominal number of frames per packet in 16.16 fixed point. */
+    private volatile long nominalRate;
+
+    /** The current number of frames per packet in 16.16 fixed point. */
+    private volatile long rate;
+
+    /** The fraction of a frame accumulated by previous packets. */
+    private long fraction;
+
+    /** The feedback endpoint address. 0 if none. */
+    private volatile byte feedbackEndpoint;
+
+    /** The number of successfully sent packets. */
+    private volatile long packetCount;
+
+    /** The number of packets which failed. */
+    private volatile long packetErrors;
+
+    /** The number of packets which could not be filled completely. */
+    private volatile long underruns;
+
+    /** The number of bytes missing in underrun packets. */
+    private volatile long underrunBytes;
+
+    /** The number of accepted feedback values. */
+    private volatile long feedbackCount;
+
+    /**
+     * Constructs a new isochronous OUT stream. Call {@link #start()} to start
+     * streaming.
+     *
+     * @param device
+     *            The device.
+     * @param handle
+     *            The handle of the opened device.
+     * @param endpoint
+     *            The address of the isochronous OUT endpoint.
+     * @param numTransfers
+     *            The number of transfers to keep in flight.
+     * @param numPackets
+     *            The number of packets per transfer.
+     * @param ring
+     *            The ring buffer providing the data.
+     */
+    public IsoOutStream(final Device device, final DeviceHandle handle,
+        final byte endpoint, final int numTransfers, final int numPackets,
+        final RingBuffer ring)
+    {
+        super(device, handle, endpoint, LibUsb.ENDPOINT_OUT, numTransfers,
+            numPackets, ring);
+    }
+
+    /**
+     * Returns the frame size.
+     *
+     * @return The frame size in bytes. 0 if the stream is not clock-driven.
+     */
+    public int getFrameSize()
+    {
+        return this.frameSize;
+    }
+
+    /**
+     * Sets the frame size. A frame is the smallest unit of data which must
+     * not be split across packets (One sample for each channel in case of
+     * audio). Must be set before the stream is started.
+     *
+     * @param frameSize
+     *            The frame size in bytes.
+     */
+    public void setFrameSize(final int frameSize)
+    {
+        if (frameSize <= 0)
+        {
+            throw new IllegalArgumentException("frameSize must be positive");
+        }
+        this.frameSize = frameSize;
+    }
+
+    /**
+     * Returns the current number of frames per packet. When a feedback
+     * endpoint is used then this is the most recently reported rate.
+     *
+     * @return The number of frames per packet. 0 if not set.
+     */
+    public double getFramesPerPacket()
+    {
+        return (double) this.rate / (1 << RATE_SHIFT);
+    }
+
+    /**
+     * Sets the nominal number of frames per packet. This is the sample rate
+     * multiplied with the service interval of the endpoint, 44.1 for a
+     * 44100 Hz stream on a full speed device for example. May be changed
+     * while the stream is running to adjust the rate manually. When a
+     * feedback endpoint is used then this is the initial rate and the
+     * reference for validating feedback values.
+     *
+     * @param framesPerPacket
+     *            The number of frames per packet.
+     */
+    public void setFramesPerPacket(final double framesPerPacket)
+    {
+        if (!(framesPerPacket > 0))
+        {
+            throw new IllegalArgumentException(
+                "framesPerPacket must be positive");
+        }
+        final long value = Math.round(framesPerPacket * (1 << RATE_SHIFT));
+        this.nominalRate = value;
+        this.rate = value;
+    }
+
+    /**
+     * Returns the feedback endpoint.
+     *
+     * @return The address of the feedback endpoint. 0 if none.
+     */
+    public byte getFeedbackEndpoint()
+    {
+        return this.feedbackEndpoint;
+    }
+
+    /**
+     * Sets the isochronous feedback endpoint the rate is adapted to. Full
+     * speed devices report the number of frames per 1 ms frame in 10.14
+     * format (3 bytes), all others the number of frames per 125 microsecond
+     * microframe in 16.16 format (4 bytes). Reported values are scaled to
+     * the service interval of the OUT endpoint. Values deviating more than
+     * 12.5% from the nominal rate are ignored. Requires a frame size and a
+     * nominal rate and must be set before the stream is started.
+     *
+     * @param feedbackEndpoint
+     *            The address of the isochronous feedback IN endpoint.
+     */
+    public void setFeedbackEndpoint(final byte feedbackEndpoint)
+    {
+        if ((feedbackEndpoint & LibUsb.ENDPOINT_DIR_MASK)
+            != LibUsb.ENDPOINT_IN)
+        {
+            throw new IllegalArgumentException(
+                "feedbackEndpoint must be an IN endpoint");
+        }
+        this.feedbackEndpoint = feedbackEndpoint;
+    }
+
+    /**
+     * Returns the number of successfully sent packets.
+     *
+     * @return The number of sent packets.
+     */
+    public long getPacketCount()
+    {
+        return this.packetCount;
+    }
+
+    /**
+     * Returns the number of packets which could not be sent.
+     *
+     * @return The number of failed packets.
+     */
+    public long getPacketErrors()
+    {
+        return this.packetErrors;
+    }
+
+    /**
+     * Returns the number of packets which could not be filled completely
+     * because the ring buffer did not contain enough data.
+     *
+     * @return The number of underruns.
+     */
+    public long getUnderruns()
+    {
+        return this.underruns;
+    }
+
+    /**
+     * Returns the number of bytes missing in underrun packets. In
+     * clock-driven mode these bytes were sent as zeros.
+     *
+     * @return The number of missing bytes.
+     */
+    public long getUnderrunBytes()
+    {
+        return this.underrunBytes;
+    }
+
+    /**
+     * Returns the number of feedback values which were used to adapt the
+     * rate.
+     *
+     * @return The number of accepted feedback values.
+     */
+    public long getFeedbackCount()
+    {
+        return this.feedbackCount;
+    }
+
+    @Override
+    Transfer[] createAuxiliaryTransfers()
+    {
+        if (this.feedbackEndpoint == 0)
+        {
+            return new Transfer[0];
+        }
+        if ((this.frameSize == 0) || (this.nominalRate == 0))
+        {
+            throw new IllegalStateException(
+                "Feedback requires a frame size and a nominal rate");
+        }
+        final Transfer transfer = LibUsb.allocTransfer(1);
+        LibUsb.fillIsoTransfer(transfer, this.handle, this.feedbackEndpoint,
+            BufferUtils.allocateByteBuffer(FEEDBACK_SIZE), 1, this.callback,
+            null, 0);
+        LibUsb.setIsoPacketLengths(transfer, FEEDBACK_SIZE);
+        return new Transfer[] { transfer };
+    }
+
+    @Override
+    void prepare(final Transfer transfer,
+        final IsoPacketDescriptor[] descriptors)
+    {
+        final ByteBuffer buffer = transfer.buffer();
+        final int frame = this.frameSize;
+        long missingPackets = 0;
+        long missingBytes = 0;
+        int offset = 0;
+        for (final IsoPacketDescriptor descriptor: descriptors)
+        {
+            final int length;
+            final int read;
+            if (frame == 0)
+            {
+                length = this.packetSize;
+                read = this.ring.read(buffer, offset, length);
+                descriptor.setLength(read);
+                offset += read;
+            }
+            else
+            {
+                length = nextPacketLength(frame);
+                final int available = this.ring.available();
+                read = this.ring.read(buffer, offset,
+                    Math.min(length, available - available % frame));
+                for (int i = offset + read; i < offset + length; i++)
+                {
+                    buffer.put(i, (byte) 0);
+                }
+                descriptor.setLength(length);
+                offset += length;
+            }
+            if (read < length)
+            {
+                missingPackets++;
+                missingBytes += length - read;
+            }
+        }
+        this.underruns += missingPackets;
+        this.underrunBytes += missingBytes;
+    }
+
+    /**
+     * Calculates the length of the next packet in clock-driven mode.
+     *
+     * @param frame
+     *            The frame size in bytes.
+     * @return The packet length in bytes.
+     */
+    private int nextPacketLength(final int frame)
+    {
+        final long frames = this.fraction + this.rate;
+        this.fraction = frames & ((1 << RATE_SHIFT) - 1);
+        return (int) Math.min((frames >> RATE_SHIFT) * frame,
+            this.packetSize - this.packetSize % frame);
+    }
+
+    @Override
+    void complete(final Transfer transfer,
+        final IsoPacketDescriptor[] descriptors)
+    {
+        long sent = 0;
+        long errors = 0;
+        for (final IsoPacketDescriptor descriptor: descriptors)
+        {
+            if (descriptor.status() == LibUsb.TRANSFER_COMPLETED)
+            {
+                sent++;
+            }
+            else
+            {
+                errors++;
+            }
+        }
+        this.packetCount += sent;
+        this.packetErrors += errors;
+    }
+
+    @Override
+    void completeAuxiliary(final Transfer transfer,
+        final IsoPacketDescriptor[] descriptors)
+    {
+        final IsoPacketDescriptor descriptor = descriptors[0];
+        if (descriptor.status() == LibUsb.TRANSFER_COMPLETED)
+        {
+            final long value = decodeFeedback(transfer.buffer(),
+                descriptor.actualLength(), getServiceInterval());
+            final long nominal = this.nominalRate;
+            if (Math.abs(value - nominal) <= nominal >> 3)
+            {
+                this.rate = value;
+                this.feedbackCount++;
+            }
+        }
+    }
+
+    /**
+     * Decodes a feedback value into the number of frames per packet.
+     *
+     * @param buffer
+     *            The buffer containing the feedback value.
+     * @param length
+     *            The length of the feedback value. 3 for a 10.14 value per
+     *            1 ms frame, 4 for a 16.16 value per 125 microsecond
+     *            microframe.
+     * @param serviceInterval
+     *            The service interval of the OUT endpoint in nanoseconds.
+     * @return The number of frames per packet in 16.16 fixed point or 0 if
+     *         the length is invalid.
+     */
+    static long decodeFeedback(final ByteBuffer buffer, final int length,
+        final long serviceInterval)
+    {
+        final long value = (buffer.get(0) & 0xff)
+            | ((buffer.get(1) & 0xff) << 8) | ((buffer.get(2) & 0xff) << 16);
+        if (length == 3)
+        {
+            return (value << 2) * serviceInterval / 1000000;
+        }
+        if (length == 4)
+        {
+            return (value | ((buffer.get(3) & 0xffL) << 24))
+                * serviceInterval / 125000;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,566 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for continuous isochronous streams between an endpoint and a
+ * {@link RingBuffer}.
+ *
+ * The stream keeps a fixed number of isochronous transfers in flight, each
+ * consisting of a fixed number of packets sized with
+ * {@link LibUsb#getMaxIsoPacketSize(Device, byte)}. Each transfer is
+ * resubmitted as soon as it completes. Transfers, buffers and packet
+ * descriptors are allocated once on {@link #start()} so the completion path
+ * creates no garbage. The number of transfers times the number of packets
+ * defines how long the event handling thread may stall (Because of a GC
+ * pause for example) before the stream is interrupted.
+ *
+ * The stream estimates the number of service intervals which were missed
+ * because no transfer was queued, based on the service interval of the
+ * endpoint (See {@link #setServiceInterval(long)}) and the times transfers
+ * were resubmitted.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public abstract class IsoStream
+{
+    /** The device. */
+    final Device device;
+
+    /** The device handle. */
+    final DeviceHandle handle;
+
+    /** The isochronous endpoint address. */
+    final byte endpoint;
+
+    /** The number of data transfers kept in flight. */
+    final int numTransfers;
+
+    /** The number of packets per data transfer. */
+    final int numPackets;
+
+    /** The ring buffer. */
+    final RingBuffer ring;
+
+    /** The callback used for all transfers of this stream. */
+    final TransferCallback callback = new TransferCallback()
+    {
+        @Override
+        public void processTransfer(final Transfer transfer)
+        {
+            IsoStream.this.processTransfer(transfer);
+        }
+    };
+
+    /** Lock guarding submission against cancellation. */
+    private final Object lock = new Object();
+
+    /** Latch released when all transfers have been retired. */
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    /** The service interval in nanoseconds. 0 to derive from the speed. */
+    private volatile long serviceInterval;
+
+    /** The packet size. Determined on start. */
+    int packetSize;
+
+    /**
+     * The data transfers followed by the auxiliary transfers. Null until
+     * started. Retired ones are set to null.
+     */
+    private Transfer[] transfers;
+
+    /** The cached packet descriptors of the transfers. */
+    private IsoPacketDescriptor[][] packets;
+
+    /** The number of transfers which are not yet retired. */
+    private int activeTransfers;
+
+    /** If the stream is stopping. */
+    private boolean stopping;
+
+    /** The termination status. */
+    private volatile int terminationStatus = LibUsb.TRANSFER_CANCELLED;
+
+    /** Estimated time in nanoseconds when the queued transfers run out. */
+    private long queueEnd;
+
+    /** The estimated number of missed service intervals. */
+    private volatile long missedIntervals;
+
+    /**
+     * Constructs a new isochronous stream.
+     *
+     * @param device
+     *            The device.
+     * @param handle
+     *            The handle of the opened device.
+     * @param endpoint
+     *            The address of the isochronous endpoint.
+     * @param direction
+     *            The required endpoint direction.
+     * @param numTransfers
+     *            The number of transfers to keep in flight.
+     * @param numPackets
+     *            The number of packets per transfer.
+     * @param ring
+     *            The ring buffer.
+     */
+    IsoStream(final Device device, final DeviceHandle handle,
+        final byte endpoint, final byte direction, final int numTransfers,
+        final int numPackets, final RingBuffer ring)
+    {
+        if (device == null)
+        {
+            throw new IllegalArgumentException("device must not be null");
+        }
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        if ((endpoint & LibUsb.ENDPOINT_DIR_MASK) != direction)
+        {
+            throw new IllegalArgumentException("endpoint must be an "
+                + (direction == LibUsb.ENDPOINT_IN ? "IN" : "OUT")
+                + " endpoint");
+        }
+        if (numTransfers <= 0)
+        {
+            throw new IllegalArgumentException(
+                "numTransfers must be positive");
+        }
+        if (numPackets <= 0)
+        {
+            throw new IllegalArgumentException("numPackets must be positive");
+        }
+        if (ring == null)
+        {
+            throw new IllegalArgumentException("ring must not be null");
+        }
+        this.device = device;
+        this.handle = handle;
+        this.endpoint = endpoint;
+        this.numTransfers = numTransfers;
+        this.numPackets = numPackets;
+        this.ring = ring;
+    }
+
+    /**
+     * Returns the ring buffer.
+     *
+     * @return The ring buffer.
+     */
+    public final RingBuffer getRing()
+    {
+        return this.ring;
+    }
+
+    /**
+     * Returns the maximum size of a single packet. Only valid after the
+     * stream has been started.
+     *
+     * @return The packet size.
+     */
+    public final int getPacketSize()
+    {
+        synchronized (this.lock)
+        {
+            return this.packetSize;
+        }
+    }
+
+    /**
+     * Returns the service interval used for estimating missed intervals.
+     *
+     * @return The service interval in nanoseconds. 0 if it is derived from
+     *         the device speed on start.
+     */
+    public final long getServiceInterval()
+    {
+        return this.serviceInterval;
+    }
+
+    /**
+     * Sets the service interval of the endpoint. This is the time between
+     * two isochronous packets. Must be set before the stream is started.
+     * When not set then it is derived from the device speed: 1 ms for low
+     * and full speed devices and 125 microseconds for all others. Endpoints
+     * with a bInterval greater than 1 need to set this explicitly.
+     *
+     * @param serviceInterval
+     *            The service interval in nanoseconds.
+     */
+    public final void setServiceInterval(final long serviceInterval)
+    {
+        if (serviceInterval <= 0)
+        {
+            throw new IllegalArgumentException(
+                "serviceInterval must be positive");
+        }
+        this.serviceInterval = serviceInterval;
+    }
+
+    /**
+     * Returns the estimated number of service intervals during which no
+     * transfer was queued on the endpoint.
+     *
+     * @return The estimated number of missed service intervals.
+     */
+    public final long getMissedIntervals()
+    {
+        return this.missedIntervals;
+    }
+
+    /**
+     * Returns the status the stream terminated with.
+     *
+     * @return {@link LibUsb#TRANSFER_CANCELLED} if the stream was stopped
+     *         regularly (or is still running), the failed transfer status or
+     *         the ERROR code of a failed resubmission otherwise.
+     */
+    public final int getTerminationStatus()
+    {
+        return this.terminationStatus;
+    }
+
+    /**
+     * Checks if the stream has been started and not yet terminated.
+     *
+     * @return True if active, false if not.
+     */
+    public final boolean isActive()
+    {
+        synchronized (this.lock)
+        {
+            return this.activeTransfers > 0;
+        }
+    }
+
+    /**
+     * Allocates the transfers and submits them.
+     *
+     * @throws LibUsbException
+     *             When the packet size could not be determined or a transfer
+     *             could not be submitted. Already submitted transfers are
+     *             cancelled in this case.
+     */
+    public final void start()
+    {
+        synchronized (this.lock)
+        {
+            if (this.transfers != null)
+            {
+                throw new IllegalStateException("Stream already started");
+            }
+            final int size = LibUsb.getMaxIsoPacketSize(this.device,
+                this.endpoint);
+            if (size < 0)
+            {
+                throw new LibUsbException("Unable to get packet size", size);
+            }
+            if (this.serviceInterval == 0)
+            {
+                final int speed = LibUsb.getDeviceSpeed(this.device);
+                this.serviceInterval = ((speed == LibUsb.SPEED_LOW)
+                    || (speed == LibUsb.SPEED_FULL)) ? 1000000 : 125000;
+            }
+            this.packetSize = size;
+            final Transfer[] auxiliary = createAuxiliaryTransfers();
+            final int count = this.numTransfers + auxiliary.length;
+            this.transfers = new Transfer[count];
+            this.packets = new IsoPacketDescriptor[count][];
+            for (int i = 0; i < this.numTransfers; i++)
+            {
+                final Transfer transfer =
+                    LibUsb.allocTransfer(this.numPackets);
+                LibUsb.fillIsoTransfer(transfer, this.handle, this.endpoint,
+                    BufferUtils.allocateByteBuffer(size * this.numPackets),
+                    this.numPackets, this.callback, null, 0);
+                LibUsb.setIsoPacketLengths(transfer, size);
+                this.transfers[i] = transfer;
+                this.packets[i] = transfer.isoPacketDesc();
+            }
+            for (int i = 0; i < auxiliary.length; i++)
+            {
+                this.transfers[this.numTransfers + i] = auxiliary[i];
+                this.packets[this.numTransfers + i] =
+                    auxiliary[i].isoPacketDesc();
+            }
+            this.queueEnd = System.nanoTime();
+            for (int i = 0; i < count; i++)
+            {
+                final Transfer transfer = this.transfers[i];
+                if (i < this.numTransfers)
+                {
+                    prepare(transfer, this.packets[i]);
+                }
+                final int result = submit(i, transfer);
+                if (result != LibUsb.SUCCESS)
+                {
+                    for (int j = i; j < count; j++)
+                    {
+                        LibUsb.freeTransfer(this.transfers[j]);
+                        this.transfers[j] = null;
+                    }
+                    this.stopping = true;
+                    this.terminationStatus = result;
+                    if (i == 0)
+                    {
+                        this.terminated.countDown();
+                    }
+                    else
+                    {
+                        cancelAll();
+                    }
+                    throw new LibUsbException(
+                        "Unable to submit isochronous transfer", result);
+                }
+                this.activeTransfers++;
+            }
+        }
+    }
+
+    /**
+     * Stops the stream. All pending transfers are cancelled. Use
+     * {@link #awaitTermination(long, TimeUnit)} to wait until all of them
+     * have been retired.
+     */
+    public final void stop()
+    {
+        synchronized (this.lock)
+        {
+            if (this.stopping || (this.transfers == null))
+            {
+                return;
+            }
+            this.stopping = true;
+            cancelAll();
+        }
+    }
+
+    /**
+     * Waits until all transfers of a stopped stream have been retired.
+     * Events must still be handled while waiting.
+     *
+     * @param timeout
+     *            The maximum time to wait.
+     * @param unit
+     *            The time unit of the timeout.
+     * @return True if the stream has terminated, false if the timeout
+     *         expired.
+     * @throws InterruptedException
+     *             When the current thread was interrupted while waiting.
+     */
+    public final boolean awaitTermination(final long timeout,
+        final TimeUnit unit) throws InterruptedException
+    {
+        return this.terminated.await(timeout, unit);
+    }
+
+    /**
+     * Creates additional transfers which are kept in flight together with
+     * the data transfers. They must use {@link #callback} and are freed by
+     * the stream. The default implementation creates none.
+     *
+     * @return The auxiliary transfers.
+     */
+    Transfer[] createAuxiliaryTransfers()
+    {
+        return new Transfer[0];
+    }
+
+    /**
+     * Prepares a data transfer before it is submitted.
+     *
+     * @param transfer
+     *            The transfer to prepare.
+     * @param descriptors
+     *            The packet descriptors of the transfer.
+     */
+    abstract void prepare(Transfer transfer,
+        IsoPacketDescriptor[] descriptors);
+
+    /**
+     * Processes a successfully completed data transfer.
+     *
+     * @param transfer
+     *            The completed transfer.
+     * @param descriptors
+     *            The packet descriptors of the transfer.
+     */
+    abstract void complete(Transfer transfer,
+        IsoPacketDescriptor[] descriptors);
+
+    /**
+     * Processes a successfully completed auxiliary transfer. The default
+     * implementation does nothing.
+     *
+     * @param transfer
+     *            The completed transfer.
+     * @param descriptors
+     *            The packet descriptors of the transfer.
+     */
+    void completeAuxiliary(final Transfer transfer,
+        final IsoPacketDescriptor[] descriptors)
+    {
+        // Empty
+    }
+
+    /**
+     * Cancels all transfers which are not yet retired. Must be called with
+     * the lock held.
+     */
+    private void cancelAll()
+    {
+        for (final Transfer transfer: this.transfers)
+        {
+            if (transfer != null)
+            {
+                LibUsb.cancelTransfer(transfer);
+            }
+        }
+    }
+
+    /**
+     * Submits a transfer. For data transfers the estimated end of the
+     * transfer queue is updated. When the queue had already run out then the
+     * elapsed service intervals are counted as missed. Must be called with
+     * the lock held.
+     *
+     * @param index
+     *            The index of the transfer.
+     * @param transfer
+     *            The transfer to submit.
+     * @return The result of the submission.
+     */
+    private int submit(final int index, final Transfer transfer)
+    {
+        final int result = LibUsb.submitTransfer(transfer);
+        if ((result == LibUsb.SUCCESS) && (index < this.numTransfers))
+        {
+            final long now = System.nanoTime();
+            final long interval = this.serviceInterval;
+            if (now - this.queueEnd > interval)
+            {
+                this.missedIntervals += (now - this.queueEnd) / interval;
+                this.queueEnd = now;
+            }
+            this.queueEnd += interval * this.numPackets;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of the specified transfer.
+     *
+     * @param transfer
+     *            The transfer.
+     * @return The index of the transfer.
+     */
+    private int indexOf(final Transfer transfer)
+    {
+        for (int i = 0; i < this.transfers.length; i++)
+        {
+            if (transfer.equals(this.transfers[i]))
+            {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Unknown transfer: " + transfer);
+    }
+
+    /**
+     * Processes a completed transfer and resubmits it.
+     *
+     * @param transfer
+     *            The completed transfer.
+     */
+    final void processTransfer(final Transfer transfer)
+    {
+        final int index;
+        synchronized (this.lock)
+        {
+            index = indexOf(transfer);
+        }
+        final boolean data = index < this.numTransfers;
+        int status = transfer.status();
+        if (status == LibUsb.TRANSFER_COMPLETED)
+        {
+            if (data)
+            {
+                complete(transfer, this.packets[index]);
+                prepare(transfer, this.packets[index]);
+            }
+            else
+            {
+                completeAuxiliary(transfer, this.packets[index]);
+            }
+            synchronized (this.lock)
+            {
+                if (this.stopping)
+                {
+                    status = LibUsb.TRANSFER_CANCELLED;
+                }
+                else
+                {
+                    if (data)
+                    {
+                        // The completed transfer proves that the hardware
+                        // queue contains at most the other data transfers.
+                        final long maxEnd = System.nanoTime()
+                            + this.serviceInterval * this.numPackets
+                            * (this.numTransfers - 1);
+                        if (this.queueEnd - maxEnd > 0)
+                        {
+                            this.queueEnd = maxEnd;
+                        }
+                    }
+                    status = submit(index, transfer);
+                    if (status == LibUsb.SUCCESS)
+                    {
+                        return;
+                    }
+                }
+            }
+        }
+        retire(index, status);
+    }
+
+    /**
+     * Retires a transfer which is not going to be resubmitted. When the
+     * first transfer fails then all others are cancelled.
+     *
+     * @param index
+     *            The index of the transfer to retire.
+     * @param status
+     *            The final transfer status or submission error code.
+     */
+    private void retire(final int index, final int status)
+    {
+        final Transfer transfer;
+        final boolean last;
+        synchronized (this.lock)
+        {
+            if (!this.stopping)
+            {
+                this.stopping = true;
+                this.terminationStatus = status;
+            }
+            transfer = this.transfers[index];
+            this.transfers[index] = null;
+            cancelAll();
+            last = --this.activeTransfers == 0;
+        }
+        LibUsb.freeTransfer(transfer);
+        if (last)
+        {
+            this.terminated.countDown();
+        }
+    }
+}
@@ -0,0 +1,745 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bulk transfer of a large buffer split into pipelined chunks.
+ *
+ * A single bulk transfer of many megabytes may exceed the limits of the
+ * platform and leaves the bus idle while the transfer is set up and
+ * completed. This class splits the buffer into chunks which are multiples
+ * of the maximum packet size of the endpoint and keeps a window of them in
+ * flight as asynchronous transfers, so the host controller always has the
+ * next chunk queued when the current one completes. The chunks are slices
+ * of the caller's buffer, so no data is copied.
+ *
+ * A chunk completing with less data than requested is a short packet and
+ * terminates an IN transfer, a failed chunk terminates any transfer. In
+ * both cases the chunks queued behind it are cancelled and the result
+ * reports the number of bytes transferred without a gap. Chunks on the same
+ * endpoint complete in the order they were submitted.
+ *
+ * Another thread must handle libusb events while a transfer is running
+ * (See {@link EventHandlingThread}). The default chunk size of 64 KiB with
+ * a depth of 8 stays well below the 16 MB usbfs memory limit of Linux and
+ * the transfer size limits of other platforms.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class LargeTransfer
+{
+    /** The default chunk size in bytes. */
+    public static final int DEFAULT_CHUNK_SIZE = 65536;
+
+    /** The default number of chunks kept in flight. */
+    public static final int DEFAULT_DEPTH = 8;
+
+    /** The device handle. */
+    private final DeviceHandle handle;
+
+    /** The bulk endpoint address. */
+    private final byte endpoint;
+
+    /** The maximum packet size of the endpoint. */
+    private final int maxPacketSize;
+
+    /** The chunk size. Always a multiple of the maximum packet size. */
+    private volatile int chunkSize;
+
+    /** The number of chunks kept in flight. */
+    private volatile int depth = DEFAULT_DEPTH;
+
+    /** The timeout of each chunk in milliseconds. */
+    private volatile long timeout;
+
+    /** If OUT transfers are terminated with a zero length packet. */
+    private volatile boolean zeroLengthPacket;
+
+    /** The libusb operations. */
+    private final Operations operations;
+
+    /**
+     * The libusb operations used by the large transfer. Replaced by tests.
+     */
+    interface Operations
+    {
+        /**
+         * Allocates a transfer.
+         *
+         * @return The transfer.
+         */
+        Transfer allocTransfer();
+
+        /**
+         * Frees a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         */
+        void freeTransfer(Transfer transfer);
+
+        /**
+         * Fills a bulk transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param handle
+         *            The device handle.
+         * @param endpoint
+         *            The endpoint address.
+         * @param buffer
+         *            The data buffer.
+         * @param callback
+         *            The callback.
+         * @param timeout
+         *            The timeout in milliseconds.
+         */
+        void fillBulkTransfer(Transfer transfer, DeviceHandle handle,
+            byte endpoint, ByteBuffer buffer, TransferCallback callback,
+            long timeout);
+
+        /**
+         * Sets the flags of a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param flags
+         *            The flags.
+         */
+        void setFlags(Transfer transfer, byte flags);
+
+        /**
+         * Submits a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int submitTransfer(Transfer transfer);
+
+        /**
+         * Cancels a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int cancelTransfer(Transfer transfer);
+
+        /**
+         * Returns the status of a completed transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The transfer status.
+         */
+        int status(Transfer transfer);
+
+        /**
+         * Returns the actual length of a completed transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The number of transferred bytes.
+         */
+        int actualLength(Transfer transfer);
+
+        /**
+         * Converts a transfer status into an ERROR code.
+         *
+         * @param status
+         *            The transfer status.
+         * @return The ERROR code.
+         */
+        int transferStatusToError(int status);
+    }
+
+    /**
+     * The operations implemented with libusb.
+     */
+    private static final class LibUsbOperations implements Operations
+    {
+        @Override
+        public Transfer allocTransfer()
+        {
+            return LibUsb.allocTransfer();
+        }
+
+        @Override
+        public void freeTransfer(final Transfer transfer)
+        {
+            LibUsb.freeTransfer(transfer);
+        }
+
+        @Override
+        public void fillBulkTransfer(final Transfer transfer,
+            final DeviceHandle handle, final byte endpoint,
+            final ByteBuffer buffer, final TransferCallback callback,
+            final long timeout)
+        {
+            LibUsb.fillBulkTransfer(transfer, handle, endpoint, buffer,
+                callback, null, timeout);
+        }
+
+        @Override
+        public void setFlags(final Transfer transfer, final byte flags)
+        {
+            transfer.setFlags(flags);
+        }
+
+        @Override
+        public int submitTransfer(final Transfer transfer)
+        {
+            return LibUsb.submitTransfer(transfer);
+        }
+
+        @Override
+        public int cancelTransfer(final Transfer transfer)
+        {
+            return LibUsb.cancelTransfer(transfer);
+        }
+
+        @Override
+        public int status(final Transfer transfer)
+        {
+            return transfer.status();
+        }
+
+        @Override
+        public int actualLength(final Transfer transfer)
+        {
+            return transfer.actualLength();
+        }
+
+        @Override
+        public int transferStatusToError(final int status)
+        {
+            return LibUsb.transferStatusToError(status);
+        }
+    }
+
+    /**
+     * Constructs a new large transfer.
+     *
+     * @param handle
+     *            The handle of the opened device.
+     * @param endpoint
+     *            The address of the bulk endpoint.
+     * @param maxPacketSize
+     *            The maximum packet size of the endpoint as returned by
+     *            {@link LibUsb#getMaxPacketSize(Device, byte)}.
+     */
+    public LargeTransfer(final DeviceHandle handle, final byte endpoint,
+        final int maxPacketSize)
+    {
+        this(handle, endpoint, maxPacketSize, new LibUsbOperations());
+    }
+
+    /**
+     * Constructs a new large transfer with the specified libusb operations.
+     *
+     * @param handle
+     *            The handle of the opened device.
+     * @param endpoint
+     *            The address of the bulk endpoint.
+     * @param maxPacketSize
+     *            The maximum packet size of the endpoint.
+     * @param operations
+     *            The libusb operations.
+     */
+    LargeTransfer(final DeviceHandle handle, final byte endpoint,
+        final int maxPacketSize, final Operations operations)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        if (maxPacketSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                "maxPacketSize must be positive");
+        }
+        this.handle = handle;
+        this.endpoint = endpoint;
+        this.maxPacketSize = maxPacketSize;
+        this.chunkSize = alignChunkSize(DEFAULT_CHUNK_SIZE, maxPacketSize);
+        this.operations = operations;
+    }
+
+    /**
+     * Rounds the chunk size down to a multiple of the packet size. The
+     * result is at least one packet.
+     *
+     * @param chunkSize
+     *            The requested chunk size.
+     * @param maxPacketSize
+     *            The maximum packet size.
+     * @return The aligned chunk size.
+     */
+    static int alignChunkSize(final int chunkSize, final int maxPacketSize)
+    {
+        return Math.max(chunkSize / maxPacketSize, 1) * maxPacketSize;
+    }
+
+    /**
+     * Returns the endpoint address.
+     *
+     * @return The endpoint address.
+     */
+    public byte getEndpoint()
+    {
+        return this.endpoint;
+    }
+
+    /**
+     * Returns the maximum packet size of the endpoint.
+     *
+     * @return The maximum packet size.
+     */
+    public int getMaxPacketSize()
+    {
+        return this.maxPacketSize;
+    }
+
+    /**
+     * Returns the chunk size.
+     *
+     * @return The chunk size in bytes.
+     */
+    public int getChunkSize()
+    {
+        return this.chunkSize;
+    }
+
+    /**
+     * Sets the chunk size. It is rounded down to a multiple of the maximum
+     * packet size. Takes effect with the next transfer.
+     *
+     * @param chunkSize
+     *            The chunk size in bytes. Must be positive.
+     */
+    public void setChunkSize(final int chunkSize)
+    {
+        if (chunkSize <= 0)
+        {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = alignChunkSize(chunkSize, this.maxPacketSize);
+    }
+
+    /**
+     * Returns the number of chunks kept in flight.
+     *
+     * @return The pipeline depth.
+     */
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    /**
+     * Sets the number of chunks kept in flight. Takes effect with the next
+     * transfer.
+     *
+     * @param depth
+     *            The pipeline depth. Must be positive.
+     */
+    public void setDepth(final int depth)
+    {
+        if (depth <= 0)
+        {
+            throw new IllegalArgumentException("depth must be positive");
+        }
+        this.depth = depth;
+    }
+
+    /**
+     * Returns the timeout of each chunk.
+     *
+     * @return The timeout in milliseconds. 0 for unlimited.
+     */
+    public long getTimeout()
+    {
+        return this.timeout;
+    }
+
+    /**
+     * Sets the timeout of each chunk.
+     *
+     * @param timeout
+     *            The timeout in milliseconds. 0 for unlimited.
+     */
+    public void setTimeout(final long timeout)
+    {
+        if (timeout < 0)
+        {
+            throw new IllegalArgumentException(
+                "timeout must not be negative");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Checks if OUT transfers which are a multiple of the maximum packet
+     * size are terminated with a zero length packet.
+     *
+     * @return True if a zero length packet is sent, false if not.
+     */
+    public boolean isZeroLengthPacket()
+    {
+        return this.zeroLengthPacket;
+    }
+
+    /**
+     * Sets if OUT transfers which are a multiple of the maximum packet
+     * size are terminated with a zero length packet. Needed by protocols
+     * which detect the end of a transfer by a short packet.
+     *
+     * @param zeroLengthPacket
+     *            True to send a zero length packet, false to not.
+     */
+    public void setZeroLengthPacket(final boolean zeroLengthPacket)
+    {
+        this.zeroLengthPacket = zeroLengthPacket;
+    }
+
+    /**
+     * Transfers the remaining bytes of the specified buffer. The direction
+     * is inferred from the endpoint address. Blocks until all chunks have
+     * been retired. On return the buffer position is advanced by the number
+     * of transferred bytes.
+     *
+     * When the calling thread is interrupted then all chunks are cancelled,
+     * the method waits until they are retired and then throws the
+     * exception. The buffer position is advanced anyway.
+     *
+     * @param data
+     *            The direct buffer to transfer.
+     * @return The result.
+     * @throws InterruptedException
+     *             When the calling thread was interrupted.
+     */
+    public LargeTransferResult transfer(final ByteBuffer data)
+        throws InterruptedException
+    {
+        if (data == null)
+        {
+            throw new IllegalArgumentException("data must not be null");
+        }
+        if (!data.isDirect())
+        {
+            throw new IllegalArgumentException("data must be a direct buffer");
+        }
+        final Run run = new Run(data, this.chunkSize, this.depth,
+            this.timeout);
+        try
+        {
+            run.start();
+            run.await();
+        }
+        finally
+        {
+            run.free();
+            data.position(data.position() + run.transferred);
+        }
+        if (run.interrupted)
+        {
+            throw new InterruptedException();
+        }
+        return run.result();
+    }
+
+    /**
+     * The state of a single transfer. Also the callback of all its chunks.
+     */
+    private final class Run implements TransferCallback
+    {
+        /** The transferred buffer. */
+        private final ByteBuffer data;
+
+        /** The offset of the data within the buffer. */
+        private final int offset;
+
+        /** The number of bytes to transfer. */
+        private final int length;
+
+        /** The chunk size. */
+        private final int chunkSize;
+
+        /** The timeout of each chunk. */
+        private final long timeout;
+
+        /** If this is an IN transfer. */
+        private final boolean in;
+
+        /** The chunk transfers. */
+        private final Transfer[] transfers;
+
+        /** If the chunk transfers are in flight. */
+        private final boolean[] active;
+
+        /** The submission times of the chunks in flight. */
+        private final long[] submitTimes;
+
+        /** The offsets of the chunks in flight. */
+        private final int[] offsets;
+
+        /** The lengths of the chunks in flight. */
+        private final int[] lengths;
+
+        /** The offset of the next chunk to submit. */
+        private int next;
+
+        /** The number of chunks in flight. */
+        private int inFlight;
+
+        /** If no more chunks are submitted. */
+        private boolean stopped;
+
+        /** If the calling thread was interrupted. */
+        private boolean interrupted;
+
+        /** The result code. */
+        private int result = LibUsb.SUCCESS;
+
+        /** If terminated by a short packet. */
+        private boolean shortPacket;
+
+        /** The number of bytes transferred without a gap. */
+        private int transferred;
+
+        /** If a chunk was not completely transferred. */
+        private boolean gap;
+
+        /** The number of completed chunks. */
+        private int chunks;
+
+        /** The sum of the chunk latencies. */
+        private long latencyNanos;
+
+        /** The start time. */
+        private long startTime;
+
+        /** The time the last chunk was retired. */
+        private long endTime;
+
+        /**
+         * Constructs a new run.
+         *
+         * @param data
+         *            The buffer to transfer.
+         * @param chunkSize
+         *            The chunk size.
+         * @param depth
+         *            The pipeline depth.
+         * @param timeout
+         *            The chunk timeout.
+         */
+        Run(final ByteBuffer data, final int chunkSize, final int depth,
+            final long timeout)
+        {
+            this.data = data;
+            this.offset = data.position();
+            this.length = data.remaining();
+            this.chunkSize = chunkSize;
+            this.timeout = timeout;
+            this.in = (LargeTransfer.this.endpoint & LibUsb.ENDPOINT_DIR_MASK)
+                == LibUsb.ENDPOINT_IN;
+            final int count = (int) Math.min(depth,
+                ((long) this.length + chunkSize - 1) / chunkSize);
+            this.transfers = new Transfer[count];
+            this.active = new boolean[count];
+            this.submitTimes = new long[count];
+            this.offsets = new int[count];
+            this.lengths = new int[count];
+        }
+
+        /**
+         * Allocates the chunk transfers and submits the first window.
+         */
+        synchronized void start()
+        {
+            for (int i = 0; i < this.transfers.length; i++)
+            {
+                this.transfers[i] = LargeTransfer.this.operations
+                    .allocTransfer();
+            }
+            this.startTime = System.nanoTime();
+            this.endTime = this.startTime;
+            for (int i = 0; i < this.transfers.length; i++)
+            {
+                submit(i);
+            }
+        }
+
+        /**
+         * Submits the next chunk with the specified transfer. Does nothing
+         * when the run is stopped or all chunks have been submitted. Must be
+         * called with the lock held.
+         *
+         * @param index
+         *            The index of the transfer.
+         */
+        private void submit(final int index)
+        {
+            if (this.stopped)
+            {
+                return;
+            }
+            final int remaining = this.length - this.next;
+            if (remaining <= 0)
+            {
+                return;
+            }
+            final int size = Math.min(this.chunkSize, remaining);
+            final Transfer transfer = this.transfers[index];
+            final Operations operations = LargeTransfer.this.operations;
+            operations.fillBulkTransfer(transfer, LargeTransfer.this.handle,
+                LargeTransfer.this.endpoint,
+                BufferUtils.slice(this.data, this.offset + this.next, size),
+                this, this.timeout);
+            final boolean last = size == remaining;
+            final boolean zeroPacket = !this.in && last
+                && LargeTransfer.this.zeroLengthPacket
+                && ((size % LargeTransfer.this.maxPacketSize) == 0);
+            operations.setFlags(transfer, zeroPacket
+                ? LibUsb.TRANSFER_ADD_ZERO_PACKET : (byte) 0);
+            final int submitResult = operations.submitTransfer(transfer);
+            if (submitResult != LibUsb.SUCCESS)
+            {
+                stop(submitResult);
+                return;
+            }
+            this.active[index] = true;
+            this.offsets[index] = this.next;
+            this.lengths[index] = size;
+            this.submitTimes[index] = System.nanoTime();
+            this.inFlight++;
+            this.next += size;
+        }
+
+        /**
+         * Stops submitting chunks and cancels the chunks in flight. Must be
+         * called with the lock held.
+         *
+         * @param reason
+         *            The result code. Ignored when already stopped.
+         */
+        private void stop(final int reason)
+        {
+            if (this.stopped)
+            {
+                return;
+            }
+            this.stopped = true;
+            this.result = reason;
+            for (int i = 0; i < this.transfers.length; i++)
+            {
+                if (this.active[i])
+                {
+                    LargeTransfer.this.operations.cancelTransfer(
+                        this.transfers[i]);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void processTransfer(final Transfer transfer)
+        {
+            int index = 0;
+            while (!transfer.equals(this.transfers[index]))
+            {
+                index++;
+            }
+            final long now = System.nanoTime();
+            this.active[index] = false;
+            this.inFlight--;
+            this.endTime = now;
+            final Operations operations = LargeTransfer.this.operations;
+            final int status = operations.status(transfer);
+            final int actual = operations.actualLength(transfer);
+            if (!this.gap && (this.offsets[index] == this.transferred))
+            {
+                this.transferred += actual;
+                this.gap = actual < this.lengths[index];
+            }
+            if (status == LibUsb.TRANSFER_COMPLETED)
+            {
+                this.chunks++;
+                this.latencyNanos += now - this.submitTimes[index];
+                if ((actual < this.lengths[index]) && !this.stopped)
+                {
+                    this.shortPacket = true;
+                    stop(LibUsb.SUCCESS);
+                }
+            }
+            else
+            {
+                stop(operations.transferStatusToError(status));
+            }
+            submit(index);
+            if (this.inFlight == 0)
+            {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Waits until all chunks have been retired. When interrupted the
+         * chunks are cancelled and waited for nevertheless because they
+         * still reference the buffer.
+         */
+        synchronized void await()
+        {
+            while (this.inFlight > 0)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (final InterruptedException e)
+                {
+                    this.interrupted = true;
+                    stop(LibUsb.ERROR_INTERRUPTED);
+                }
+            }
+        }
+
+        /**
+         * Frees the chunk transfers. When a chunk is still in flight
+         * because waiting failed then the transfers are leaked instead.
+         */
+        synchronized void free()
+        {
+            if (this.inFlight > 0)
+            {
+                return;
+            }
+            for (final Transfer transfer: this.transfers)
+            {
+                if (transfer != null)
+                {
+                    LargeTransfer.this.operations.freeTransfer(transfer);
+                }
+            }
+        }
+
+        /**
+         * Creates the result.
+         *
+         * @return The result.
+         */
+        synchronized LargeTransferResult result()
+        {
+            return new LargeTransferResult(this.result, this.transferred,
+                this.shortPacket, this.chunks, this.chunkSize,
+                this.transfers.length, this.latencyNanos,
+                this.endTime - this.startTime);
+        }
+    }
+}
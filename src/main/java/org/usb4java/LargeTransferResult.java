@@ -0,0 +1,196 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Immutable result of a {@link LargeTransfer}.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class LargeTransferResult
+{
+    /** The result code. */
+    private final int result;
+
+    /** The number of transferred bytes. */
+    private final long transferred;
+
+    /** If the transfer was terminated by a short packet. */
+    private final boolean shortPacket;
+
+    /** The number of completed chunks. */
+    private final int chunks;
+
+    /** The chunk size used. */
+    private final int chunkSize;
+
+    /** The number of chunks kept in flight. */
+    private final int depth;
+
+    /** The sum of the chunk latencies in nanoseconds. */
+    private final long latencyNanos;
+
+    /** The elapsed time in nanoseconds. */
+    private final long elapsedNanos;
+
+    /**
+     * Constructs a new result.
+     *
+     * @param result
+     *            The result code.
+     * @param transferred
+     *            The number of transferred bytes.
+     * @param shortPacket
+     *            If the transfer was terminated by a short packet.
+     * @param chunks
+     *            The number of completed chunks.
+     * @param chunkSize
+     *            The chunk size used.
+     * @param depth
+     *            The number of chunks kept in flight.
+     * @param latencyNanos
+     *            The sum of the chunk latencies in nanoseconds.
+     * @param elapsedNanos
+     *            The elapsed time in nanoseconds.
+     */
+    LargeTransferResult(final int result, final long transferred,
+        final boolean shortPacket, final int chunks, final int chunkSize,
+        final int depth, final long latencyNanos, final long elapsedNanos)
+    {
+        this.result = result;
+        this.transferred = transferred;
+        this.shortPacket = shortPacket;
+        this.chunks = chunks;
+        this.chunkSize = chunkSize;
+        this.depth = depth;
+        this.latencyNanos = latencyNanos;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the result code.
+     *
+     * @return {@link LibUsb#SUCCESS} if all data was transferred or the
+     *         device terminated the transfer with a short packet,
+     *         {@link LibUsb#ERROR_INTERRUPTED} if the calling thread was
+     *         interrupted, another ERROR code if a chunk failed or could not
+     *         be submitted.
+     */
+    public int getResult()
+    {
+        return this.result;
+    }
+
+    /**
+     * Checks if the transfer was successful.
+     *
+     * @return True if successful, false if not.
+     */
+    public boolean isSuccess()
+    {
+        return this.result == LibUsb.SUCCESS;
+    }
+
+    /**
+     * Returns the number of bytes transferred without a gap from the start
+     * of the buffer. On failure this includes the data of the failed chunk
+     * which was transferred before the failure.
+     *
+     * @return The number of transferred bytes.
+     */
+    public long getTransferred()
+    {
+        return this.transferred;
+    }
+
+    /**
+     * Checks if the device terminated the transfer with a short packet
+     * before the buffer was full.
+     *
+     * @return True if terminated by a short packet, false if not.
+     */
+    public boolean isShortPacket()
+    {
+        return this.shortPacket;
+    }
+
+    /**
+     * Returns the number of chunks which completed successfully.
+     *
+     * @return The number of completed chunks.
+     */
+    public int getChunks()
+    {
+        return this.chunks;
+    }
+
+    /**
+     * Returns the chunk size used.
+     *
+     * @return The chunk size in bytes.
+     */
+    public int getChunkSize()
+    {
+        return this.chunkSize;
+    }
+
+    /**
+     * Returns the number of chunks which were kept in flight.
+     *
+     * @return The pipeline depth.
+     */
+    public int getDepth()
+    {
+        return this.depth;
+    }
+
+    /**
+     * Returns the elapsed time from submitting the first chunk until the
+     * last chunk was retired.
+     *
+     * @return The elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos()
+    {
+        return this.elapsedNanos;
+    }
+
+    /**
+     * Returns the average time between submitting a chunk and its
+     * completion. Because chunks are queued this includes the time spent
+     * waiting for the preceding chunks.
+     *
+     * @return The average chunk latency in nanoseconds. 0 if no chunk was
+     *         completed.
+     */
+    public long getAverageLatencyNanos()
+    {
+        return this.chunks == 0 ? 0 : this.latencyNanos / this.chunks;
+    }
+
+    /**
+     * Returns the throughput.
+     *
+     * @return The throughput in bytes per second. 0 if no time elapsed.
+     */
+    public double getBytesPerSecond()
+    {
+        if (this.elapsedNanos <= 0)
+        {
+            return 0;
+        }
+        return this.transferred * 1000000000.0 / this.elapsedNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d bytes in %d chunks of %d bytes (depth %d)"
+            + " at %.1f MB/s, result %d%s", this.transferred, this.chunks,
+            this.chunkSize, this.depth, getBytesPerSecond() / 1000000,
+            this.result, this.shortPacket ? ", short packet" : "");
+    }
+}
@@ -685,6 +685,19 @@ public final class LibUsb
         ImmutablePair<PollfdListener, Object>> pollfdListeners =
         new ConcurrentHashMap<Long, ImmutablePair<PollfdListener, Object>>();
 
+    /**
+     * Per-thread output buffers for the number of transferred bytes used by
+     * the packed synchronous transfer methods.
+     */
+    private static final ThreadLocal<IntBuffer> transferredBuffers =
+        new ThreadLocal<IntBuffer>();
+
+    /**
+     * Per-thread output buffers for {@link #getNextTimeout(Context)}.
+     */
+    private static final ThreadLocal<LongBuffer> timeoutBuffers =
+        new ThreadLocal<LongBuffer>();
+
     static
     {
         Loader.load();
@@ -1991,6 +2004,43 @@ public final class LibUsb
         final byte endpoint, final ByteBuffer data,
         final IntBuffer transferred, final long timeout);
 
+    /**
+     * Perform a USB bulk transfer without an output buffer for the number of
+     * transferred bytes.
+     *
+     * This is the same as
+     * {@link #bulkTransfer(DeviceHandle, byte, ByteBuffer, IntBuffer, long)}
+     * but the result code and the number of transferred bytes are returned
+     * together in a single long value. The output buffer needed by the
+     * native call is cached per thread so nothing is allocated per call. Use
+     * {@link #unpackResult(long)} and {@link #unpackTransferred(long)} to
+     * split the returned value.
+     *
+     * This method is not part of libusb.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            A suitably-sized data buffer for either input or output
+     *            (depending on endpoint).
+     * @param timeout
+     *            timeout (in milliseconds) that this function should wait before
+     *            giving up due to no response being received. For an unlimited
+     *            timeout, use value 0.
+     * @return The result code in the upper 32 bits and the number of
+     *         transferred bytes in the lower 32 bits.
+     */
+    public static long bulkTransferPacked(final DeviceHandle handle,
+        final byte endpoint, final ByteBuffer data, final long timeout)
+    {
+        final IntBuffer transferred = transferredBuffer();
+        final int result = bulkTransfer(handle, endpoint, data, transferred,
+            timeout);
+        return PackedResult.pack(result, transferred.get(0));
+    }
+
     /**
      * Perform a USB interrupt transfer.
      *
@@ -2037,6 +2087,93 @@ public final class LibUsb
         final byte endpoint, final ByteBuffer data,
         final IntBuffer transferred, final long timeout);
 
+    /**
+     * Perform a USB interrupt transfer without an output buffer for the
+     * number of transferred bytes.
+     *
+     * This is the same as
+     * {@link #interruptTransfer(DeviceHandle, byte, ByteBuffer, IntBuffer, long)}
+     * but the result code and the number of transferred bytes are returned
+     * together in a single long value. The output buffer needed by the
+     * native call is cached per thread so nothing is allocated per call. Use
+     * {@link #unpackResult(long)} and {@link #unpackTransferred(long)} to
+     * split the returned value.
+     *
+     * This method is not part of libusb.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            A suitably-sized data buffer for either input or output
+     *            (depending on endpoint).
+     * @param timeout
+     *            Timeout (in milliseconds) that this function should wait before
+     *            giving up due to no response being received. For an unlimited
+     *            timeout, use value 0.
+     * @return The result code in the upper 32 bits and the number of
+     *         transferred bytes in the lower 32 bits.
+     */
+    public static long interruptTransferPacked(final DeviceHandle handle,
+        final byte endpoint, final ByteBuffer data, final long timeout)
+    {
+        final IntBuffer transferred = transferredBuffer();
+        final int result = interruptTransfer(handle, endpoint, data,
+            transferred, timeout);
+        return PackedResult.pack(result, transferred.get(0));
+    }
+
+    /**
+     * Returns the result code from a value returned by
+     * {@link #bulkTransferPacked(DeviceHandle, byte, ByteBuffer, long)} or
+     * {@link #interruptTransferPacked(DeviceHandle, byte, ByteBuffer, long)}.
+     *
+     * This method is not part of libusb.
+     *
+     * @param packed
+     *            The packed value.
+     * @return The result code. 0 on success or an ERROR code.
+     */
+    public static int unpackResult(final long packed)
+    {
+        return PackedResult.result(packed);
+    }
+
+    /**
+     * Returns the number of transferred bytes from a value returned by
+     * {@link #bulkTransferPacked(DeviceHandle, byte, ByteBuffer, long)} or
+     * {@link #interruptTransferPacked(DeviceHandle, byte, ByteBuffer, long)}.
+     *
+     * This method is not part of libusb.
+     *
+     * @param packed
+     *            The packed value.
+     * @return The number of transferred bytes.
+     */
+    public static int unpackTransferred(final long packed)
+    {
+        return PackedResult.transferred(packed);
+    }
+
+    /**
+     * Returns the output buffer for the number of transferred bytes of the
+     * current thread.
+     *
+     * @return The cleared output buffer.
+     */
+    private static IntBuffer transferredBuffer()
+    {
+        IntBuffer buffer = transferredBuffers.get();
+        if (buffer == null)
+        {
+            buffer = BufferUtils.allocateIntBuffer();
+            transferredBuffers.set(buffer);
+        }
+        buffer.put(0, 0);
+        return buffer;
+    }
+
     /**
      * Attempt to acquire the event handling lock.
      *
@@ -2390,6 +2527,42 @@ public final class LibUsb
     public static native int getNextTimeout(final Context context,
         final LongBuffer timeout);
 
+    /**
+     * Determine the next internal timeout that libusb needs to handle
+     * without an output buffer.
+     *
+     * This is the same as {@link #getNextTimeout(Context, LongBuffer)} but
+     * the timeout is returned directly. The output buffer needed by the
+     * native call is cached per thread so nothing is allocated per call.
+     *
+     * This method is not part of libusb.
+     *
+     * @param context
+     *            The context to operate on, or NULL for the default context
+     * @return The timeout in microseconds (0 if a timeout has already
+     *         expired), {@link Long#MAX_VALUE} if there are no pending
+     *         timeouts, or {@link #ERROR_OTHER} on failure.
+     */
+    public static long getNextTimeout(final Context context)
+    {
+        LongBuffer timeout = timeoutBuffers.get();
+        if (timeout == null)
+        {
+            timeout = BufferUtils.allocateLongBuffer();
+            timeoutBuffers.set(timeout);
+        }
+        final int result = getNextTimeout(context, timeout);
+        if (result < 0)
+        {
+            return result;
+        }
+        if (result == 0)
+        {
+            return Long.MAX_VALUE;
+        }
+        return timeout.get(0);
+    }
+
     /**
      * Register notification functions for file descriptor additions/removals.
      *
@@ -2987,6 +3160,40 @@ public final class LibUsb
             isoDescriptors[packet].length());
     }
 
+    /**
+     * Converts the status of a completed transfer into the error code the
+     * synchronous I/O functions of libusb return for it.
+     *
+     * This method is not part of libusb.
+     *
+     * @param status
+     *            The transfer status. See TRANSFER_* constants.
+     * @return {@link #SUCCESS} for {@link #TRANSFER_COMPLETED},
+     *         {@link #ERROR_TIMEOUT} for {@link #TRANSFER_TIMED_OUT},
+     *         {@link #ERROR_PIPE} for {@link #TRANSFER_STALL},
+     *         {@link #ERROR_NO_DEVICE} for {@link #TRANSFER_NO_DEVICE},
+     *         {@link #ERROR_OVERFLOW} for {@link #TRANSFER_OVERFLOW} and
+     *         {@link #ERROR_IO} for all other states.
+     */
+    public static int transferStatusToError(final int status)
+    {
+        switch (status)
+        {
+            case TRANSFER_COMPLETED:
+                return SUCCESS;
+            case TRANSFER_TIMED_OUT:
+                return ERROR_TIMEOUT;
+            case TRANSFER_STALL:
+                return ERROR_PIPE;
+            case TRANSFER_NO_DEVICE:
+                return ERROR_NO_DEVICE;
+            case TRANSFER_OVERFLOW:
+                return ERROR_OVERFLOW;
+            default:
+                return ERROR_IO;
+        }
+    }
+
     /**
      * Processes a hotplug event from native code.
      *
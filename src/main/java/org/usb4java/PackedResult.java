@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Packs a result code and the number of transferred bytes of a synchronous
+ * transfer into a single long. Kept apart from {@link LibUsb} so it can be
+ * used without loading the native library.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+final class PackedResult
+{
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private PackedResult()
+    {
+        // Empty
+    }
+
+    /**
+     * Packs a result code and the number of transferred bytes into a long.
+     *
+     * @param result
+     *            The result code.
+     * @param transferred
+     *            The number of transferred bytes.
+     * @return The packed value.
+     */
+    static long pack(final int result, final int transferred)
+    {
+        return ((long) result << 32) | (transferred & 0xffffffffL);
+    }
+
+    /**
+     * Returns the result code from a packed value.
+     *
+     * @param packed
+     *            The packed value.
+     * @return The result code.
+     */
+    static int result(final long packed)
+    {
+        return (int) (packed >> 32);
+    }
+
+    /**
+     * Returns the number of transferred bytes from a packed value.
+     *
+     * @param packed
+     *            The packed value.
+     * @return The number of transferred bytes.
+     */
+    static int transferred(final long packed)
+    {
+        return (int) packed;
+    }
+}
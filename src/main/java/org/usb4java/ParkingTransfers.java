@@ -0,0 +1,403 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Synchronous transfers which park the calling thread instead of blocking
+ * it in native code.
+ *
+ * The methods of this class have the same signatures and return values as
+ * the synchronous I/O functions of {@link LibUsb} but are implemented with
+ * asynchronous transfers. The calling thread submits the transfer and is
+ * then parked with {@link LockSupport} until the transfer callback unparks
+ * it. A parked virtual thread releases its carrier thread, so thousands of
+ * virtual threads can perform blocking-style transfers concurrently without
+ * pinning carrier threads. Platform threads work as well.
+ *
+ * Another thread must handle libusb events while transfers are running
+ * (See {@link EventHandlingThread}). The methods must not be called from
+ * the thread handling events because they would wait forever.
+ *
+ * When the calling thread is interrupted while waiting then the transfer is
+ * cancelled, the method returns {@link LibUsb#ERROR_INTERRUPTED} once the
+ * cancellation is complete and the interrupt status of the thread is set
+ * again.
+ *
+ * Transfer structures are recycled internally so no native memory is
+ * allocated per call in steady state.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class ParkingTransfers
+{
+    /** The maximum number of idle requests kept for reuse. */
+    private static final int MAX_IDLE_REQUESTS = 64;
+
+    /** The idle requests. */
+    private static final Queue<Request> IDLE_REQUESTS =
+        new ConcurrentLinkedQueue<Request>();
+
+    /** The number of idle requests. */
+    private static final AtomicInteger IDLE_COUNT = new AtomicInteger();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ParkingTransfers()
+    {
+        // Empty
+    }
+
+    /**
+     * A reusable transfer together with the state needed to wait for its
+     * completion. The request is its own transfer callback.
+     */
+    private static final class Request implements TransferCallback
+    {
+        /** The transfer. */
+        private final Transfer transfer;
+
+        /** Buffer for control transfers including the setup packet. */
+        private ByteBuffer controlBuffer;
+
+        /** The waiting thread. */
+        private volatile Thread waiter;
+
+        /** If the transfer has been completed. */
+        private volatile boolean completed;
+
+        /**
+         * Constructs a new request.
+         */
+        Request()
+        {
+            this.transfer = LibUsb.allocTransfer();
+            this.transfer.setCallback(this);
+        }
+
+        @Override
+        public void processTransfer(final Transfer transfer)
+        {
+            this.completed = true;
+            LockSupport.unpark(this.waiter);
+        }
+
+        /**
+         * Returns a control buffer with at least the specified capacity.
+         *
+         * @param capacity
+         *            The required capacity.
+         * @return The control buffer.
+         */
+        ByteBuffer controlBuffer(final int capacity)
+        {
+            if ((this.controlBuffer == null)
+                || (this.controlBuffer.capacity() < capacity))
+            {
+                this.controlBuffer = BufferUtils.allocateByteBuffer(
+                    Math.max(capacity, 64));
+            }
+            this.controlBuffer.clear();
+            return this.controlBuffer;
+        }
+
+        /**
+         * Submits the transfer and parks the current thread until it is
+         * completed.
+         *
+         * @return {@link LibUsb#SUCCESS} if the transfer was completed,
+         *         an ERROR code if it could not be submitted or failed.
+         */
+        int submitAndWait()
+        {
+            this.completed = false;
+            this.waiter = Thread.currentThread();
+            final int result = LibUsb.submitTransfer(this.transfer);
+            if (result != LibUsb.SUCCESS)
+            {
+                return result;
+            }
+            boolean interrupted = false;
+            while (!this.completed)
+            {
+                LockSupport.park(this);
+
+                // Always clear the flag, a set flag makes park return at once
+                if (Thread.interrupted() && !interrupted)
+                {
+                    interrupted = true;
+                    LibUsb.cancelTransfer(this.transfer);
+                }
+            }
+            final int status = this.transfer.status();
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+                if (status == LibUsb.TRANSFER_CANCELLED)
+                {
+                    return LibUsb.ERROR_INTERRUPTED;
+                }
+            }
+            return LibUsb.transferStatusToError(status);
+        }
+    }
+
+    /**
+     * Returns an idle request or creates a new one.
+     *
+     * @return The request.
+     */
+    private static Request acquire()
+    {
+        final Request request = IDLE_REQUESTS.poll();
+        if (request == null)
+        {
+            return new Request();
+        }
+        IDLE_COUNT.decrementAndGet();
+        return request;
+    }
+
+    /**
+     * Returns a finished request for reuse. The transfer is freed when
+     * enough requests are idle already.
+     *
+     * @param request
+     *            The finished request.
+     */
+    private static void release(final Request request)
+    {
+        request.waiter = null;
+        request.transfer.setBuffer(null);
+        if (IDLE_COUNT.incrementAndGet() <= MAX_IDLE_REQUESTS)
+        {
+            IDLE_REQUESTS.offer(request);
+        }
+        else
+        {
+            IDLE_COUNT.decrementAndGet();
+            LibUsb.freeTransfer(request.transfer);
+        }
+    }
+
+    /**
+     * Validates the arguments common to all transfer methods.
+     *
+     * @param handle
+     *            The device handle.
+     * @param data
+     *            The data buffer.
+     */
+    private static void validate(final DeviceHandle handle,
+        final ByteBuffer data)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        if (data == null)
+        {
+            throw new IllegalArgumentException("data must not be null");
+        }
+        if (!data.isDirect())
+        {
+            throw new IllegalArgumentException("data must be a direct buffer");
+        }
+    }
+
+    /**
+     * Perform a USB control transfer while parking the calling thread.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param bmRequestType
+     *            The request type field for the setup packet.
+     * @param bRequest
+     *            The request field for the setup packet.
+     * @param wValue
+     *            The value field for the setup packet.
+     * @param wIndex
+     *            The index field for the setup packet.
+     * @param data
+     *            A suitably-sized data buffer for either input or output
+     *            (depending on direction bits within bmRequestType).
+     * @param timeout
+     *            Timeout (in milliseconds) that this function should wait
+     *            before giving up due to no response being received. For an
+     *            unlimited timeout, use value 0.
+     * @return The same as
+     *         {@link LibUsb#controlTransfer(DeviceHandle, byte, byte, short,
+     *         short, ByteBuffer, long)} or {@link LibUsb#ERROR_INTERRUPTED}
+     *         if the calling thread was interrupted.
+     */
+    public static int controlTransfer(final DeviceHandle handle,
+        final byte bmRequestType, final byte bRequest, final short wValue,
+        final short wIndex, final ByteBuffer data, final long timeout)
+    {
+        validate(handle, data);
+        final int length = data.capacity();
+        final boolean in = (bmRequestType & LibUsb.ENDPOINT_DIR_MASK)
+            == LibUsb.ENDPOINT_IN;
+        final Request request = acquire();
+        try
+        {
+            final ByteBuffer buffer = request.controlBuffer(
+                LibUsb.CONTROL_SETUP_SIZE + length);
+            LibUsb.fillControlSetup(buffer, bmRequestType, bRequest, wValue,
+                wIndex, (short) length);
+            if (!in)
+            {
+                final ByteBuffer source = data.duplicate();
+                source.clear();
+                buffer.position(LibUsb.CONTROL_SETUP_SIZE);
+                buffer.put(source);
+                buffer.clear();
+            }
+            final Transfer transfer = request.transfer;
+            transfer.setDevHandle(handle);
+            transfer.setEndpoint((byte) 0);
+            transfer.setType(LibUsb.TRANSFER_TYPE_CONTROL);
+            transfer.setTimeout(timeout);
+            transfer.setBuffer(buffer);
+            transfer.setLength(LibUsb.CONTROL_SETUP_SIZE + length);
+            final int result = request.submitAndWait();
+            if (result != LibUsb.SUCCESS)
+            {
+                return result;
+            }
+            final int transferred = transfer.actualLength();
+            if (in)
+            {
+                buffer.position(LibUsb.CONTROL_SETUP_SIZE);
+                buffer.limit(LibUsb.CONTROL_SETUP_SIZE + transferred);
+                final ByteBuffer target = data.duplicate();
+                target.clear();
+                target.put(buffer);
+            }
+            return transferred;
+        }
+        finally
+        {
+            release(request);
+        }
+    }
+
+    /**
+     * Perform a USB bulk transfer while parking the calling thread.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            A suitably-sized data buffer for either input or output
+     *            (depending on endpoint).
+     * @param transferred
+     *            Output location for the number of bytes actually
+     *            transferred.
+     * @param timeout
+     *            Timeout (in milliseconds) that this function should wait
+     *            before giving up due to no response being received. For an
+     *            unlimited timeout, use value 0.
+     * @return The same as
+     *         {@link LibUsb#bulkTransfer(DeviceHandle, byte, ByteBuffer,
+     *         IntBuffer, long)} or {@link LibUsb#ERROR_INTERRUPTED} if the
+     *         calling thread was interrupted.
+     */
+    public static int bulkTransfer(final DeviceHandle handle,
+        final byte endpoint, final ByteBuffer data,
+        final IntBuffer transferred, final long timeout)
+    {
+        return transfer(handle, endpoint, LibUsb.TRANSFER_TYPE_BULK, data,
+            transferred, timeout);
+    }
+
+    /**
+     * Perform a USB interrupt transfer while parking the calling thread.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            A suitably-sized data buffer for either input or output
+     *            (depending on endpoint).
+     * @param transferred
+     *            Output location for the number of bytes actually
+     *            transferred.
+     * @param timeout
+     *            Timeout (in milliseconds) that this function should wait
+     *            before giving up due to no response being received. For an
+     *            unlimited timeout, use value 0.
+     * @return The same as
+     *         {@link LibUsb#interruptTransfer(DeviceHandle, byte, ByteBuffer,
+     *         IntBuffer, long)} or {@link LibUsb#ERROR_INTERRUPTED} if the
+     *         calling thread was interrupted.
+     */
+    public static int interruptTransfer(final DeviceHandle handle,
+        final byte endpoint, final ByteBuffer data,
+        final IntBuffer transferred, final long timeout)
+    {
+        return transfer(handle, endpoint, LibUsb.TRANSFER_TYPE_INTERRUPT,
+            data, transferred, timeout);
+    }
+
+    /**
+     * Performs a bulk or interrupt transfer while parking the calling
+     * thread.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The endpoint address.
+     * @param type
+     *            The transfer type.
+     * @param data
+     *            The data buffer.
+     * @param transferred
+     *            Output location for the number of bytes actually
+     *            transferred.
+     * @param timeout
+     *            The timeout in milliseconds.
+     * @return 0 on success or an ERROR code.
+     */
+    private static int transfer(final DeviceHandle handle,
+        final byte endpoint, final byte type, final ByteBuffer data,
+        final IntBuffer transferred, final long timeout)
+    {
+        validate(handle, data);
+        if (transferred == null)
+        {
+            throw new IllegalArgumentException(
+                "transferred must not be null");
+        }
+        final Request request = acquire();
+        try
+        {
+            final Transfer transfer = request.transfer;
+            transfer.setDevHandle(handle);
+            transfer.setEndpoint(endpoint);
+            transfer.setType(type);
+            transfer.setTimeout(timeout);
+            transfer.setBuffer(data);
+            final int result = request.submitAndWait();
+            transferred.put(0,
+                request.completed ? transfer.actualLength() : 0);
+            return result;
+        }
+        finally
+        {
+            release(request);
+        }
+    }
+}
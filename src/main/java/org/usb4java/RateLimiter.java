@@ -0,0 +1,501 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Submits asynchronous transfers no faster than a configured data rate.
+ *
+ * Devices with small internal FIFOs may overflow when OUT data is sent at
+ * full bus speed. Instead of sleeping between synchronous transfers the
+ * transfers are submitted to this limiter, which reserves their length in a
+ * {@link TokenBucket} and submits them at their release time. Transfers
+ * within the burst size are submitted right away, others are held back and
+ * submitted by a {@link TimerWheel} task, always in submission order.
+ * Because release times are calculated from the theoretical schedule and
+ * not from the actual submission times, a late timer never lowers the
+ * long-term rate.
+ *
+ * The limiter is the libusb callback of the transfers it submits and
+ * calls the {@link ScheduledTransferCallback} passed on submission when a
+ * transfer is retired. Events must be handled as usual. The bytes of
+ * transfers which could not be submitted or were cancelled while waiting
+ * are returned to the bucket. The limiter must be closed before its timer
+ * wheel.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class RateLimiter implements TransferCallback
+{
+    /** The token bucket. */
+    private final TokenBucket bucket;
+
+    /** The timer wheel running the deferred submissions. */
+    private final TimerWheel wheel;
+
+    /** The libusb operations. */
+    private final Operations operations;
+
+    /** The task submitting the due transfers. */
+    private final Runnable releaseTask = new Release();
+
+    /** The transfers waiting for their release time in submission order. */
+    private final Queue<Request> queue = new ArrayDeque<Request>();
+
+    /** The callbacks of the transfers in flight. */
+    private final Map<Transfer, ScheduledTransferCallback> callbacks =
+        new HashMap<Transfer, ScheduledTransferCallback>();
+
+    /** If a timer for the head of the queue is scheduled. */
+    private boolean timerScheduled;
+
+    /** If the limiter has been closed. */
+    private boolean closed;
+
+    /** The number of transfers which had to wait. */
+    private long delayedTransfers;
+
+    /** The largest delay between release time and submission. */
+    private long maxLateness;
+
+    /**
+     * The libusb operations used by the limiter. Replaced by tests.
+     */
+    interface Operations
+    {
+        /**
+         * Sets the callback of a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param callback
+         *            The callback.
+         */
+        void setCallback(Transfer transfer, TransferCallback callback);
+
+        /**
+         * Returns the length of the data buffer of a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The length in bytes.
+         */
+        int length(Transfer transfer);
+
+        /**
+         * Submits a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int submitTransfer(Transfer transfer);
+
+        /**
+         * Cancels a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int cancelTransfer(Transfer transfer);
+    }
+
+    /**
+     * The operations implemented with libusb.
+     */
+    private static final class LibUsbOperations implements Operations
+    {
+        @Override
+        public void setCallback(final Transfer transfer,
+            final TransferCallback callback)
+        {
+            transfer.setCallback(callback);
+        }
+
+        @Override
+        public int length(final Transfer transfer)
+        {
+            return transfer.length();
+        }
+
+        @Override
+        public int submitTransfer(final Transfer transfer)
+        {
+            return LibUsb.submitTransfer(transfer);
+        }
+
+        @Override
+        public int cancelTransfer(final Transfer transfer)
+        {
+            return LibUsb.cancelTransfer(transfer);
+        }
+    }
+
+    /**
+     * A transfer waiting for its release time.
+     */
+    private static final class Request
+    {
+        /** The transfer. */
+        final Transfer transfer;
+
+        /** The callback. */
+        final ScheduledTransferCallback callback;
+
+        /** The number of reserved bytes. */
+        final int length;
+
+        /** The release time. */
+        final long releaseTime;
+
+        /** The ERROR code if the transfer could not be submitted. */
+        int failure;
+
+        /**
+         * Constructs a new request.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param callback
+         *            The callback.
+         * @param length
+         *            The number of reserved bytes.
+         * @param releaseTime
+         *            The release time.
+         */
+        Request(final Transfer transfer,
+            final ScheduledTransferCallback callback, final int length,
+            final long releaseTime)
+        {
+            this.transfer = transfer;
+            this.callback = callback;
+            this.length = length;
+            this.releaseTime = releaseTime;
+        }
+    }
+
+    /**
+     * Timer task submitting the transfers which are due.
+     */
+    private final class Release implements Runnable
+    {
+        /**
+         * Submits the due transfers.
+         */
+        @Override
+        public void run()
+        {
+            release();
+        }
+    }
+
+    /**
+     * Constructs a new rate limiter.
+     *
+     * @param wheel
+     *            The started timer wheel to use for deferred submissions.
+     *            Can be shared by many limiters.
+     * @param bytesPerSecond
+     *            The maximum rate in bytes per second.
+     * @param burst
+     *            The number of bytes which may be submitted at once after an
+     *            idle period.
+     */
+    public RateLimiter(final TimerWheel wheel, final long bytesPerSecond,
+        final long burst)
+    {
+        this(wheel, bytesPerSecond, burst, new LibUsbOperations());
+    }
+
+    /**
+     * Constructs a new rate limiter with the specified libusb operations.
+     *
+     * @param wheel
+     *            The started timer wheel to use for deferred submissions.
+     * @param bytesPerSecond
+     *            The maximum rate in bytes per second.
+     * @param burst
+     *            The number of bytes which may be submitted at once after an
+     *            idle period.
+     * @param operations
+     *            The libusb operations.
+     */
+    RateLimiter(final TimerWheel wheel, final long bytesPerSecond,
+        final long burst, final Operations operations)
+    {
+        if (wheel == null)
+        {
+            throw new IllegalArgumentException("wheel must not be null");
+        }
+        this.bucket = new TokenBucket(bytesPerSecond, burst);
+        this.wheel = wheel;
+        this.operations = operations;
+    }
+
+    /**
+     * Returns the token bucket. Can be used to change the rate.
+     *
+     * @return The token bucket.
+     */
+    public TokenBucket getBucket()
+    {
+        return this.bucket;
+    }
+
+    /**
+     * Returns the number of transfers waiting for their release time.
+     *
+     * @return The number of waiting transfers.
+     */
+    public synchronized int getQueued()
+    {
+        return this.queue.size();
+    }
+
+    /**
+     * Returns the number of transfers in flight.
+     *
+     * @return The number of transfers in flight.
+     */
+    public synchronized int getInFlight()
+    {
+        return this.callbacks.size();
+    }
+
+    /**
+     * Returns the number of transfers which had to wait for their release
+     * time.
+     *
+     * @return The number of delayed transfers.
+     */
+    public synchronized long getDelayedTransfers()
+    {
+        return this.delayedTransfers;
+    }
+
+    /**
+     * Returns the largest time a delayed transfer was submitted after its
+     * release time. This is the jitter caused by the timer.
+     *
+     * @return The largest lateness in nanoseconds.
+     */
+    public synchronized long getMaxLateness()
+    {
+        return this.maxLateness;
+    }
+
+    /**
+     * Submits a transfer as soon as the rate allows it. The callback of the
+     * transfer is set to this limiter. The transfer must be completely
+     * filled and must not be modified until it is retired.
+     *
+     * @param transfer
+     *            The transfer to submit.
+     * @param callback
+     *            The callback to call when the transfer is retired.
+     * @return {@link LibUsb#SUCCESS} if the transfer was submitted or
+     *         queued, or the ERROR code of
+     *         {@link LibUsb#submitTransfer(Transfer)} if it was submitted
+     *         right away and failed. The callback is not called in this case.
+     * @throws IllegalStateException
+     *             When the limiter has been closed.
+     */
+    public int submit(final Transfer transfer,
+        final ScheduledTransferCallback callback)
+    {
+        if (transfer == null)
+        {
+            throw new IllegalArgumentException("transfer must not be null");
+        }
+        if (callback == null)
+        {
+            throw new IllegalArgumentException("callback must not be null");
+        }
+        this.operations.setCallback(transfer, this);
+        final int length = this.operations.length(transfer);
+        synchronized (this)
+        {
+            if (this.closed)
+            {
+                throw new IllegalStateException("Rate limiter has been closed");
+            }
+            final long now = System.nanoTime();
+            final long delay = this.bucket.reserve(length, now);
+            if ((delay == 0) && this.queue.isEmpty())
+            {
+                final int result = this.operations.submitTransfer(transfer);
+                if (result == LibUsb.SUCCESS)
+                {
+                    this.callbacks.put(transfer, callback);
+                }
+                else
+                {
+                    this.bucket.refund(length);
+                }
+                return result;
+            }
+            this.queue.add(new Request(transfer, callback, length,
+                now + delay));
+            this.delayedTransfers++;
+            scheduleTimer();
+            return LibUsb.SUCCESS;
+        }
+    }
+
+    /**
+     * Cancels a transfer. A waiting transfer is removed from the queue and
+     * its callback is called with {@link LibUsb#ERROR_INTERRUPTED}. The
+     * bytes reserved for it are returned to the bucket. A transfer in
+     * flight is cancelled with {@link LibUsb#cancelTransfer(Transfer)}.
+     *
+     * @param transfer
+     *            The transfer to cancel.
+     * @return {@link LibUsb#SUCCESS} on success, {@link LibUsb#ERROR_NOT_FOUND}
+     *         if the transfer is not known to the limiter or already
+     *         complete, or another ERROR code of
+     *         {@link LibUsb#cancelTransfer(Transfer)}.
+     */
+    public int cancel(final Transfer transfer)
+    {
+        Request cancelled = null;
+        synchronized (this)
+        {
+            if (this.callbacks.containsKey(transfer))
+            {
+                return this.operations.cancelTransfer(transfer);
+            }
+            final Iterator<Request> iterator = this.queue.iterator();
+            while (iterator.hasNext())
+            {
+                final Request request = iterator.next();
+                if (request.transfer.equals(transfer))
+                {
+                    iterator.remove();
+                    this.bucket.refund(request.length);
+                    cancelled = request;
+                    break;
+                }
+            }
+        }
+        if (cancelled == null)
+        {
+            return LibUsb.ERROR_NOT_FOUND;
+        }
+        cancelled.callback.processTransfer(transfer,
+            LibUsb.ERROR_INTERRUPTED);
+        return LibUsb.SUCCESS;
+    }
+
+    /**
+     * Closes the limiter. Transfers still waiting for their release time
+     * are removed and their callbacks are called with
+     * {@link LibUsb#ERROR_INTERRUPTED}. Transfers in flight are not
+     * affected and are retired as usual. Must be called before the timer
+     * wheel is closed.
+     */
+    public void close()
+    {
+        final List<Request> waiting;
+        synchronized (this)
+        {
+            if (this.closed)
+            {
+                throw new IllegalStateException(
+                    "Rate limiter is already closed");
+            }
+            this.closed = true;
+            waiting = new ArrayList<Request>(this.queue);
+            this.queue.clear();
+        }
+        for (final Request request: waiting)
+        {
+            request.callback.processTransfer(request.transfer,
+                LibUsb.ERROR_INTERRUPTED);
+        }
+    }
+
+    /**
+     * Schedules the release task for the head of the queue if not already
+     * done. Must be called with the lock held.
+     */
+    private void scheduleTimer()
+    {
+        final Request head = this.queue.peek();
+        if ((head != null) && !this.timerScheduled)
+        {
+            this.timerScheduled = true;
+            this.wheel.schedule(this.releaseTask, head.releaseTime);
+        }
+    }
+
+    /**
+     * Submits all transfers which are due and schedules the timer for the
+     * next one.
+     */
+    private void release()
+    {
+        final List<Request> failed = new ArrayList<Request>(0);
+        synchronized (this)
+        {
+            this.timerScheduled = false;
+            final long now = System.nanoTime();
+            Request head;
+            while (((head = this.queue.peek()) != null)
+                && (head.releaseTime - now <= 0))
+            {
+                this.queue.poll();
+                this.maxLateness = Math.max(this.maxLateness,
+                    now - head.releaseTime);
+                final int result = this.operations.submitTransfer(
+                    head.transfer);
+                if (result == LibUsb.SUCCESS)
+                {
+                    this.callbacks.put(head.transfer, head.callback);
+                }
+                else
+                {
+                    this.bucket.refund(head.length);
+                    head.failure = result;
+                    failed.add(head);
+                }
+            }
+            scheduleTimer();
+        }
+        for (final Request request: failed)
+        {
+            request.callback.processTransfer(request.transfer,
+                request.failure);
+        }
+    }
+
+    /**
+     * Retires a completed transfer and calls its callback. Called by libusb.
+     *
+     * @param transfer
+     *            The completed transfer.
+     */
+    @Override
+    public void processTransfer(final Transfer transfer)
+    {
+        final ScheduledTransferCallback callback;
+        synchronized (this)
+        {
+            callback = this.callbacks.remove(transfer);
+        }
+        if (callback != null)
+        {
+            callback.processTransfer(transfer, LibUsb.SUCCESS);
+        }
+    }
+}
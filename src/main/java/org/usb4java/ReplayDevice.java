@@ -0,0 +1,723 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Virtual device which replays a recorded trace (See {@link TransferTracer}
+ * and {@link TraceReader}).
+ *
+ * The submissions and completions of the trace are paired into exchanges
+ * which are queued per endpoint (All control transfers share one queue).
+ * Each transfer performed on the replay device takes the next exchange of
+ * its endpoint, copies the recorded response into the data buffer of IN
+ * transfers and reports the recorded status and length after the recorded
+ * latency multiplied with the time scale. A time scale of 0 replays without
+ * any delay. Requests which don't match the recorded request (Different
+ * setup packet or OUT data) are still answered but counted as mismatches.
+ * When the exchanges of an endpoint are exhausted, transfers fail with
+ * {@link LibUsb#ERROR_NO_DEVICE}.
+ *
+ * Recorded payloads truncated by the tracer are padded with zeros.
+ *
+ * A replay device replays a single recorded device. Traces of a whole bus
+ * (As captured from a usbmon interface) contain the traffic of several
+ * devices, so the device to replay must be selected by its bus number and
+ * device address. Traces with several devices are rejected otherwise.
+ *
+ * No native code is involved, so application pipelines can be benchmarked
+ * and debugged without hardware. Asynchronous transfers are reported to a
+ * {@link ReplayListener} instead of a {@link TransferCallback} because the
+ * status and actual length of a {@link Transfer} can only be set by
+ * libusb.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class ReplayDevice
+{
+    /** Bus number or device address matching any device. */
+    public static final int ANY = -1;
+
+    /** The queued exchanges mapped by endpoint key. */
+    private final Map<Integer, ArrayDeque<Exchange>> exchanges =
+        new HashMap<Integer, ArrayDeque<Exchange>>();
+
+    /** The number of requests not matching the recording. */
+    private final AtomicLong mismatches = new AtomicLong();
+
+    /** The time scale. */
+    private volatile double timeScale = 1;
+
+    /** The executor completing asynchronous transfers. Created lazily. */
+    private ScheduledExecutorService executor;
+
+    /**
+     * A recorded submission together with its completion.
+     */
+    private static final class Exchange
+    {
+        /** The submission. */
+        final TraceRecord submit;
+
+        /** The completion. Null until paired. */
+        TraceRecord complete;
+
+        /**
+         * Constructs a new exchange.
+         *
+         * @param submit
+         *            The submission.
+         */
+        Exchange(final TraceRecord submit)
+        {
+            this.submit = submit;
+        }
+
+        /**
+         * Returns the recorded latency.
+         *
+         * @return The latency in microseconds.
+         */
+        long latency()
+        {
+            return Math.max(0, this.complete.getTimestamp()
+                - this.submit.getTimestamp());
+        }
+    }
+
+    /**
+     * Constructs a new replay device from a trace of a single device.
+     *
+     * @param records
+     *            The recorded trace.
+     * @throws IllegalArgumentException
+     *             When the trace contains transfers of several devices.
+     */
+    public ReplayDevice(final List<TraceRecord> records)
+    {
+        this(records, ANY, ANY);
+    }
+
+    /**
+     * Constructs a new replay device replaying the specified device of a
+     * trace. Transfers of other devices are ignored.
+     *
+     * @param records
+     *            The recorded trace.
+     * @param busNumber
+     *            The bus number of the device to replay or {@link #ANY}.
+     * @param deviceAddress
+     *            The address of the device to replay or {@link #ANY}.
+     * @throws IllegalArgumentException
+     *             When the records matching the filter belong to several
+     *             devices.
+     */
+    public ReplayDevice(final List<TraceRecord> records,
+        final int busNumber, final int deviceAddress)
+    {
+        if (records == null)
+        {
+            throw new IllegalArgumentException("records must not be null");
+        }
+        final Map<Long, ArrayDeque<Exchange>> pending =
+            new HashMap<Long, ArrayDeque<Exchange>>();
+        TraceRecord first = null;
+        for (final TraceRecord record: records)
+        {
+            if (((busNumber != ANY) && (record.getBusNumber() != busNumber))
+                || ((deviceAddress != ANY)
+                    && (record.getDeviceAddress() != deviceAddress)))
+            {
+                continue;
+            }
+            if (first == null)
+            {
+                first = record;
+            }
+            else if ((record.getBusNumber() != first.getBusNumber())
+                || (record.getDeviceAddress() != first.getDeviceAddress()))
+            {
+                throw new IllegalArgumentException(
+                    "Trace contains transfers of device "
+                    + first.getBusNumber() + ":" + first.getDeviceAddress()
+                    + " and " + record.getBusNumber() + ":"
+                    + record.getDeviceAddress()
+                    + ", select the device to replay");
+            }
+            if (record.getType() == TraceRecord.SUBMIT)
+            {
+                final Exchange exchange = new Exchange(record);
+                ArrayDeque<Exchange> queue = pending.get(record.getId());
+                if (queue == null)
+                {
+                    queue = new ArrayDeque<Exchange>();
+                    pending.put(record.getId(), queue);
+                }
+                queue.add(exchange);
+                queue(key(record.getTransferType(), record.getEndpoint()))
+                    .add(exchange);
+            }
+            else
+            {
+                final ArrayDeque<Exchange> queue = pending.get(record.getId());
+                if ((queue != null) && !queue.isEmpty())
+                {
+                    queue.poll().complete = record;
+                }
+            }
+        }
+        for (final ArrayDeque<Exchange> queue: this.exchanges.values())
+        {
+            final Iterator<Exchange> iterator = queue.iterator();
+            while (iterator.hasNext())
+            {
+                if (iterator.next().complete == null)
+                {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a replay device from a pcap trace.
+     *
+     * @param in
+     *            The input stream to read the trace from. Not closed.
+     * @return The replay device.
+     * @throws IOException
+     *             When the trace could not be read.
+     */
+    public static ReplayDevice load(final InputStream in) throws IOException
+    {
+        return new ReplayDevice(TraceReader.read(in));
+    }
+
+    /**
+     * Creates a replay device for the specified device of a pcap trace.
+     *
+     * @param in
+     *            The input stream to read the trace from. Not closed.
+     * @param busNumber
+     *            The bus number of the device to replay or {@link #ANY}.
+     * @param deviceAddress
+     *            The address of the device to replay or {@link #ANY}.
+     * @return The replay device.
+     * @throws IOException
+     *             When the trace could not be read.
+     */
+    public static ReplayDevice load(final InputStream in,
+        final int busNumber, final int deviceAddress) throws IOException
+    {
+        return new ReplayDevice(TraceReader.read(in), busNumber,
+            deviceAddress);
+    }
+
+    /**
+     * Returns the time scale.
+     *
+     * @return The time scale.
+     */
+    public double getTimeScale()
+    {
+        return this.timeScale;
+    }
+
+    /**
+     * Sets the factor the recorded latencies are multiplied with. 1 replays
+     * in real time, 0.1 ten times faster and 0 without any delay.
+     *
+     * @param timeScale
+     *            The time scale.
+     */
+    public void setTimeScale(final double timeScale)
+    {
+        if (!(timeScale >= 0))
+        {
+            throw new IllegalArgumentException(
+                "timeScale must not be negative");
+        }
+        this.timeScale = timeScale;
+    }
+
+    /**
+     * Returns the number of requests which didn't match the recording.
+     *
+     * @return The number of mismatches.
+     */
+    public long getMismatches()
+    {
+        return this.mismatches.get();
+    }
+
+    /**
+     * Returns the number of remaining exchanges of an endpoint.
+     *
+     * @param endpoint
+     *            The endpoint address. 0 for control transfers.
+     * @return The number of remaining exchanges.
+     */
+    public synchronized int getRemaining(final byte endpoint)
+    {
+        final ArrayDeque<Exchange> queue = this.exchanges.get(
+            endpoint == 0 ? 0 : endpoint & 0xff);
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Replays a control transfer. See
+     * {@link LibUsb#controlTransfer(DeviceHandle, byte, byte, short, short,
+     * ByteBuffer, long)}.
+     *
+     * @param bmRequestType
+     *            The request type field for the setup packet.
+     * @param bRequest
+     *            The request field for the setup packet.
+     * @param wValue
+     *            The value field for the setup packet.
+     * @param wIndex
+     *            The index field for the setup packet.
+     * @param data
+     *            A suitably-sized data buffer.
+     * @param timeout
+     *            Ignored, the recorded timing is replayed.
+     * @return The recorded number of transferred bytes or an ERROR code.
+     */
+    public int controlTransfer(final byte bmRequestType, final byte bRequest,
+        final short wValue, final short wIndex, final ByteBuffer data,
+        final long timeout)
+    {
+        final Exchange exchange = next(0);
+        if (exchange == null)
+        {
+            return LibUsb.ERROR_NO_DEVICE;
+        }
+        final ByteBuffer setup = ByteBuffer.allocate(
+            LibUsb.CONTROL_SETUP_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        setup.put(bmRequestType).put(bRequest).putShort(wValue)
+            .putShort(wIndex).putShort((short) data.capacity());
+        checkSetup(exchange, setup);
+        final boolean in = (bmRequestType & LibUsb.ENDPOINT_DIR_MASK)
+            == LibUsb.ENDPOINT_IN;
+        final int result = complete(exchange, in, data);
+        if (result == LibUsb.ERROR_INTERRUPTED)
+        {
+            return result;
+        }
+        final int status = exchange.complete.getStatus();
+        return status == 0 ? exchange.complete.getLength()
+            : statusToError(status);
+    }
+
+    /**
+     * Replays a bulk transfer. See
+     * {@link LibUsb#bulkTransfer(DeviceHandle, byte, ByteBuffer, IntBuffer,
+     * long)}.
+     *
+     * @param endpoint
+     *            The endpoint address.
+     * @param data
+     *            A suitably-sized data buffer.
+     * @param transferred
+     *            Output location for the number of bytes actually
+     *            transferred.
+     * @param timeout
+     *            Ignored, the recorded timing is replayed.
+     * @return 0 on success or an ERROR code.
+     */
+    public int bulkTransfer(final byte endpoint, final ByteBuffer data,
+        final IntBuffer transferred, final long timeout)
+    {
+        return syncTransfer(endpoint, data, transferred);
+    }
+
+    /**
+     * Replays an interrupt transfer. See
+     * {@link LibUsb#interruptTransfer(DeviceHandle, byte, ByteBuffer,
+     * IntBuffer, long)}.
+     *
+     * @param endpoint
+     *            The endpoint address.
+     * @param data
+     *            A suitably-sized data buffer.
+     * @param transferred
+     *            Output location for the number of bytes actually
+     *            transferred.
+     * @param timeout
+     *            Ignored, the recorded timing is replayed.
+     * @return 0 on success or an ERROR code.
+     */
+    public int interruptTransfer(final byte endpoint, final ByteBuffer data,
+        final IntBuffer transferred, final long timeout)
+    {
+        return syncTransfer(endpoint, data, transferred);
+    }
+
+    /**
+     * Replays an asynchronous transfer. The listener is called by the
+     * replay thread after the scaled recorded latency.
+     *
+     * @param endpoint
+     *            The endpoint address. 0 for control transfers, in which
+     *            case the buffer starts with the setup packet.
+     * @param buffer
+     *            The data buffer.
+     * @param listener
+     *            The listener to notify.
+     */
+    public void submit(final byte endpoint, final ByteBuffer buffer,
+        final ReplayListener listener)
+    {
+        if (buffer == null)
+        {
+            throw new IllegalArgumentException("buffer must not be null");
+        }
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        final Exchange exchange = next(endpoint == 0 ? 0 : endpoint & 0xff);
+        final long delay = exchange == null ? 0
+            : Math.round(exchange.latency() * 1000 * this.timeScale);
+        executor().schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (exchange == null)
+                {
+                    listener.transferCompleted(endpoint, buffer,
+                        LibUsb.TRANSFER_NO_DEVICE, 0);
+                    return;
+                }
+                final boolean control = endpoint == 0;
+                final boolean in = control ? (buffer.get(0)
+                    & LibUsb.ENDPOINT_DIR_MASK) == LibUsb.ENDPOINT_IN
+                    : (endpoint & LibUsb.ENDPOINT_DIR_MASK)
+                    == LibUsb.ENDPOINT_IN;
+                final int offset = control ? LibUsb.CONTROL_SETUP_SIZE : 0;
+                if (control)
+                {
+                    checkSetup(exchange, buffer);
+                }
+                if (in)
+                {
+                    copyResponse(exchange, buffer, offset);
+                }
+                else
+                {
+                    checkRequest(exchange, buffer, offset);
+                }
+                listener.transferCompleted(endpoint, buffer,
+                    statusToTransferStatus(exchange.complete.getStatus()),
+                    exchange.complete.getLength());
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the replay thread. Pending asynchronous transfers are not
+     * completed.
+     */
+    public synchronized void close()
+    {
+        if (this.executor != null)
+        {
+            this.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the executor completing asynchronous transfers.
+     *
+     * @return The executor.
+     */
+    private synchronized ScheduledExecutorService executor()
+    {
+        if (this.executor == null)
+        {
+            this.executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(final Runnable runnable)
+                    {
+                        final Thread thread = new Thread(runnable,
+                            "usb4java replay");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        }
+        return this.executor;
+    }
+
+    /**
+     * Replays a synchronous bulk or interrupt transfer.
+     *
+     * @param endpoint
+     *            The endpoint address.
+     * @param data
+     *            The data buffer.
+     * @param transferred
+     *            Output location for the number of transferred bytes.
+     * @return 0 on success or an ERROR code.
+     */
+    private int syncTransfer(final byte endpoint, final ByteBuffer data,
+        final IntBuffer transferred)
+    {
+        final Exchange exchange = next(endpoint & 0xff);
+        if (exchange == null)
+        {
+            transferred.put(0, 0);
+            return LibUsb.ERROR_NO_DEVICE;
+        }
+        final boolean in = (endpoint & LibUsb.ENDPOINT_DIR_MASK)
+            == LibUsb.ENDPOINT_IN;
+        final int result = complete(exchange, in, data);
+        if (result == LibUsb.ERROR_INTERRUPTED)
+        {
+            transferred.put(0, 0);
+            return result;
+        }
+        transferred.put(0, exchange.complete.getLength());
+        return statusToError(exchange.complete.getStatus());
+    }
+
+    /**
+     * Waits for the scaled recorded latency and then copies the response or
+     * checks the request.
+     *
+     * @param exchange
+     *            The exchange.
+     * @param in
+     *            If the transfer is an IN transfer.
+     * @param data
+     *            The data buffer.
+     * @return 0 on success, {@link LibUsb#ERROR_INTERRUPTED} if the thread
+     *         was interrupted while waiting.
+     */
+    private int complete(final Exchange exchange, final boolean in,
+        final ByteBuffer data)
+    {
+        final long delay = Math.round(exchange.latency() * 1000
+            * this.timeScale);
+        if (delay > 0)
+        {
+            try
+            {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return LibUsb.ERROR_INTERRUPTED;
+            }
+        }
+        if (in)
+        {
+            copyResponse(exchange, data, 0);
+        }
+        else
+        {
+            checkRequest(exchange, data, 0);
+        }
+        return LibUsb.SUCCESS;
+    }
+
+    /**
+     * Copies the recorded response into a buffer. Truncated payloads are
+     * padded with zeros.
+     *
+     * @param exchange
+     *            The exchange.
+     * @param buffer
+     *            The target buffer.
+     * @param offset
+     *            The offset of the data in the buffer.
+     */
+    private static void copyResponse(final Exchange exchange,
+        final ByteBuffer buffer, final int offset)
+    {
+        final byte[] response = exchange.complete.data();
+        final int length = Math.min(exchange.complete.getLength(),
+            buffer.capacity() - offset);
+        for (int i = 0; i < length; i++)
+        {
+            buffer.put(offset + i, i < response.length ? response[i] : 0);
+        }
+    }
+
+    /**
+     * Compares the setup packet at the start of the buffer with the recorded
+     * setup packet and counts a mismatch if they differ.
+     *
+     * @param exchange
+     *            The exchange.
+     * @param buffer
+     *            The buffer starting with the setup packet.
+     */
+    private void checkSetup(final Exchange exchange, final ByteBuffer buffer)
+    {
+        final byte[] recorded = exchange.submit.setup();
+        if ((recorded == null)
+            || (buffer.capacity() < LibUsb.CONTROL_SETUP_SIZE))
+        {
+            this.mismatches.incrementAndGet();
+            return;
+        }
+        for (int i = 0; i < LibUsb.CONTROL_SETUP_SIZE; i++)
+        {
+            if (buffer.get(i) != recorded[i])
+            {
+                this.mismatches.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Compares the sent data with the recorded request and counts a
+     * mismatch if they differ.
+     *
+     * @param exchange
+     *            The exchange.
+     * @param buffer
+     *            The sent data.
+     * @param offset
+     *            The offset of the data in the buffer.
+     */
+    private void checkRequest(final Exchange exchange,
+        final ByteBuffer buffer, final int offset)
+    {
+        final byte[] request = exchange.submit.data();
+        final int length = Math.min(request.length,
+            buffer.capacity() - offset);
+        for (int i = 0; i < length; i++)
+        {
+            if (buffer.get(offset + i) != request[i])
+            {
+                this.mismatches.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the queue of the specified endpoint key, creating it if
+     * needed.
+     *
+     * @param key
+     *            The endpoint key.
+     * @return The queue.
+     */
+    private ArrayDeque<Exchange> queue(final int key)
+    {
+        ArrayDeque<Exchange> queue = this.exchanges.get(key);
+        if (queue == null)
+        {
+            queue = new ArrayDeque<Exchange>();
+            this.exchanges.put(key, queue);
+        }
+        return queue;
+    }
+
+    /**
+     * Returns and removes the next exchange of an endpoint.
+     *
+     * @param key
+     *            The endpoint key.
+     * @return The next exchange or null if none left.
+     */
+    private synchronized Exchange next(final int key)
+    {
+        final ArrayDeque<Exchange> queue = this.exchanges.get(key);
+        return queue == null ? null : queue.poll();
+    }
+
+    /**
+     * Returns the key of the queue for the specified endpoint.
+     *
+     * @param transferType
+     *            The usbmon transfer type.
+     * @param endpoint
+     *            The endpoint address.
+     * @return The queue key.
+     */
+    private static int key(final byte transferType, final byte endpoint)
+    {
+        return transferType == 2 ? 0 : endpoint & 0xff;
+    }
+
+    /**
+     * Converts a usbmon status into a libusb error code.
+     *
+     * @param status
+     *            The usbmon status.
+     * @return The error code.
+     */
+    static int statusToError(final int status)
+    {
+        switch (status)
+        {
+            case 0:
+                return LibUsb.SUCCESS;
+            case -110:
+                return LibUsb.ERROR_TIMEOUT;
+            case -32:
+                return LibUsb.ERROR_PIPE;
+            case -19:
+                return LibUsb.ERROR_NO_DEVICE;
+            case -75:
+                return LibUsb.ERROR_OVERFLOW;
+            default:
+                return LibUsb.ERROR_IO;
+        }
+    }
+
+    /**
+     * Converts a usbmon status into a libusb transfer status.
+     *
+     * @param status
+     *            The usbmon status.
+     * @return The transfer status.
+     */
+    static int statusToTransferStatus(final int status)
+    {
+        switch (status)
+        {
+            case 0:
+                return LibUsb.TRANSFER_COMPLETED;
+            case -2:
+                return LibUsb.TRANSFER_CANCELLED;
+            case -110:
+                return LibUsb.TRANSFER_TIMED_OUT;
+            case -32:
+                return LibUsb.TRANSFER_STALL;
+            case -19:
+                return LibUsb.TRANSFER_NO_DEVICE;
+            case -75:
+                return LibUsb.TRANSFER_OVERFLOW;
+            default:
+                return LibUsb.TRANSFER_ERROR;
+        }
+    }
+}
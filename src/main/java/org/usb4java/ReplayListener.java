@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Listener interface for asynchronous transfers submitted to a
+ * {@link ReplayDevice}.
+ *
+ * The method is called by the replay thread so it should do minimal
+ * processing before returning.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public interface ReplayListener
+{
+    /**
+     * Called when a replayed transfer has been completed.
+     *
+     * @param endpoint
+     *            The endpoint of the transfer.
+     * @param buffer
+     *            The data buffer of the transfer. For IN transfers it
+     *            contains the recorded response.
+     * @param status
+     *            The recorded transfer status (One of the TRANSFER_*
+     *            constants).
+     * @param actualLength
+     *            The recorded number of transferred bytes.
+     */
+    void transferCompleted(byte endpoint, ByteBuffer buffer, int status,
+        int actualLength);
+}
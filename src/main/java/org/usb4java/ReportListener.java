@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Listener interface for reports received by an
+ * {@link InterruptSubscription}.
+ *
+ * Both methods are called by the thread handling libusb events so they
+ * should do minimal processing before returning.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public interface ReportListener
+{
+    /**
+     * Called when a report has been received.
+     *
+     * The buffer is the transfer buffer itself. Its position is 0 and its
+     * limit is the number of received bytes. It is only valid during this
+     * call because the transfer is resubmitted afterwards, so copy the data
+     * if it is needed later. The transfer is resubmitted even when this
+     * method throws an exception.
+     *
+     * @param subscription
+     *            The subscription which received the report.
+     * @param report
+     *            The received report.
+     */
+    void reportReceived(InterruptSubscription subscription, ByteBuffer report);
+
+    /**
+     * Called once when all transfers of the subscription have been retired.
+     * This includes a subscription which failed to start.
+     *
+     * @param subscription
+     *            The terminated subscription.
+     * @param status
+     *            {@link LibUsb#TRANSFER_CANCELLED} if the subscription was
+     *            stopped regularly, the failed transfer status (One of the
+     *            TRANSFER_* constants) or the ERROR code of a failed
+     *            resubmission otherwise.
+     */
+    void subscriptionTerminated(InterruptSubscription subscription,
+        int status);
+}
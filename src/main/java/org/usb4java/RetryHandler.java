@@ -0,0 +1,857 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Retries failed asynchronous transfers according to a {@link RetryPolicy}.
+ *
+ * Transfers are submitted to this handler instead of
+ * {@link LibUsb#submitTransfer(Transfer)}. A transfer which failed without
+ * transferring any data is resubmitted after the delay returned by the
+ * policy. When the policy requests a recovery action (Like clearing the halt
+ * condition of a stalled endpoint) then the other transfers in flight on
+ * the same endpoint are cancelled and held back together with all
+ * transfers submitted in the meantime. The recovery action runs on the
+ * specified executor because synchronous functions must not be called from
+ * a transfer callback. Afterwards all held transfers are resubmitted at
+ * once in submission order, so the endpoint queue is full again right
+ * away. Other endpoints are not affected by the recovery of an endpoint.
+ *
+ * Transfers which are retried because of a timeout or I/O error are
+ * resubmitted behind the transfers still in flight on the same endpoint.
+ * Applications which depend on the order of the data should only retry
+ * stalls or disable retries for timeouts.
+ *
+ * A transfer which was cancelled for the recovery of its endpoint but had
+ * already transferred some data can't be resubmitted without sending or
+ * receiving that data twice. It is retired with the status
+ * {@link LibUsb#TRANSFER_CANCELLED} and its actual length although the
+ * application didn't cancel it, so the application has to transfer the
+ * rest itself.
+ *
+ * The handler is the libusb callback of the transfers it submits and calls
+ * the {@link ScheduledTransferCallback} passed on submission when a
+ * transfer is retired. Events must be handled as usual.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ * @see RetryingTransfers
+ */
+public final class RetryHandler implements TransferCallback
+{
+    /** The device handle. */
+    private final DeviceHandle handle;
+
+    /** The retry policy. */
+    private final RetryPolicy policy;
+
+    /** The timer wheel running the delayed retries. */
+    private final TimerWheel wheel;
+
+    /** The executor running the recovery actions. */
+    private final Executor executor;
+
+    /** The libusb operations. */
+    private final Operations operations;
+
+    /** The requests of all transfers known to the handler. */
+    private final Map<Transfer, Request> requests =
+        new HashMap<Transfer, Request>();
+
+    /** The endpoint states mapped to endpoint addresses. */
+    private final Map<Byte, Endpoint> endpoints = new HashMap<Byte, Endpoint>();
+
+    /** The sequence number of the next submitted transfer. */
+    private long sequence;
+
+    /** The number of retries. */
+    private long retries;
+
+    /** The number of cleared halt conditions. */
+    private long recoveries;
+
+    /** The number of device resets. */
+    private long resets;
+
+    /**
+     * The libusb operations used by the handler. Replaced by tests.
+     */
+    interface Operations
+    {
+        /**
+         * Sets the callback of a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param callback
+         *            The callback.
+         */
+        void setCallback(Transfer transfer, TransferCallback callback);
+
+        /**
+         * Returns the endpoint address of a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The endpoint address.
+         */
+        byte endpoint(Transfer transfer);
+
+        /**
+         * Returns the status of a completed transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The transfer status.
+         */
+        int status(Transfer transfer);
+
+        /**
+         * Returns the actual length of a completed transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The number of transferred bytes.
+         */
+        int actualLength(Transfer transfer);
+
+        /**
+         * Converts a transfer status into an ERROR code.
+         *
+         * @param status
+         *            The transfer status.
+         * @return The ERROR code.
+         */
+        int transferStatusToError(int status);
+
+        /**
+         * Submits a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int submitTransfer(Transfer transfer);
+
+        /**
+         * Cancels a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int cancelTransfer(Transfer transfer);
+
+        /**
+         * Performs a recovery action.
+         *
+         * @param handle
+         *            The device handle.
+         * @param endpoint
+         *            The endpoint address.
+         * @param recovery
+         *            The recovery action.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int recover(DeviceHandle handle, byte endpoint, int recovery);
+    }
+
+    /**
+     * The operations implemented with libusb.
+     */
+    private static final class LibUsbOperations implements Operations
+    {
+        @Override
+        public void setCallback(final Transfer transfer,
+            final TransferCallback callback)
+        {
+            transfer.setCallback(callback);
+        }
+
+        @Override
+        public byte endpoint(final Transfer transfer)
+        {
+            return transfer.endpoint();
+        }
+
+        @Override
+        public int status(final Transfer transfer)
+        {
+            return transfer.status();
+        }
+
+        @Override
+        public int actualLength(final Transfer transfer)
+        {
+            return transfer.actualLength();
+        }
+
+        @Override
+        public int transferStatusToError(final int status)
+        {
+            return LibUsb.transferStatusToError(status);
+        }
+
+        @Override
+        public int submitTransfer(final Transfer transfer)
+        {
+            return LibUsb.submitTransfer(transfer);
+        }
+
+        @Override
+        public int cancelTransfer(final Transfer transfer)
+        {
+            return LibUsb.cancelTransfer(transfer);
+        }
+
+        @Override
+        public int recover(final DeviceHandle handle, final byte endpoint,
+            final int recovery)
+        {
+            return RetryingTransfers.recover(handle, endpoint, recovery);
+        }
+    }
+
+    /**
+     * A transfer submitted to the handler.
+     */
+    private static final class Request
+    {
+        /** The transfer. */
+        final Transfer transfer;
+
+        /** The callback. */
+        final ScheduledTransferCallback callback;
+
+        /** The endpoint state. */
+        final Endpoint endpoint;
+
+        /** The sequence number defining the submission order. */
+        final long sequence;
+
+        /** The number of failed attempts. */
+        int attempts;
+
+        /** If the transfer is submitted to libusb. */
+        boolean inFlight;
+
+        /** If the transfer has been cancelled for a recovery. */
+        boolean recalled;
+
+        /** If the transfer has been cancelled by the application. */
+        boolean cancelled;
+
+        /** The result to report to the callback. */
+        int result;
+
+        /**
+         * Constructs a new request.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param callback
+         *            The callback.
+         * @param endpoint
+         *            The endpoint state.
+         * @param sequence
+         *            The sequence number.
+         */
+        Request(final Transfer transfer,
+            final ScheduledTransferCallback callback, final Endpoint endpoint,
+            final long sequence)
+        {
+            this.transfer = transfer;
+            this.callback = callback;
+            this.endpoint = endpoint;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * The recovery state of an endpoint.
+     */
+    private static final class Endpoint
+    {
+        /** The endpoint address. */
+        final byte address;
+
+        /** The held back transfers in submission order. */
+        final List<Request> held = new ArrayList<Request>();
+
+        /** The number of transfers in flight. */
+        int inFlight;
+
+        /** If a recovery is pending. */
+        boolean recovering;
+
+        /** If the recovery action has been started. */
+        boolean recoveryStarted;
+
+        /** The recovery action. */
+        int recovery;
+
+        /** The delay after the recovery in nanoseconds. */
+        long delay;
+
+        /**
+         * Constructs a new endpoint state.
+         *
+         * @param address
+         *            The endpoint address.
+         */
+        Endpoint(final byte address)
+        {
+            this.address = address;
+        }
+
+        /**
+         * Holds back a transfer. The list is kept in submission order
+         * because failed transfers may come back after transfers which
+         * were submitted later.
+         *
+         * @param request
+         *            The request to hold back.
+         */
+        void hold(final Request request)
+        {
+            request.recalled = false;
+            int index = this.held.size();
+            while ((index > 0)
+                && (this.held.get(index - 1).sequence > request.sequence))
+            {
+                index--;
+            }
+            this.held.add(index, request);
+        }
+    }
+
+    /**
+     * Executor task performing the recovery action of an endpoint.
+     */
+    private final class Recovery implements Runnable
+    {
+        /** The endpoint state. */
+        private final Endpoint endpoint;
+
+        /** The recovery action. */
+        private final int recovery;
+
+        /** The delay after the recovery in nanoseconds. */
+        private final long delay;
+
+        /**
+         * Constructs a new recovery task.
+         *
+         * @param endpoint
+         *            The endpoint state.
+         * @param recovery
+         *            The recovery action.
+         * @param delay
+         *            The delay after the recovery in nanoseconds.
+         */
+        Recovery(final Endpoint endpoint, final int recovery,
+            final long delay)
+        {
+            this.endpoint = endpoint;
+            this.recovery = recovery;
+            this.delay = delay;
+        }
+
+        /**
+         * Performs the recovery action and schedules the release of the held
+         * transfers.
+         */
+        @Override
+        public void run()
+        {
+            final int result = RetryHandler.this.operations.recover(
+                RetryHandler.this.handle, this.endpoint.address,
+                this.recovery);
+            if ((result != LibUsb.SUCCESS) || (this.delay == 0))
+            {
+                release(this.endpoint, result);
+            }
+            else
+            {
+                RetryHandler.this.wheel.schedule(new Release(this.endpoint),
+                    System.nanoTime() + this.delay);
+            }
+        }
+    }
+
+    /**
+     * Timer task resubmitting the held transfers of an endpoint.
+     */
+    private final class Release implements Runnable
+    {
+        /** The endpoint state. */
+        private final Endpoint endpoint;
+
+        /**
+         * Constructs a new release task.
+         *
+         * @param endpoint
+         *            The endpoint state.
+         */
+        Release(final Endpoint endpoint)
+        {
+            this.endpoint = endpoint;
+        }
+
+        /**
+         * Resubmits the held transfers.
+         */
+        @Override
+        public void run()
+        {
+            release(this.endpoint, LibUsb.SUCCESS);
+        }
+    }
+
+    /**
+     * Timer task resubmitting a single transfer.
+     */
+    private final class Retry implements Runnable
+    {
+        /** The request to resubmit. */
+        private final Request request;
+
+        /**
+         * Constructs a new retry task.
+         *
+         * @param request
+         *            The request to resubmit.
+         */
+        Retry(final Request request)
+        {
+            this.request = request;
+        }
+
+        /**
+         * Resubmits the transfer.
+         */
+        @Override
+        public void run()
+        {
+            retry(this.request);
+        }
+    }
+
+    /**
+     * Constructs a new retry handler.
+     *
+     * @param handle
+     *            The handle of the device the transfers are submitted to.
+     * @param policy
+     *            The retry policy.
+     * @param wheel
+     *            The started timer wheel to use for delayed retries. Can be
+     *            shared with other handlers.
+     * @param executor
+     *            The executor running the recovery actions. Must not run
+     *            them in the thread handling the libusb events.
+     */
+    public RetryHandler(final DeviceHandle handle, final RetryPolicy policy,
+        final TimerWheel wheel, final Executor executor)
+    {
+        this(handle, policy, wheel, executor, new LibUsbOperations());
+    }
+
+    /**
+     * Constructs a new retry handler with the specified libusb operations.
+     *
+     * @param handle
+     *            The device handle.
+     * @param policy
+     *            The retry policy.
+     * @param wheel
+     *            The timer wheel.
+     * @param executor
+     *            The executor running the recovery actions.
+     * @param operations
+     *            The libusb operations.
+     */
+    RetryHandler(final DeviceHandle handle, final RetryPolicy policy,
+        final TimerWheel wheel, final Executor executor,
+        final Operations operations)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        if (policy == null)
+        {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        if (wheel == null)
+        {
+            throw new IllegalArgumentException("wheel must not be null");
+        }
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.handle = handle;
+        this.policy = policy;
+        this.wheel = wheel;
+        this.executor = executor;
+        this.operations = operations;
+    }
+
+    /**
+     * Returns the number of retries.
+     *
+     * @return The number of retries.
+     */
+    public synchronized long getRetries()
+    {
+        return this.retries;
+    }
+
+    /**
+     * Returns the number of cleared halt conditions.
+     *
+     * @return The number of cleared halt conditions.
+     */
+    public synchronized long getRecoveries()
+    {
+        return this.recoveries;
+    }
+
+    /**
+     * Returns the number of device resets.
+     *
+     * @return The number of device resets.
+     */
+    public synchronized long getResets()
+    {
+        return this.resets;
+    }
+
+    /**
+     * Submits a transfer. The callback of the transfer is set to this
+     * handler. The transfer must be completely filled and must not be
+     * modified until it is retired. When the endpoint of the transfer is
+     * currently recovering then the transfer is held back until the
+     * recovery is finished.
+     *
+     * @param transfer
+     *            The transfer to submit.
+     * @param callback
+     *            The callback to call when the transfer is retired.
+     * @return {@link LibUsb#SUCCESS} if the transfer was submitted or held
+     *         back, or the ERROR code of
+     *         {@link LibUsb#submitTransfer(Transfer)} if it failed. The
+     *         callback is not called in this case.
+     */
+    public int submit(final Transfer transfer,
+        final ScheduledTransferCallback callback)
+    {
+        if (transfer == null)
+        {
+            throw new IllegalArgumentException("transfer must not be null");
+        }
+        if (callback == null)
+        {
+            throw new IllegalArgumentException("callback must not be null");
+        }
+        this.operations.setCallback(transfer, this);
+        final byte address = this.operations.endpoint(transfer);
+        synchronized (this)
+        {
+            Endpoint endpoint = this.endpoints.get(address);
+            if (endpoint == null)
+            {
+                endpoint = new Endpoint(address);
+                this.endpoints.put(address, endpoint);
+            }
+            final Request request = new Request(transfer, callback, endpoint,
+                this.sequence++);
+            if (endpoint.recovering)
+            {
+                endpoint.hold(request);
+                this.requests.put(transfer, request);
+                return LibUsb.SUCCESS;
+            }
+            final int result = this.operations.submitTransfer(transfer);
+            if (result == LibUsb.SUCCESS)
+            {
+                request.inFlight = true;
+                endpoint.inFlight++;
+                this.requests.put(transfer, request);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Cancels a transfer. A transfer which is held back or waiting for a
+     * retry is removed and its callback is called with
+     * {@link LibUsb#ERROR_INTERRUPTED}. A transfer in flight is cancelled
+     * with {@link LibUsb#cancelTransfer(Transfer)} and is not retried.
+     *
+     * @param transfer
+     *            The transfer to cancel.
+     * @return {@link LibUsb#SUCCESS} on success, {@link LibUsb#ERROR_NOT_FOUND}
+     *         if the transfer is not known to the handler or already
+     *         complete, or another ERROR code of
+     *         {@link LibUsb#cancelTransfer(Transfer)}.
+     */
+    public int cancel(final Transfer transfer)
+    {
+        final Request request;
+        synchronized (this)
+        {
+            request = this.requests.get(transfer);
+            if ((request == null) || request.cancelled)
+            {
+                return LibUsb.ERROR_NOT_FOUND;
+            }
+            request.cancelled = true;
+            if (request.inFlight)
+            {
+                return this.operations.cancelTransfer(transfer);
+            }
+            this.requests.remove(transfer);
+            request.endpoint.held.remove(request);
+        }
+        request.callback.processTransfer(transfer, LibUsb.ERROR_INTERRUPTED);
+        return LibUsb.SUCCESS;
+    }
+
+    /**
+     * Retires a transfer or schedules its retry. Called by libusb.
+     *
+     * @param transfer
+     *            The completed transfer.
+     */
+    @Override
+    public void processTransfer(final Transfer transfer)
+    {
+        final Request request;
+        boolean retire = false;
+        Runnable recovery = null;
+        synchronized (this)
+        {
+            request = this.requests.get(transfer);
+            if (request == null)
+            {
+                return;
+            }
+            final Endpoint endpoint = request.endpoint;
+            request.inFlight = false;
+            endpoint.inFlight--;
+            final int status = this.operations.status(transfer);
+            if (!request.cancelled && request.recalled
+                && (status == LibUsb.TRANSFER_CANCELLED)
+                && (this.operations.actualLength(transfer) == 0))
+            {
+                // Cancelled by us for the recovery of the endpoint
+                endpoint.hold(request);
+            }
+            else if (!schedule(request, status))
+            {
+                this.requests.remove(transfer);
+                retire = true;
+            }
+            if (endpoint.recovering && !endpoint.recoveryStarted
+                && (endpoint.inFlight == 0))
+            {
+                endpoint.recoveryStarted = true;
+                recovery = new Recovery(endpoint, endpoint.recovery,
+                    endpoint.delay);
+            }
+        }
+        if (recovery != null)
+        {
+            this.executor.execute(recovery);
+        }
+        if (retire)
+        {
+            request.callback.processTransfer(transfer, LibUsb.SUCCESS);
+        }
+    }
+
+    /**
+     * Schedules the retry of a completed transfer if it failed and the
+     * policy allows it. Must be called with the lock held.
+     *
+     * @param request
+     *            The completed request.
+     * @param status
+     *            The transfer status.
+     * @return True if the transfer is retried, false if it is retired.
+     */
+    private boolean schedule(final Request request, final int status)
+    {
+        if (request.cancelled || (status == LibUsb.TRANSFER_COMPLETED)
+            || (status == LibUsb.TRANSFER_CANCELLED)
+            || (this.operations.actualLength(request.transfer) > 0))
+        {
+            return false;
+        }
+        final int error = this.operations.transferStatusToError(status);
+        request.attempts++;
+        final long delay = this.policy.getRetryDelay(error,
+            request.attempts);
+        if (delay < 0)
+        {
+            return false;
+        }
+        final int recovery = this.policy.getRecovery(error,
+            request.attempts);
+        final Endpoint endpoint = request.endpoint;
+        this.retries++;
+        if (endpoint.recovering)
+        {
+            if (!endpoint.recoveryStarted)
+            {
+                endpoint.recovery = Math.max(endpoint.recovery, recovery);
+                endpoint.delay = Math.max(endpoint.delay, delay);
+            }
+            endpoint.hold(request);
+        }
+        else if (recovery != RetryPolicy.RECOVER_NONE)
+        {
+            endpoint.recovering = true;
+            endpoint.recoveryStarted = false;
+            endpoint.recovery = recovery;
+            endpoint.delay = delay;
+            endpoint.hold(request);
+            recall(endpoint);
+        }
+        else
+        {
+            this.wheel.schedule(new Retry(request),
+                System.nanoTime() + delay);
+        }
+        return true;
+    }
+
+    /**
+     * Cancels all transfers in flight on a recovering endpoint so the
+     * recovery can start. Must be called with the lock held.
+     *
+     * @param endpoint
+     *            The recovering endpoint.
+     */
+    private void recall(final Endpoint endpoint)
+    {
+        for (final Request request: this.requests.values())
+        {
+            if ((request.endpoint == endpoint) && request.inFlight
+                && !request.recalled && !request.cancelled)
+            {
+                request.recalled = true;
+                this.operations.cancelTransfer(request.transfer);
+            }
+        }
+    }
+
+    /**
+     * Finishes the recovery of an endpoint. On success the held transfers
+     * are resubmitted in submission order, otherwise they are retired with
+     * the specified error.
+     *
+     * @param endpoint
+     *            The recovered endpoint.
+     * @param result
+     *            The result of the recovery action.
+     */
+    private void release(final Endpoint endpoint, final int result)
+    {
+        final List<Request> failed = new ArrayList<Request>(0);
+        synchronized (this)
+        {
+            if (result == LibUsb.SUCCESS)
+            {
+                if (endpoint.recovery == RetryPolicy.RECOVER_RESET_DEVICE)
+                {
+                    this.resets++;
+                }
+                else if (endpoint.recovery == RetryPolicy.RECOVER_CLEAR_HALT)
+                {
+                    this.recoveries++;
+                }
+            }
+            endpoint.recovering = false;
+            endpoint.recoveryStarted = false;
+            for (final Request request: endpoint.held)
+            {
+                final int submitted = result == LibUsb.SUCCESS
+                    ? submitHeld(request) : result;
+                if (submitted != LibUsb.SUCCESS)
+                {
+                    this.requests.remove(request.transfer);
+                    request.result = submitted;
+                    failed.add(request);
+                }
+            }
+            endpoint.held.clear();
+        }
+        for (final Request request: failed)
+        {
+            request.callback.processTransfer(request.transfer,
+                request.result);
+        }
+    }
+
+    /**
+     * Resubmits a single transfer after its retry delay.
+     *
+     * @param request
+     *            The request to resubmit.
+     */
+    private void retry(final Request request)
+    {
+        synchronized (this)
+        {
+            if (request.cancelled)
+            {
+                return;
+            }
+            if (request.endpoint.recovering)
+            {
+                // Resubmitted together with the held transfers
+                request.endpoint.hold(request);
+                return;
+            }
+            final int result = submitHeld(request);
+            if (result == LibUsb.SUCCESS)
+            {
+                return;
+            }
+            this.requests.remove(request.transfer);
+            request.result = result;
+        }
+        request.callback.processTransfer(request.transfer, request.result);
+    }
+
+    /**
+     * Submits a request which is not in flight. Must be called with the
+     * lock held.
+     *
+     * @param request
+     *            The request to submit.
+     * @return The result of {@link LibUsb#submitTransfer(Transfer)}.
+     */
+    private int submitHeld(final Request request)
+    {
+        request.recalled = false;
+        final int result = this.operations.submitTransfer(request.transfer);
+        if (result == LibUsb.SUCCESS)
+        {
+            request.inFlight = true;
+            request.endpoint.inFlight++;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Decides if and how a failed transfer is retried by
+ * {@link RetryingTransfers} and {@link RetryHandler}.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ * @see BackoffRetryPolicy
+ */
+public interface RetryPolicy
+{
+    /** Recovery action: Just retry the transfer. */
+    int RECOVER_NONE = 0;
+
+    /** Recovery action: Clear the halt condition of the endpoint first. */
+    int RECOVER_CLEAR_HALT = 1;
+
+    /** Recovery action: Reset the device first. */
+    int RECOVER_RESET_DEVICE = 2;
+
+    /**
+     * Returns the time to wait before retrying a failed transfer.
+     *
+     * @param error
+     *            The ERROR code the transfer failed with.
+     * @param attempt
+     *            The number of failed attempts so far. 1 for the first
+     *            failure.
+     * @return The delay in nanoseconds, 0 to retry right away or -1 to give
+     *         up.
+     */
+    long getRetryDelay(int error, int attempt);
+
+    /**
+     * Returns the recovery action to perform before retrying a failed
+     * transfer. Only called when the transfer is retried.
+     *
+     * @param error
+     *            The ERROR code the transfer failed with.
+     * @param attempt
+     *            The number of failed attempts so far. 1 for the first
+     *            failure.
+     * @return One of the RECOVER constants.
+     */
+    int getRecovery(int error, int attempt);
+}
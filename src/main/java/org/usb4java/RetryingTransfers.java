@@ -0,0 +1,326 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronous transfers which are retried according to a
+ * {@link RetryPolicy}.
+ *
+ * A failed transfer is retried after the delay and the recovery action
+ * returned by the policy. When a failed attempt already transferred some
+ * data then the retry continues behind it, so no data is transferred twice.
+ * The methods return the same packed values as
+ * {@link LibUsb#bulkTransferPacked(DeviceHandle, byte, ByteBuffer, long)}
+ * with the total number of transferred bytes of all attempts.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ * @see RetryHandler
+ */
+public final class RetryingTransfers
+{
+    /** The output buffers for the number of transferred bytes. */
+    private static final ThreadLocal<IntBuffer> TRANSFERRED =
+        new ThreadLocal<IntBuffer>();
+
+    /**
+     * The operations performing the attempts and recoveries of a
+     * transfer. Replaced by tests.
+     */
+    interface Operations
+    {
+        /**
+         * Performs a single attempt.
+         *
+         * @param data
+         *            The remaining part of the data buffer.
+         * @param transferred
+         *            Output location for the number of transferred bytes.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int transfer(ByteBuffer data, IntBuffer transferred);
+
+        /**
+         * Performs a recovery action.
+         *
+         * @param recovery
+         *            The recovery action (One of the RECOVER constants of
+         *            {@link RetryPolicy}).
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int recover(int recovery);
+    }
+
+    /**
+     * The operations performing synchronous libusb transfers.
+     */
+    private static final class LibUsbOperations implements Operations
+    {
+        /** The device handle. */
+        private final DeviceHandle handle;
+
+        /** The endpoint address. */
+        private final byte endpoint;
+
+        /** The transfer type. */
+        private final byte type;
+
+        /** The timeout of each attempt in milliseconds. */
+        private final long timeout;
+
+        /**
+         * Constructs new libusb operations.
+         *
+         * @param handle
+         *            The device handle.
+         * @param endpoint
+         *            The endpoint address.
+         * @param type
+         *            The transfer type.
+         * @param timeout
+         *            The timeout of each attempt in milliseconds.
+         */
+        LibUsbOperations(final DeviceHandle handle, final byte endpoint,
+            final byte type, final long timeout)
+        {
+            this.handle = handle;
+            this.endpoint = endpoint;
+            this.type = type;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public int transfer(final ByteBuffer data,
+            final IntBuffer transferred)
+        {
+            if (this.type == LibUsb.TRANSFER_TYPE_BULK)
+            {
+                return LibUsb.bulkTransfer(this.handle, this.endpoint, data,
+                    transferred, this.timeout);
+            }
+            return LibUsb.interruptTransfer(this.handle, this.endpoint, data,
+                transferred, this.timeout);
+        }
+
+        @Override
+        public int recover(final int recovery)
+        {
+            return RetryingTransfers.recover(this.handle, this.endpoint,
+                recovery);
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private RetryingTransfers()
+    {
+        // Empty
+    }
+
+    /**
+     * Perform a USB bulk transfer which is retried on failure.
+     *
+     * @param policy
+     *            The retry policy.
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            A suitably-sized data buffer for either input or output
+     *            (depending on endpoint).
+     * @param timeout
+     *            Timeout (in milliseconds) of each attempt. For an unlimited
+     *            timeout, use value 0.
+     * @return The result code of the last attempt in the upper 32 bits and
+     *         the total number of transferred bytes in the lower 32 bits.
+     *         The result code is {@link LibUsb#ERROR_INTERRUPTED} if the
+     *         calling thread was interrupted while waiting for a retry, or
+     *         the ERROR code of a failed recovery action.
+     */
+    public static long bulkTransfer(final RetryPolicy policy,
+        final DeviceHandle handle, final byte endpoint, final ByteBuffer data,
+        final long timeout)
+    {
+        return transfer(policy, handle, endpoint, LibUsb.TRANSFER_TYPE_BULK,
+            data, timeout);
+    }
+
+    /**
+     * Perform a USB interrupt transfer which is retried on failure.
+     *
+     * @param policy
+     *            The retry policy.
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            A suitably-sized data buffer for either input or output
+     *            (depending on endpoint).
+     * @param timeout
+     *            Timeout (in milliseconds) of each attempt. For an unlimited
+     *            timeout, use value 0.
+     * @return The result code of the last attempt in the upper 32 bits and
+     *         the total number of transferred bytes in the lower 32 bits.
+     *         The result code is {@link LibUsb#ERROR_INTERRUPTED} if the
+     *         calling thread was interrupted while waiting for a retry, or
+     *         the ERROR code of a failed recovery action.
+     */
+    public static long interruptTransfer(final RetryPolicy policy,
+        final DeviceHandle handle, final byte endpoint, final ByteBuffer data,
+        final long timeout)
+    {
+        return transfer(policy, handle, endpoint,
+            LibUsb.TRANSFER_TYPE_INTERRUPT, data, timeout);
+    }
+
+    /**
+     * Performs a bulk or interrupt transfer which is retried on failure.
+     *
+     * @param policy
+     *            The retry policy.
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The endpoint address.
+     * @param type
+     *            The transfer type.
+     * @param data
+     *            The data buffer.
+     * @param timeout
+     *            The timeout of each attempt in milliseconds.
+     * @return The packed result code and number of transferred bytes.
+     */
+    private static long transfer(final RetryPolicy policy,
+        final DeviceHandle handle, final byte endpoint, final byte type,
+        final ByteBuffer data, final long timeout)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        IntBuffer transferred = TRANSFERRED.get();
+        if (transferred == null)
+        {
+            transferred = BufferUtils.allocateIntBuffer();
+            TRANSFERRED.set(transferred);
+        }
+        final int result = transfer(policy, data, transferred,
+            new LibUsbOperations(handle, endpoint, type, timeout));
+        return PackedResult.pack(result, transferred.get(0));
+    }
+
+    /**
+     * Performs a transfer which is retried on failure.
+     *
+     * @param policy
+     *            The retry policy.
+     * @param data
+     *            The data buffer.
+     * @param transferred
+     *            Output location for the total number of transferred bytes.
+     * @param operations
+     *            The operations performing the attempts and recoveries.
+     * @return The result code of the last attempt, or
+     *         {@link LibUsb#ERROR_INTERRUPTED} if the calling thread was
+     *         interrupted while waiting for a retry, or the ERROR code of a
+     *         failed recovery action.
+     */
+    static int transfer(final RetryPolicy policy, final ByteBuffer data,
+        final IntBuffer transferred, final Operations operations)
+    {
+        if (policy == null)
+        {
+            throw new IllegalArgumentException("policy must not be null");
+        }
+        if (data == null)
+        {
+            throw new IllegalArgumentException("data must not be null");
+        }
+        final int length = data.capacity();
+        int total = 0;
+        int attempt = 0;
+        int result;
+        while (true)
+        {
+            final ByteBuffer part = total == 0 ? data
+                : BufferUtils.slice(data, total, length - total);
+            transferred.put(0, 0);
+            result = operations.transfer(part, transferred);
+            total += transferred.get(0);
+            if ((result == LibUsb.SUCCESS) || (total == length))
+            {
+                result = LibUsb.SUCCESS;
+                break;
+            }
+            attempt++;
+            final long delay = policy.getRetryDelay(result, attempt);
+            if (delay < 0)
+            {
+                break;
+            }
+            final int recovered = operations.recover(
+                policy.getRecovery(result, attempt));
+            if (recovered != LibUsb.SUCCESS)
+            {
+                result = recovered;
+                break;
+            }
+            if (delay > 0)
+            {
+                try
+                {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    result = LibUsb.ERROR_INTERRUPTED;
+                    break;
+                }
+            }
+        }
+        transferred.put(0, total);
+        return result;
+    }
+
+    /**
+     * Performs a recovery action.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The endpoint address.
+     * @param recovery
+     *            The recovery action (One of the RECOVER constants of
+     *            {@link RetryPolicy}).
+     * @return {@link LibUsb#SUCCESS} on success or an ERROR code.
+     */
+    static int recover(final DeviceHandle handle, final byte endpoint,
+        final int recovery)
+    {
+        switch (recovery)
+        {
+            case RetryPolicy.RECOVER_NONE:
+                return LibUsb.SUCCESS;
+
+            case RetryPolicy.RECOVER_CLEAR_HALT:
+                return LibUsb.clearHalt(handle, endpoint);
+
+            case RetryPolicy.RECOVER_RESET_DEVICE:
+                return LibUsb.resetDevice(handle);
+
+            default:
+                throw new IllegalArgumentException(
+                    "Invalid recovery action: " + recovery);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Off-heap byte ring buffer for exactly one producer thread and one
+ * consumer thread.
+ *
+ * The data lives in a single direct byte buffer allocated on construction,
+ * so streaming data through the ring creates no garbage. Producer and
+ * consumer exchange their positions through volatile fields only and never
+ * block each other. Writing into a full ring writes as many bytes as fit,
+ * reading from an empty ring reads nothing.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class RingBuffer
+{
+    /** The capacity in bytes. */
+    private final int capacity;
+
+    /** View on the data used by the producer. */
+    private final ByteBuffer writeView;
+
+    /** View on the data used by the consumer. */
+    private final ByteBuffer readView;
+
+    /** The total number of bytes written. Only modified by the producer. */
+    private volatile long writePosition;
+
+    /** The total number of bytes read. Only modified by the consumer. */
+    private volatile long readPosition;
+
+    /**
+     * Constructs a new ring buffer.
+     *
+     * @param capacity
+     *            The capacity in bytes.
+     */
+    public RingBuffer(final int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        final ByteBuffer data = BufferUtils.allocateByteBuffer(capacity);
+        this.writeView = data.duplicate();
+        this.readView = data.duplicate();
+    }
+
+    /**
+     * Returns the capacity.
+     *
+     * @return The capacity in bytes.
+     */
+    public int capacity()
+    {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the number of bytes which can be read.
+     *
+     * @return The number of readable bytes.
+     */
+    public int available()
+    {
+        return (int) (this.writePosition - this.readPosition);
+    }
+
+    /**
+     * Returns the number of bytes which can be written.
+     *
+     * @return The number of writable bytes.
+     */
+    public int free()
+    {
+        return this.capacity - available();
+    }
+
+    /**
+     * Returns the total number of bytes written since construction.
+     *
+     * @return The write position.
+     */
+    public long getWritePosition()
+    {
+        return this.writePosition;
+    }
+
+    /**
+     * Returns the total number of bytes read since construction.
+     *
+     * @return The read position.
+     */
+    public long getReadPosition()
+    {
+        return this.readPosition;
+    }
+
+    /**
+     * Writes the remaining bytes of the specified buffer into the ring, as
+     * far as they fit. The position of the source buffer is advanced by the
+     * number of written bytes. Must only be called by the producer.
+     *
+     * @param src
+     *            The buffer to read the data from.
+     * @return The number of written bytes.
+     */
+    public int write(final ByteBuffer src)
+    {
+        final int position = src.position();
+        final int written = write(src, position, src.remaining());
+        src.position(position + written);
+        return written;
+    }
+
+    /**
+     * Writes bytes from the specified region of a buffer into the ring, as
+     * far as they fit. The position and limit of the source buffer are not
+     * modified. Must only be called by the producer.
+     *
+     * @param src
+     *            The buffer to read the data from.
+     * @param offset
+     *            The absolute offset of the data in the source buffer.
+     * @param length
+     *            The number of bytes to write.
+     * @return The number of written bytes.
+     */
+    public int write(final ByteBuffer src, final int offset, final int length)
+    {
+        final long position = this.writePosition;
+        final int count = Math.min(length,
+            this.capacity - (int) (position - this.readPosition));
+        if (count <= 0)
+        {
+            return 0;
+        }
+        final int index = (int) (position % this.capacity);
+        final int first = Math.min(count, this.capacity - index);
+        final int oldPosition = src.position();
+        final int oldLimit = src.limit();
+        src.limit(offset + count);
+        src.position(offset);
+        this.writeView.limit(index + first);
+        this.writeView.position(index);
+        src.limit(offset + first);
+        this.writeView.put(src);
+        if (first < count)
+        {
+            src.limit(offset + count);
+            this.writeView.limit(count - first);
+            this.writeView.position(0);
+            this.writeView.put(src);
+        }
+        src.limit(oldLimit);
+        src.position(oldPosition);
+        this.writePosition = position + count;
+        return count;
+    }
+
+    /**
+     * Reads bytes from the ring into the remaining space of the specified
+     * buffer. The position of the target buffer is advanced by the number of
+     * read bytes. Must only be called by the consumer.
+     *
+     * @param dst
+     *            The buffer to write the data to.
+     * @return The number of read bytes.
+     */
+    public int read(final ByteBuffer dst)
+    {
+        final int position = dst.position();
+        final int read = read(dst, position, dst.remaining());
+        dst.position(position + read);
+        return read;
+    }
+
+    /**
+     * Reads bytes from the ring into the specified region of a buffer. The
+     * position and limit of the target buffer are not modified. Must only be
+     * called by the consumer.
+     *
+     * @param dst
+     *            The buffer to write the data to.
+     * @param offset
+     *            The absolute offset in the target buffer.
+     * @param length
+     *            The maximum number of bytes to read.
+     * @return The number of read bytes.
+     */
+    public int read(final ByteBuffer dst, final int offset, final int length)
+    {
+        final long position = this.readPosition;
+        final int count = Math.min(length,
+            (int) (this.writePosition - position));
+        if (count <= 0)
+        {
+            return 0;
+        }
+        final int index = (int) (position % this.capacity);
+        final int first = Math.min(count, this.capacity - index);
+        final int oldPosition = dst.position();
+        final int oldLimit = dst.limit();
+        dst.limit(offset + count);
+        dst.position(offset);
+        this.readView.limit(index + first);
+        this.readView.position(index);
+        dst.put(this.readView);
+        if (first < count)
+        {
+            this.readView.limit(count - first);
+            this.readView.position(0);
+            dst.put(this.readView);
+        }
+        dst.limit(oldLimit);
+        dst.position(oldPosition);
+        this.readPosition = position + count;
+        return count;
+    }
+
+    /**
+     * Discards up to the specified number of readable bytes. Must only be
+     * called by the consumer.
+     *
+     * @param length
+     *            The maximum number of bytes to discard.
+     * @return The number of discarded bytes.
+     */
+    public int skip(final int length)
+    {
+        final long position = this.readPosition;
+        final int count = Math.min(length,
+            (int) (this.writePosition - position));
+        if (count <= 0)
+        {
+            return 0;
+        }
+        this.readPosition = position + count;
+        return count;
+    }
+}
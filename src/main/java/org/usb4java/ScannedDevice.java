@@ -0,0 +1,317 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Immutable information about a single device found by a
+ * {@link DeviceScanner}.
+ *
+ * The descriptor fields are always valid. The strings are only available
+ * when the device could be opened, see {@link #getOpenResult()}.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class ScannedDevice
+{
+    /** The bus number. */
+    private final int busNumber;
+
+    /** The device address. */
+    private final int address;
+
+    /** The address of the parent device or -1 if none. */
+    private final int parentAddress;
+
+    /** The port numbers from the root hub to the device. */
+    private final byte[] portNumbers;
+
+    /** The negotiated device speed. */
+    private final int speed;
+
+    /** The vendor ID. */
+    private final short vendorId;
+
+    /** The product ID. */
+    private final short productId;
+
+    /** The device class. */
+    private final byte deviceClass;
+
+    /** The manufacturer string or null if not available. */
+    private final String manufacturer;
+
+    /** The product string or null if not available. */
+    private final String product;
+
+    /** The serial number string or null if not available. */
+    private final String serialNumber;
+
+    /** The result of opening the device. */
+    private final int openResult;
+
+    /** The time in nanoseconds spent waiting for a free hub slot. */
+    private final long waitNanos;
+
+    /** The time in nanoseconds spent probing the device. */
+    private final long probeNanos;
+
+    /**
+     * Constructs new scanned device information.
+     *
+     * @param busNumber
+     *            The bus number.
+     * @param address
+     *            The device address.
+     * @param parentAddress
+     *            The address of the parent device or -1 if none.
+     * @param portNumbers
+     *            The port numbers from the root hub to the device. The array
+     *            is copied.
+     * @param speed
+     *            The negotiated device speed.
+     * @param vendorId
+     *            The vendor ID.
+     * @param productId
+     *            The product ID.
+     * @param deviceClass
+     *            The device class.
+     * @param manufacturer
+     *            The manufacturer string or null if not available.
+     * @param product
+     *            The product string or null if not available.
+     * @param serialNumber
+     *            The serial number string or null if not available.
+     * @param openResult
+     *            The result of opening the device.
+     * @param waitNanos
+     *            The time in nanoseconds spent waiting for a free hub slot.
+     * @param probeNanos
+     *            The time in nanoseconds spent probing the device.
+     */
+    ScannedDevice(final int busNumber, final int address,
+        final int parentAddress, final byte[] portNumbers, final int speed,
+        final short vendorId, final short productId, final byte deviceClass,
+        final String manufacturer, final String product,
+        final String serialNumber, final int openResult,
+        final long waitNanos, final long probeNanos)
+    {
+        this.busNumber = busNumber;
+        this.address = address;
+        this.parentAddress = parentAddress;
+        this.portNumbers = portNumbers.clone();
+        this.speed = speed;
+        this.vendorId = vendorId;
+        this.productId = productId;
+        this.deviceClass = deviceClass;
+        this.manufacturer = manufacturer;
+        this.product = product;
+        this.serialNumber = serialNumber;
+        this.openResult = openResult;
+        this.waitNanos = waitNanos;
+        this.probeNanos = probeNanos;
+    }
+
+    /**
+     * Returns the bus number.
+     *
+     * @return The bus number.
+     */
+    public int getBusNumber()
+    {
+        return this.busNumber;
+    }
+
+    /**
+     * Returns the device address.
+     *
+     * @return The device address.
+     */
+    public int getAddress()
+    {
+        return this.address;
+    }
+
+    /**
+     * Returns the address of the parent device.
+     *
+     * @return The parent address or -1 if the device has no parent (Root
+     *         hub).
+     */
+    public int getParentAddress()
+    {
+        return this.parentAddress;
+    }
+
+    /**
+     * Returns the port numbers from the root hub to the device.
+     *
+     * @return A copy of the port numbers. Empty for root hubs.
+     */
+    public byte[] getPortNumbers()
+    {
+        return this.portNumbers.clone();
+    }
+
+    /**
+     * Returns the port path as a string in the form used by Linux sysfs,
+     * for example "1-2.4". Root hubs are returned as "usb1".
+     *
+     * @return The port path.
+     */
+    public String getPortPath()
+    {
+        return portPath(this.busNumber, this.portNumbers);
+    }
+
+    /**
+     * Formats a port path in the form used by Linux sysfs, for example
+     * "1-2.4". Root hubs are formatted as "usb1".
+     *
+     * @param busNumber
+     *            The bus number.
+     * @param portNumbers
+     *            The port numbers from the root hub to the device.
+     * @return The port path.
+     */
+    static String portPath(final int busNumber, final byte[] portNumbers)
+    {
+        if (portNumbers.length == 0)
+        {
+            return "usb" + busNumber;
+        }
+        final StringBuilder builder = new StringBuilder();
+        builder.append(busNumber).append('-');
+        for (int i = 0; i < portNumbers.length; i++)
+        {
+            if (i > 0)
+            {
+                builder.append('.');
+            }
+            builder.append(portNumbers[i] & 0xff);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the negotiated device speed.
+     *
+     * @return The device speed ({@link LibUsb#SPEED_UNKNOWN} for
+     *         example).
+     */
+    public int getSpeed()
+    {
+        return this.speed;
+    }
+
+    /**
+     * Returns the vendor ID.
+     *
+     * @return The vendor ID.
+     */
+    public short getVendorId()
+    {
+        return this.vendorId;
+    }
+
+    /**
+     * Returns the product ID.
+     *
+     * @return The product ID.
+     */
+    public short getProductId()
+    {
+        return this.productId;
+    }
+
+    /**
+     * Returns the device class.
+     *
+     * @return The device class.
+     */
+    public byte getDeviceClass()
+    {
+        return this.deviceClass;
+    }
+
+    /**
+     * Checks if this device is a hub.
+     *
+     * @return True if device is a hub, false if not.
+     */
+    public boolean isHub()
+    {
+        return this.deviceClass == LibUsb.CLASS_HUB;
+    }
+
+    /**
+     * Returns the manufacturer string.
+     *
+     * @return The manufacturer or null if not available.
+     */
+    public String getManufacturer()
+    {
+        return this.manufacturer;
+    }
+
+    /**
+     * Returns the product string.
+     *
+     * @return The product or null if not available.
+     */
+    public String getProduct()
+    {
+        return this.product;
+    }
+
+    /**
+     * Returns the serial number string.
+     *
+     * @return The serial number or null if not available.
+     */
+    public String getSerialNumber()
+    {
+        return this.serialNumber;
+    }
+
+    /**
+     * Returns the result of opening the device.
+     *
+     * @return {@link LibUsb#SUCCESS} or the error code returned by
+     *         {@link LibUsb#open(Device, DeviceHandle)}.
+     */
+    public int getOpenResult()
+    {
+        return this.openResult;
+    }
+
+    /**
+     * Returns the time spent waiting for a free slot on the parent hub.
+     *
+     * @return The wait time in nanoseconds.
+     */
+    public long getWaitNanos()
+    {
+        return this.waitNanos;
+    }
+
+    /**
+     * Returns the time spent opening the device and reading the strings.
+     *
+     * @return The probe time in nanoseconds.
+     */
+    public long getProbeNanos()
+    {
+        return this.probeNanos;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s %04x:%04x %s", getPortPath(),
+            this.vendorId & 0xffff, this.productId & 0xffff,
+            this.product == null ? "" : this.product).trim();
+    }
+}
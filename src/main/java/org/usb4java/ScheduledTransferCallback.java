@@ -0,0 +1,29 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Callback for transfers submitted through a {@link TransferScheduler}.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public interface ScheduledTransferCallback
+{
+    /**
+     * Called when the transfer has been retired.
+     *
+     * @param transfer
+     *            The transfer.
+     * @param result
+     *            {@link LibUsb#SUCCESS} if libusb completed the transfer
+     *            (The transfer status tells how),
+     *            {@link LibUsb#ERROR_INTERRUPTED} if the transfer was
+     *            cancelled while it was still queued, or the ERROR code
+     *            returned by {@link LibUsb#submitTransfer(Transfer)} if the
+     *            queued transfer could not be submitted.
+     */
+    void processTransfer(Transfer transfer, int result);
+}
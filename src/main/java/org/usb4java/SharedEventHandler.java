@@ -0,0 +1,254 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets multiple application threads wait for their own asynchronous
+ * transfers without a dedicated event handling thread.
+ *
+ * This implements the leader/follower scheme described in the libusb
+ * documentation about multi-threaded applications. Each waiting thread
+ * tries to get the event lock. The thread which gets it becomes the leader
+ * and handles events for everybody until its own transfer is complete. All
+ * other threads wait as followers until libusb signals a completed transfer
+ * or the leader releases the event lock, in which case one of them takes
+ * over. Completion flags are only checked while holding one of the libusb
+ * locks, so no wakeup is lost.
+ *
+ * Typical usage:
+ *
+ * <pre>
+ * final AtomicBoolean completed = new AtomicBoolean();
+ * transfer.setCallback(new TransferCallback()
+ * {
+ *     public void processTransfer(Transfer transfer)
+ *     {
+ *         completed.set(true);
+ *     }
+ * });
+ * LibUsb.submitTransfer(transfer);
+ * handler.await(completed, 0);
+ * </pre>
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class SharedEventHandler
+{
+    /**
+     * The maximum time in microseconds a single event handling or waiting
+     * call may block. Limits the delay for noticing an expired timeout.
+     */
+    private static final long MAX_SLICE = 100000;
+
+    /** The context to handle events for. Null for the default context. */
+    private final Context context;
+
+    /** The number of times a thread became the leader. */
+    private final AtomicLong leaderRounds = new AtomicLong();
+
+    /** The number of times a follower waited for an event. */
+    private final AtomicLong followerWaits = new AtomicLong();
+
+    /**
+     * Constructs a new shared event handler.
+     *
+     * @param context
+     *            The context to handle events for, or null for the default
+     *            context.
+     */
+    public SharedEventHandler(final Context context)
+    {
+        this.context = context;
+    }
+
+    /**
+     * Returns the context this handler handles events for.
+     *
+     * @return The context or null for the default context.
+     */
+    public Context getContext()
+    {
+        return this.context;
+    }
+
+    /**
+     * Waits until the specified flag is set. The flag must be set by the
+     * callback of the transfer the calling thread waits for. While waiting
+     * the calling thread may handle events for other threads.
+     *
+     * @param completed
+     *            The completion flag.
+     * @param timeout
+     *            The maximum time to wait in microseconds. 0 for unlimited.
+     * @return True if flag was set, false if the timeout expired.
+     * @throws LibUsbException
+     *             When event handling failed.
+     */
+    public boolean await(final AtomicBoolean completed, final long timeout)
+    {
+        if (completed == null)
+        {
+            throw new IllegalArgumentException("completed must not be null");
+        }
+        if (timeout < 0)
+        {
+            throw new IllegalArgumentException(
+                "timeout must not be negative");
+        }
+        final long deadline = timeout == 0 ? 0
+            : System.nanoTime() + timeout * 1000;
+        while (!completed.get())
+        {
+            if (remaining(deadline) < 0)
+            {
+                return false;
+            }
+            if (LibUsb.tryLockEvents(this.context) == 0)
+            {
+                if (!lead(completed, deadline))
+                {
+                    return false;
+                }
+            }
+            else if (!follow(completed, deadline))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Handles events while holding the event lock until the flag is set or
+     * another thread needs the event lock. Releasing the event lock wakes up
+     * the followers so one of them takes over.
+     *
+     * @param completed
+     *            The completion flag.
+     * @param deadline
+     *            The deadline in nanoseconds or 0 for unlimited.
+     * @return False if the deadline expired, true otherwise.
+     */
+    private boolean lead(final AtomicBoolean completed, final long deadline)
+    {
+        this.leaderRounds.incrementAndGet();
+        try
+        {
+            while (!completed.get())
+            {
+                if (LibUsb.eventHandlingOk(this.context) == 0)
+                {
+                    // Another thread wants to modify the poll set. Release
+                    // the lock and try again.
+                    return true;
+                }
+                final long remaining = remaining(deadline);
+                if (remaining < 0)
+                {
+                    return false;
+                }
+                final int result = LibUsb.handleEventsLocked(this.context,
+                    remaining);
+                if ((result != LibUsb.SUCCESS)
+                    && (result != LibUsb.ERROR_INTERRUPTED))
+                {
+                    throw new LibUsbException("Unable to handle events",
+                        result);
+                }
+            }
+            return true;
+        }
+        finally
+        {
+            LibUsb.unlockEvents(this.context);
+        }
+    }
+
+    /**
+     * Waits for events handled by another thread until the flag is set or
+     * the other thread stops handling events.
+     *
+     * @param completed
+     *            The completion flag.
+     * @param deadline
+     *            The deadline in nanoseconds or 0 for unlimited.
+     * @return False if the deadline expired, true otherwise.
+     */
+    private boolean follow(final AtomicBoolean completed, final long deadline)
+    {
+        LibUsb.lockEventWaiters(this.context);
+        try
+        {
+            while (!completed.get())
+            {
+                if (LibUsb.eventHandlerActive(this.context) == 0)
+                {
+                    // Leader has stopped. Try to become the new leader.
+                    return true;
+                }
+                final long remaining = remaining(deadline);
+                if (remaining < 0)
+                {
+                    return false;
+                }
+                this.followerWaits.incrementAndGet();
+                LibUsb.waitForEvent(this.context, remaining);
+            }
+            return true;
+        }
+        finally
+        {
+            LibUsb.unlockEventWaiters(this.context);
+        }
+    }
+
+    /**
+     * Returns the time a single blocking call may take.
+     *
+     * @param deadline
+     *            The deadline in nanoseconds or 0 for unlimited.
+     * @return The time in microseconds (At least 1 because 0 means
+     *         unlimited for libusb) or -1 if the deadline has expired.
+     */
+    private static long remaining(final long deadline)
+    {
+        if (deadline == 0)
+        {
+            return MAX_SLICE;
+        }
+        final long remaining = (deadline - System.nanoTime()) / 1000;
+        if (remaining <= 0)
+        {
+            return -1;
+        }
+        return Math.min(remaining, MAX_SLICE);
+    }
+
+    /**
+     * Returns the number of times a waiting thread became the leader and
+     * handled events.
+     *
+     * @return The number of leader rounds.
+     */
+    public long getLeaderRounds()
+    {
+        return this.leaderRounds.get();
+    }
+
+    /**
+     * Returns the number of times a follower waited for an event handled by
+     * the leader.
+     *
+     * @return The number of follower waits.
+     */
+    public long getFollowerWaits()
+    {
+        return this.followerWaits.get();
+    }
+}
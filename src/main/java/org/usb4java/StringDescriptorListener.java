@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Listener interface for string descriptors fetched by a
+ * {@link StringDescriptorService}.
+ *
+ * The method is called by the thread handling libusb events (Or by the
+ * fetching thread when all strings were cached) so it should do minimal
+ * processing before returning.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public interface StringDescriptorListener
+{
+    /**
+     * Called when all requested string descriptors have been fetched.
+     *
+     * @param handle
+     *            The device handle.
+     * @param indices
+     *            The requested string descriptor indices.
+     * @param strings
+     *            The strings in the order of the indices. Strings which
+     *            could not be read are null.
+     */
+    void stringsFetched(DeviceHandle handle, byte[] indices,
+        String[] strings);
+}
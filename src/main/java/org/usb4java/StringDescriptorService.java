@@ -0,0 +1,810 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches string descriptors of devices asynchronously and caches them.
+ *
+ * The language table (String descriptor 0) is read only once per device.
+ * The preferred language is used if the device supports it, the first
+ * language of the table otherwise. All uncached strings of a request are
+ * then fetched with control transfers submitted at once instead of one
+ * after another. Strings are decoded as full UTF-16LE and kept in a least
+ * recently used cache per device.
+ *
+ * Another thread must handle libusb events while strings are fetched (See
+ * {@link EventHandlingThread}). Call {@link #invalidate(DeviceHandle)}
+ * before closing a device handle to drop its cache.
+ *
+ * The transfers of completed requests are kept for reuse, but at most
+ * {@link #MAX_IDLE_REQUESTS} of them. Call {@link #close()} to free them
+ * when the service is no longer needed.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class StringDescriptorService
+{
+    /** The default preferred language (English, United States). */
+    public static final int DEFAULT_LANGUAGE = 0x0409;
+
+    /** The default timeout of the control transfers in milliseconds. */
+    public static final long DEFAULT_TIMEOUT = 1000;
+
+    /** The maximum number of idle transfers kept for reuse. */
+    public static final int MAX_IDLE_REQUESTS = 8;
+
+    /** The maximum size of a string descriptor. */
+    private static final int MAX_DESCRIPTOR_SIZE = 255;
+
+    /** The maximum number of cached strings per device. */
+    private final int cacheSize;
+
+    /** The preferred language id. */
+    private final int preferredLanguage;
+
+    /** The callback used for all transfers. */
+    private final TransferCallback callback = new TransferCallback()
+    {
+        @Override
+        public void processTransfer(final Transfer transfer)
+        {
+            StringDescriptorService.this.processTransfer(transfer);
+        }
+    };
+
+    /** The device states mapped by device handle. */
+    private final Map<DeviceHandle, DeviceState> devices =
+        new HashMap<DeviceHandle, DeviceState>();
+
+    /** The submitted requests mapped by their transfer. */
+    private final Map<Transfer, Request> submitted =
+        new HashMap<Transfer, Request>();
+
+    /** Idle requests for reuse. */
+    private final ArrayDeque<Request> idle = new ArrayDeque<Request>();
+
+    /** The libusb operations. */
+    private final Operations operations;
+
+    /** The timeout of the control transfers in milliseconds. */
+    private volatile long timeout = DEFAULT_TIMEOUT;
+
+    /** If the service has been closed. */
+    private boolean closed;
+
+    /**
+     * The libusb operations used by the service. Replaced by tests.
+     */
+    interface Operations
+    {
+        /**
+         * Allocates a transfer.
+         *
+         * @param callback
+         *            The transfer callback.
+         * @return The transfer.
+         */
+        Transfer allocTransfer(TransferCallback callback);
+
+        /**
+         * Frees a transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         */
+        void freeTransfer(Transfer transfer);
+
+        /**
+         * Submits a control transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param handle
+         *            The device handle.
+         * @param buffer
+         *            The buffer starting with the setup packet.
+         * @param timeout
+         *            The timeout in milliseconds.
+         * @return {@link LibUsb#SUCCESS} or an ERROR code.
+         */
+        int submitTransfer(Transfer transfer, DeviceHandle handle,
+            ByteBuffer buffer, long timeout);
+
+        /**
+         * Returns the status of a completed transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The transfer status.
+         */
+        int status(Transfer transfer);
+
+        /**
+         * Returns the actual length of a completed transfer.
+         *
+         * @param transfer
+         *            The transfer.
+         * @return The number of transferred bytes.
+         */
+        int actualLength(Transfer transfer);
+    }
+
+    /**
+     * The operations calling libusb.
+     */
+    private static final class LibUsbOperations implements Operations
+    {
+        /**
+         * Constructs new libusb operations.
+         */
+        LibUsbOperations()
+        {
+            // Empty
+        }
+
+        @Override
+        public Transfer allocTransfer(final TransferCallback callback)
+        {
+            final Transfer transfer = LibUsb.allocTransfer();
+            transfer.setCallback(callback);
+            return transfer;
+        }
+
+        @Override
+        public void freeTransfer(final Transfer transfer)
+        {
+            LibUsb.freeTransfer(transfer);
+        }
+
+        @Override
+        public int submitTransfer(final Transfer transfer,
+            final DeviceHandle handle, final ByteBuffer buffer,
+            final long timeout)
+        {
+            transfer.setDevHandle(handle);
+            transfer.setEndpoint((byte) 0);
+            transfer.setType(LibUsb.TRANSFER_TYPE_CONTROL);
+            transfer.setTimeout(timeout);
+            transfer.setBuffer(buffer);
+            return LibUsb.submitTransfer(transfer);
+        }
+
+        @Override
+        public int status(final Transfer transfer)
+        {
+            return transfer.status();
+        }
+
+        @Override
+        public int actualLength(final Transfer transfer)
+        {
+            return transfer.actualLength();
+        }
+    }
+
+    /**
+     * The cached state of a device.
+     */
+    private static final class DeviceState
+    {
+        /** The language id. -1 if not yet known. */
+        int language = -1;
+
+        /** Fetches waiting for the language table. */
+        final List<Fetch> waiting = new ArrayList<Fetch>();
+
+        /** The cached strings. */
+        final Map<Byte, String> strings;
+
+        /**
+         * Constructs a new device state.
+         *
+         * @param cacheSize
+         *            The maximum number of cached strings.
+         */
+        DeviceState(final int cacheSize)
+        {
+            this.strings = new LinkedHashMap<Byte, String>(16, 0.75f, true)
+            {
+                /** Serial version UID. */
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                    final Map.Entry<Byte, String> eldest)
+                {
+                    return size() > cacheSize;
+                }
+            };
+        }
+    }
+
+    /**
+     * A pending fetch of one or more strings.
+     */
+    private static final class Fetch
+    {
+        /** The device handle. */
+        final DeviceHandle handle;
+
+        /** The requested indices. */
+        final byte[] indices;
+
+        /** The fetched strings. */
+        final String[] strings;
+
+        /** The listener to notify. */
+        final StringDescriptorListener listener;
+
+        /** The number of strings not yet fetched. */
+        int remaining;
+
+        /**
+         * Constructs a new fetch.
+         *
+         * @param handle
+         *            The device handle.
+         * @param indices
+         *            The requested indices.
+         * @param listener
+         *            The listener to notify.
+         */
+        Fetch(final DeviceHandle handle, final byte[] indices,
+            final StringDescriptorListener listener)
+        {
+            this.handle = handle;
+            this.indices = indices;
+            this.strings = new String[indices.length];
+            this.listener = listener;
+        }
+
+        /**
+         * Notifies the listener.
+         */
+        void finish()
+        {
+            this.listener.stringsFetched(this.handle, this.indices,
+                this.strings);
+        }
+    }
+
+    /**
+     * A reusable control transfer with its buffer.
+     */
+    private static final class Request
+    {
+        /** The transfer. */
+        final Transfer transfer;
+
+        /** The buffer including the setup packet. */
+        final ByteBuffer buffer;
+
+        /** The device state. */
+        DeviceState device;
+
+        /** The fetch the string is requested for. Null for the language. */
+        Fetch fetch;
+
+        /** The position of the string in the fetch. */
+        int position;
+
+        /**
+         * Constructs a new request.
+         *
+         * @param transfer
+         *            The transfer.
+         */
+        Request(final Transfer transfer)
+        {
+            this.transfer = transfer;
+            this.buffer = BufferUtils.allocateByteBuffer(
+                LibUsb.CONTROL_SETUP_SIZE + MAX_DESCRIPTOR_SIZE);
+        }
+    }
+
+    /**
+     * Constructs a new string descriptor service.
+     *
+     * @param cacheSize
+     *            The maximum number of cached strings per device.
+     * @param preferredLanguage
+     *            The preferred language id.
+     */
+    public StringDescriptorService(final int cacheSize,
+        final int preferredLanguage)
+    {
+        this(cacheSize, preferredLanguage, new LibUsbOperations());
+    }
+
+    /**
+     * Constructs a new string descriptor service with the specified libusb
+     * operations.
+     *
+     * @param cacheSize
+     *            The maximum number of cached strings per device.
+     * @param preferredLanguage
+     *            The preferred language id.
+     * @param operations
+     *            The libusb operations.
+     */
+    StringDescriptorService(final int cacheSize, final int preferredLanguage,
+        final Operations operations)
+    {
+        if (cacheSize <= 0)
+        {
+            throw new IllegalArgumentException("cacheSize must be positive");
+        }
+        this.cacheSize = cacheSize;
+        this.preferredLanguage = preferredLanguage;
+        this.operations = operations;
+    }
+
+    /**
+     * Constructs a new string descriptor service preferring
+     * {@link #DEFAULT_LANGUAGE}.
+     *
+     * @param cacheSize
+     *            The maximum number of cached strings per device.
+     */
+    public StringDescriptorService(final int cacheSize)
+    {
+        this(cacheSize, DEFAULT_LANGUAGE);
+    }
+
+    /**
+     * Returns the timeout of the control transfers.
+     *
+     * @return The timeout in milliseconds.
+     */
+    public long getTimeout()
+    {
+        return this.timeout;
+    }
+
+    /**
+     * Sets the timeout of the control transfers.
+     *
+     * @param timeout
+     *            The timeout in milliseconds. 0 for no timeout.
+     */
+    public void setTimeout(final long timeout)
+    {
+        if (timeout < 0)
+        {
+            throw new IllegalArgumentException(
+                "timeout must not be negative");
+        }
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns a cached string.
+     *
+     * @param handle
+     *            The device handle.
+     * @param index
+     *            The string descriptor index.
+     * @return The cached string or null if not cached.
+     */
+    public synchronized String getCached(final DeviceHandle handle,
+        final byte index)
+    {
+        final DeviceState device = this.devices.get(handle);
+        return device == null ? null : device.strings.get(index);
+    }
+
+    /**
+     * Drops the cached strings and language of a device.
+     *
+     * @param handle
+     *            The device handle.
+     */
+    public synchronized void invalidate(final DeviceHandle handle)
+    {
+        this.devices.remove(handle);
+    }
+
+    /**
+     * Returns the number of idle transfers kept for reuse.
+     *
+     * @return The number of idle transfers.
+     */
+    public synchronized int getIdleCount()
+    {
+        return this.idle.size();
+    }
+
+    /**
+     * Closes the service. The idle transfers are freed and no new fetches
+     * are accepted. Transfers still in flight complete their fetches and
+     * are freed afterwards.
+     */
+    public synchronized void close()
+    {
+        this.closed = true;
+        for (final Request request: this.idle)
+        {
+            this.operations.freeTransfer(request.transfer);
+        }
+        this.idle.clear();
+    }
+
+    /**
+     * Fetches string descriptors. Cached strings are used right away, all
+     * others are fetched with asynchronous control transfers. The listener
+     * is called once all strings are available.
+     *
+     * @param handle
+     *            The device handle.
+     * @param indices
+     *            The string descriptor indices. Must not contain 0.
+     * @param listener
+     *            The listener to notify.
+     * @throws IllegalStateException
+     *             When the service has been closed.
+     */
+    public void fetch(final DeviceHandle handle, final byte[] indices,
+        final StringDescriptorListener listener)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        if (indices == null)
+        {
+            throw new IllegalArgumentException("indices must not be null");
+        }
+        for (final byte index: indices)
+        {
+            if (index == 0)
+            {
+                throw new IllegalArgumentException(
+                    "indices must not contain 0");
+            }
+        }
+        if (listener == null)
+        {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        final Fetch fetch = new Fetch(handle, indices.clone(), listener);
+        final List<Fetch> finished = new ArrayList<Fetch>(1);
+        synchronized (this)
+        {
+            if (this.closed)
+            {
+                throw new IllegalStateException("Service has been closed");
+            }
+            DeviceState device = this.devices.get(handle);
+            if (device == null)
+            {
+                device = new DeviceState(this.cacheSize);
+                this.devices.put(handle, device);
+            }
+            for (int i = 0; i < indices.length; i++)
+            {
+                fetch.strings[i] = device.strings.get(indices[i]);
+                if (fetch.strings[i] == null)
+                {
+                    fetch.remaining++;
+                }
+            }
+            if (fetch.remaining == 0)
+            {
+                finished.add(fetch);
+            }
+            else if (device.language >= 0)
+            {
+                submitStrings(device, fetch, finished);
+            }
+            else
+            {
+                device.waiting.add(fetch);
+                if (device.waiting.size() == 1)
+                {
+                    if (!submit(device, null, 0, (byte) 0, 0))
+                    {
+                        languageFailed(device, finished);
+                    }
+                }
+            }
+        }
+        finish(finished);
+    }
+
+    /**
+     * Submits the requests for all missing strings of a fetch. Must be
+     * called with the lock held.
+     *
+     * @param device
+     *            The device state.
+     * @param fetch
+     *            The fetch.
+     * @param finished
+     *            Receives the fetch if it finished because submissions
+     *            failed.
+     */
+    private void submitStrings(final DeviceState device, final Fetch fetch,
+        final List<Fetch> finished)
+    {
+        for (int i = 0; i < fetch.indices.length; i++)
+        {
+            if ((fetch.strings[i] == null)
+                && !submit(device, fetch, i, fetch.indices[i],
+                    device.language))
+            {
+                fetch.remaining--;
+            }
+        }
+        if (fetch.remaining == 0)
+        {
+            finished.add(fetch);
+        }
+    }
+
+    /**
+     * Submits a GET_DESCRIPTOR request for a string descriptor. Must be
+     * called with the lock held.
+     *
+     * @param device
+     *            The device state.
+     * @param fetch
+     *            The fetch or null when requesting the language table.
+     * @param position
+     *            The position of the string in the fetch.
+     * @param index
+     *            The string descriptor index.
+     * @param language
+     *            The language id.
+     * @return True if submitted, false if submission failed.
+     */
+    private boolean submit(final DeviceState device, final Fetch fetch,
+        final int position, final byte index, final int language)
+    {
+        Request request = this.idle.poll();
+        if (request == null)
+        {
+            request = new Request(this.operations.allocTransfer(
+                this.callback));
+        }
+        final DeviceHandle handle = fetch == null
+            ? device.waiting.get(0).handle : fetch.handle;
+        request.buffer.clear();
+        final ControlSetup setup = new ControlSetup(request.buffer);
+        setup.setBmRequestType((byte) (LibUsb.ENDPOINT_IN
+            | LibUsb.REQUEST_TYPE_STANDARD | LibUsb.RECIPIENT_DEVICE));
+        setup.setBRequest(LibUsb.REQUEST_GET_DESCRIPTOR);
+        setup.setWValue((short) ((LibUsb.DT_STRING << 8) | (index & 0xff)));
+        setup.setWIndex((short) language);
+        setup.setWLength((short) MAX_DESCRIPTOR_SIZE);
+        final Transfer transfer = request.transfer;
+        if (this.operations.submitTransfer(transfer, handle, request.buffer,
+            this.timeout) != LibUsb.SUCCESS)
+        {
+            recycle(request);
+            return false;
+        }
+        request.device = device;
+        request.fetch = fetch;
+        request.position = position;
+        this.submitted.put(transfer, request);
+        return true;
+    }
+
+    /**
+     * Keeps a request which is no longer in use for reuse. Frees its
+     * transfer instead when enough requests are idle or the service has been
+     * closed. Must be called with the lock held.
+     *
+     * @param request
+     *            The request.
+     */
+    private void recycle(final Request request)
+    {
+        request.device = null;
+        request.fetch = null;
+        if (this.closed || (this.idle.size() >= MAX_IDLE_REQUESTS))
+        {
+            this.operations.freeTransfer(request.transfer);
+        }
+        else
+        {
+            this.idle.add(request);
+        }
+    }
+
+    /**
+     * Finishes all fetches waiting for the language table of a device
+     * which could not be read. Must be called with the lock held.
+     *
+     * @param device
+     *            The device state.
+     * @param finished
+     *            Receives the finished fetches.
+     */
+    private static void languageFailed(final DeviceState device,
+        final List<Fetch> finished)
+    {
+        for (final Fetch fetch: device.waiting)
+        {
+            fetch.remaining = 0;
+            finished.add(fetch);
+        }
+        device.waiting.clear();
+    }
+
+    /**
+     * Processes a completed control transfer.
+     *
+     * @param transfer
+     *            The completed transfer.
+     */
+    void processTransfer(final Transfer transfer)
+    {
+        final boolean completed = this.operations.status(transfer)
+            == LibUsb.TRANSFER_COMPLETED;
+        final int length = this.operations.actualLength(transfer);
+        final List<Fetch> finished = new ArrayList<Fetch>(1);
+        synchronized (this)
+        {
+            final Request request = this.submitted.remove(transfer);
+            final DeviceState device = request.device;
+            final Fetch fetch = request.fetch;
+            final int position = request.position;
+            if (fetch == null)
+            {
+                final int language = completed ? selectLanguage(
+                    request.buffer, LibUsb.CONTROL_SETUP_SIZE, length,
+                    this.preferredLanguage) : 0;
+                recycle(request);
+                if (language > 0)
+                {
+                    device.language = language;
+                    final List<Fetch> waiting = new ArrayList<Fetch>(
+                        device.waiting);
+                    device.waiting.clear();
+                    for (final Fetch next: waiting)
+                    {
+                        submitStrings(device, next, finished);
+                    }
+                }
+                else
+                {
+                    languageFailed(device, finished);
+                }
+            }
+            else
+            {
+                final String string = completed ? decode(request.buffer,
+                    LibUsb.CONTROL_SETUP_SIZE, length) : null;
+                recycle(request);
+                if (string != null)
+                {
+                    fetch.strings[position] = string;
+                    device.strings.put(fetch.indices[position], string);
+                }
+                if (--fetch.remaining == 0)
+                {
+                    finished.add(fetch);
+                }
+            }
+        }
+        finish(finished);
+    }
+
+    /**
+     * Notifies the listeners of finished fetches.
+     *
+     * @param finished
+     *            The finished fetches.
+     */
+    private static void finish(final List<Fetch> finished)
+    {
+        for (final Fetch fetch: finished)
+        {
+            fetch.finish();
+        }
+    }
+
+    /**
+     * Selects the language from a language table.
+     *
+     * @param buffer
+     *            The buffer containing the language table descriptor.
+     * @param offset
+     *            The offset of the descriptor in the buffer.
+     * @param length
+     *            The number of received bytes.
+     * @param preferred
+     *            The preferred language id.
+     * @return The preferred language if supported, the first language of
+     *         the table otherwise. 0 if the table is invalid or empty.
+     */
+    static int selectLanguage(final ByteBuffer buffer, final int offset,
+        final int length, final int preferred)
+    {
+        final int size = descriptorSize(buffer, offset, length);
+        int first = 0;
+        for (int i = 2; i + 1 < size; i += 2)
+        {
+            final int language = (buffer.get(offset + i) & 0xff)
+                | ((buffer.get(offset + i + 1) & 0xff) << 8);
+            if (language == preferred)
+            {
+                return language;
+            }
+            if (first == 0)
+            {
+                first = language;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Decodes a string descriptor.
+     *
+     * @param buffer
+     *            The buffer containing the string descriptor.
+     * @param offset
+     *            The offset of the descriptor in the buffer.
+     * @param length
+     *            The number of received bytes.
+     * @return The decoded string or null if the descriptor is invalid.
+     */
+    static String decode(final ByteBuffer buffer, final int offset,
+        final int length)
+    {
+        final int size = descriptorSize(buffer, offset, length);
+        if (size < 2)
+        {
+            return null;
+        }
+        final byte[] bytes = new byte[(size - 2) & ~1];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        try
+        {
+            return new String(bytes, "UTF-16LE");
+        }
+        catch (final UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Returns the usable size of a received string descriptor.
+     *
+     * @param buffer
+     *            The buffer containing the descriptor.
+     * @param offset
+     *            The offset of the descriptor in the buffer.
+     * @param length
+     *            The number of received bytes.
+     * @return The size of the descriptor limited to the received bytes or
+     *         -1 if it is not a string descriptor.
+     */
+    private static int descriptorSize(final ByteBuffer buffer,
+        final int offset, final int length)
+    {
+        if ((length < 2) || (buffer.get(offset + 1) != LibUsb.DT_STRING))
+        {
+            return -1;
+        }
+        return Math.min(buffer.get(offset) & 0xff, length);
+    }
+}
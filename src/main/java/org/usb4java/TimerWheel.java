@@ -0,0 +1,321 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel running short tasks at {@link System#nanoTime()}
+ * deadlines.
+ *
+ * A single thread serves any number of timers. Timers are put into one of a
+ * fixed number of slots by their deadline tick, so scheduling and expiring
+ * a timer costs constant time. The thread only wakes up once per tick while
+ * timers are pending and sleeps otherwise. Tasks run at most one tick (Plus
+ * the wakeup latency of the operating system) after their deadline and
+ * are run in the timer thread, so they must not block.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class TimerWheel
+{
+    /** The default tick duration in nanoseconds. */
+    public static final long DEFAULT_TICK = 100000;
+
+    /** The default number of slots. */
+    public static final int DEFAULT_SLOTS = 512;
+
+    /** The tick duration in nanoseconds. */
+    private final long tick;
+
+    /** The mask to convert a tick number into a slot index. */
+    private final int mask;
+
+    /** The first timer of each slot. Only accessed by the timer thread. */
+    private final Timer[] slots;
+
+    /** The timers scheduled since the timer thread last looked. */
+    private final Queue<Timer> added = new ConcurrentLinkedQueue<Timer>();
+
+    /** The timer thread. */
+    private final Thread thread;
+
+    /** The start time of the wheel. */
+    private long startTime;
+
+    /** The last processed tick. */
+    private long lastTick;
+
+    /** The number of timers in the slots. */
+    private int pending;
+
+    /** If the wheel has been started. */
+    private boolean started;
+
+    /** If the wheel has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * A scheduled task.
+     */
+    private static final class Timer
+    {
+        /** The task. */
+        final Runnable task;
+
+        /** The deadline. */
+        final long deadline;
+
+        /** The next timer in the same slot. */
+        Timer next;
+
+        /**
+         * Constructs a new timer.
+         *
+         * @param task
+         *            The task.
+         * @param deadline
+         *            The deadline.
+         */
+        Timer(final Runnable task, final long deadline)
+        {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * Constructs a new timer wheel with default tick duration and number of
+     * slots.
+     */
+    public TimerWheel()
+    {
+        this(DEFAULT_TICK, DEFAULT_SLOTS);
+    }
+
+    /**
+     * Constructs a new timer wheel.
+     *
+     * @param tick
+     *            The tick duration in nanoseconds. Must be positive.
+     * @param slots
+     *            The number of slots. Must be a power of two.
+     */
+    public TimerWheel(final long tick, final int slots)
+    {
+        if (tick <= 0)
+        {
+            throw new IllegalArgumentException("tick must be positive");
+        }
+        if ((slots <= 0) || ((slots & (slots - 1)) != 0))
+        {
+            throw new IllegalArgumentException(
+                "slots must be a power of two");
+        }
+        this.tick = tick;
+        this.mask = slots - 1;
+        this.slots = new Timer[slots];
+        this.thread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                loop();
+            }
+        }, "usb4java timer wheel");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Returns the tick duration.
+     *
+     * @return The tick duration in nanoseconds.
+     */
+    public long getTick()
+    {
+        return this.tick;
+    }
+
+    /**
+     * Starts the timer thread.
+     */
+    public synchronized void start()
+    {
+        if (this.started)
+        {
+            throw new IllegalStateException("Timer wheel is already started");
+        }
+        this.started = true;
+        this.thread.start();
+    }
+
+    /**
+     * Stops the timer thread. Pending timers are discarded, so users of the
+     * wheel (Like a {@link RateLimiter}) must be closed first.
+     *
+     * @throws InterruptedException
+     *             When interrupted while waiting for the timer thread.
+     */
+    public synchronized void close() throws InterruptedException
+    {
+        if (!this.started || this.closed)
+        {
+            throw new IllegalStateException("Timer wheel is not running");
+        }
+        this.closed = true;
+        LockSupport.unpark(this.thread);
+        this.thread.join();
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task
+     *            The task to run.
+     * @param deadline
+     *            The time as returned by {@link System#nanoTime()} at which
+     *            the task is run. Tasks with a deadline in the past are run
+     *            with the next tick.
+     * @throws IllegalStateException
+     *             When the wheel has been closed.
+     */
+    public void schedule(final Runnable task, final long deadline)
+    {
+        if (task == null)
+        {
+            throw new IllegalArgumentException("task must not be null");
+        }
+        if (this.closed)
+        {
+            throw new IllegalStateException("Timer wheel has been closed");
+        }
+        this.added.add(new Timer(task, deadline));
+        LockSupport.unpark(this.thread);
+    }
+
+    /**
+     * Returns the tick of the specified time.
+     *
+     * @param time
+     *            The time.
+     * @return The tick.
+     */
+    private long tickOf(final long time)
+    {
+        return (time - this.startTime) / this.tick;
+    }
+
+    /**
+     * Main loop of the timer thread.
+     */
+    private void loop()
+    {
+        this.startTime = System.nanoTime();
+        while (!this.closed)
+        {
+            long now = System.nanoTime();
+            if (this.pending == 0)
+            {
+                // Nothing to expire while idle so skip the idle ticks
+                this.lastTick = tickOf(now);
+            }
+            Timer timer;
+            while ((timer = this.added.poll()) != null)
+            {
+                final long deadlineTick = (timer.deadline - this.startTime
+                    + this.tick - 1) / this.tick;
+                final long slot = Math.max(deadlineTick, this.lastTick + 1);
+                final int index = (int) slot & this.mask;
+                timer.next = this.slots[index];
+                this.slots[index] = timer;
+                this.pending++;
+            }
+            if (this.pending == 0)
+            {
+                LockSupport.park(this);
+                continue;
+            }
+            final long nextTime = this.startTime
+                + (this.lastTick + 1) * this.tick;
+            if (nextTime - now > 0)
+            {
+                LockSupport.parkNanos(this, nextTime - now);
+                now = System.nanoTime();
+                if (nextTime - now > 0)
+                {
+                    // Woken up early by a new timer or spuriously
+                    continue;
+                }
+            }
+            final long currentTick = tickOf(now);
+            final long ticks = Math.min(currentTick - this.lastTick,
+                this.slots.length);
+            for (long i = 1; i <= ticks; i++)
+            {
+                expire((int) (this.lastTick + i) & this.mask, now);
+            }
+            this.lastTick = currentTick;
+        }
+    }
+
+    /**
+     * Runs and removes the expired timers of a slot.
+     *
+     * @param index
+     *            The slot index.
+     * @param now
+     *            The current time.
+     */
+    private void expire(final int index, final long now)
+    {
+        Timer previous = null;
+        Timer timer = this.slots[index];
+        while (timer != null)
+        {
+            final Timer next = timer.next;
+            if (timer.deadline - now <= 0)
+            {
+                if (previous == null)
+                {
+                    this.slots[index] = next;
+                }
+                else
+                {
+                    previous.next = next;
+                }
+                this.pending--;
+                run(timer.task);
+            }
+            else
+            {
+                previous = timer;
+            }
+            timer = next;
+        }
+    }
+
+    /**
+     * Runs a task. Exceptions are reported to the uncaught exception
+     * handler of the timer thread without stopping it.
+     *
+     * @param task
+     *            The task to run.
+     */
+    private void run(final Runnable task)
+    {
+        try
+        {
+            task.run();
+        }
+        catch (final RuntimeException e)
+        {
+            this.thread.getUncaughtExceptionHandler().uncaughtException(
+                this.thread, e);
+        }
+    }
+}
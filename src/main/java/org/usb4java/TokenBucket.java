@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Token bucket calculating when data may be sent to stay within a rate.
+ *
+ * This is implemented as generic cell rate algorithm: Instead of counting
+ * tokens the bucket keeps the theoretical time at which all reserved data
+ * has been sent at the configured rate. Data may be sent as soon as this
+ * time is less than the burst tolerance ahead of the current time. All
+ * times are {@link System#nanoTime()} values and the remainders of the
+ * divisions are carried over, so the long-term rate is exact no matter how
+ * late the data is actually sent.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class TokenBucket
+{
+    /** Nanoseconds per second. */
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    /** The rate in bytes per second. */
+    private long bytesPerSecond;
+
+    /** The burst size in bytes. */
+    private long burst;
+
+    /** The burst tolerance in nanoseconds. */
+    private long tolerance;
+
+    /** The theoretical time at which all reserved data has been sent. */
+    private long theoreticalTime;
+
+    /** The remainder of the last interval calculation. */
+    private long remainder;
+
+    /** If the theoretical time has been initialized. */
+    private boolean initialized;
+
+    /**
+     * Constructs a new token bucket.
+     *
+     * @param bytesPerSecond
+     *            The rate in bytes per second.
+     * @param burst
+     *            The number of bytes which may be sent at once after an idle
+     *            period.
+     */
+    public TokenBucket(final long bytesPerSecond, final long burst)
+    {
+        setRate(bytesPerSecond, burst);
+    }
+
+    /**
+     * Changes the rate. Reservations already made are not changed.
+     *
+     * @param bytesPerSecond
+     *            The rate in bytes per second. Must be positive.
+     * @param burst
+     *            The number of bytes which may be sent at once after an idle
+     *            period. Must not be negative.
+     */
+    public synchronized void setRate(final long bytesPerSecond,
+        final long burst)
+    {
+        if (bytesPerSecond <= 0)
+        {
+            throw new IllegalArgumentException(
+                "bytesPerSecond must be positive");
+        }
+        if (burst < 0)
+        {
+            throw new IllegalArgumentException("burst must not be negative");
+        }
+        if (burst > Long.MAX_VALUE / NANOS_PER_SECOND)
+        {
+            throw new IllegalArgumentException("burst is too large");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.burst = burst;
+        this.tolerance = burst * NANOS_PER_SECOND / bytesPerSecond;
+        this.remainder = 0;
+    }
+
+    /**
+     * Returns the rate.
+     *
+     * @return The rate in bytes per second.
+     */
+    public synchronized long getBytesPerSecond()
+    {
+        return this.bytesPerSecond;
+    }
+
+    /**
+     * Returns the burst size.
+     *
+     * @return The burst size in bytes.
+     */
+    public synchronized long getBurst()
+    {
+        return this.burst;
+    }
+
+    /**
+     * Reserves the specified number of bytes and returns when they may be
+     * sent. Reservations are granted in call order, so the returned release
+     * times never decrease.
+     *
+     * @param bytes
+     *            The number of bytes to send.
+     * @param now
+     *            The current time as returned by {@link System#nanoTime()}.
+     * @return The time in nanoseconds to wait before sending. 0 to send
+     *         right away.
+     */
+    public synchronized long reserve(final int bytes, final long now)
+    {
+        if (bytes < 0)
+        {
+            throw new IllegalArgumentException("bytes must not be negative");
+        }
+        if (!this.initialized)
+        {
+            this.theoreticalTime = now;
+            this.initialized = true;
+        }
+        final long earliest = this.theoreticalTime - this.tolerance;
+        final long release = earliest - now > 0 ? earliest : now;
+        if (release - this.theoreticalTime > 0)
+        {
+            this.theoreticalTime = release;
+        }
+        final long total = bytes * NANOS_PER_SECOND + this.remainder;
+        this.theoreticalTime += total / this.bytesPerSecond;
+        this.remainder = total % this.bytesPerSecond;
+        return release - now;
+    }
+
+    /**
+     * Returns reserved bytes which were not sent, for example because the
+     * transfer failed or was cancelled. Later reservations may be sent
+     * earlier then. Release times already returned are not changed.
+     *
+     * @param bytes
+     *            The number of reserved bytes which were not sent.
+     */
+    public synchronized void refund(final int bytes)
+    {
+        if (bytes < 0)
+        {
+            throw new IllegalArgumentException("bytes must not be negative");
+        }
+        final long total = bytes * NANOS_PER_SECOND;
+        this.theoreticalTime -= total / this.bytesPerSecond;
+        this.remainder -= total % this.bytesPerSecond;
+        if (this.remainder < 0)
+        {
+            this.remainder += this.bytesPerSecond;
+            this.theoreticalTime--;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads usbmon pcap traces as written by {@link TransferTracer} or by
+ * capturing usbmon interfaces on Linux.
+ *
+ * Both usbmon link types (189 with 48 byte headers and 220 with 64 byte
+ * headers), both byte orders and microsecond as well as nanosecond
+ * timestamps are supported.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class TraceReader
+{
+    /** The pcap magic for microsecond timestamps. */
+    private static final int MAGIC_MICROS = 0xa1b2c3d4;
+
+    /** The pcap magic for nanosecond timestamps. */
+    private static final int MAGIC_NANOS = 0xa1b23c4d;
+
+    /** The link type of usbmon captures with 64 byte headers. */
+    private static final int LINKTYPE_USB_LINUX_MMAPPED = 220;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private TraceReader()
+    {
+        // Empty
+    }
+
+    /**
+     * Reads all records of a trace. The stream is not closed.
+     *
+     * @param in
+     *            The input stream to read the pcap data from.
+     * @return The records in the order of the trace.
+     * @throws IOException
+     *             When reading failed or the data is not a usbmon pcap
+     *             trace.
+     */
+    public static List<TraceRecord> read(final InputStream in)
+        throws IOException
+    {
+        final DataInputStream input = new DataInputStream(in);
+        final byte[] headerBytes = new byte[24];
+        input.readFully(headerBytes);
+        final ByteBuffer header = ByteBuffer.wrap(headerBytes).order(
+            ByteOrder.LITTLE_ENDIAN);
+        int magic = header.getInt(0);
+        if ((magic != MAGIC_MICROS) && (magic != MAGIC_NANOS))
+        {
+            header.order(ByteOrder.BIG_ENDIAN);
+            magic = header.getInt(0);
+        }
+        if ((magic != MAGIC_MICROS) && (magic != MAGIC_NANOS))
+        {
+            throw new IOException("Not a pcap file");
+        }
+        final boolean nanos = magic == MAGIC_NANOS;
+        final int linkType = header.getInt(20);
+        final int headerSize;
+        if (linkType == TransferTracer.LINKTYPE_USB_LINUX)
+        {
+            headerSize = 48;
+        }
+        else if (linkType == LINKTYPE_USB_LINUX_MMAPPED)
+        {
+            headerSize = 64;
+        }
+        else
+        {
+            throw new IOException("Unsupported link type: " + linkType);
+        }
+        final List<TraceRecord> records = new ArrayList<TraceRecord>();
+        final byte[] recordHeaderBytes = new byte[16];
+        final ByteBuffer recordHeader = ByteBuffer.wrap(recordHeaderBytes)
+            .order(header.order());
+        while (true)
+        {
+            try
+            {
+                input.readFully(recordHeaderBytes);
+            }
+            catch (final EOFException e)
+            {
+                return records;
+            }
+            final long seconds = recordHeader.getInt(0) & 0xffffffffL;
+            final long fraction = recordHeader.getInt(4) & 0xffffffffL;
+            final int size = recordHeader.getInt(8);
+            if (size < headerSize)
+            {
+                throw new IOException("Truncated usbmon header");
+            }
+            final byte[] bytes = new byte[size];
+            input.readFully(bytes);
+            final ByteBuffer packet = ByteBuffer.wrap(bytes).order(
+                header.order());
+            final byte[] setup;
+            if (packet.get(14) == 0)
+            {
+                setup = new byte[LibUsb.CONTROL_SETUP_SIZE];
+                packet.position(40);
+                packet.get(setup);
+            }
+            else
+            {
+                setup = null;
+            }
+            final int captured = Math.min(packet.getInt(36),
+                size - headerSize);
+            final byte[] data = new byte[Math.max(captured, 0)];
+            packet.position(headerSize);
+            packet.get(data);
+            records.add(new TraceRecord(packet.getLong(0), packet.get(8),
+                packet.get(9), packet.get(10), packet.get(11) & 0xff,
+                packet.getShort(12) & 0xffff, seconds * 1000000
+                    + (nanos ? fraction / 1000 : fraction),
+                packet.getInt(28), packet.getInt(32), setup, data));
+        }
+    }
+}
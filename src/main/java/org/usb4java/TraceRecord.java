@@ -0,0 +1,235 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * A single usbmon event read from a pcap trace by {@link TraceReader}.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class TraceRecord
+{
+    /** Event type of a submission. */
+    public static final byte SUBMIT = 'S';
+
+    /** Event type of a completion. */
+    public static final byte CALLBACK = 'C';
+
+    /** Event type of a submission error. */
+    public static final byte ERROR = 'E';
+
+    /** The URB id. */
+    private final long id;
+
+    /** The event type. */
+    private final byte type;
+
+    /** The usbmon transfer type. */
+    private final byte transferType;
+
+    /** The endpoint address. */
+    private final byte endpoint;
+
+    /** The device address. */
+    private final int deviceAddress;
+
+    /** The bus number. */
+    private final int busNumber;
+
+    /** The timestamp in microseconds. */
+    private final long timestamp;
+
+    /** The usbmon status. */
+    private final int status;
+
+    /** The URB length. */
+    private final int length;
+
+    /** The setup packet. Null if not present. */
+    private final byte[] setup;
+
+    /** The captured data. */
+    private final byte[] data;
+
+    /**
+     * Constructs a new trace record.
+     *
+     * @param id
+     *            The URB id.
+     * @param type
+     *            The event type.
+     * @param transferType
+     *            The usbmon transfer type.
+     * @param endpoint
+     *            The endpoint address.
+     * @param deviceAddress
+     *            The device address.
+     * @param busNumber
+     *            The bus number.
+     * @param timestamp
+     *            The timestamp in microseconds.
+     * @param status
+     *            The usbmon status.
+     * @param length
+     *            The URB length.
+     * @param setup
+     *            The setup packet. Null if not present.
+     * @param data
+     *            The captured data.
+     */
+    TraceRecord(final long id, final byte type, final byte transferType,
+        final byte endpoint, final int deviceAddress, final int busNumber,
+        final long timestamp, final int status, final int length,
+        final byte[] setup, final byte[] data)
+    {
+        this.id = id;
+        this.type = type;
+        this.transferType = transferType;
+        this.endpoint = endpoint;
+        this.deviceAddress = deviceAddress;
+        this.busNumber = busNumber;
+        this.timestamp = timestamp;
+        this.status = status;
+        this.length = length;
+        this.setup = setup;
+        this.data = data;
+    }
+
+    /**
+     * Returns the URB id. Submission and completion of a transfer share the
+     * same id.
+     *
+     * @return The URB id.
+     */
+    public long getId()
+    {
+        return this.id;
+    }
+
+    /**
+     * Returns the event type.
+     *
+     * @return {@link #SUBMIT}, {@link #CALLBACK} or {@link #ERROR}.
+     */
+    public byte getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * Returns the usbmon transfer type.
+     *
+     * @return 0 for isochronous, 1 for interrupt, 2 for control and 3 for
+     *         bulk transfers.
+     */
+    public byte getTransferType()
+    {
+        return this.transferType;
+    }
+
+    /**
+     * Returns the endpoint address including the direction bit.
+     *
+     * @return The endpoint address.
+     */
+    public byte getEndpoint()
+    {
+        return this.endpoint;
+    }
+
+    /**
+     * Returns the address of the device on its bus.
+     *
+     * @return The device address.
+     */
+    public int getDeviceAddress()
+    {
+        return this.deviceAddress;
+    }
+
+    /**
+     * Returns the number of the bus the device is connected to.
+     *
+     * @return The bus number.
+     */
+    public int getBusNumber()
+    {
+        return this.busNumber;
+    }
+
+    /**
+     * Returns the timestamp.
+     *
+     * @return The timestamp in microseconds since the epoch.
+     */
+    public long getTimestamp()
+    {
+        return this.timestamp;
+    }
+
+    /**
+     * Returns the usbmon status.
+     *
+     * @return The status. 0 on success, a negated Linux errno value
+     *         otherwise.
+     */
+    public int getStatus()
+    {
+        return this.status;
+    }
+
+    /**
+     * Returns the URB length. For submissions this is the requested length,
+     * for completions the actually transferred length.
+     *
+     * @return The URB length.
+     */
+    public int getLength()
+    {
+        return this.length;
+    }
+
+    /**
+     * Returns the setup packet of a control transfer submission.
+     *
+     * @return The setup packet or null if not present.
+     */
+    public byte[] getSetup()
+    {
+        return this.setup == null ? null : this.setup.clone();
+    }
+
+    /**
+     * Returns the captured data. May be shorter than the URB length when the
+     * payload was truncated.
+     *
+     * @return The captured data.
+     */
+    public byte[] getData()
+    {
+        return this.data.clone();
+    }
+
+    /**
+     * Returns the setup packet without copying it.
+     *
+     * @return The setup packet or null if not present.
+     */
+    byte[] setup()
+    {
+        return this.setup;
+    }
+
+    /**
+     * Returns the captured data without copying it.
+     *
+     * @return The captured data.
+     */
+    byte[] data()
+    {
+        return this.data;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * A traffic class of a {@link TransferScheduler}.
+ *
+ * Classes with a higher priority are always served first. Classes with the
+ * same priority share the bandwidth in proportion to their weights. The
+ * number of transfers of a class in flight can be limited so a class can't
+ * fill the host controller queues and delay the transfers of other classes.
+ *
+ * All state is guarded by the lock of the scheduler.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class TrafficClass
+{
+    /** The scheduler this class belongs to. */
+    private final TransferScheduler scheduler;
+
+    /** The name of the class. */
+    private final String name;
+
+    /** The priority. Higher values are served first. */
+    private final int priority;
+
+    /** The weight for sharing bandwidth within the same priority. */
+    private final int weight;
+
+    /** The maximum number of transfers in flight. 0 for unlimited. */
+    private final int maxInFlight;
+
+    /** The queued requests. */
+    final Queue<TransferScheduler.Request> queue =
+        new ArrayDeque<TransferScheduler.Request>();
+
+    /** The virtual time of the priority level of this class. */
+    double virtualTime;
+
+    /** The virtual finish time of the last queued request. */
+    double lastFinish;
+
+    /** The number of transfers in flight. */
+    int inFlight;
+
+    /** The number of submitted transfers. */
+    long submitted;
+
+    /** The number of submitted bytes. */
+    long submittedBytes;
+
+    /** The sum of the queueing delays in nanoseconds. */
+    long totalWaitNanos;
+
+    /** The largest queueing delay in nanoseconds. */
+    long maxWaitNanos;
+
+    /**
+     * Constructs a new traffic class.
+     *
+     * @param scheduler
+     *            The scheduler.
+     * @param name
+     *            The name of the class.
+     * @param priority
+     *            The priority.
+     * @param weight
+     *            The weight.
+     * @param maxInFlight
+     *            The maximum number of transfers in flight. 0 for unlimited.
+     */
+    TrafficClass(final TransferScheduler scheduler, final String name,
+        final int priority, final int weight, final int maxInFlight)
+    {
+        this.scheduler = scheduler;
+        this.name = name;
+        this.priority = priority;
+        this.weight = weight;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Returns the name of the class.
+     *
+     * @return The name.
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Returns the priority of the class.
+     *
+     * @return The priority. Higher values are served first.
+     */
+    public int getPriority()
+    {
+        return this.priority;
+    }
+
+    /**
+     * Returns the weight of the class.
+     *
+     * @return The weight.
+     */
+    public int getWeight()
+    {
+        return this.weight;
+    }
+
+    /**
+     * Returns the maximum number of transfers in flight.
+     *
+     * @return The maximum number of transfers in flight. 0 for unlimited.
+     */
+    public int getMaxInFlight()
+    {
+        return this.maxInFlight;
+    }
+
+    /**
+     * Checks if another transfer of this class may be submitted.
+     *
+     * @return True if the in-flight limit is not reached.
+     */
+    boolean canSubmit()
+    {
+        return (this.maxInFlight == 0) || (this.inFlight < this.maxInFlight);
+    }
+
+    /**
+     * Returns the number of queued transfers.
+     *
+     * @return The number of queued transfers.
+     */
+    public int getQueued()
+    {
+        synchronized (this.scheduler)
+        {
+            return this.queue.size();
+        }
+    }
+
+    /**
+     * Returns the number of transfers in flight.
+     *
+     * @return The number of transfers in flight.
+     */
+    public int getInFlight()
+    {
+        synchronized (this.scheduler)
+        {
+            return this.inFlight;
+        }
+    }
+
+    /**
+     * Returns the number of submitted transfers.
+     *
+     * @return The number of submitted transfers.
+     */
+    public long getSubmitted()
+    {
+        synchronized (this.scheduler)
+        {
+            return this.submitted;
+        }
+    }
+
+    /**
+     * Returns the number of submitted bytes.
+     *
+     * @return The number of submitted bytes.
+     */
+    public long getSubmittedBytes()
+    {
+        synchronized (this.scheduler)
+        {
+            return this.submittedBytes;
+        }
+    }
+
+    /**
+     * Returns the average time transfers waited in the queue before they
+     * were submitted.
+     *
+     * @return The average queueing delay in nanoseconds.
+     */
+    public long getAverageWaitNanos()
+    {
+        synchronized (this.scheduler)
+        {
+            return this.submitted == 0 ? 0
+                : this.totalWaitNanos / this.submitted;
+        }
+    }
+
+    /**
+     * Returns the longest time a transfer waited in the queue before it was
+     * submitted.
+     *
+     * @return The largest queueing delay in nanoseconds.
+     */
+    public long getMaxWaitNanos()
+    {
+        synchronized (this.scheduler)
+        {
+            return this.maxWaitNanos;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.name;
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schedules the submission of asynchronous transfers by priority and
+ * weighted fair queueing.
+ *
+ * Transfers are submitted to the scheduler instead of
+ * {@link LibUsb#submitTransfer(Transfer)}. Each endpoint is assigned to a
+ * {@link TrafficClass}, endpoints not assigned explicitly use the default
+ * class. When a class may submit another transfer (Its in-flight limit and
+ * the overall in-flight limit of the scheduler are not reached) the queued
+ * transfer is submitted right away. Otherwise it is queued until a transfer
+ * completes.
+ *
+ * When a slot becomes free the queued transfer of the class with the
+ * highest priority is submitted first. Classes with the same priority are
+ * served in the order of the virtual finish times of their transfers
+ * (Self-clocked fair queueing), so they share the bandwidth in proportion to
+ * their weights no matter how large their transfers are. A bulk class with a
+ * low in-flight limit can't fill the host controller queue, so a control
+ * transfer in a class with higher priority only waits for the transfers
+ * already in flight.
+ *
+ * The scheduler is the libusb callback of the transfers it submits and
+ * calls the {@link ScheduledTransferCallback} passed on submission when a
+ * transfer is retired. Events must be handled as usual.
+ *
+ * Typical usage:
+ *
+ * <pre>
+ * final TransferScheduler scheduler = new TransferScheduler(16);
+ * scheduler.assign((byte) 0,
+ *     scheduler.createClass("control", 10, 1, 0));
+ * scheduler.assign((byte) 0x81,
+ *     scheduler.createClass("events", 5, 1, 0));
+ * scheduler.assign((byte) 0x02,
+ *     scheduler.createClass("upload", 0, 1, 2));
+ * scheduler.submit(transfer, callback);
+ * </pre>
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class TransferScheduler implements TransferCallback
+{
+    /** The maximum number of transfers in flight. 0 for unlimited. */
+    private final int maxInFlight;
+
+    /** The traffic classes ordered by descending priority. */
+    private final List<TrafficClass> classes = new ArrayList<TrafficClass>();
+
+    /** The default traffic class. */
+    private final TrafficClass defaultClass;
+
+    /** The traffic classes indexed by endpoint address. */
+    private final TrafficClass[] endpointClasses = new TrafficClass[256];
+
+    /** The requests in flight. */
+    private final Map<Transfer, Request> requests =
+        new HashMap<Transfer, Request>();
+
+    /** The number of transfers in flight. */
+    private int inFlight;
+
+    /**
+     * A queued or submitted transfer.
+     */
+    static final class Request
+    {
+        /** The transfer. */
+        final Transfer transfer;
+
+        /** The transfer length used for fair queueing. */
+        final int length;
+
+        /** The traffic class. */
+        final TrafficClass trafficClass;
+
+        /** The callback. */
+        final ScheduledTransferCallback callback;
+
+        /** The virtual finish time. */
+        final double finish;
+
+        /** The time the request was queued. */
+        final long queueTime;
+
+        /** The ERROR code if the transfer could not be submitted. */
+        int failure;
+
+        /**
+         * Constructs a new request.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param length
+         *            The transfer length.
+         * @param trafficClass
+         *            The traffic class.
+         * @param callback
+         *            The callback.
+         * @param finish
+         *            The virtual finish time.
+         * @param queueTime
+         *            The time the request was queued.
+         */
+        Request(final Transfer transfer, final int length,
+            final TrafficClass trafficClass,
+            final ScheduledTransferCallback callback, final double finish,
+            final long queueTime)
+        {
+            this.transfer = transfer;
+            this.length = length;
+            this.trafficClass = trafficClass;
+            this.callback = callback;
+            this.finish = finish;
+            this.queueTime = queueTime;
+        }
+    }
+
+    /**
+     * Constructs a new scheduler without an overall in-flight limit.
+     */
+    public TransferScheduler()
+    {
+        this(0);
+    }
+
+    /**
+     * Constructs a new scheduler.
+     *
+     * @param maxInFlight
+     *            The maximum number of transfers in flight over all classes.
+     *            0 for unlimited.
+     */
+    public TransferScheduler(final int maxInFlight)
+    {
+        if (maxInFlight < 0)
+        {
+            throw new IllegalArgumentException(
+                "maxInFlight must not be negative");
+        }
+        this.maxInFlight = maxInFlight;
+        this.defaultClass = createClass("default", 0, 1, 0);
+    }
+
+    /**
+     * Returns the maximum number of transfers in flight over all classes.
+     *
+     * @return The maximum number of transfers in flight. 0 for unlimited.
+     */
+    public int getMaxInFlight()
+    {
+        return this.maxInFlight;
+    }
+
+    /**
+     * Creates a new traffic class.
+     *
+     * @param name
+     *            The name of the class.
+     * @param priority
+     *            The priority. Classes with higher values are served first.
+     * @param weight
+     *            The weight for sharing the bandwidth with the other classes
+     *            of the same priority. Must be positive.
+     * @param maxInFlight
+     *            The maximum number of transfers of the class in flight. 0
+     *            for unlimited.
+     * @return The new class.
+     */
+    public synchronized TrafficClass createClass(final String name,
+        final int priority, final int weight, final int maxInFlight)
+    {
+        if (name == null)
+        {
+            throw new IllegalArgumentException("name must not be null");
+        }
+        if (weight <= 0)
+        {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        if (maxInFlight < 0)
+        {
+            throw new IllegalArgumentException(
+                "maxInFlight must not be negative");
+        }
+        final TrafficClass trafficClass = new TrafficClass(this, name,
+            priority, weight, maxInFlight);
+        int index = 0;
+        while ((index < this.classes.size())
+            && (this.classes.get(index).getPriority() >= priority))
+        {
+            final TrafficClass other = this.classes.get(index);
+            if (other.getPriority() == priority)
+            {
+                // Join the virtual time of the priority level
+                trafficClass.virtualTime = other.virtualTime;
+            }
+            index++;
+        }
+        this.classes.add(index, trafficClass);
+        return trafficClass;
+    }
+
+    /**
+     * Returns the default traffic class used for endpoints which are not
+     * assigned to a class.
+     *
+     * @return The default class.
+     */
+    public TrafficClass getDefaultClass()
+    {
+        return this.defaultClass;
+    }
+
+    /**
+     * Assigns an endpoint to a traffic class. Only affects transfers
+     * submitted afterwards.
+     *
+     * @param endpoint
+     *            The endpoint address. 0 for control transfers.
+     * @param trafficClass
+     *            The traffic class. Null for the default class.
+     */
+    public synchronized void assign(final byte endpoint,
+        final TrafficClass trafficClass)
+    {
+        if ((trafficClass != null) && !this.classes.contains(trafficClass))
+        {
+            throw new IllegalArgumentException(
+                "trafficClass belongs to another scheduler");
+        }
+        this.endpointClasses[endpoint & 0xff] = trafficClass;
+    }
+
+    /**
+     * Returns the traffic class of an endpoint.
+     *
+     * @param endpoint
+     *            The endpoint address.
+     * @return The traffic class.
+     */
+    public synchronized TrafficClass getTrafficClass(final byte endpoint)
+    {
+        final TrafficClass trafficClass =
+            this.endpointClasses[endpoint & 0xff];
+        return trafficClass == null ? this.defaultClass : trafficClass;
+    }
+
+    /**
+     * Returns the number of transfers in flight.
+     *
+     * @return The number of transfers in flight.
+     */
+    public synchronized int getInFlight()
+    {
+        return this.inFlight;
+    }
+
+    /**
+     * Returns the number of queued transfers.
+     *
+     * @return The number of queued transfers.
+     */
+    public synchronized int getQueued()
+    {
+        int queued = 0;
+        for (final TrafficClass trafficClass: this.classes)
+        {
+            queued += trafficClass.queue.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Submits a transfer now or as soon as its traffic class is due. The
+     * callback of the transfer is set to this scheduler. The transfer must
+     * be completely filled and must not be modified until it is retired.
+     *
+     * @param transfer
+     *            The transfer to submit.
+     * @param callback
+     *            The callback to call when the transfer is retired.
+     * @return {@link LibUsb#SUCCESS} if the transfer was submitted or
+     *         queued, or the ERROR code of
+     *         {@link LibUsb#submitTransfer(Transfer)} if it was submitted
+     *         right away and failed. The callback is not called in this case.
+     */
+    public int submit(final Transfer transfer,
+        final ScheduledTransferCallback callback)
+    {
+        if (transfer == null)
+        {
+            throw new IllegalArgumentException("transfer must not be null");
+        }
+        if (callback == null)
+        {
+            throw new IllegalArgumentException("callback must not be null");
+        }
+        transfer.setCallback(this);
+        final Request request;
+        final List<Request> failed = new ArrayList<Request>(0);
+        int result = LibUsb.SUCCESS;
+        synchronized (this)
+        {
+            request = enqueue(transfer, transfer.endpoint(),
+                transfer.length(), callback);
+            dispatch(failed);
+            if (failed.remove(request))
+            {
+                result = request.failure;
+            }
+        }
+        notifyFailed(failed);
+        return result;
+    }
+
+    /**
+     * Cancels a transfer. A queued transfer is removed from the queue and
+     * its callback is called with {@link LibUsb#ERROR_INTERRUPTED}. A
+     * transfer in flight is cancelled with
+     * {@link LibUsb#cancelTransfer(Transfer)}.
+     *
+     * @param transfer
+     *            The transfer to cancel.
+     * @return {@link LibUsb#SUCCESS} on success, {@link LibUsb#ERROR_NOT_FOUND}
+     *         if the transfer is not known to the scheduler or already
+     *         complete, or another ERROR code of
+     *         {@link LibUsb#cancelTransfer(Transfer)}.
+     */
+    public int cancel(final Transfer transfer)
+    {
+        Request cancelled = null;
+        synchronized (this)
+        {
+            if (this.requests.containsKey(transfer))
+            {
+                return LibUsb.cancelTransfer(transfer);
+            }
+            for (final TrafficClass trafficClass: this.classes)
+            {
+                final Iterator<Request> iterator =
+                    trafficClass.queue.iterator();
+                while (iterator.hasNext())
+                {
+                    final Request request = iterator.next();
+                    if (request.transfer.equals(transfer))
+                    {
+                        iterator.remove();
+                        cancelled = request;
+                        break;
+                    }
+                }
+            }
+        }
+        if (cancelled == null)
+        {
+            return LibUsb.ERROR_NOT_FOUND;
+        }
+        cancelled.callback.processTransfer(transfer,
+            LibUsb.ERROR_INTERRUPTED);
+        return LibUsb.SUCCESS;
+    }
+
+    /**
+     * Queues a request. Must be called with the lock held.
+     *
+     * @param transfer
+     *            The transfer.
+     * @param endpoint
+     *            The endpoint address of the transfer.
+     * @param length
+     *            The length of the transfer.
+     * @param callback
+     *            The callback.
+     * @return The queued request.
+     */
+    Request enqueue(final Transfer transfer, final byte endpoint,
+        final int length, final ScheduledTransferCallback callback)
+    {
+        final TrafficClass trafficClass = getTrafficClass(endpoint);
+        final double start = Math.max(trafficClass.virtualTime,
+            trafficClass.lastFinish);
+        final double finish = start
+            + (double) Math.max(length, 1) / trafficClass.getWeight();
+        trafficClass.lastFinish = finish;
+        final Request request = new Request(transfer, length, trafficClass,
+            callback, finish, System.nanoTime());
+        trafficClass.queue.add(request);
+        return request;
+    }
+
+    /**
+     * Removes the next request to submit from its queue and counts it as
+     * being in flight. Must be called with the lock held.
+     *
+     * @return The next request or null if no request may be submitted now.
+     */
+    Request next()
+    {
+        if ((this.maxInFlight != 0) && (this.inFlight >= this.maxInFlight))
+        {
+            return null;
+        }
+        TrafficClass best = null;
+        for (final TrafficClass trafficClass: this.classes)
+        {
+            if ((best != null)
+                && (trafficClass.getPriority() < best.getPriority()))
+            {
+                break;
+            }
+            final Request head = trafficClass.queue.peek();
+            if ((head != null) && trafficClass.canSubmit() && ((best == null)
+                || (head.finish < best.queue.peek().finish)))
+            {
+                best = trafficClass;
+            }
+        }
+        if (best == null)
+        {
+            return null;
+        }
+        final Request request = best.queue.poll();
+        for (final TrafficClass trafficClass: this.classes)
+        {
+            if (trafficClass.getPriority() == best.getPriority())
+            {
+                trafficClass.virtualTime = request.finish;
+            }
+        }
+        final long wait = System.nanoTime() - request.queueTime;
+        best.inFlight++;
+        best.submitted++;
+        best.submittedBytes += request.length;
+        best.totalWaitNanos += wait;
+        best.maxWaitNanos = Math.max(best.maxWaitNanos, wait);
+        this.inFlight++;
+        return request;
+    }
+
+    /**
+     * Counts a request as no longer being in flight. Must be called with
+     * the lock held.
+     *
+     * @param request
+     *            The retired request.
+     */
+    void retire(final Request request)
+    {
+        request.trafficClass.inFlight--;
+        this.inFlight--;
+    }
+
+    /**
+     * Submits queued transfers as long as the limits allow it. Must be
+     * called with the lock held.
+     *
+     * @param failed
+     *            The list to add requests to which could not be submitted.
+     */
+    private void dispatch(final List<Request> failed)
+    {
+        Request request;
+        while ((request = next()) != null)
+        {
+            final int result = LibUsb.submitTransfer(request.transfer);
+            if (result == LibUsb.SUCCESS)
+            {
+                this.requests.put(request.transfer, request);
+            }
+            else
+            {
+                retire(request);
+                request.failure = result;
+                failed.add(request);
+            }
+        }
+    }
+
+    /**
+     * Calls the callbacks of requests which could not be submitted. Must be
+     * called without holding the lock.
+     *
+     * @param failed
+     *            The failed requests.
+     */
+    private static void notifyFailed(final List<Request> failed)
+    {
+        for (final Request request: failed)
+        {
+            request.callback.processTransfer(request.transfer,
+                request.failure);
+        }
+    }
+
+    /**
+     * Retires a completed transfer, submits queued transfers and calls the
+     * callback. Called by libusb.
+     *
+     * @param transfer
+     *            The completed transfer.
+     */
+    @Override
+    public void processTransfer(final Transfer transfer)
+    {
+        final Request request;
+        final List<Request> failed = new ArrayList<Request>(0);
+        synchronized (this)
+        {
+            request = this.requests.remove(transfer);
+            if (request == null)
+            {
+                return;
+            }
+            retire(request);
+            dispatch(failed);
+        }
+        request.callback.processTransfer(transfer, LibUsb.SUCCESS);
+        notifyFailed(failed);
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Table of transfers which keeps the callback and user data of each
+ * transfer on the Java side.
+ *
+ * {@link Transfer#setCallback(TransferCallback)} and
+ * {@link Transfer#setUserData(Object)} store JNI global references in the
+ * native transfer, so changing them for each submission updates the global
+ * reference table and resolving them on completion costs a lookup. Transfers
+ * allocated by this table instead get the table itself as callback once and
+ * an integer tag. The real callback and user data are stored in atomic
+ * reference arrays indexed by this tag and can be changed as often as needed
+ * without any native call. Values set by the submitting thread are safely
+ * published to the event handling thread.
+ *
+ * The tag of a completed transfer is found through its native pointer in an
+ * open addressing hash table of primitive longs, so no objects are created
+ * on the completion path. The hash table is copied on write and published
+ * through a volatile field so lookups never take the lock. Transfers are
+ * only registered and unregistered when they are allocated and freed.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class TransferTable implements TransferCallback
+{
+    /** The current hash table. Replaced on every change. */
+    private volatile Index index;
+
+    /** The mask to convert a hash into a key index. */
+    private final int mask;
+
+    /** The transfers indexed by tag. */
+    private final AtomicReferenceArray<Transfer> transfers;
+
+    /** The callbacks indexed by tag. */
+    private final AtomicReferenceArray<TransferCallback> callbacks;
+
+    /** The user data indexed by tag. */
+    private final AtomicReferenceArray<Object> userData;
+
+    /** The stack of free tags. */
+    private final int[] freeTags;
+
+    /** The number of free tags on the stack. */
+    private int freeCount;
+
+    /**
+     * An immutable snapshot of the hash table.
+     */
+    private static final class Index
+    {
+        /** The native pointers of the registered transfers. 0 is empty. */
+        final long[] keys;
+
+        /** The tags of the registered transfers. Parallel to keys. */
+        final int[] values;
+
+        /**
+         * Constructs a new index. The arrays must not be modified
+         * afterwards.
+         *
+         * @param keys
+         *            The native pointers.
+         * @param values
+         *            The tags.
+         */
+        Index(final long[] keys, final int[] values)
+        {
+            this.keys = keys;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Constructs a new transfer table.
+     *
+     * @param capacity
+     *            The maximum number of transfers. Must be positive.
+     */
+    public TransferTable(final int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = 2;
+        while (size < capacity * 2)
+        {
+            size <<= 1;
+        }
+        this.index = new Index(new long[size], new int[size]);
+        this.mask = size - 1;
+        this.transfers = new AtomicReferenceArray<Transfer>(capacity);
+        this.callbacks = new AtomicReferenceArray<TransferCallback>(capacity);
+        this.userData = new AtomicReferenceArray<Object>(capacity);
+        this.freeTags = new int[capacity];
+        for (int i = 0; i < capacity; i++)
+        {
+            this.freeTags[i] = capacity - 1 - i;
+        }
+        this.freeCount = capacity;
+    }
+
+    /**
+     * Allocates a transfer and adds it to the table. The callback of the
+     * transfer is set to this table and must not be changed.
+     *
+     * @param isoPackets
+     *            Number of isochronous packet descriptors to allocate.
+     * @return The allocated transfer.
+     * @throws IllegalStateException
+     *             When the table is full.
+     */
+    public Transfer allocate(final int isoPackets)
+    {
+        final Transfer transfer = LibUsb.allocTransfer(isoPackets);
+        try
+        {
+            final int tag = register(transfer.getPointer());
+            this.transfers.set(tag, transfer);
+        }
+        catch (final IllegalStateException e)
+        {
+            LibUsb.freeTransfer(transfer);
+            throw e;
+        }
+        transfer.setCallback(this);
+        return transfer;
+    }
+
+    /**
+     * Removes the transfer from the table and frees it. The transfer must
+     * not be in flight.
+     *
+     * @param transfer
+     *            The transfer to free.
+     */
+    public void free(final Transfer transfer)
+    {
+        final int tag = unregister(transfer.getPointer());
+        if (tag < 0)
+        {
+            throw new IllegalArgumentException(
+                "Transfer is not part of this table");
+        }
+        LibUsb.freeTransfer(transfer);
+    }
+
+    /**
+     * Adds a native pointer to the table and assigns a free tag.
+     *
+     * @param pointer
+     *            The native transfer pointer. Must not be 0.
+     * @return The assigned tag.
+     * @throws IllegalStateException
+     *             When the table is full.
+     */
+    synchronized int register(final long pointer)
+    {
+        if (pointer == 0)
+        {
+            throw new IllegalArgumentException("pointer must not be 0");
+        }
+        if (this.freeCount == 0)
+        {
+            throw new IllegalStateException("Transfer table is full");
+        }
+        final long[] keys = this.index.keys.clone();
+        final int[] values = this.index.values.clone();
+        int index = hash(pointer);
+        while (keys[index] != 0)
+        {
+            if (keys[index] == pointer)
+            {
+                throw new IllegalArgumentException(
+                    "Transfer is already registered");
+            }
+            index = (index + 1) & this.mask;
+        }
+        final int tag = this.freeTags[--this.freeCount];
+        keys[index] = pointer;
+        values[index] = tag;
+        this.index = new Index(keys, values);
+        return tag;
+    }
+
+    /**
+     * Removes a native pointer from the table and releases its tag.
+     *
+     * @param pointer
+     *            The native transfer pointer.
+     * @return The released tag or -1 if pointer was not registered.
+     */
+    synchronized int unregister(final long pointer)
+    {
+        int index = find(this.index, pointer);
+        if (index < 0)
+        {
+            return -1;
+        }
+        final long[] keys = this.index.keys.clone();
+        final int[] values = this.index.values.clone();
+        final int tag = values[index];
+        this.transfers.set(tag, null);
+        this.callbacks.set(tag, null);
+        this.userData.set(tag, null);
+        this.freeTags[this.freeCount++] = tag;
+
+        // Shift following entries of the probe sequence back so lookups
+        // don't stop at the removed entry.
+        int next = (index + 1) & this.mask;
+        while (keys[next] != 0)
+        {
+            final int home = hash(keys[next]);
+            if (((next - home) & this.mask) >= ((next - index) & this.mask))
+            {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+            next = (next + 1) & this.mask;
+        }
+        keys[index] = 0;
+        this.index = new Index(keys, values);
+        return tag;
+    }
+
+    /**
+     * Returns the tag of the specified native pointer. Does not take the
+     * lock.
+     *
+     * @param pointer
+     *            The native transfer pointer.
+     * @return The tag or -1 if pointer is not registered.
+     */
+    int lookup(final long pointer)
+    {
+        final Index snapshot = this.index;
+        final int index = find(snapshot, pointer);
+        return index < 0 ? -1 : snapshot.values[index];
+    }
+
+    /**
+     * Returns the key index of the specified native pointer.
+     *
+     * @param snapshot
+     *            The hash table to search.
+     * @param pointer
+     *            The native transfer pointer.
+     * @return The key index or -1 if not found.
+     */
+    private int find(final Index snapshot, final long pointer)
+    {
+        final long[] keys = snapshot.keys;
+        int index = hash(pointer);
+        while (keys[index] != 0)
+        {
+            if (keys[index] == pointer)
+            {
+                return index;
+            }
+            index = (index + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the home index of the specified native pointer.
+     *
+     * @param pointer
+     *            The native transfer pointer.
+     * @return The home index.
+     */
+    private int hash(final long pointer)
+    {
+        // Allocations are aligned so the lowest bits carry no information
+        final long mixed = (pointer >>> 4) * 0x9e3779b97f4a7c15L;
+        return (int) (mixed >>> 32) & this.mask;
+    }
+
+    /**
+     * Returns the tag of the specified transfer.
+     *
+     * @param transfer
+     *            The transfer.
+     * @return The tag.
+     * @throws IllegalArgumentException
+     *             When the transfer is not part of this table.
+     */
+    public int getTag(final Transfer transfer)
+    {
+        final int tag = lookup(transfer.getPointer());
+        if (tag < 0)
+        {
+            throw new IllegalArgumentException(
+                "Transfer is not part of this table");
+        }
+        return tag;
+    }
+
+    /**
+     * Returns the transfer with the specified tag.
+     *
+     * @param tag
+     *            The tag.
+     * @return The transfer or null if tag is not in use.
+     */
+    public Transfer getTransfer(final int tag)
+    {
+        return this.transfers.get(tag);
+    }
+
+    /**
+     * Sets the callback called when the transfer with the specified tag
+     * completes. Must be set before the transfer is submitted.
+     *
+     * @param tag
+     *            The tag.
+     * @param callback
+     *            The callback. Null to ignore completions.
+     */
+    public void setCallback(final int tag, final TransferCallback callback)
+    {
+        this.callbacks.set(tag, callback);
+    }
+
+    /**
+     * Returns the callback of the transfer with the specified tag.
+     *
+     * @param tag
+     *            The tag.
+     * @return The callback or null if none.
+     */
+    public TransferCallback getCallback(final int tag)
+    {
+        return this.callbacks.get(tag);
+    }
+
+    /**
+     * Sets the user data of the transfer with the specified tag.
+     *
+     * @param tag
+     *            The tag.
+     * @param userData
+     *            The user data.
+     */
+    public void setUserData(final int tag, final Object userData)
+    {
+        this.userData.set(tag, userData);
+    }
+
+    /**
+     * Returns the user data of the transfer with the specified tag.
+     *
+     * @param tag
+     *            The tag.
+     * @return The user data or null if none.
+     */
+    public Object getUserData(final int tag)
+    {
+        return this.userData.get(tag);
+    }
+
+    /**
+     * Returns the user data of the specified transfer. Convenience method
+     * for callbacks.
+     *
+     * @param transfer
+     *            The transfer.
+     * @return The user data or null if none.
+     */
+    public Object getUserData(final Transfer transfer)
+    {
+        return this.userData.get(getTag(transfer));
+    }
+
+    /**
+     * Returns the number of transfers in the table.
+     *
+     * @return The number of transfers.
+     */
+    public synchronized int size()
+    {
+        return this.transfers.length() - this.freeCount;
+    }
+
+    /**
+     * Dispatches the completed transfer to the callback stored for its tag.
+     * Called by libusb.
+     *
+     * @param transfer
+     *            The completed transfer.
+     */
+    @Override
+    public void processTransfer(final Transfer transfer)
+    {
+        final int tag = lookup(transfer.getPointer());
+        if (tag >= 0)
+        {
+            final TransferCallback callback = this.callbacks.get(tag);
+            if (callback != null)
+            {
+                callback.processTransfer(transfer);
+            }
+        }
+    }
+}
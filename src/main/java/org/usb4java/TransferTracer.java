@@ -0,0 +1,866 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records transfers in the pcap format with the Linux usbmon link type, so
+ * traces can be opened with Wireshark.
+ *
+ * Asynchronous transfers are traced by submitting them with
+ * {@link #submitTransfer(Transfer)} and by wrapping their callbacks with
+ * {@link #wrap(TransferCallback)}. Synchronous transfers are traced by
+ * calling the synchronous transfer methods of this class instead of the
+ * ones in {@link LibUsb}. Each submission produces a submit record and each
+ * completion (Or failed submission) a callback or error record.
+ *
+ * The calling threads only copy the event (And up to the snap length of the
+ * payload) into a preallocated lock-free ring buffer. A background thread
+ * writes the records to the output stream. When the ring buffer is full
+ * then events are dropped instead of blocking the caller (See
+ * {@link #getDroppedCount()}).
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class TransferTracer
+{
+    /** The pcap link type of usbmon captures with 48 byte headers. */
+    public static final int LINKTYPE_USB_LINUX = 189;
+
+    /** The size of the usbmon packet header. */
+    private static final int HEADER_SIZE = 48;
+
+    /** The usbmon event type of a submission. */
+    private static final byte TYPE_SUBMIT = 'S';
+
+    /** The usbmon event type of a completion. */
+    private static final byte TYPE_CALLBACK = 'C';
+
+    /** The usbmon event type of a submission error. */
+    private static final byte TYPE_ERROR = 'E';
+
+    /** Status of a submitted URB (-EINPROGRESS). */
+    private static final int STATUS_IN_PROGRESS = -115;
+
+    /** The time the writer thread sleeps when the ring is empty. */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** The output stream. */
+    private final OutputStream out;
+
+    /** The maximum number of payload bytes recorded per event. */
+    private final int snapLength;
+
+    /** The ring capacity minus one. */
+    private final int mask;
+
+    /** The events of the ring. */
+    private final Event[] events;
+
+    /**
+     * The sequence number of each ring slot. A slot is free for the producer
+     * claiming position p when its sequence is p and readable by the
+     * consumer at position p when its sequence is p + 1.
+     */
+    private final AtomicLongArray sequences;
+
+    /** The next position to claim by producers. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** The number of dropped events. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Id source for synchronous transfers. */
+    private final AtomicLong syncIds = new AtomicLong();
+
+    /** Per-thread buffers for traced synchronous control transfers. */
+    private final ThreadLocal<ByteBuffer> controlBuffers =
+        new ThreadLocal<ByteBuffer>();
+
+    /**
+     * Cached bus and device numbers mapped by device handle. Entries are
+     * removed by {@link #closeHandle(DeviceHandle)}.
+     */
+    private final ConcurrentMap<DeviceHandle, Integer> addresses =
+        new ConcurrentHashMap<DeviceHandle, Integer>();
+
+    /** The wall clock time in microseconds corresponding to nanoBase. */
+    private final long microsBase;
+
+    /** The nano time reference. */
+    private final long nanoBase;
+
+    /** The writer thread. */
+    private final Thread writer;
+
+    /** The next position to read by the writer thread. */
+    private long head;
+
+    /** The number of written records. */
+    private volatile long written;
+
+    /** If the tracer is closing. */
+    private volatile boolean closing;
+
+    /** The exception which stopped the writer thread. */
+    private volatile IOException writeError;
+
+    /**
+     * A traced event.
+     */
+    private static final class Event
+    {
+        /** The URB id. */
+        long id;
+
+        /** The event type. */
+        byte type;
+
+        /** The usbmon transfer type. */
+        byte transferType;
+
+        /** The endpoint address. */
+        byte endpoint;
+
+        /** The device address. */
+        byte device;
+
+        /** The bus number. */
+        short bus;
+
+        /** If the setup packet is present. */
+        boolean hasSetup;
+
+        /** The setup packet. */
+        final byte[] setup = new byte[LibUsb.CONTROL_SETUP_SIZE];
+
+        /** The timestamp in microseconds. */
+        long timestamp;
+
+        /** The usbmon status. */
+        int status;
+
+        /** The URB length. */
+        int length;
+
+        /** The number of payload bytes before truncation. */
+        int available;
+
+        /** The number of captured payload bytes. */
+        int captured;
+
+        /** The captured payload. */
+        final byte[] payload;
+
+        /**
+         * Constructs a new event.
+         *
+         * @param snapLength
+         *            The maximum payload size.
+         */
+        Event(final int snapLength)
+        {
+            this.payload = new byte[snapLength];
+        }
+    }
+
+    /**
+     * Constructs a new tracer, writes the pcap file header and starts the
+     * writer thread.
+     *
+     * @param out
+     *            The output stream to write the pcap data to. Closed when
+     *            the tracer is closed.
+     * @param capacity
+     *            The number of events the ring buffer can hold. Must be a
+     *            power of two.
+     * @param snapLength
+     *            The maximum number of payload bytes recorded per event.
+     *            Longer payloads are truncated. 0 records no payload.
+     * @throws IOException
+     *             When the pcap header could not be written.
+     */
+    public TransferTracer(final OutputStream out, final int capacity,
+        final int snapLength) throws IOException
+    {
+        if (out == null)
+        {
+            throw new IllegalArgumentException("out must not be null");
+        }
+        if ((capacity <= 0) || ((capacity & (capacity - 1)) != 0))
+        {
+            throw new IllegalArgumentException(
+                "capacity must be a positive power of two");
+        }
+        if (snapLength < 0)
+        {
+            throw new IllegalArgumentException(
+                "snapLength must not be negative");
+        }
+        this.out = out;
+        this.snapLength = snapLength;
+        this.mask = capacity - 1;
+        this.events = new Event[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+        {
+            this.events[i] = new Event(snapLength);
+            this.sequences.set(i, i);
+        }
+        this.nanoBase = System.nanoTime();
+        this.microsBase = System.currentTimeMillis() * 1000;
+        final ByteBuffer header = ByteBuffer.allocate(24).order(
+            ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0xa1b2c3d4);
+        header.putShort((short) 2);
+        header.putShort((short) 4);
+        header.putInt(0);
+        header.putInt(0);
+        header.putInt(HEADER_SIZE + snapLength);
+        header.putInt(LINKTYPE_USB_LINUX);
+        out.write(header.array());
+        this.writer = new Thread("usb4java transfer tracer")
+        {
+            @Override
+            public void run()
+            {
+                writeRecords();
+            }
+        };
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Returns the number of events dropped because the ring buffer was full.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedCount()
+    {
+        return this.dropped.get();
+    }
+
+    /**
+     * Returns the number of records written to the output stream.
+     *
+     * @return The number of written records.
+     */
+    public long getWrittenCount()
+    {
+        return this.written;
+    }
+
+    /**
+     * Submits a transfer and records the submission. A failed submission
+     * is recorded as an error event. The URB length of control transfers
+     * is recorded without the setup packet like usbmon does.
+     *
+     * @param transfer
+     *            The transfer to submit.
+     * @return The result of {@link LibUsb#submitTransfer(Transfer)}.
+     */
+    public int submitTransfer(final Transfer transfer)
+    {
+        final DeviceHandle handle = transfer.devHandle();
+        final byte endpoint = transfer.endpoint();
+        final byte type = transfer.type();
+        final ByteBuffer buffer = transfer.buffer();
+        final int length = type == LibUsb.TRANSFER_TYPE_CONTROL
+            ? Math.max(transfer.length() - LibUsb.CONTROL_SETUP_SIZE, 0)
+            : transfer.length();
+        record(transfer.getPointer(), TYPE_SUBMIT, handle, endpoint, type,
+            STATUS_IN_PROGRESS, buffer, length, isIn(endpoint, type, buffer)
+                ? 0 : length);
+        final int result = LibUsb.submitTransfer(transfer);
+        if (result != LibUsb.SUCCESS)
+        {
+            record(transfer.getPointer(), TYPE_ERROR, handle, endpoint, type,
+                errorToStatus(result), buffer, length, 0);
+        }
+        return result;
+    }
+
+    /**
+     * Wraps a transfer callback so transfer completions are recorded before
+     * the callback is invoked. Use the returned callback for the transfers
+     * submitted with {@link #submitTransfer(Transfer)}.
+     *
+     * @param callback
+     *            The callback to wrap.
+     * @return The recording callback.
+     */
+    public TransferCallback wrap(final TransferCallback callback)
+    {
+        if (callback == null)
+        {
+            throw new IllegalArgumentException("callback must not be null");
+        }
+        return new TransferCallback()
+        {
+            @Override
+            public void processTransfer(final Transfer transfer)
+            {
+                recordCompletion(transfer);
+                callback.processTransfer(transfer);
+            }
+        };
+    }
+
+    /**
+     * Records the completion of a transfer.
+     *
+     * @param transfer
+     *            The completed transfer.
+     */
+    public void recordCompletion(final Transfer transfer)
+    {
+        final byte endpoint = transfer.endpoint();
+        final byte type = transfer.type();
+        final ByteBuffer buffer = transfer.buffer();
+        final int actualLength = transfer.actualLength();
+        record(transfer.getPointer(), TYPE_CALLBACK, transfer.devHandle(),
+            endpoint, type, transferStatusToStatus(transfer.status()), buffer,
+            actualLength, isIn(endpoint, type, buffer) ? actualLength : 0);
+    }
+
+    /**
+     * Performs a traced synchronous control transfer. See
+     * {@link LibUsb#controlTransfer(DeviceHandle, byte, byte, short, short,
+     * ByteBuffer, long)}.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param bmRequestType
+     *            The request type field for the setup packet.
+     * @param bRequest
+     *            The request field for the setup packet.
+     * @param wValue
+     *            The value field for the setup packet.
+     * @param wIndex
+     *            The index field for the setup packet.
+     * @param data
+     *            A suitably-sized data buffer.
+     * @param timeout
+     *            The timeout in milliseconds.
+     * @return The result of the control transfer.
+     */
+    public int controlTransfer(final DeviceHandle handle,
+        final byte bmRequestType, final byte bRequest, final short wValue,
+        final short wIndex, final ByteBuffer data, final long timeout)
+    {
+        final long id = nextSyncId();
+        final boolean in = (bmRequestType & LibUsb.ENDPOINT_DIR_MASK)
+            == LibUsb.ENDPOINT_IN;
+        final int length = data.capacity();
+        ByteBuffer setup = this.controlBuffers.get();
+        if (setup == null)
+        {
+            setup = ByteBuffer.allocate(LibUsb.CONTROL_SETUP_SIZE
+                + this.snapLength);
+            this.controlBuffers.set(setup);
+        }
+        setup.clear();
+        LibUsb.fillControlSetup(setup, bmRequestType, bRequest, wValue,
+            wIndex, (short) length);
+        if (!in)
+        {
+            copyPayload(data, setup, length);
+        }
+        final byte endpoint = in ? LibUsb.ENDPOINT_IN : LibUsb.ENDPOINT_OUT;
+        record(id, TYPE_SUBMIT, handle, endpoint, LibUsb.TRANSFER_TYPE_CONTROL,
+            STATUS_IN_PROGRESS, setup, length, in ? 0 : length);
+        final int result = LibUsb.controlTransfer(handle, bmRequestType,
+            bRequest, wValue, wIndex, data, timeout);
+        final int transferred = Math.max(result, 0);
+        if (in)
+        {
+            copyPayload(data, setup, transferred);
+        }
+        record(id, TYPE_CALLBACK, handle, endpoint,
+            LibUsb.TRANSFER_TYPE_CONTROL, result < 0 ? errorToStatus(result)
+                : 0, setup, transferred, in ? transferred : 0);
+        return result;
+    }
+
+    /**
+     * Copies up to the snap length of payload bytes behind the setup packet
+     * in a control buffer.
+     *
+     * @param data
+     *            The payload.
+     * @param control
+     *            The control buffer.
+     * @param length
+     *            The number of payload bytes.
+     */
+    private void copyPayload(final ByteBuffer data, final ByteBuffer control,
+        final int length)
+    {
+        final ByteBuffer source = data.duplicate();
+        source.clear();
+        source.limit(Math.min(length, this.snapLength));
+        control.clear();
+        control.position(LibUsb.CONTROL_SETUP_SIZE);
+        control.put(source);
+    }
+
+    /**
+     * Performs a traced synchronous bulk transfer. See
+     * {@link LibUsb#bulkTransfer(DeviceHandle, byte, ByteBuffer, IntBuffer,
+     * long)}.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            A suitably-sized data buffer.
+     * @param transferred
+     *            Output location for the number of bytes actually
+     *            transferred.
+     * @param timeout
+     *            The timeout in milliseconds.
+     * @return The result of the bulk transfer.
+     */
+    public int bulkTransfer(final DeviceHandle handle, final byte endpoint,
+        final ByteBuffer data, final IntBuffer transferred, final long timeout)
+    {
+        return syncTransfer(handle, endpoint, LibUsb.TRANSFER_TYPE_BULK, data,
+            transferred, timeout);
+    }
+
+    /**
+     * Performs a traced synchronous interrupt transfer. See
+     * {@link LibUsb#interruptTransfer(DeviceHandle, byte, ByteBuffer,
+     * IntBuffer, long)}.
+     *
+     * @param handle
+     *            A handle for the device to communicate with.
+     * @param endpoint
+     *            The address of a valid endpoint to communicate with.
+     * @param data
+     *            A suitably-sized data buffer.
+     * @param transferred
+     *            Output location for the number of bytes actually
+     *            transferred.
+     * @param timeout
+     *            The timeout in milliseconds.
+     * @return The result of the interrupt transfer.
+     */
+    public int interruptTransfer(final DeviceHandle handle,
+        final byte endpoint, final ByteBuffer data,
+        final IntBuffer transferred, final long timeout)
+    {
+        return syncTransfer(handle, endpoint, LibUsb.TRANSFER_TYPE_INTERRUPT,
+            data, transferred, timeout);
+    }
+
+    /**
+     * Performs a traced synchronous bulk or interrupt transfer.
+     *
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The endpoint address.
+     * @param type
+     *            The transfer type.
+     * @param data
+     *            The data buffer.
+     * @param transferred
+     *            Output location for the number of transferred bytes.
+     * @param timeout
+     *            The timeout in milliseconds.
+     * @return The result of the transfer.
+     */
+    private int syncTransfer(final DeviceHandle handle, final byte endpoint,
+        final byte type, final ByteBuffer data, final IntBuffer transferred,
+        final long timeout)
+    {
+        final long id = nextSyncId();
+        final boolean in = (endpoint & LibUsb.ENDPOINT_DIR_MASK)
+            == LibUsb.ENDPOINT_IN;
+        final int length = data.capacity();
+        record(id, TYPE_SUBMIT, handle, endpoint, type, STATUS_IN_PROGRESS,
+            data, length, in ? 0 : length);
+        final int result;
+        if (type == LibUsb.TRANSFER_TYPE_BULK)
+        {
+            result = LibUsb.bulkTransfer(handle, endpoint, data, transferred,
+                timeout);
+        }
+        else
+        {
+            result = LibUsb.interruptTransfer(handle, endpoint, data,
+                transferred, timeout);
+        }
+        final int count = transferred.get(0);
+        record(id, TYPE_CALLBACK, handle, endpoint, type,
+            errorToStatus(result), data, count, in ? count : 0);
+        return result;
+    }
+
+    /**
+     * Forgets the cached bus and device number of a device handle and
+     * closes it. Handles used with this tracer should be closed with this
+     * method so the cache doesn't grow and a later handle with the same
+     * address isn't traced with the wrong device.
+     *
+     * @param handle
+     *            The device handle to close.
+     */
+    public void closeHandle(final DeviceHandle handle)
+    {
+        if (handle == null)
+        {
+            throw new IllegalArgumentException("handle must not be null");
+        }
+        this.addresses.remove(handle);
+        LibUsb.close(handle);
+    }
+
+    /**
+     * Returns the next id for a synchronous transfer. The highest bit is set
+     * to keep them apart from the transfer pointers used as ids of
+     * asynchronous transfers.
+     *
+     * @return The id.
+     */
+    private long nextSyncId()
+    {
+        return Long.MIN_VALUE | this.syncIds.incrementAndGet();
+    }
+
+    /**
+     * Checks if data flows from the device to the host.
+     *
+     * @param endpoint
+     *            The endpoint address.
+     * @param type
+     *            The libusb transfer type.
+     * @param buffer
+     *            The transfer buffer.
+     * @return True for IN transfers, false for OUT transfers.
+     */
+    private static boolean isIn(final byte endpoint, final byte type,
+        final ByteBuffer buffer)
+    {
+        if ((type == LibUsb.TRANSFER_TYPE_CONTROL) && (buffer != null)
+            && (buffer.capacity() >= LibUsb.CONTROL_SETUP_SIZE))
+        {
+            return (buffer.get(0) & LibUsb.ENDPOINT_DIR_MASK)
+                == LibUsb.ENDPOINT_IN;
+        }
+        return (endpoint & LibUsb.ENDPOINT_DIR_MASK) == LibUsb.ENDPOINT_IN;
+    }
+
+    /**
+     * Converts a libusb error code into a usbmon status (A negated Linux
+     * errno value).
+     *
+     * @param error
+     *            The libusb error code. Positive values are treated as
+     *            success.
+     * @return The usbmon status.
+     */
+    static int errorToStatus(final int error)
+    {
+        if (error >= 0)
+        {
+            return 0;
+        }
+        switch (error)
+        {
+            case LibUsb.ERROR_TIMEOUT:
+                return -110;
+            case LibUsb.ERROR_PIPE:
+                return -32;
+            case LibUsb.ERROR_NO_DEVICE:
+                return -19;
+            case LibUsb.ERROR_OVERFLOW:
+                return -75;
+            case LibUsb.ERROR_INTERRUPTED:
+                return -4;
+            case LibUsb.ERROR_NO_MEM:
+                return -12;
+            case LibUsb.ERROR_BUSY:
+                return -16;
+            case LibUsb.ERROR_INVALID_PARAM:
+                return -22;
+            default:
+                return -5;
+        }
+    }
+
+    /**
+     * Converts a libusb transfer status into a usbmon status.
+     *
+     * @param status
+     *            The transfer status.
+     * @return The usbmon status.
+     */
+    static int transferStatusToStatus(final int status)
+    {
+        if (status == LibUsb.TRANSFER_CANCELLED)
+        {
+            return -2;
+        }
+        return errorToStatus(LibUsb.transferStatusToError(status));
+    }
+
+    /**
+     * Converts a libusb transfer type into a usbmon transfer type.
+     *
+     * @param type
+     *            The libusb transfer type.
+     * @return The usbmon transfer type.
+     */
+    static byte toUsbmonType(final byte type)
+    {
+        switch (type)
+        {
+            case LibUsb.TRANSFER_TYPE_ISOCHRONOUS:
+                return 0;
+            case LibUsb.TRANSFER_TYPE_INTERRUPT:
+                return 1;
+            case LibUsb.TRANSFER_TYPE_CONTROL:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    /**
+     * Returns the bus number (High byte) and device address (Low byte) of
+     * the device of a handle.
+     *
+     * @param handle
+     *            The device handle.
+     * @return The bus number and device address.
+     */
+    private int address(final DeviceHandle handle)
+    {
+        Integer address = this.addresses.get(handle);
+        if (address == null)
+        {
+            final Device device = LibUsb.getDevice(handle);
+            address = (LibUsb.getBusNumber(device) << 8)
+                | LibUsb.getDeviceAddress(device);
+            this.addresses.put(handle, address);
+        }
+        return address;
+    }
+
+    /**
+     * Records an event in the ring buffer. The event is dropped if the ring
+     * buffer is full.
+     *
+     * @param id
+     *            The URB id.
+     * @param eventType
+     *            The usbmon event type.
+     * @param handle
+     *            The device handle.
+     * @param endpoint
+     *            The endpoint address.
+     * @param type
+     *            The libusb transfer type.
+     * @param status
+     *            The usbmon status.
+     * @param buffer
+     *            The transfer buffer. For control transfers it starts with
+     *            the setup packet.
+     * @param length
+     *            The URB length. For control transfers this excludes the
+     *            setup packet.
+     * @param dataLength
+     *            The number of payload bytes present in the buffer. For
+     *            control transfers this excludes the setup packet.
+     */
+    void record(final long id, final byte eventType, final DeviceHandle handle,
+        final byte endpoint, final byte type, final int status,
+        final ByteBuffer buffer, final int length, final int dataLength)
+    {
+        final int address = handle == null ? 0 : address(handle);
+        long position = this.tail.get();
+        final Event event;
+        while (true)
+        {
+            final long sequence = this.sequences.get((int) position
+                & this.mask);
+            if (sequence == position)
+            {
+                if (this.tail.compareAndSet(position, position + 1))
+                {
+                    event = this.events[(int) position & this.mask];
+                    break;
+                }
+                position = this.tail.get();
+            }
+            else if (sequence < position)
+            {
+                this.dropped.incrementAndGet();
+                return;
+            }
+            else
+            {
+                position = this.tail.get();
+            }
+        }
+        event.id = id;
+        event.type = eventType;
+        event.transferType = toUsbmonType(type);
+        event.device = (byte) address;
+        event.bus = (short) (address >> 8);
+        event.timestamp = this.microsBase
+            + (System.nanoTime() - this.nanoBase) / 1000;
+        event.status = status;
+        event.length = length;
+        final boolean control = type == LibUsb.TRANSFER_TYPE_CONTROL;
+        int offset = 0;
+        event.hasSetup = false;
+        if (control && (buffer != null)
+            && (buffer.capacity() >= LibUsb.CONTROL_SETUP_SIZE))
+        {
+            event.endpoint = (byte) ((endpoint & ~LibUsb.ENDPOINT_DIR_MASK)
+                | (buffer.get(0) & LibUsb.ENDPOINT_DIR_MASK));
+            if (eventType == TYPE_SUBMIT)
+            {
+                event.hasSetup = true;
+                for (int i = 0; i < LibUsb.CONTROL_SETUP_SIZE; i++)
+                {
+                    event.setup[i] = buffer.get(i);
+                }
+            }
+            offset = LibUsb.CONTROL_SETUP_SIZE;
+        }
+        else
+        {
+            event.endpoint = endpoint;
+        }
+        int captured = 0;
+        if ((buffer != null) && (dataLength > 0))
+        {
+            captured = Math.min(Math.min(dataLength, this.snapLength),
+                buffer.capacity() - offset);
+            final ByteBuffer source = buffer.duplicate();
+            source.clear();
+            source.position(offset);
+            source.get(event.payload, 0, captured);
+        }
+        event.captured = captured;
+        event.available = Math.max(dataLength, captured);
+        this.sequences.lazySet((int) position & this.mask, position + 1);
+    }
+
+    /**
+     * Writes recorded events until the tracer is closed and the ring buffer
+     * is drained. Runs in the writer thread.
+     */
+    void writeRecords()
+    {
+        final ByteBuffer record = ByteBuffer.allocate(16 + HEADER_SIZE
+            + this.snapLength).order(ByteOrder.LITTLE_ENDIAN);
+        try
+        {
+            while (true)
+            {
+                final int index = (int) this.head & this.mask;
+                if (this.sequences.get(index) != this.head + 1)
+                {
+                    this.out.flush();
+                    if (this.closing && (this.tail.get() == this.head))
+                    {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+                encode(this.events[index], record);
+                this.sequences.lazySet(index, this.head + this.mask + 1);
+                this.head++;
+                this.out.write(record.array(), 0, record.position());
+                this.written++;
+            }
+        }
+        catch (final IOException e)
+        {
+            this.writeError = e;
+        }
+    }
+
+    /**
+     * Encodes an event as pcap record with usbmon header.
+     *
+     * @param event
+     *            The event to encode.
+     * @param record
+     *            The buffer to encode the record into.
+     */
+    private static void encode(final Event event, final ByteBuffer record)
+    {
+        final long seconds = event.timestamp / 1000000;
+        final int micros = (int) (event.timestamp % 1000000);
+        record.clear();
+        record.putInt((int) seconds);
+        record.putInt(micros);
+        record.putInt(HEADER_SIZE + event.captured);
+        record.putInt(HEADER_SIZE + event.available);
+        record.putLong(event.id);
+        record.put(event.type);
+        record.put(event.transferType);
+        record.put(event.endpoint);
+        record.put(event.device);
+        record.putShort(event.bus);
+        record.put(event.hasSetup ? 0 : (byte) '-');
+        record.put(event.captured > 0 ? 0 : (byte) '<');
+        record.putLong(seconds);
+        record.putInt(micros);
+        record.putInt(event.status);
+        record.putInt(event.length);
+        record.putInt(event.captured);
+        if (event.hasSetup)
+        {
+            record.put(event.setup);
+        }
+        else
+        {
+            record.putLong(0);
+        }
+        record.put(event.payload, 0, event.captured);
+    }
+
+    /**
+     * Writes all pending records, stops the writer thread and closes the
+     * output stream.
+     *
+     * @throws IOException
+     *             When writing the records or closing the stream failed.
+     * @throws InterruptedException
+     *             When interrupted while waiting for the writer thread.
+     */
+    public void close() throws IOException, InterruptedException
+    {
+        this.closing = true;
+        this.writer.join();
+        this.out.close();
+        if (this.writeError != null)
+        {
+            throw this.writeError;
+        }
+    }
+}
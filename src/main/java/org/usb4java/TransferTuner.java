@@ -0,0 +1,487 @@
+/*
+ * Copyright 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+/**
+ * Finds the chunk size and pipeline depth with the best throughput at
+ * runtime.
+ *
+ * The best settings depend on the host controller, the hubs and the device,
+ * so they are searched by hill climbing instead of being configured. The
+ * chunk size is always the maximum packet size of the endpoint multiplied by
+ * a power of two. Starting with the defaults of {@link LargeTransfer} the
+ * tuner measures the throughput of the current settings, then tries the
+ * neighbors (Doubled and halved chunk size, one more and one less chunk in
+ * flight). A neighbor which is faster by more than
+ * {@link #IMPROVEMENT_THRESHOLD} becomes the new best setting and the same
+ * step is tried again from there. When no neighbor is faster the tuner has
+ * converged and keeps the best settings. Settings with an average chunk
+ * latency above the configured limit are only chosen while no setting
+ * within the limit has been found, preferring lower latency.
+ *
+ * After convergence the search is restarted when the throughput drops
+ * noticeably or after {@link #RETUNE_INTERVAL} samples, so changing
+ * conditions are followed. Each sample combines
+ * {@link #SAMPLES_PER_SETTING} measurements, so with the defaults this
+ * happens after 256 recorded measurements.
+ *
+ * Typical usage with a {@link LargeTransfer}:
+ *
+ * <pre>
+ * final TransferTuner tuner = new TransferTuner(transfer.getMaxPacketSize());
+ * while (remaining)
+ * {
+ *     tuner.apply(transfer);
+ *     tuner.record(transfer.transfer(segment));
+ * }
+ * </pre>
+ *
+ * Other streams can report their measurements with
+ * {@link #record(long, long, long)} and read the settings with
+ * {@link #getChunkSize()} and {@link #getDepth()}.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public final class TransferTuner
+{
+    /** The default maximum chunk size in bytes. */
+    public static final int DEFAULT_MAX_CHUNK_SIZE = 1048576;
+
+    /** The default maximum pipeline depth. */
+    public static final int DEFAULT_MAX_DEPTH = 32;
+
+    /** The number of measurements combined into one throughput sample. */
+    public static final int SAMPLES_PER_SETTING = 4;
+
+    /** The relative throughput gain needed to move to another setting. */
+    public static final double IMPROVEMENT_THRESHOLD = 0.05;
+
+    /**
+     * The number of samples (Not measurements) after which a converged
+     * tuner searches again.
+     */
+    public static final int RETUNE_INTERVAL = 64;
+
+    /** Tuner state: Measuring the best setting. */
+    private static final int MEASURING = 0;
+
+    /** Tuner state: Measuring a neighbor of the best setting. */
+    private static final int PROBING = 1;
+
+    /** Tuner state: Converged on the best setting. */
+    private static final int CONVERGED = 2;
+
+    /** The number of steps to neighbors. */
+    private static final int STEPS = 4;
+
+    /** The maximum packet size. */
+    private final int maxPacketSize;
+
+    /** The largest chunk size multiplier exponent. */
+    private final int maxShift;
+
+    /** The maximum pipeline depth. */
+    private final int maxDepth;
+
+    /** The maximum average chunk latency in nanoseconds. 0 for none. */
+    private long maxLatency;
+
+    /** The current state. */
+    private int state = MEASURING;
+
+    /** The current chunk size multiplier exponent. */
+    private int shift;
+
+    /** The current pipeline depth. */
+    private int depth;
+
+    /** The best chunk size multiplier exponent. */
+    private int bestShift;
+
+    /** The best pipeline depth. */
+    private int bestDepth;
+
+    /** The throughput of the best setting in bytes per second. */
+    private double bestThroughput;
+
+    /** The average chunk latency of the best setting in nanoseconds. */
+    private long bestLatency;
+
+    /** If the latency of the best setting is within the limit. */
+    private boolean bestAcceptable;
+
+    /** The step probed first from the best setting. */
+    private int firstStep;
+
+    /** The number of steps already probed from the best setting. */
+    private int probedSteps;
+
+    /** The step leading back to the previous best setting. -1 if none. */
+    private int backStep = -1;
+
+    /** The bytes of the current sample. */
+    private long sampleBytes;
+
+    /** The elapsed time of the current sample in nanoseconds. */
+    private long sampleNanos;
+
+    /** The sum of the average latencies of the current sample. */
+    private long sampleLatency;
+
+    /** The number of measurements in the current sample. */
+    private int sampleCount;
+
+    /** The number of samples taken since convergence. */
+    private int convergedSamples;
+
+    /** The number of completed searches. */
+    private int searches;
+
+    /**
+     * Constructs a new tuner with default limits.
+     *
+     * @param maxPacketSize
+     *            The maximum packet size of the endpoint.
+     */
+    public TransferTuner(final int maxPacketSize)
+    {
+        this(maxPacketSize, DEFAULT_MAX_CHUNK_SIZE, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Constructs a new tuner.
+     *
+     * @param maxPacketSize
+     *            The maximum packet size of the endpoint.
+     * @param maxChunkSize
+     *            The maximum chunk size in bytes. At least one packet is
+     *            always allowed.
+     * @param maxDepth
+     *            The maximum pipeline depth.
+     */
+    public TransferTuner(final int maxPacketSize, final int maxChunkSize,
+        final int maxDepth)
+    {
+        if (maxPacketSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                "maxPacketSize must be positive");
+        }
+        if (maxChunkSize <= 0)
+        {
+            throw new IllegalArgumentException(
+                "maxChunkSize must be positive");
+        }
+        if (maxDepth <= 0)
+        {
+            throw new IllegalArgumentException("maxDepth must be positive");
+        }
+        this.maxPacketSize = maxPacketSize;
+        this.maxShift = shiftFor(maxChunkSize, maxPacketSize);
+        this.maxDepth = maxDepth;
+        this.shift = Math.min(shiftFor(LargeTransfer.DEFAULT_CHUNK_SIZE,
+            maxPacketSize), this.maxShift);
+        this.depth = Math.min(LargeTransfer.DEFAULT_DEPTH, maxDepth);
+        this.bestShift = this.shift;
+        this.bestDepth = this.depth;
+    }
+
+    /**
+     * Returns the largest exponent so the packet size multiplied by two to
+     * the power of the exponent doesn't exceed the chunk size.
+     *
+     * @param chunkSize
+     *            The chunk size.
+     * @param maxPacketSize
+     *            The maximum packet size.
+     * @return The exponent. At least 0.
+     */
+    private static int shiftFor(final int chunkSize, final int maxPacketSize)
+    {
+        int shift = 0;
+        while (((long) maxPacketSize << (shift + 1)) <= chunkSize)
+        {
+            shift++;
+        }
+        return shift;
+    }
+
+    /**
+     * Returns the maximum average chunk latency.
+     *
+     * @return The maximum latency in nanoseconds. 0 for none.
+     */
+    public synchronized long getMaxLatency()
+    {
+        return this.maxLatency;
+    }
+
+    /**
+     * Sets the maximum average chunk latency. Settings exceeding it are
+     * not chosen as best settings when a setting within the limit is known.
+     *
+     * @param maxLatency
+     *            The maximum latency in nanoseconds. 0 for none.
+     */
+    public synchronized void setMaxLatency(final long maxLatency)
+    {
+        if (maxLatency < 0)
+        {
+            throw new IllegalArgumentException(
+                "maxLatency must not be negative");
+        }
+        this.maxLatency = maxLatency;
+    }
+
+    /**
+     * Returns the chunk size to use for the next transfers.
+     *
+     * @return The chunk size in bytes.
+     */
+    public synchronized int getChunkSize()
+    {
+        return this.maxPacketSize << this.shift;
+    }
+
+    /**
+     * Returns the pipeline depth to use for the next transfers.
+     *
+     * @return The pipeline depth.
+     */
+    public synchronized int getDepth()
+    {
+        return this.depth;
+    }
+
+    /**
+     * Returns the best chunk size found so far.
+     *
+     * @return The best chunk size in bytes.
+     */
+    public synchronized int getBestChunkSize()
+    {
+        return this.maxPacketSize << this.bestShift;
+    }
+
+    /**
+     * Returns the best pipeline depth found so far.
+     *
+     * @return The best pipeline depth.
+     */
+    public synchronized int getBestDepth()
+    {
+        return this.bestDepth;
+    }
+
+    /**
+     * Returns the throughput of the best settings.
+     *
+     * @return The throughput in bytes per second. 0 if not measured yet.
+     */
+    public synchronized double getBestThroughput()
+    {
+        return this.bestThroughput;
+    }
+
+    /**
+     * Checks if the tuner has converged on the best settings.
+     *
+     * @return True if converged, false if still searching.
+     */
+    public synchronized boolean isConverged()
+    {
+        return this.state == CONVERGED;
+    }
+
+    /**
+     * Returns the number of completed searches.
+     *
+     * @return The number of searches.
+     */
+    public synchronized int getSearches()
+    {
+        return this.searches;
+    }
+
+    /**
+     * Applies the current settings to the specified transfer.
+     *
+     * @param transfer
+     *            The transfer to configure.
+     */
+    public synchronized void apply(final LargeTransfer transfer)
+    {
+        transfer.setChunkSize(getChunkSize());
+        transfer.setDepth(this.depth);
+    }
+
+    /**
+     * Records the result of a transfer made with the current settings.
+     * Failed transfers, transfers terminated by a short packet and
+     * transfers too small to fill the pipeline are ignored because they
+     * don't show the capacity of the settings. Results of other settings
+     * are ignored as well.
+     *
+     * @param result
+     *            The result to record.
+     */
+    public synchronized void record(final LargeTransferResult result)
+    {
+        if (!result.isSuccess() || result.isShortPacket()
+            || (result.getChunkSize() != getChunkSize())
+            || (result.getDepth() != this.depth))
+        {
+            return;
+        }
+        record(result.getTransferred(), result.getElapsedNanos(),
+            result.getAverageLatencyNanos());
+    }
+
+    /**
+     * Records a measurement made with the current settings.
+     *
+     * @param bytes
+     *            The number of transferred bytes.
+     * @param elapsedNanos
+     *            The time needed to transfer the bytes in nanoseconds.
+     * @param latencyNanos
+     *            The average chunk latency in nanoseconds.
+     */
+    public synchronized void record(final long bytes, final long elapsedNanos,
+        final long latencyNanos)
+    {
+        if ((bytes <= 0) || (elapsedNanos <= 0))
+        {
+            return;
+        }
+        this.sampleBytes += bytes;
+        this.sampleNanos += elapsedNanos;
+        this.sampleLatency += latencyNanos;
+        this.sampleCount++;
+        if (this.sampleCount < SAMPLES_PER_SETTING)
+        {
+            return;
+        }
+        final double throughput = this.sampleBytes * 1000000000.0
+            / this.sampleNanos;
+        final long latency = this.sampleLatency / this.sampleCount;
+        this.sampleBytes = 0;
+        this.sampleNanos = 0;
+        this.sampleLatency = 0;
+        this.sampleCount = 0;
+        evaluate(throughput, latency);
+    }
+
+    /**
+     * Evaluates a throughput sample of the current settings.
+     *
+     * @param throughput
+     *            The throughput in bytes per second.
+     * @param latency
+     *            The average chunk latency in nanoseconds.
+     */
+    private void evaluate(final double throughput, final long latency)
+    {
+        final boolean acceptable = (this.maxLatency == 0)
+            || (latency <= this.maxLatency);
+        if (this.state == MEASURING)
+        {
+            this.bestThroughput = throughput;
+            this.bestLatency = latency;
+            this.bestAcceptable = acceptable;
+            this.firstStep = 0;
+            this.probedSteps = 0;
+            this.backStep = -1;
+            probe();
+        }
+        else if (this.state == PROBING)
+        {
+            final boolean better;
+            if (this.bestAcceptable)
+            {
+                better = acceptable && (throughput
+                    > this.bestThroughput * (1 + IMPROVEMENT_THRESHOLD));
+            }
+            else
+            {
+                // Get within the latency limit first
+                better = acceptable || (latency < this.bestLatency);
+            }
+            if (better)
+            {
+                // Move and try the same step again first
+                final int step = (this.firstStep + this.probedSteps) % STEPS;
+                this.bestShift = this.shift;
+                this.bestDepth = this.depth;
+                this.bestThroughput = throughput;
+                this.bestLatency = latency;
+                this.bestAcceptable = acceptable;
+                this.firstStep = step;
+                this.probedSteps = 0;
+                this.backStep = (step + 2) % STEPS;
+            }
+            else
+            {
+                this.probedSteps++;
+            }
+            probe();
+        }
+        else
+        {
+            this.convergedSamples++;
+            if ((this.convergedSamples >= RETUNE_INTERVAL) || (throughput
+                < this.bestThroughput * (1 - 2 * IMPROVEMENT_THRESHOLD)))
+            {
+                this.state = MEASURING;
+            }
+        }
+    }
+
+    /**
+     * Switches to the next valid neighbor of the best settings which has
+     * not been probed yet. The step back to the previous best settings is
+     * skipped because it is known to be slower. When there is no neighbor
+     * left then the tuner has converged.
+     */
+    private void probe()
+    {
+        while (this.probedSteps < STEPS)
+        {
+            final int step = (this.firstStep + this.probedSteps) % STEPS;
+            int nextShift = this.bestShift;
+            int nextDepth = this.bestDepth;
+            switch (step)
+            {
+                case 0:
+                    nextShift++;
+                    break;
+                case 1:
+                    nextDepth++;
+                    break;
+                case 2:
+                    nextShift--;
+                    break;
+                default:
+                    nextDepth--;
+            }
+            if ((step != this.backStep) && (nextShift >= 0)
+                && (nextShift <= this.maxShift) && (nextDepth >= 1)
+                && (nextDepth <= this.maxDepth))
+            {
+                this.shift = nextShift;
+                this.depth = nextDepth;
+                this.state = PROBING;
+                return;
+            }
+            this.probedSteps++;
+        }
+        this.shift = this.bestShift;
+        this.depth = this.bestDepth;
+        this.state = CONVERGED;
+        this.convergedSamples = 0;
+        this.searches++;
+    }
+}
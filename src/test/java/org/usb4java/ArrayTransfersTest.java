@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ArrayTransfers} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class ArrayTransfersTest
+{
+    /** A callback which ignores completions. */
+    private static final ArrayTransferCallback CALLBACK =
+        new ArrayTransferCallback()
+        {
+            @Override
+            public void processTransfer(final byte[] data, final int offset,
+                final int status, final int actualLength)
+            {
+                // Empty
+            }
+        };
+
+    /**
+     * Tests the size class calculation.
+     */
+    @Test
+    public void testSizeClass()
+    {
+        assertEquals(0, ArrayTransfers.sizeClass(0));
+        assertEquals(0, ArrayTransfers.sizeClass(64));
+        assertEquals(1, ArrayTransfers.sizeClass(65));
+        assertEquals(1, ArrayTransfers.sizeClass(128));
+        assertEquals(2, ArrayTransfers.sizeClass(129));
+        assertEquals(10,
+            ArrayTransfers.sizeClass(ArrayTransfers.MAX_STAGING_SIZE));
+        assertEquals(-1,
+            ArrayTransfers.sizeClass(ArrayTransfers.MAX_STAGING_SIZE + 1));
+    }
+
+    /**
+     * Tests that staging buffers have the exact length and are reused.
+     */
+    @Test
+    public void testStagingBuffer()
+    {
+        final ByteBuffer buffer = ArrayTransfers.stagingBuffer(100);
+        assertTrue(buffer.isDirect());
+        assertEquals(100, buffer.capacity());
+        buffer.position(10);
+        final ByteBuffer again = ArrayTransfers.stagingBuffer(100);
+        assertSame(buffer, again);
+        assertEquals(0, again.position());
+        assertEquals(128, ArrayTransfers.stagingBuffer(128).capacity());
+        assertEquals(0, ArrayTransfers.stagingBuffer(0).capacity());
+    }
+
+    /**
+     * Tests that oversized staging buffers are not cached.
+     */
+    @Test
+    public void testLargeStagingBuffer()
+    {
+        final int length = ArrayTransfers.MAX_STAGING_SIZE + 1;
+        final ByteBuffer buffer = ArrayTransfers.stagingBuffer(length);
+        assertEquals(length, buffer.capacity());
+        assertNotSame(buffer, ArrayTransfers.stagingBuffer(length));
+    }
+
+    /**
+     * Tests bulk transfer without a handle.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkTransferWithoutHandle()
+    {
+        ArrayTransfers.bulkTransfer(null, (byte) 1, new byte[16], 0, 16, 0);
+    }
+
+    /**
+     * Tests interrupt transfer without data.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInterruptTransferWithoutData()
+    {
+        ArrayTransfers.interruptTransfer(new DeviceHandle(), (byte) 1, null,
+            0, 0, 0);
+    }
+
+    /**
+     * Tests control transfer with a range outside of the array.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testControlTransferWithInvalidRange()
+    {
+        ArrayTransfers.controlTransfer(new DeviceHandle(), (byte) 0,
+            (byte) 0, (short) 0, (short) 0, new byte[16], 8, 9, 0);
+    }
+
+    /**
+     * Tests bulk transfer with a negative offset.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkTransferWithNegativeOffset()
+    {
+        ArrayTransfers.bulkTransfer(new DeviceHandle(), (byte) 1,
+            new byte[16], -1, 1, 0);
+    }
+
+    /**
+     * Tests submitting a transfer without a callback.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubmitWithoutCallback()
+    {
+        ArrayTransfers.submitBulkTransfer(new DeviceHandle(), (byte) 1,
+            new byte[16], 0, 16, 0, null);
+    }
+
+    /**
+     * Tests submitting a transfer without a handle.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubmitWithoutHandle()
+    {
+        ArrayTransfers.submitInterruptTransfer(null, (byte) 1, new byte[16],
+            0, 16, 0, CALLBACK);
+    }
+}
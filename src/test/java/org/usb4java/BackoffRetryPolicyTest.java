@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link BackoffRetryPolicy} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class BackoffRetryPolicyTest
+{
+    /**
+     * Tests that the delay grows exponentially up to the maximum delay.
+     */
+    @Test
+    public void testBackoff()
+    {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setDelay(10, 100, TimeUnit.MILLISECONDS);
+        assertEquals(10000000, policy.getBaseDelay(1));
+        assertEquals(20000000, policy.getBaseDelay(2));
+        assertEquals(40000000, policy.getBaseDelay(3));
+        assertEquals(80000000, policy.getBaseDelay(4));
+        assertEquals(100000000, policy.getBaseDelay(5));
+        assertEquals(100000000, policy.getBaseDelay(50));
+    }
+
+    /**
+     * Tests that the jitter only shortens the delay by the configured
+     * fraction.
+     */
+    @Test
+    public void testJitter()
+    {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setMaxAttempts(10);
+        policy.setDelay(10, 10, TimeUnit.MILLISECONDS);
+        policy.setJitter(0.25);
+        for (int i = 0; i < 1000; i++)
+        {
+            final long delay = policy.getRetryDelay(LibUsb.ERROR_TIMEOUT, 1);
+            assertTrue(delay > 7500000);
+            assertTrue(delay <= 10000000);
+        }
+        policy.setJitter(0);
+        assertEquals(10000000, policy.getRetryDelay(LibUsb.ERROR_IO, 1));
+    }
+
+    /**
+     * Tests that retries stop after the maximum number of attempts.
+     */
+    @Test
+    public void testMaxAttempts()
+    {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setMaxAttempts(3);
+        assertTrue(policy.getRetryDelay(LibUsb.ERROR_TIMEOUT, 1) >= 0);
+        assertTrue(policy.getRetryDelay(LibUsb.ERROR_TIMEOUT, 2) >= 0);
+        assertEquals(-1, policy.getRetryDelay(LibUsb.ERROR_TIMEOUT, 3));
+        assertEquals(-1, policy.getRetryDelay(LibUsb.ERROR_PIPE, 3));
+        policy.setMaxAttempts(1);
+        assertEquals(-1, policy.getRetryDelay(LibUsb.ERROR_TIMEOUT, 1));
+    }
+
+    /**
+     * Tests that stalls are retried right away after clearing the halt
+     * condition and that the device is reset on repeated stalls.
+     */
+    @Test
+    public void testStall()
+    {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setMaxAttempts(5);
+        assertEquals(0, policy.getRetryDelay(LibUsb.ERROR_PIPE, 1));
+        assertEquals(RetryPolicy.RECOVER_CLEAR_HALT,
+            policy.getRecovery(LibUsb.ERROR_PIPE, 1));
+        assertEquals(RetryPolicy.RECOVER_CLEAR_HALT,
+            policy.getRecovery(LibUsb.ERROR_PIPE, 4));
+
+        policy.setResetAfter(2);
+        assertEquals(RetryPolicy.RECOVER_CLEAR_HALT,
+            policy.getRecovery(LibUsb.ERROR_PIPE, 1));
+        assertEquals(RetryPolicy.RECOVER_RESET_DEVICE,
+            policy.getRecovery(LibUsb.ERROR_PIPE, 2));
+        assertEquals(RetryPolicy.RECOVER_NONE,
+            policy.getRecovery(LibUsb.ERROR_TIMEOUT, 2));
+
+        policy.setClearHalt(false);
+        assertEquals(-1, policy.getRetryDelay(LibUsb.ERROR_PIPE, 1));
+    }
+
+    /**
+     * Tests that other errors are never retried.
+     */
+    @Test
+    public void testNotRetried()
+    {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        assertEquals(-1, policy.getRetryDelay(LibUsb.ERROR_NO_DEVICE, 1));
+        assertEquals(-1, policy.getRetryDelay(LibUsb.ERROR_OVERFLOW, 1));
+        assertEquals(-1, policy.getRetryDelay(LibUsb.ERROR_INTERRUPTED, 1));
+        assertEquals(RetryPolicy.RECOVER_NONE,
+            policy.getRecovery(LibUsb.ERROR_NO_DEVICE, 1));
+    }
+
+    /**
+     * Tests invalid maximum number of attempts.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxAttempts()
+    {
+        new BackoffRetryPolicy().setMaxAttempts(0);
+    }
+
+    /**
+     * Tests a maximum delay lower than the initial delay.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDelay()
+    {
+        new BackoffRetryPolicy().setDelay(10, 5, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tests a multiplier lower than 1.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMultiplier()
+    {
+        new BackoffRetryPolicy().setMultiplier(0.5);
+    }
+
+    /**
+     * Tests a jitter greater than 1.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidJitter()
+    {
+        new BackoffRetryPolicy().setJitter(1.5);
+    }
+
+    /**
+     * Tests a negative reset threshold.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidResetAfter()
+    {
+        new BackoffRetryPolicy().setResetAfter(-1);
+    }
+
+    /**
+     * Tests a synchronous retrying transfer without policy.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTransferWithoutPolicy()
+    {
+        RetryingTransfers.bulkTransfer(null, new DeviceHandle(), (byte) 1,
+            ByteBuffer.allocateDirect(8), 0);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link BufferPool} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class BufferPoolTest
+{
+    /**
+     * Tests acquiring a buffer from an empty pool.
+     */
+    @Test
+    public void testAcquire()
+    {
+        final BufferPool pool = new BufferPool(64, 2);
+        final ByteBuffer buffer = pool.acquire();
+        assertTrue(buffer.isDirect());
+        assertEquals(64, buffer.capacity());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    /**
+     * Tests recycling buffers.
+     */
+    @Test
+    public void testRecycle()
+    {
+        final BufferPool pool = new BufferPool(64, 2);
+        final ByteBuffer buffer = pool.acquire();
+        buffer.position(10).limit(20);
+        pool.release(buffer);
+        assertEquals(1, pool.getIdleCount());
+        final ByteBuffer recycled = pool.acquire();
+        assertSame(buffer, recycled);
+        assertEquals(0, recycled.position());
+        assertEquals(64, recycled.limit());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    /**
+     * Tests releasing more buffers than the pool keeps.
+     */
+    @Test
+    public void testMaxIdle()
+    {
+        final BufferPool pool = new BufferPool(64, 1);
+        final ByteBuffer a = pool.acquire();
+        final ByteBuffer b = pool.acquire();
+        assertNotSame(a, b);
+        pool.release(a);
+        pool.release(b);
+        assertEquals(1, pool.getIdleCount());
+        assertSame(a, pool.acquire());
+    }
+
+    /**
+     * Tests releasing a buffer which does not belong to the pool.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseForeignBuffer()
+    {
+        new BufferPool(64, 1).release(ByteBuffer.allocate(64));
+    }
+
+    /**
+     * Tests creating a pool with an invalid buffer size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBufferSize()
+    {
+        new BufferPool(0, 1);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link BulkStreams} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class BulkStreamsTest
+{
+    /** A listener which does nothing. */
+    private static final BulkStreamListener LISTENER =
+        new BulkStreamListener()
+        {
+            @Override
+            public void transferFinished(final int streamId,
+                final byte endpoint, final ByteBuffer buffer,
+                final int status, final int actualLength)
+            {
+                // Empty
+            }
+        };
+
+    /**
+     * Creates a multiplexer for testing.
+     *
+     * @return The multiplexer.
+     */
+    private static BulkStreams createStreams()
+    {
+        return new BulkStreams(new DeviceHandle(),
+            new byte[] { (byte) 0x81, 0x02 }, 4);
+    }
+
+    /**
+     * Tests the constructor.
+     */
+    @Test
+    public void testConstructor()
+    {
+        final BulkStreams streams = createStreams();
+        assertEquals(4, streams.getMaxInFlight());
+        assertEquals(0, streams.getStreamCount());
+    }
+
+    /**
+     * Tests the constructor without endpoints.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithoutEndpoints()
+    {
+        new BulkStreams(new DeviceHandle(), new byte[0], 4);
+    }
+
+    /**
+     * Tests the constructor with an invalid in-flight limit.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithInvalidMaxInFlight()
+    {
+        new BulkStreams(new DeviceHandle(), new byte[] { 0x02 }, 0);
+    }
+
+    /**
+     * Tests submitting a transfer to an unknown endpoint.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubmitWithUnknownEndpoint()
+    {
+        createStreams().submit(1, (byte) 0x83,
+            BufferUtils.allocateByteBuffer(512), 0, LISTENER);
+    }
+
+    /**
+     * Tests submitting a transfer with a heap buffer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubmitWithHeapBuffer()
+    {
+        createStreams().submit(1, (byte) 0x81, ByteBuffer.allocate(512), 0,
+            LISTENER);
+    }
+
+    /**
+     * Tests submitting a transfer before the streams are opened.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testSubmitBeforeOpen()
+    {
+        createStreams().submit(1, (byte) 0x81,
+            BufferUtils.allocateByteBuffer(512), 0, LISTENER);
+    }
+
+    /**
+     * Tests querying a stream before the streams are opened.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testGetInFlightBeforeOpen()
+    {
+        createStreams().getInFlight(1);
+    }
+
+    /**
+     * Tests opening with an invalid number of streams.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpenWithInvalidNumStreams()
+    {
+        createStreams().open(0);
+    }
+}
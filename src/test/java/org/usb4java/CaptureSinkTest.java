@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link CaptureSink} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class CaptureSinkTest
+{
+    /** The temporary directory. */
+    private File directory;
+
+    /**
+     * Creates the temporary directory.
+     *
+     * @throws IOException
+     *             When the directory could not be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.directory = File.createTempFile("capture", "");
+        this.directory.delete();
+        this.directory.mkdir();
+    }
+
+    /**
+     * Deletes the temporary directory.
+     */
+    @After
+    public void tearDown()
+    {
+        final File[] files = this.directory.listFiles();
+        if (files != null)
+        {
+            for (final File file: files)
+            {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    /**
+     * Tests the constructor with a slot larger than a segment.
+     *
+     * @throws IOException
+     *             When the test fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithTooLargeSlot() throws IOException
+    {
+        new CaptureSink(this.directory, "test", 512, 1024);
+    }
+
+    /**
+     * Tests capturing data into rolling segments and the index.
+     *
+     * @throws IOException
+     *             When the test fails.
+     */
+    @Test
+    public void testCapture() throws IOException
+    {
+        final CaptureSink sink = new CaptureSink(this.directory, "test", 1000,
+            400);
+        for (int i = 0; i < 3; i++)
+        {
+            final ByteBuffer slot = sink.acquire();
+            assertTrue(slot.isDirect());
+            assertEquals(400, slot.capacity());
+            for (int j = 0; j <= i; j++)
+            {
+                slot.put(j, (byte) (i + 1));
+            }
+            sink.commit(slot, i + 1, LibUsb.TRANSFER_COMPLETED);
+        }
+        sink.close();
+        assertEquals(2, sink.getSegmentCount());
+        assertEquals(3, sink.getSlotCount());
+        assertEquals(6, sink.getByteCount());
+        assertFalse(sink.getSegmentFile(2).exists());
+
+        final RandomAccessFile first = new RandomAccessFile(
+            sink.getSegmentFile(0), "r");
+        try
+        {
+            assertEquals(1000, first.length());
+            first.seek(400);
+            assertEquals(2, first.read());
+            assertEquals(2, first.read());
+        }
+        finally
+        {
+            first.close();
+        }
+        final RandomAccessFile second = new RandomAccessFile(
+            sink.getSegmentFile(1), "r");
+        try
+        {
+            assertEquals(3, second.read());
+        }
+        finally
+        {
+            second.close();
+        }
+
+        final DataInputStream index = new DataInputStream(new FileInputStream(
+            new File(this.directory, "test.idx")));
+        try
+        {
+            final byte[] magic = new byte[8];
+            index.readFully(magic);
+            assertEquals("USBCAPIX", new String(magic, "US-ASCII"));
+            assertEquals(1, index.readInt());
+            index.readLong();
+            final int[][] expected = { { 0, 0, 1 }, { 0, 400, 2 },
+                { 1, 0, 3 } };
+            for (final int[] record: expected)
+            {
+                assertEquals(record[0], index.readInt());
+                assertEquals(record[1], index.readInt());
+                assertEquals(record[2], index.readInt());
+                assertEquals(LibUsb.TRANSFER_COMPLETED, index.readInt());
+                assertTrue(index.readLong() >= 0);
+            }
+            assertEquals(-1, index.read());
+        }
+        finally
+        {
+            index.close();
+        }
+    }
+
+    /**
+     * Tests that the next segment is prepared before it is needed.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testPrepareNextSegment() throws Exception
+    {
+        final CaptureSink sink = new CaptureSink(this.directory, "test", 1000,
+            400);
+        try
+        {
+            sink.acquire();
+            final File next = sink.getSegmentFile(1);
+            final long deadline = System.currentTimeMillis() + 5000;
+            while ((next.length() != 1000)
+                && (System.currentTimeMillis() < deadline))
+            {
+                Thread.sleep(5);
+            }
+            assertEquals(1000, next.length());
+            assertEquals(1, sink.getSegmentCount());
+        }
+        finally
+        {
+            sink.close();
+        }
+        assertFalse(sink.getSegmentFile(1).exists());
+    }
+
+    /**
+     * Tests committing an unknown slot.
+     *
+     * @throws IOException
+     *             When the test fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testCommitUnknownSlot() throws IOException
+    {
+        final CaptureSink sink = new CaptureSink(this.directory, "test", 1000,
+            400);
+        try
+        {
+            sink.commit(BufferUtils.allocateByteBuffer(400), 0, 0);
+        }
+        finally
+        {
+            sink.close();
+        }
+    }
+
+    /**
+     * Tests acquiring a slot after closing.
+     *
+     * @throws IOException
+     *             When the test fails.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testAcquireAfterClose() throws IOException
+    {
+        final CaptureSink sink = new CaptureSink(this.directory, "test", 1000,
+            400);
+        sink.close();
+        sink.acquire();
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link DeviceIndex} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class DeviceIndexTest
+{
+    /** The index to test. */
+    private DeviceIndex index;
+
+    /**
+     * Set up the test.
+     */
+    @Before
+    public void setUp()
+    {
+        this.index = new DeviceIndex(null, false);
+    }
+
+    /**
+     * Creates and adds an index entry.
+     *
+     * @param address
+     *            The device address.
+     * @param portPath
+     *            The port path.
+     * @param productId
+     *            The product ID.
+     * @param deviceClass
+     *            The device class.
+     * @return The added entry.
+     */
+    private IndexedDevice add(final int address, final String portPath,
+        final int productId, final int deviceClass)
+    {
+        final IndexedDevice entry = new IndexedDevice(new Device(), 1,
+            address, portPath, (short) 0x1234, (short) productId,
+            (byte) deviceClass, (byte) 3, null);
+        this.index.put(entry);
+        return entry;
+    }
+
+    /**
+     * Tests the lookups.
+     */
+    @Test
+    public void testLookup()
+    {
+        final IndexedDevice root = add(1, "usb1", 1, 9);
+        final IndexedDevice hub = add(2, "1-2", 2, 9);
+        final IndexedDevice a = add(3, "1-2.1", 3, 0);
+        final IndexedDevice b = add(4, "1-2.4.3", 3, 0);
+        final IndexedDevice c = add(5, "1-21", 3, 0);
+
+        assertEquals(5, this.index.size());
+        assertSame(hub, this.index.get(1, 2));
+        assertSame(a, this.index.getByPortPath("1-2.1"));
+        assertEquals(3, this.index.getById((short) 0x1234, (short) 3).size());
+        assertTrue(this.index.getById((short) 0x1234, (short) 9).isEmpty());
+        assertEquals(2, this.index.getByClass((byte) 9).size());
+
+        final List<IndexedDevice> below = this.index.getByPortPathPrefix(
+            "1-2");
+        assertEquals(3, below.size());
+        assertSame(hub, below.get(0));
+        assertSame(a, below.get(1));
+        assertSame(b, below.get(2));
+        assertEquals(5, this.index.getByPortPathPrefix("usb1").size());
+        assertSame(root, this.index.getAll().get(4));
+        assertSame(c, this.index.getAll().get(3));
+    }
+
+    /**
+     * Tests removing an entry.
+     */
+    @Test
+    public void testRemove()
+    {
+        final IndexedDevice a = add(3, "1-2.1", 3, 0);
+        add(4, "1-2.2", 3, 0);
+        assertSame(a, this.index.remove(1, 3));
+        assertNull(this.index.remove(1, 3));
+        assertNull(this.index.getByPortPath("1-2.1"));
+        assertEquals(1, this.index.getById((short) 0x1234, (short) 3).size());
+        assertEquals(1, this.index.size());
+    }
+
+    /**
+     * Tests replacing an entry with the same address.
+     */
+    @Test
+    public void testReplace()
+    {
+        final IndexedDevice a = add(3, "1-2.1", 3, 0);
+        final IndexedDevice b = new IndexedDevice(new Device(), 1, 3, "1-2.2",
+            (short) 0x1234, (short) 7, (byte) 0, (byte) 0, null);
+        assertSame(a, this.index.put(b));
+        assertNull(this.index.getByPortPath("1-2.1"));
+        assertTrue(this.index.getById((short) 0x1234, (short) 3).isEmpty());
+        assertSame(b, this.index.getByPortPath("1-2.2"));
+    }
+
+    /**
+     * Tests the serial number index.
+     */
+    @Test
+    public void testSerialNumber()
+    {
+        final IndexedDevice a = add(3, "1-2.1", 3, 0);
+        assertTrue(this.index.getBySerialNumber("ABC").isEmpty());
+        this.index.setSerialNumber(a, "ABC");
+        final IndexedDevice updated = this.index.getBySerialNumber("ABC")
+            .get(0);
+        assertEquals("ABC", updated.getSerialNumber());
+        assertSame(updated, this.index.get(1, 3));
+
+        // Outdated entries are ignored
+        this.index.setSerialNumber(a, "XYZ");
+        assertTrue(this.index.getBySerialNumber("XYZ").isEmpty());
+
+        this.index.remove(1, 3);
+        assertTrue(this.index.getBySerialNumber("ABC").isEmpty());
+    }
+
+    /**
+     * Tests that returned lists are snapshots.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable()
+    {
+        add(3, "1-2.1", 3, 0);
+        this.index.getAll().clear();
+    }
+
+    /**
+     * Tests refreshing an index which is not started.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testRefreshNotStarted()
+    {
+        this.index.refresh();
+    }
+}
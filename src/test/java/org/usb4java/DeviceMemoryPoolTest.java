@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link DeviceMemoryPool} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class DeviceMemoryPoolTest
+{
+    /**
+     * Fake libusb operations simulating device memory with direct buffers.
+     */
+    private static final class FakeOperations
+        implements DeviceMemoryPool.Operations
+    {
+        /** If device memory is supported. */
+        private final boolean supported;
+
+        /** The freed device memory buffers. */
+        final List<ByteBuffer> freed = new ArrayList<ByteBuffer>();
+
+        /** If the device handle has been closed. */
+        boolean closed;
+
+        /**
+         * Constructs new fake operations.
+         *
+         * @param supported
+         *            If device memory is supported.
+         */
+        FakeOperations(final boolean supported)
+        {
+            this.supported = supported;
+        }
+
+        @Override
+        public ByteBuffer devMemAlloc(final DeviceHandle handle,
+            final int size)
+        {
+            return this.supported ? ByteBuffer.allocateDirect(size) : null;
+        }
+
+        @Override
+        public int devMemFree(final DeviceHandle handle,
+            final ByteBuffer buffer, final int size)
+        {
+            this.freed.add(buffer);
+            return LibUsb.SUCCESS;
+        }
+
+        @Override
+        public void close(final DeviceHandle handle)
+        {
+            this.closed = true;
+        }
+    }
+
+    /**
+     * Tests that the pool owns the specified handle.
+     */
+    @Test
+    public void testHandle()
+    {
+        final DeviceHandle handle = new DeviceHandle();
+        assertSame(handle, new DeviceMemoryPool(handle).getHandle());
+    }
+
+    /**
+     * Tests creating a pool without a handle.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructWithoutHandle()
+    {
+        new DeviceMemoryPool(null);
+    }
+
+    /**
+     * Tests the initial state.
+     */
+    @Test
+    public void testInitialState()
+    {
+        final DeviceMemoryPool pool = new DeviceMemoryPool(new DeviceHandle());
+        assertTrue(pool.isSupported());
+        assertEquals(DeviceMemoryPool.DEFAULT_MAX_IDLE, pool.getMaxIdle());
+        assertEquals(0, pool.getDeviceBufferCount());
+        assertEquals(0, pool.getInUseCount());
+        assertEquals(0, pool.getIdleCount(512));
+    }
+
+    /**
+     * Tests that released buffers are reused.
+     */
+    @Test
+    public void testReuse()
+    {
+        final DeviceMemoryPool pool = new DeviceMemoryPool(new DeviceHandle(),
+            new FakeOperations(true));
+        final ByteBuffer buffer = pool.acquire(512);
+        assertEquals(1, pool.getDeviceBufferCount());
+        assertEquals(1, pool.getInUseCount());
+        buffer.position(100);
+        pool.release(buffer);
+        assertEquals(1, pool.getIdleCount(512));
+        assertEquals(0, pool.getInUseCount());
+        final ByteBuffer reused = pool.acquire(512);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(0, pool.getIdleCount(512));
+        assertEquals(1, pool.getInUseCount());
+    }
+
+    /**
+     * Tests that the pool falls back to direct buffers when device memory
+     * is not supported.
+     */
+    @Test
+    public void testFallback()
+    {
+        final DeviceMemoryPool pool = new DeviceMemoryPool(new DeviceHandle(),
+            new FakeOperations(false));
+        final ByteBuffer buffer = pool.acquire(512);
+        assertTrue(buffer.isDirect());
+        assertFalse(pool.isSupported());
+        assertEquals(0, pool.getDeviceBufferCount());
+        assertEquals(0, pool.getInUseCount());
+        pool.release(buffer);
+        assertSame(buffer, pool.acquire(512));
+    }
+
+    /**
+     * Tests that the idle limit is honoured and surplus device memory is
+     * freed.
+     */
+    @Test
+    public void testMaxIdle()
+    {
+        final FakeOperations operations = new FakeOperations(true);
+        final DeviceMemoryPool pool = new DeviceMemoryPool(new DeviceHandle(),
+            operations);
+        pool.setMaxIdle(1);
+        final ByteBuffer a = pool.acquire(512);
+        final ByteBuffer b = pool.acquire(512);
+        pool.release(a);
+        pool.release(b);
+        assertEquals(1, pool.getIdleCount(512));
+        assertEquals(1, pool.getDeviceBufferCount());
+        assertEquals(1, operations.freed.size());
+        assertSame(b, operations.freed.get(0));
+    }
+
+    /**
+     * Tests that releasing a buffer twice is rejected and doesn't put it
+     * into the pool twice.
+     */
+    @Test
+    public void testReleaseTwice()
+    {
+        final DeviceMemoryPool pool = new DeviceMemoryPool(new DeviceHandle(),
+            new FakeOperations(true));
+        final ByteBuffer buffer = pool.acquire(512);
+        pool.release(buffer);
+        try
+        {
+            pool.release(buffer);
+            throw new AssertionError("IllegalArgumentException expected");
+        }
+        catch (final IllegalArgumentException e)
+        {
+            // Expected
+        }
+        assertEquals(1, pool.getIdleCount(512));
+        assertEquals(0, pool.getInUseCount());
+        assertSame(buffer, pool.acquire(512));
+        assertNotSame(buffer, pool.acquire(512));
+        assertEquals(2, pool.getInUseCount());
+    }
+
+    /**
+     * Tests releasing a direct buffer which was not obtained from the pool.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseForeignBuffer()
+    {
+        new DeviceMemoryPool(new DeviceHandle(), new FakeOperations(true))
+            .release(BufferUtils.allocateByteBuffer(512));
+    }
+
+    /**
+     * Tests acquiring a buffer with an invalid size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testAcquireWithInvalidSize()
+    {
+        new DeviceMemoryPool(new DeviceHandle()).acquire(0);
+    }
+
+    /**
+     * Tests releasing a heap buffer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseHeapBuffer()
+    {
+        new DeviceMemoryPool(new DeviceHandle()).release(
+            ByteBuffer.allocate(512));
+    }
+
+    /**
+     * Tests acquiring a buffer after the pool has been disposed.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testAcquireAfterDispose()
+    {
+        final DeviceMemoryPool pool = new DeviceMemoryPool(new DeviceHandle());
+        pool.dispose();
+        pool.acquire(512);
+    }
+
+    /**
+     * Tests that idle device memory is freed on close and that memory in use
+     * is freed on release, closing the handle with the last buffer.
+     */
+    @Test
+    public void testCloseWithBuffersInUse()
+    {
+        final FakeOperations operations = new FakeOperations(true);
+        final DeviceMemoryPool pool = new DeviceMemoryPool(new DeviceHandle(),
+            operations);
+        final ByteBuffer idle = pool.acquire(512);
+        final ByteBuffer used = pool.acquire(512);
+        pool.release(idle);
+        pool.close();
+        assertEquals(0, pool.getIdleCount(512));
+        assertEquals(1, operations.freed.size());
+        assertSame(idle, operations.freed.get(0));
+        assertFalse(operations.closed);
+        pool.release(used);
+        assertEquals(0, pool.getIdleCount(512));
+        assertEquals(2, operations.freed.size());
+        assertTrue(operations.closed);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link DeviceScanner} and {@link DeviceInventory} classes.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class DeviceScannerTest
+{
+    /**
+     * Creates scanned device information.
+     *
+     * @param address
+     *            The device address.
+     * @param parent
+     *            The parent address.
+     * @param probeNanos
+     *            The probe time.
+     * @param ports
+     *            The port numbers.
+     * @return The scanned device.
+     */
+    private static ScannedDevice device(final int address, final int parent,
+        final long probeNanos, final int... ports)
+    {
+        final byte[] portNumbers = new byte[ports.length];
+        for (int i = 0; i < ports.length; i++)
+        {
+            portNumbers[i] = (byte) ports[i];
+        }
+        return new ScannedDevice(1, address, parent, portNumbers, 3,
+            (short) 0x1234, (short) address, (byte) (ports.length < 2 ? 9 : 0),
+            null, "Device " + address, null, 0, 0, probeNanos);
+    }
+
+    /**
+     * Tests building the topology tree.
+     */
+    @Test
+    public void testTopology()
+    {
+        final List<ScannedDevice> devices = new ArrayList<ScannedDevice>();
+        final ScannedDevice root = device(1, -1, 10);
+        final ScannedDevice hub = device(2, 1, 20, 3);
+        final ScannedDevice a = device(3, 2, 30, 3, 1);
+        final ScannedDevice b = device(4, 2, 40, 3, 2);
+        devices.add(b);
+        devices.add(a);
+        devices.add(hub);
+        devices.add(root);
+        final DeviceInventory inventory = new DeviceInventory(devices, 50);
+
+        assertEquals(1, inventory.getRoots().size());
+        assertSame(root, inventory.getRoots().get(0));
+        assertEquals(1, inventory.getChildren(root).size());
+        assertSame(hub, inventory.getChildren(root).get(0));
+        assertEquals(2, inventory.getChildren(hub).size());
+        assertTrue(inventory.getChildren(a).isEmpty());
+        assertSame(hub, inventory.getParent(a));
+        assertNull(inventory.getParent(root));
+        assertSame(b, inventory.getDevice("1-3.2"));
+        assertSame(root, inventory.getDevice("usb1"));
+        assertSame(hub, inventory.getDevice(1, 2));
+        assertTrue(hub.isHub());
+        assertEquals(100, inventory.getTotalProbeNanos());
+        assertSame(b, inventory.getSlowestDevice());
+        assertEquals(50, inventory.getScanNanos());
+    }
+
+    /**
+     * Tests that devices with an unknown parent become roots.
+     */
+    @Test
+    public void testOrphan()
+    {
+        final List<ScannedDevice> devices = new ArrayList<ScannedDevice>();
+        devices.add(device(5, 9, 0, 1));
+        final DeviceInventory inventory = new DeviceInventory(devices, 0);
+        assertEquals(1, inventory.getRoots().size());
+    }
+
+    /**
+     * Tests the string representation of a scanned device.
+     */
+    @Test
+    public void testToString()
+    {
+        assertEquals("1-3.1 1234:0003 Device 3",
+            device(3, 2, 0, 3, 1).toString());
+    }
+
+    /**
+     * Tests that the inventory can't be modified.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable()
+    {
+        new DeviceInventory(new ArrayList<ScannedDevice>(), 0).getDevices()
+            .add(device(1, -1, 0));
+    }
+
+    /**
+     * Tests constructing a scanner with an invalid hub limit.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidHubLimit()
+    {
+        new DeviceScanner(null, 1, 0);
+    }
+
+    /**
+     * Tests constructing a scanner with an invalid number of threads.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreads()
+    {
+        new DeviceScanner(null, 0, 1);
+    }
+}
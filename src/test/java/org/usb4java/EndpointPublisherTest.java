@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link EndpointPublisher} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class EndpointPublisherTest
+{
+    /**
+     * Subscriber recording the received signals.
+     */
+    private static class RecordingSubscriber implements
+        Flow.Subscriber<ByteBuffer>
+    {
+        /** The subscription. */
+        private Flow.Subscription subscription;
+
+        /** The received error. */
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription)
+        {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final ByteBuffer item)
+        {
+            // Empty
+        }
+
+        @Override
+        public void onError(final Throwable throwable)
+        {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete()
+        {
+            // Empty
+        }
+    }
+
+    /**
+     * Fake libusb operations recording submitted transfers.
+     */
+    private static final class FakeOperations
+        implements EndpointPublisher.Operations
+    {
+        /** The submitted transfers in submission order. */
+        final List<Transfer> submitted = new ArrayList<Transfer>();
+
+        /** The buffer of each transfer. */
+        final Map<Transfer, ByteBuffer> buffers =
+            new HashMap<Transfer, ByteBuffer>();
+
+        /** The status of each transfer. */
+        final Map<Transfer, Integer> statuses =
+            new HashMap<Transfer, Integer>();
+
+        /** The actual length of each transfer. */
+        final Map<Transfer, Integer> actualLengths =
+            new HashMap<Transfer, Integer>();
+
+        /** The pointer of the next allocated transfer. */
+        private long nextPointer = 1;
+
+        @Override
+        public Transfer allocTransfer(final DeviceHandle handle,
+            final byte endpoint, final byte type, final int numIsoPackets,
+            final int packetSize, final TransferCallback callback)
+        {
+            final Transfer transfer = new Transfer();
+            try
+            {
+                final Field field = Transfer.class
+                    .getDeclaredField("transferPointer");
+                field.setAccessible(true);
+                field.set(transfer, this.nextPointer++);
+            }
+            catch (final Exception e)
+            {
+                throw new RuntimeException(e.toString(), e);
+            }
+            return transfer;
+        }
+
+        @Override
+        public void freeTransfer(final Transfer transfer)
+        {
+            // Empty
+        }
+
+        @Override
+        public void setBuffer(final Transfer transfer, final ByteBuffer buffer)
+        {
+            this.buffers.put(transfer, buffer);
+        }
+
+        @Override
+        public ByteBuffer buffer(final Transfer transfer)
+        {
+            return this.buffers.get(transfer);
+        }
+
+        @Override
+        public int status(final Transfer transfer)
+        {
+            return this.statuses.get(transfer);
+        }
+
+        @Override
+        public int actualLength(final Transfer transfer)
+        {
+            return this.actualLengths.get(transfer);
+        }
+
+        @Override
+        public int transferStatusToError(final int status)
+        {
+            return LibUsb.ERROR_IO;
+        }
+
+        @Override
+        public synchronized int submitTransfer(final Transfer transfer)
+        {
+            this.submitted.add(transfer);
+            return LibUsb.SUCCESS;
+        }
+
+        @Override
+        public int cancelTransfer(final Transfer transfer)
+        {
+            return LibUsb.SUCCESS;
+        }
+
+        /**
+         * Marks a transfer as completed.
+         *
+         * @param transfer
+         *            The transfer.
+         * @param status
+         *            The transfer status.
+         * @param actualLength
+         *            The number of received bytes.
+         */
+        void complete(final Transfer transfer, final int status,
+            final int actualLength)
+        {
+            this.statuses.put(transfer, status);
+            this.actualLengths.put(transfer, actualLength);
+        }
+    }
+
+    /**
+     * Creates a bulk publisher with the specified operations.
+     *
+     * @param operations
+     *            The libusb operations.
+     * @return The publisher.
+     */
+    private static EndpointPublisher publisher(
+        final FakeOperations operations)
+    {
+        return new EndpointPublisher(new DeviceHandle(), (byte) 0x81,
+            LibUsb.TRANSFER_TYPE_BULK, 0, 0, 512, 2, operations);
+    }
+
+    /**
+     * Tests the bulk factory method.
+     */
+    @Test
+    public void testBulk()
+    {
+        final EndpointPublisher publisher =
+            EndpointPublisher.bulk(new DeviceHandle(), (byte) 0x81, 16384, 4);
+        assertEquals(16384, publisher.getBufferSize());
+        assertEquals(4, publisher.getMaxInFlight());
+        assertEquals(0, publisher.getInFlight());
+        assertEquals(0, publisher.getPacketErrors());
+    }
+
+    /**
+     * Tests the isochronous factory method.
+     */
+    @Test
+    public void testIsochronous()
+    {
+        final EndpointPublisher publisher = EndpointPublisher.isochronous(
+            new DeviceHandle(), (byte) 0x82, 8, 1024, 4);
+        assertEquals(8192, publisher.getBufferSize());
+    }
+
+    /**
+     * Tests creating a publisher for an OUT endpoint.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutEndpoint()
+    {
+        EndpointPublisher.bulk(new DeviceHandle(), (byte) 0x01, 512, 4);
+    }
+
+    /**
+     * Tests that a second subscriber is rejected.
+     */
+    @Test
+    public void testSecondSubscriber()
+    {
+        final EndpointPublisher publisher =
+            EndpointPublisher.bulk(new DeviceHandle(), (byte) 0x81, 512, 4);
+        final RecordingSubscriber first = new RecordingSubscriber();
+        final RecordingSubscriber second = new RecordingSubscriber();
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+        assertNotNull(first.subscription);
+        assertNull(first.error);
+        assertNotNull(second.subscription);
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    /**
+     * Tests that requesting a non-positive number of items signals an
+     * error.
+     */
+    @Test
+    public void testInvalidRequest()
+    {
+        final EndpointPublisher publisher =
+            EndpointPublisher.bulk(new DeviceHandle(), (byte) 0x81, 512, 4);
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    /**
+     * Tests that the demand controls the submitted transfers and that the
+     * received data is published.
+     */
+    @Test
+    public void testPublish()
+    {
+        final FakeOperations operations = new FakeOperations();
+        final EndpointPublisher publisher = publisher(operations);
+        final List<ByteBuffer> items = new ArrayList<ByteBuffer>();
+        final RecordingSubscriber subscriber = new RecordingSubscriber()
+        {
+            @Override
+            public void onNext(final ByteBuffer item)
+            {
+                items.add(item);
+            }
+        };
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(3);
+        assertEquals(2, operations.submitted.size());
+        assertEquals(2, publisher.getInFlight());
+
+        final Transfer transfer = operations.submitted.get(0);
+        operations.complete(transfer, LibUsb.TRANSFER_COMPLETED, 100);
+        publisher.processTransfer(transfer);
+        assertEquals(1, items.size());
+        assertEquals(0, items.get(0).position());
+        assertEquals(100, items.get(0).limit());
+        assertEquals(3, operations.submitted.size());
+        assertSame(transfer, operations.submitted.get(2));
+        assertNull(subscriber.error);
+    }
+
+    /**
+     * Tests that an invalid request from another thread while the
+     * subscriber processes an item is signalled after the subscriber has
+     * returned and by the thread which delivered the item.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testRequestDuringOnNext() throws Exception
+    {
+        final FakeOperations operations = new FakeOperations();
+        final EndpointPublisher publisher = publisher(operations);
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        final boolean[] overlap = new boolean[1];
+        final Thread[] errorThread = new Thread[1];
+        final RecordingSubscriber subscriber = new RecordingSubscriber()
+        {
+            /** If onNext is currently running. */
+            private volatile boolean inNext;
+
+            @Override
+            public void onNext(final ByteBuffer item)
+            {
+                this.inNext = true;
+                entered.countDown();
+                try
+                {
+                    proceed.await(5, TimeUnit.SECONDS);
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                this.inNext = false;
+            }
+
+            @Override
+            public void onError(final Throwable throwable)
+            {
+                overlap[0] = this.inNext;
+                errorThread[0] = Thread.currentThread();
+                super.onError(throwable);
+            }
+        };
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+        final Transfer transfer = operations.submitted.get(0);
+        operations.complete(transfer, LibUsb.TRANSFER_COMPLETED, 8);
+
+        final Thread eventThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                publisher.processTransfer(transfer);
+            }
+        });
+        eventThread.start();
+        try
+        {
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            subscriber.subscription.request(0);
+            assertNull(subscriber.error);
+        }
+        finally
+        {
+            proceed.countDown();
+            eventThread.join(5000);
+        }
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertFalse(overlap[0]);
+        assertSame(eventThread, errorThread[0]);
+        assertEquals(1, operations.submitted.size());
+    }
+}
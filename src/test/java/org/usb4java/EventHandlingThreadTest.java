@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.usb4java.test.UsbAssume.assumeUsbTestsEnabled;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link EventHandlingThread} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class EventHandlingThreadTest
+{
+    /**
+     * Tests the default settings.
+     */
+    @Test
+    public void testDefaults()
+    {
+        final EventHandlingThread thread = new EventHandlingThread();
+        assertNull(thread.getContext());
+        assertEquals(EventHandlingThread.DEFAULT_TIMEOUT, thread.getTimeout());
+        assertEquals(0, thread.getSpinBudget());
+        assertEquals(0, thread.getSpinPolls());
+        assertEquals(0, thread.getBlockingCalls());
+        assertEquals(0.0, thread.getSpinEfficiency(), 0.0);
+    }
+
+    /**
+     * Tests the setters.
+     */
+    @Test
+    public void testSetters()
+    {
+        final Context context = new Context();
+        final EventHandlingThread thread = new EventHandlingThread(context);
+        assertSame(context, thread.getContext());
+        thread.setTimeout(1000);
+        assertEquals(1000, thread.getTimeout());
+        thread.setSpinBudget(50000);
+        assertEquals(50000, thread.getSpinBudget());
+    }
+
+    /**
+     * Tests setting an invalid timeout.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetInvalidTimeout()
+    {
+        new EventHandlingThread().setTimeout(0);
+    }
+
+    /**
+     * Tests setting a negative spin budget.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetNegativeSpinBudget()
+    {
+        new EventHandlingThread().setSpinBudget(-1);
+    }
+
+    /**
+     * Tests running the thread in busy-poll mode.
+     *
+     * @throws Exception
+     *             When test fails.
+     */
+    @Test
+    public void testBusyPoll() throws Exception
+    {
+        assumeUsbTestsEnabled();
+        final Context context = new Context();
+        LibUsb.init(context);
+        try
+        {
+            final EventHandlingThread thread =
+                new EventHandlingThread(context);
+            thread.setTimeout(10000);
+            thread.setSpinBudget(1000000);
+            thread.start();
+            Thread.sleep(50);
+            thread.markActivity();
+            Thread.sleep(50);
+            thread.abort();
+            thread.join();
+            assertTrue(thread.getSpinPolls() > 0);
+            assertTrue(thread.getBlockingCalls() > 0);
+            assertTrue(thread.getSpinTime() > 0);
+        }
+        finally
+        {
+            LibUsb.exit(context);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link HotplugDispatcher} and {@link HotplugCoalescer} classes.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class HotplugDispatcherTest
+{
+    /** An executor running tasks in the calling thread. */
+    private static final Executor EXECUTOR = new Executor()
+    {
+        @Override
+        public void execute(final Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    /**
+     * Creates a hotplug event.
+     *
+     * @param arrived
+     *            True for an arrival, false for a departure.
+     * @param portPath
+     *            The port path.
+     * @return The event.
+     */
+    private static HotplugEvent event(final boolean arrived,
+        final String portPath)
+    {
+        final HotplugEvent event = new HotplugEvent(new Device(),
+            arrived ? LibUsb.HOTPLUG_EVENT_DEVICE_ARRIVED
+                : LibUsb.HOTPLUG_EVENT_DEVICE_LEFT, 0);
+        event.portPath = portPath;
+        return event;
+    }
+
+    /**
+     * Tests that events are held back until the window expired.
+     */
+    @Test
+    public void testDebounce()
+    {
+        final HotplugCoalescer coalescer = new HotplugCoalescer(100);
+        final HotplugEvent arrived = event(true, "1-1");
+        assertTrue(coalescer.add(arrived, 0).isEmpty());
+        assertEquals(100, coalescer.getDelay(0));
+        assertTrue(coalescer.poll(99).isEmpty());
+        final List<HotplugEvent> due = coalescer.poll(100);
+        assertEquals(1, due.size());
+        assertSame(arrived, due.get(0));
+        assertEquals(-1, coalescer.getDelay(100));
+    }
+
+    /**
+     * Tests that a device which arrives and leaves within the window is not
+     * reported.
+     */
+    @Test
+    public void testFlapping()
+    {
+        final HotplugCoalescer coalescer = new HotplugCoalescer(100);
+        coalescer.add(event(true, "1-1"), 0);
+        assertEquals(2, coalescer.add(event(false, "1-1"), 50).size());
+        assertEquals(0, coalescer.size());
+        assertTrue(coalescer.poll(1000).isEmpty());
+    }
+
+    /**
+     * Tests that a reconnect delivers the departure before the arrival and
+     * that each event extends the window.
+     */
+    @Test
+    public void testReconnect()
+    {
+        final HotplugCoalescer coalescer = new HotplugCoalescer(100);
+        final HotplugEvent left = event(false, "1-1");
+        final HotplugEvent arrived = event(true, "1-1");
+        final HotplugEvent other = event(true, "1-2");
+        coalescer.add(left, 0);
+        coalescer.add(other, 10);
+        coalescer.add(arrived, 80);
+        assertEquals(20, coalescer.getDelay(90));
+        assertEquals(1, coalescer.poll(110).size());
+        final List<HotplugEvent> due = coalescer.poll(180);
+        assertEquals(2, due.size());
+        assertSame(left, due.get(0));
+        assertSame(arrived, due.get(1));
+    }
+
+    /**
+     * Tests clearing the pending events.
+     */
+    @Test
+    public void testClear()
+    {
+        final HotplugCoalescer coalescer = new HotplugCoalescer(100);
+        coalescer.add(event(false, "1-1"), 0);
+        coalescer.add(event(true, "1-1"), 0);
+        coalescer.add(event(true, "1-2"), 0);
+        assertEquals(3, coalescer.clear().size());
+        assertEquals(0, coalescer.size());
+    }
+
+    /**
+     * Tests the debounce window conversion.
+     */
+    @Test
+    public void testWindow()
+    {
+        final HotplugDispatcher dispatcher = new HotplugDispatcher(EXECUTOR,
+            16, 2, TimeUnit.SECONDS);
+        assertEquals(2000, dispatcher.getWindow(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Tests constructing a dispatcher with an invalid capacity.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity()
+    {
+        new HotplugDispatcher(EXECUTOR, 0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tests constructing a dispatcher with a negative window.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWindow()
+    {
+        new HotplugDispatcher(EXECUTOR, 1, -1, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tests closing a dispatcher which was not started.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testCloseNotStarted() throws Exception
+    {
+        new HotplugDispatcher(EXECUTOR).close();
+    }
+}
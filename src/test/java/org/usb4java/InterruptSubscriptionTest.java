@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link InterruptSubscription} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class InterruptSubscriptionTest
+{
+    /** Listener doing nothing. */
+    private static final ReportListener LISTENER = new ReportListener()
+    {
+        @Override
+        public void reportReceived(final InterruptSubscription subscription,
+            final ByteBuffer report)
+        {
+            // Empty
+        }
+
+        @Override
+        public void subscriptionTerminated(
+            final InterruptSubscription subscription, final int status)
+        {
+            // Empty
+        }
+    };
+
+    /**
+     * Tests the constructor.
+     */
+    @Test
+    public void testConstructor()
+    {
+        final DeviceHandle handle = new DeviceHandle();
+        final InterruptSubscription subscription = new InterruptSubscription(
+            handle, (byte) 0x81, 64, 4, LISTENER);
+        assertSame(handle, subscription.getHandle());
+        assertEquals((byte) 0x81, subscription.getEndpoint());
+        assertEquals(64, subscription.getReportSize());
+        assertEquals(4, subscription.getQueueDepth());
+        assertEquals(0, subscription.getReportCount());
+        assertFalse(subscription.isActive());
+    }
+
+    /**
+     * Tests the constructor with an OUT endpoint.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithOutEndpoint()
+    {
+        new InterruptSubscription(new DeviceHandle(), (byte) 0x01, 64, 4,
+            LISTENER);
+    }
+
+    /**
+     * Tests the constructor with an invalid queue depth.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithInvalidQueueDepth()
+    {
+        new InterruptSubscription(new DeviceHandle(), (byte) 0x81, 64, 0,
+            LISTENER);
+    }
+
+    /**
+     * Tests the constructor without listener.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithoutListener()
+    {
+        new InterruptSubscription(new DeviceHandle(), (byte) 0x81, 64, 4,
+            null);
+    }
+
+    /**
+     * Tests stopping a subscription which was never started.
+     */
+    @Test
+    public void testStopWithoutStart()
+    {
+        final InterruptSubscription subscription = new InterruptSubscription(
+            new DeviceHandle(), (byte) 0x81, 64, 4, LISTENER);
+        subscription.stop();
+        assertFalse(subscription.isActive());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link IsoInStream} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class IsoInStreamTest
+{
+    /**
+     * Tests the constructor.
+     */
+    @Test
+    public void testConstructor()
+    {
+        final RingBuffer ring = new RingBuffer(65536);
+        final IsoInStream stream = new IsoInStream(new Device(),
+            new DeviceHandle(), (byte) 0x81, 8, 32, ring);
+        assertSame(ring, stream.getRing());
+        assertEquals(0, stream.getServiceInterval());
+        assertEquals(0, stream.getPacketCount());
+        assertEquals(0, stream.getPacketErrors());
+        assertEquals(0, stream.getEmptyPackets());
+        assertEquals(0, stream.getOverrunBytes());
+        assertEquals(0, stream.getMissedIntervals());
+        assertEquals(LibUsb.TRANSFER_CANCELLED,
+            stream.getTerminationStatus());
+        assertFalse(stream.isActive());
+    }
+
+    /**
+     * Tests the constructor with an OUT endpoint.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithOutEndpoint()
+    {
+        new IsoInStream(new Device(), new DeviceHandle(), (byte) 0x01, 8, 32,
+            new RingBuffer(1024));
+    }
+
+    /**
+     * Tests the constructor without ring buffer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithoutRing()
+    {
+        new IsoInStream(new Device(), new DeviceHandle(), (byte) 0x81, 8, 32,
+            null);
+    }
+
+    /**
+     * Tests setting the service interval.
+     */
+    @Test
+    public void testSetServiceInterval()
+    {
+        final IsoInStream stream = new IsoInStream(new Device(),
+            new DeviceHandle(), (byte) 0x81, 8, 32, new RingBuffer(1024));
+        stream.setServiceInterval(250000);
+        assertEquals(250000, stream.getServiceInterval());
+    }
+}
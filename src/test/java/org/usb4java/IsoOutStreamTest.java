@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link IsoOutStream} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class IsoOutStreamTest
+{
+    /**
+     * Tests the constructor.
+     */
+    @Test
+    public void testConstructor()
+    {
+        final RingBuffer ring = new RingBuffer(65536);
+        final IsoOutStream stream = new IsoOutStream(new Device(),
+            new DeviceHandle(), (byte) 0x01, 8, 32, ring);
+        assertSame(ring, stream.getRing());
+        assertEquals(0, stream.getFrameSize());
+        assertEquals(0, stream.getFramesPerPacket(), 0);
+        assertEquals(0, stream.getFeedbackEndpoint());
+        assertEquals(0, stream.getPacketCount());
+        assertEquals(0, stream.getPacketErrors());
+        assertEquals(0, stream.getUnderruns());
+        assertEquals(0, stream.getUnderrunBytes());
+        assertEquals(0, stream.getFeedbackCount());
+        assertEquals(0, stream.getMissedIntervals());
+        assertFalse(stream.isActive());
+    }
+
+    /**
+     * Tests the constructor with an IN endpoint.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithInEndpoint()
+    {
+        new IsoOutStream(new Device(), new DeviceHandle(), (byte) 0x81, 8, 32,
+            new RingBuffer(1024));
+    }
+
+    /**
+     * Tests setting the packet rate.
+     */
+    @Test
+    public void testSetFramesPerPacket()
+    {
+        final IsoOutStream stream = new IsoOutStream(new Device(),
+            new DeviceHandle(), (byte) 0x01, 8, 32, new RingBuffer(1024));
+        stream.setFrameSize(4);
+        stream.setFramesPerPacket(44.1);
+        assertEquals(4, stream.getFrameSize());
+        assertEquals(44.1, stream.getFramesPerPacket(), 0.0001);
+    }
+
+    /**
+     * Tests setting an invalid frame size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetInvalidFrameSize()
+    {
+        new IsoOutStream(new Device(), new DeviceHandle(), (byte) 0x01, 8, 32,
+            new RingBuffer(1024)).setFrameSize(0);
+    }
+
+    /**
+     * Tests setting an OUT endpoint as feedback endpoint.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetOutFeedbackEndpoint()
+    {
+        new IsoOutStream(new Device(), new DeviceHandle(), (byte) 0x01, 8, 32,
+            new RingBuffer(1024)).setFeedbackEndpoint((byte) 0x02);
+    }
+
+    /**
+     * Tests decoding a full speed feedback value.
+     */
+    @Test
+    public void testDecodeFullSpeedFeedback()
+    {
+        // 44.1 frames per 1 ms frame in 10.14 format
+        final ByteBuffer buffer = ByteBuffer.allocate(4);
+        final int value = (int) Math.round(44.1 * (1 << 14));
+        buffer.put(0, (byte) value).put(1, (byte) (value >> 8))
+            .put(2, (byte) (value >> 16));
+        assertEquals(44.1, IsoOutStream.decodeFeedback(buffer, 3, 1000000)
+            / 65536.0, 0.0001);
+        assertEquals(88.2, IsoOutStream.decodeFeedback(buffer, 3, 2000000)
+            / 65536.0, 0.0001);
+    }
+
+    /**
+     * Tests decoding a high speed feedback value.
+     */
+    @Test
+    public void testDecodeHighSpeedFeedback()
+    {
+        // 6.0125 frames per 125 microsecond microframe in 16.16 format
+        final ByteBuffer buffer = ByteBuffer.allocate(4);
+        final int value = (int) Math.round(6.0125 * (1 << 16));
+        buffer.put(0, (byte) value).put(1, (byte) (value >> 8))
+            .put(2, (byte) (value >> 16)).put(3, (byte) (value >> 24));
+        assertEquals(6.0125, IsoOutStream.decodeFeedback(buffer, 4, 125000)
+            / 65536.0, 0.0001);
+        assertEquals(48.1, IsoOutStream.decodeFeedback(buffer, 4, 1000000)
+            / 65536.0, 0.0001);
+        assertEquals(0, IsoOutStream.decodeFeedback(buffer, 2, 125000));
+    }
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link LargeTransfer} and {@link LargeTransferResult} classes.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class LargeTransferTest
+{
+    /** The maximum packet size used by the tests. */
+    private static final int PACKET_SIZE = 512;
+
+    /** The chunk size used by the tests. */
+    private static final int CHUNK_SIZE = 1024;
+
+    /** The fake libusb operations. */
+    private FakeOperations operations;
+
+    /** The executor running the blocking transfers. */
+    private ExecutorService executor;
+
+    /**
+     * Fake libusb operations recording the chunks. Each chunk of the test
+     * data is filled with its chunk number, so the first byte of a
+     * submitted buffer identifies the chunk.
+     */
+    private static final class FakeOperations
+        implements LargeTransfer.Operations
+    {
+        /** The pointer of the next allocated transfer. */
+        private long nextPointer = 1;
+
+        /** The callback of the chunks. */
+        private TransferCallback callback;
+
+        /** The buffers of the filled transfers. */
+        private final Map<Transfer, ByteBuffer> buffers =
+            new HashMap<Transfer, ByteBuffer>();
+
+        /** The submitted transfers in submission order. */
+        final List<Transfer> submitted = new ArrayList<Transfer>();
+
+        /** The submitted chunk numbers in submission order. */
+        final List<Integer> chunks = new ArrayList<Integer>();
+
+        /** The flags of the submitted chunks in submission order. */
+        final List<Byte> flags = new ArrayList<Byte>();
+
+        /** The cancelled transfers in cancellation order. */
+        final List<Transfer> cancelled = new ArrayList<Transfer>();
+
+        /** The number of freed transfers. */
+        int freed;
+
+        /** The flags set for the next submission. */
+        private byte nextFlags;
+
+        /** The submission which fails or -1 for none. */
+        int failAt = -1;
+
+        /** The status of each transfer. */
+        private final Map<Transfer, Integer> statuses =
+            new HashMap<Transfer, Integer>();
+
+        /** The actual length of each transfer. */
+        private final Map<Transfer, Integer> actualLengths =
+            new HashMap<Transfer, Integer>();
+
+        @Override
+        public synchronized Transfer allocTransfer()
+        {
+            return transfer(this.nextPointer++);
+        }
+
+        @Override
+        public synchronized void freeTransfer(final Transfer transfer)
+        {
+            this.freed++;
+        }
+
+        @Override
+        public synchronized void fillBulkTransfer(final Transfer transfer,
+            final DeviceHandle handle, final byte endpoint,
+            final ByteBuffer buffer, final TransferCallback callback,
+            final long timeout)
+        {
+            this.buffers.put(transfer, buffer);
+            this.callback = callback;
+        }
+
+        @Override
+        public synchronized void setFlags(final Transfer transfer,
+            final byte flags)
+        {
+            this.nextFlags = flags;
+        }
+
+        @Override
+        public synchronized int submitTransfer(final Transfer transfer)
+        {
+            if (this.submitted.size() == this.failAt)
+            {
+                this.failAt = -1;
+                return LibUsb.ERROR_NO_DEVICE;
+            }
+            this.submitted.add(transfer);
+            this.chunks.add((int) this.buffers.get(transfer).get(0));
+            this.flags.add(this.nextFlags);
+            notifyAll();
+            return LibUsb.SUCCESS;
+        }
+
+        @Override
+        public synchronized int cancelTransfer(final Transfer transfer)
+        {
+            this.cancelled.add(transfer);
+            return LibUsb.SUCCESS;
+        }
+
+        @Override
+        public synchronized int status(final Transfer transfer)
+        {
+            return this.statuses.get(transfer);
+        }
+
+        @Override
+        public synchronized int actualLength(final Transfer transfer)
+        {
+            return this.actualLengths.get(transfer);
+        }
+
+        @Override
+        public int transferStatusToError(final int status)
+        {
+            switch (status)
+            {
+                case LibUsb.TRANSFER_STALL:
+                    return LibUsb.ERROR_PIPE;
+                case LibUsb.TRANSFER_CANCELLED:
+                    return LibUsb.ERROR_INTERRUPTED;
+                default:
+                    return LibUsb.ERROR_OTHER;
+            }
+        }
+
+        /**
+         * Waits until the specified number of chunks has been submitted.
+         *
+         * @param count
+         *            The number of submissions to wait for.
+         * @return The submitted transfer with the index count - 1.
+         * @throws InterruptedException
+         *             When interrupted.
+         */
+        synchronized Transfer awaitSubmitted(final int count)
+            throws InterruptedException
+        {
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (this.submitted.size() < count)
+            {
+                final long remaining = deadline - System.currentTimeMillis();
+                assertTrue("Chunk not submitted", remaining > 0);
+                wait(remaining);
+            }
+            return this.submitted.get(count - 1);
+        }
+
+        /**
+         * Completes a chunk.
+         *
+         * @param transfer
+         *            The chunk transfer.
+         * @param status
+         *            The transfer status.
+         * @param actualLength
+         *            The number of transferred bytes.
+         */
+        void complete(final Transfer transfer, final int status,
+            final int actualLength)
+        {
+            final TransferCallback chunkCallback;
+            synchronized (this)
+            {
+                this.statuses.put(transfer, status);
+                this.actualLengths.put(transfer, actualLength);
+                chunkCallback = this.callback;
+            }
+            chunkCallback.processTransfer(transfer);
+        }
+    }
+
+    /**
+     * Sets up the test.
+     */
+    @Before
+    public void setUp()
+    {
+        this.operations = new FakeOperations();
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(final Runnable runnable)
+            {
+                // A failed test may leave a transfer waiting forever
+                final Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Tears down the test.
+     */
+    @After
+    public void tearDown()
+    {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Creates a transfer with a unique pointer so transfers can be told
+     * apart without native code.
+     *
+     * @param pointer
+     *            The pointer to set.
+     * @return The transfer.
+     */
+    private static Transfer transfer(final long pointer)
+    {
+        final Transfer transfer = new Transfer();
+        try
+        {
+            final Field field = Transfer.class
+                .getDeclaredField("transferPointer");
+            field.setAccessible(true);
+            field.set(transfer, pointer);
+        }
+        catch (final Exception e)
+        {
+            throw new RuntimeException(e.toString(), e);
+        }
+        return transfer;
+    }
+
+    /**
+     * Creates test data with the specified number of chunks. Each chunk is
+     * filled with its chunk number.
+     *
+     * @param chunks
+     *            The number of chunks.
+     * @return The test data.
+     */
+    private static ByteBuffer data(final int chunks)
+    {
+        final ByteBuffer data = ByteBuffer.allocateDirect(chunks * CHUNK_SIZE);
+        for (int i = 0; i < data.capacity(); i++)
+        {
+            data.put(i, (byte) (i / CHUNK_SIZE));
+        }
+        return data;
+    }
+
+    /**
+     * Starts a transfer in the background.
+     *
+     * @param endpoint
+     *            The endpoint address.
+     * @param depth
+     *            The pipeline depth.
+     * @param data
+     *            The data to transfer.
+     * @param zeroLengthPacket
+     *            If a zero length packet is sent.
+     * @return The future result.
+     */
+    private Future<LargeTransferResult> start(final byte endpoint,
+        final int depth, final ByteBuffer data,
+        final boolean zeroLengthPacket)
+    {
+        final LargeTransfer transfer = new LargeTransfer(new DeviceHandle(),
+            endpoint, PACKET_SIZE, this.operations);
+        transfer.setChunkSize(CHUNK_SIZE);
+        transfer.setDepth(depth);
+        transfer.setZeroLengthPacket(zeroLengthPacket);
+        return this.executor.submit(new Callable<LargeTransferResult>()
+        {
+            @Override
+            public LargeTransferResult call() throws Exception
+            {
+                return transfer.transfer(data);
+            }
+        });
+    }
+
+    /**
+     * Tests that a window of chunks is kept in flight and every retired
+     * chunk slot is reused for the next chunk.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testWindow() throws Exception
+    {
+        final ByteBuffer data = data(4);
+        final Future<LargeTransferResult> future = start((byte) 0x01, 2,
+            data, true);
+        final Transfer first = this.operations.awaitSubmitted(1);
+        final Transfer second = this.operations.awaitSubmitted(2);
+        assertEquals(Arrays.asList(0, 1), this.operations.chunks);
+
+        this.operations.complete(first, LibUsb.TRANSFER_COMPLETED,
+            CHUNK_SIZE);
+        assertSame(first, this.operations.awaitSubmitted(3));
+        this.operations.complete(second, LibUsb.TRANSFER_COMPLETED,
+            CHUNK_SIZE);
+        assertSame(second, this.operations.awaitSubmitted(4));
+        assertEquals(Arrays.asList(0, 1, 2, 3), this.operations.chunks);
+        this.operations.complete(first, LibUsb.TRANSFER_COMPLETED,
+            CHUNK_SIZE);
+        this.operations.complete(second, LibUsb.TRANSFER_COMPLETED,
+            CHUNK_SIZE);
+
+        final LargeTransferResult result = future.get(5, TimeUnit.SECONDS);
+        assertTrue(result.isSuccess());
+        assertFalse(result.isShortPacket());
+        assertEquals(4 * CHUNK_SIZE, result.getTransferred());
+        assertEquals(4, result.getChunks());
+        assertEquals(2, result.getDepth());
+        assertEquals(4 * CHUNK_SIZE, data.position());
+        assertEquals(Arrays.asList((byte) 0, (byte) 0, (byte) 0,
+            LibUsb.TRANSFER_ADD_ZERO_PACKET), this.operations.flags);
+        assertTrue(this.operations.cancelled.isEmpty());
+        assertEquals(2, this.operations.freed);
+    }
+
+    /**
+     * Tests that a short packet stops an IN transfer, cancels the queued
+     * chunks and that data of chunks behind the gap is not counted.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testShortPacket() throws Exception
+    {
+        final ByteBuffer data = data(4);
+        final Future<LargeTransferResult> future = start((byte) 0x81, 3,
+            data, false);
+        final Transfer first = this.operations.awaitSubmitted(1);
+        final Transfer second = this.operations.awaitSubmitted(2);
+        final Transfer third = this.operations.awaitSubmitted(3);
+
+        this.operations.complete(first, LibUsb.TRANSFER_COMPLETED, 100);
+        assertEquals(Arrays.asList(second, third), this.operations.cancelled);
+        this.operations.complete(second, LibUsb.TRANSFER_CANCELLED, 512);
+        this.operations.complete(third, LibUsb.TRANSFER_CANCELLED, 0);
+
+        final LargeTransferResult result = future.get(5, TimeUnit.SECONDS);
+        assertTrue(result.isSuccess());
+        assertTrue(result.isShortPacket());
+        assertEquals(100, result.getTransferred());
+        assertEquals(1, result.getChunks());
+        assertEquals(100, data.position());
+        assertEquals(3, this.operations.submitted.size());
+        assertEquals(3, this.operations.freed);
+    }
+
+    /**
+     * Tests that a failed chunk cancels the queued chunks and the result
+     * only counts the data in front of the failed chunk.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testFailedChunk() throws Exception
+    {
+        final ByteBuffer data = data(4);
+        final Future<LargeTransferResult> future = start((byte) 0x01, 3,
+            data, false);
+        final Transfer first = this.operations.awaitSubmitted(1);
+        final Transfer second = this.operations.awaitSubmitted(2);
+        final Transfer third = this.operations.awaitSubmitted(3);
+
+        this.operations.complete(first, LibUsb.TRANSFER_COMPLETED,
+            CHUNK_SIZE);
+        assertSame(first, this.operations.awaitSubmitted(4));
+        this.operations.complete(second, LibUsb.TRANSFER_STALL, 0);
+        assertEquals(Arrays.asList(first, third), this.operations.cancelled);
+        assertEquals(4, this.operations.submitted.size());
+        this.operations.complete(third, LibUsb.TRANSFER_COMPLETED,
+            CHUNK_SIZE);
+        this.operations.complete(first, LibUsb.TRANSFER_CANCELLED, 0);
+
+        final LargeTransferResult result = future.get(5, TimeUnit.SECONDS);
+        assertEquals(LibUsb.ERROR_PIPE, result.getResult());
+        assertFalse(result.isShortPacket());
+        assertEquals(CHUNK_SIZE, result.getTransferred());
+        assertEquals(CHUNK_SIZE, data.position());
+        assertEquals(3, this.operations.freed);
+    }
+
+    /**
+     * Tests that a failed submission stops the transfer and cancels the
+     * chunks already in flight.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testSubmitFailure() throws Exception
+    {
+        this.operations.failAt = 1;
+        final Future<LargeTransferResult> future = start((byte) 0x81, 3,
+            data(4), false);
+        final Transfer first = this.operations.awaitSubmitted(1);
+        synchronized (this.operations)
+        {
+            while (this.operations.cancelled.isEmpty())
+            {
+                this.operations.wait(10);
+            }
+        }
+        assertEquals(Arrays.asList(first), this.operations.cancelled);
+        this.operations.complete(first, LibUsb.TRANSFER_CANCELLED, 0);
+        final LargeTransferResult result = future.get(5, TimeUnit.SECONDS);
+        assertEquals(LibUsb.ERROR_NO_DEVICE, result.getResult());
+        assertEquals(0, result.getTransferred());
+        assertEquals(1, this.operations.submitted.size());
+        assertEquals(3, this.operations.freed);
+    }
+    /**
+     * Tests the chunk size alignment.
+     */
+    @Test
+    public void testAlignChunkSize()
+    {
+        assertEquals(65536, LargeTransfer.alignChunkSize(65536, 512));
+        assertEquals(65024, LargeTransfer.alignChunkSize(65535, 512));
+        assertEquals(1020, LargeTransfer.alignChunkSize(1024, 1020));
+        assertEquals(512, LargeTransfer.alignChunkSize(100, 512));
+    }
+
+    /**
+     * Tests the default and changed settings.
+     */
+    @Test
+    public void testSettings()
+    {
+        final LargeTransfer transfer = new LargeTransfer(new DeviceHandle(),
+            (byte) 0x81, 1024);
+        assertEquals(LargeTransfer.DEFAULT_CHUNK_SIZE,
+            transfer.getChunkSize());
+        assertEquals(LargeTransfer.DEFAULT_DEPTH, transfer.getDepth());
+        transfer.setChunkSize(5000);
+        assertEquals(4096, transfer.getChunkSize());
+        transfer.setDepth(3);
+        assertEquals(3, transfer.getDepth());
+    }
+
+    /**
+     * Tests that an empty buffer completes without any transfer.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testEmptyBuffer() throws Exception
+    {
+        final LargeTransfer transfer = new LargeTransfer(new DeviceHandle(),
+            (byte) 0x81, 512);
+        final LargeTransferResult result = transfer.transfer(
+            ByteBuffer.allocateDirect(0));
+        assertTrue(result.isSuccess());
+        assertEquals(0, result.getTransferred());
+        assertEquals(0, result.getChunks());
+        assertEquals(0, result.getDepth());
+    }
+
+    /**
+     * Tests the derived statistics of a result.
+     */
+    @Test
+    public void testResult()
+    {
+        final LargeTransferResult result = new LargeTransferResult(
+            LibUsb.SUCCESS, 4000000, true, 4, 1048576, 2, 8000, 100000000);
+        assertEquals(40000000.0, result.getBytesPerSecond(), 0.001);
+        assertEquals(2000, result.getAverageLatencyNanos());
+        assertTrue(result.isShortPacket());
+        final LargeTransferResult failed = new LargeTransferResult(
+            LibUsb.ERROR_PIPE, 0, false, 0, 512, 1, 0, 0);
+        assertFalse(failed.isSuccess());
+        assertEquals(0, failed.getBytesPerSecond(), 0);
+        assertEquals(0, failed.getAverageLatencyNanos());
+    }
+
+    /**
+     * Tests transferring a heap buffer.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testHeapBuffer() throws Exception
+    {
+        new LargeTransfer(new DeviceHandle(), (byte) 1, 512).transfer(
+            ByteBuffer.allocate(16));
+    }
+
+    /**
+     * Tests constructing with an invalid packet size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPacketSize()
+    {
+        new LargeTransfer(new DeviceHandle(), (byte) 1, 0);
+    }
+
+    /**
+     * Tests setting an invalid depth.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDepth()
+    {
+        new LargeTransfer(new DeviceHandle(), (byte) 1, 512).setDepth(0);
+    }
+}
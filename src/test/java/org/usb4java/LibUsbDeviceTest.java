@@ -1082,6 +1082,19 @@ public class LibUsbDeviceTest
             BufferUtils.allocateIntBuffer(), 0);
     }
 
+    /**
+     * Tests the
+     * {@link LibUsb#bulkTransferPacked(DeviceHandle, byte, ByteBuffer, long)}
+     * method without a handle.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkTransferPackedWithoutHandle()
+    {
+        assumeUsbTestsEnabled();
+        LibUsb.bulkTransferPacked(null, (byte) 0,
+            BufferUtils.allocateByteBuffer(0), 0);
+    }
+
     /**
      * Tests the
      * {@link LibUsb#bulkTransfer(DeviceHandle, byte, ByteBuffer, IntBuffer, long)}
@@ -1135,6 +1148,19 @@ public class LibUsbDeviceTest
             BufferUtils.allocateIntBuffer(), 0);
     }
 
+    /**
+     * Tests the
+     * {@link LibUsb#interruptTransferPacked(DeviceHandle, byte, ByteBuffer, long)}
+     * method without a handle.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInterruptTransferPackedWithoutHandle()
+    {
+        assumeUsbTestsEnabled();
+        LibUsb.interruptTransferPacked(null, (byte) 0,
+            BufferUtils.allocateByteBuffer(0), 0);
+    }
+
     /**
      * Tests the
      * {@link LibUsb#interruptTransfer(DeviceHandle, byte, ByteBuffer, IntBuffer, long)}
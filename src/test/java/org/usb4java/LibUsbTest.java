@@ -1296,6 +1296,37 @@ public class LibUsbTest
         LibUsb.getNextTimeout(context, BufferUtils.allocateLongBuffer());
     }
 
+    /**
+     * Tests {@link LibUsb#getNextTimeout(Context)} with uninitialized USB
+     * context.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testGetNextTimeoutWithoutBufferWithUninitializedContext()
+    {
+        assumeUsbTestsEnabled();
+        LibUsb.getNextTimeout(new Context());
+    }
+
+    /**
+     * Tests {@link LibUsb#getNextTimeout(Context)} without pending
+     * timeouts.
+     */
+    @Test
+    public void testGetNextTimeoutWithoutBuffer()
+    {
+        assumeUsbTestsEnabled();
+        final Context context = new Context();
+        assertEquals(LibUsb.SUCCESS, LibUsb.init(context));
+        try
+        {
+            assertEquals(Long.MAX_VALUE, LibUsb.getNextTimeout(context));
+        }
+        finally
+        {
+            LibUsb.exit(context);
+        }
+    }
+
     /**
      * Tests {@link LibUsb#setPollfdNotifiersNative(Context, long)}
      * with uninitialized USB context.
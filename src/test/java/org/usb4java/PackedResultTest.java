@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link PackedResult} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class PackedResultTest
+{
+    /**
+     * Tests packing and unpacking synchronous transfer results.
+     */
+    @Test
+    public void testPack()
+    {
+        long packed = PackedResult.pack(LibUsb.ERROR_TIMEOUT, 512);
+        assertEquals(LibUsb.ERROR_TIMEOUT, PackedResult.result(packed));
+        assertEquals(512, PackedResult.transferred(packed));
+        packed = PackedResult.pack(LibUsb.SUCCESS, Integer.MAX_VALUE);
+        assertEquals(LibUsb.SUCCESS, PackedResult.result(packed));
+        assertEquals(Integer.MAX_VALUE, PackedResult.transferred(packed));
+    }
+
+    /**
+     * Tests that a negative result code does not corrupt the number of
+     * transferred bytes and vice versa.
+     */
+    @Test
+    public void testSigns()
+    {
+        long packed = PackedResult.pack(LibUsb.ERROR_OTHER, 0);
+        assertEquals(LibUsb.ERROR_OTHER, PackedResult.result(packed));
+        assertEquals(0, PackedResult.transferred(packed));
+        packed = PackedResult.pack(LibUsb.SUCCESS, -1);
+        assertEquals(LibUsb.SUCCESS, PackedResult.result(packed));
+        assertEquals(-1, PackedResult.transferred(packed));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import static org.usb4java.test.UsbAssume.assumeUsbTestsEnabled;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ParkingTransfers} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class ParkingTransfersTest
+{
+    /**
+     * Tests a control transfer without a handle.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testControlTransferWithoutHandle()
+    {
+        ParkingTransfers.controlTransfer(null, (byte) 0, (byte) 0, (short) 0,
+            (short) 0, BufferUtils.allocateByteBuffer(0), 0);
+    }
+
+    /**
+     * Tests a control transfer with an indirect buffer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testControlTransferWithIndirectBuffer()
+    {
+        ParkingTransfers.controlTransfer(new DeviceHandle(), (byte) 0,
+            (byte) 0, (short) 0, (short) 0, ByteBuffer.allocate(0), 0);
+    }
+
+    /**
+     * Tests a bulk transfer without a data buffer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBulkTransferWithoutDataBuffer()
+    {
+        ParkingTransfers.bulkTransfer(new DeviceHandle(), (byte) 0, null,
+            BufferUtils.allocateIntBuffer(), 0);
+    }
+
+    /**
+     * Tests an interrupt transfer without a transferred buffer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInterruptTransferWithoutTransferredBuffer()
+    {
+        ParkingTransfers.interruptTransfer(new DeviceHandle(), (byte) 0,
+            BufferUtils.allocateByteBuffer(0), null, 0);
+    }
+
+    /**
+     * Reads the device descriptor of the first device with a parking
+     * control transfer and compares it with the cached one.
+     *
+     * @throws Exception
+     *             When test fails.
+     */
+    @Test
+    public void testControlTransfer() throws Exception
+    {
+        assumeUsbTestsEnabled();
+        final Context context = new Context();
+        LibUsb.init(context);
+        final EventHandlingThread thread = new EventHandlingThread(context);
+        thread.start();
+        final DeviceList list = new DeviceList();
+        try
+        {
+            assumeTrue(LibUsb.getDeviceList(context, list) > 0);
+            final DeviceHandle handle = new DeviceHandle();
+            assumeTrue(LibUsb.open(list.get(0), handle) == LibUsb.SUCCESS);
+            try
+            {
+                final DeviceDescriptor descriptor = new DeviceDescriptor();
+                LibUsb.getDeviceDescriptor(list.get(0), descriptor);
+                final ByteBuffer data = BufferUtils.allocateByteBuffer(18)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+                final int result = ParkingTransfers.controlTransfer(handle,
+                    LibUsb.ENDPOINT_IN, LibUsb.REQUEST_GET_DESCRIPTOR,
+                    (short) (LibUsb.DT_DEVICE << 8), (short) 0, data, 1000);
+                assertEquals(18, result);
+                assertEquals(LibUsb.DT_DEVICE, data.get(1));
+                assertEquals(descriptor.idVendor(), data.getShort(8));
+            }
+            finally
+            {
+                LibUsb.close(handle);
+            }
+        }
+        finally
+        {
+            LibUsb.freeDeviceList(list, true);
+            thread.abort();
+            thread.join();
+            LibUsb.exit(context);
+        }
+    }
+}
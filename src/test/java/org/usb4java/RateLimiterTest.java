@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link RateLimiter} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class RateLimiterTest
+{
+    /** The length of the test transfers. */
+    private static final int LENGTH = 100;
+
+    /** The fake libusb operations. */
+    private FakeOperations operations;
+
+    /** The timer wheel. */
+    private TimerWheel wheel;
+
+    /** The retired transfers. */
+    private List<Transfer> retired;
+
+    /** The results of the retired transfers. */
+    private List<Integer> results;
+
+    /** The callback recording retired transfers. */
+    private ScheduledTransferCallback callback;
+
+    /**
+     * Fake libusb operations recording submissions and cancellations.
+     */
+    private static final class FakeOperations
+        implements RateLimiter.Operations
+    {
+        /** The submitted transfers in submission order. */
+        final List<Transfer> submitted = new ArrayList<Transfer>();
+
+        /** The cancelled transfers in cancellation order. */
+        final List<Transfer> cancelled = new ArrayList<Transfer>();
+
+        /** The result of the next submission. */
+        int submitResult = LibUsb.SUCCESS;
+
+        @Override
+        public void setCallback(final Transfer transfer,
+            final TransferCallback callback)
+        {
+            // Empty
+        }
+
+        @Override
+        public int length(final Transfer transfer)
+        {
+            return LENGTH;
+        }
+
+        @Override
+        public synchronized int submitTransfer(final Transfer transfer)
+        {
+            final int result = this.submitResult;
+            this.submitResult = LibUsb.SUCCESS;
+            if (result == LibUsb.SUCCESS)
+            {
+                this.submitted.add(transfer);
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized int cancelTransfer(final Transfer transfer)
+        {
+            this.cancelled.add(transfer);
+            return LibUsb.SUCCESS;
+        }
+
+        /**
+         * Waits until the specified number of transfers has been
+         * submitted.
+         *
+         * @param count
+         *            The number of submissions to wait for.
+         * @throws InterruptedException
+         *             When interrupted.
+         */
+        void awaitSubmitted(final int count) throws InterruptedException
+        {
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (System.currentTimeMillis() < deadline)
+            {
+                synchronized (this)
+                {
+                    if (this.submitted.size() >= count)
+                    {
+                        return;
+                    }
+                }
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    /**
+     * Sets up the test.
+     */
+    @Before
+    public void setUp()
+    {
+        this.operations = new FakeOperations();
+        this.wheel = new TimerWheel(1000000, 64);
+        this.wheel.start();
+        this.retired = new ArrayList<Transfer>();
+        this.results = new ArrayList<Integer>();
+        this.callback = new ScheduledTransferCallback()
+        {
+            @Override
+            public void processTransfer(final Transfer transfer,
+                final int result)
+            {
+                synchronized (RateLimiterTest.this)
+                {
+                    RateLimiterTest.this.retired.add(transfer);
+                    RateLimiterTest.this.results.add(result);
+                }
+            }
+        };
+    }
+
+    /**
+     * Tears down the test.
+     *
+     * @throws Exception
+     *             When closing the timer wheel fails.
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        this.wheel.close();
+    }
+
+    /**
+     * Creates a transfer with a unique pointer so transfers can be told
+     * apart without native code.
+     *
+     * @param pointer
+     *            The pointer to set.
+     * @return The transfer.
+     */
+    private static Transfer transfer(final long pointer)
+    {
+        final Transfer transfer = new Transfer();
+        try
+        {
+            final Field field = Transfer.class
+                .getDeclaredField("transferPointer");
+            field.setAccessible(true);
+            field.set(transfer, pointer);
+        }
+        catch (final Exception e)
+        {
+            throw new RuntimeException(e.toString(), e);
+        }
+        return transfer;
+    }
+
+    /**
+     * Creates a limiter sending 1000 bytes per second with a burst of 100
+     * bytes, so two transfers are submitted right away and each further
+     * transfer waits 100 ms.
+     *
+     * @return The rate limiter.
+     */
+    private RateLimiter limiter()
+    {
+        return new RateLimiter(this.wheel, 1000, LENGTH, this.operations);
+    }
+
+    /**
+     * Tests that transfers within the burst are submitted right away and
+     * the others later in submission order.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testImmediateAndDeferred() throws Exception
+    {
+        final RateLimiter limiter = limiter();
+        final Transfer a = transfer(1);
+        final Transfer b = transfer(2);
+        final Transfer c = transfer(3);
+        final Transfer d = transfer(4);
+        assertEquals(LibUsb.SUCCESS, limiter.submit(a, this.callback));
+        assertEquals(LibUsb.SUCCESS, limiter.submit(b, this.callback));
+        assertEquals(LibUsb.SUCCESS, limiter.submit(c, this.callback));
+        assertEquals(LibUsb.SUCCESS, limiter.submit(d, this.callback));
+        synchronized (this.operations)
+        {
+            assertEquals(Arrays.asList(a, b), this.operations.submitted);
+        }
+        assertEquals(2, limiter.getDelayedTransfers());
+
+        this.operations.awaitSubmitted(4);
+        synchronized (this.operations)
+        {
+            assertEquals(Arrays.asList(a, b, c, d),
+                this.operations.submitted);
+        }
+        assertEquals(0, limiter.getQueued());
+        assertEquals(4, limiter.getInFlight());
+
+        limiter.processTransfer(c);
+        assertEquals(Arrays.asList(c), this.retired);
+        assertEquals(Arrays.asList(LibUsb.SUCCESS), this.results);
+        assertEquals(3, limiter.getInFlight());
+        limiter.close();
+    }
+
+    /**
+     * Tests that the bytes of a transfer which could not be submitted are
+     * returned to the bucket.
+     */
+    @Test
+    public void testRefundOnSubmitFailure()
+    {
+        final RateLimiter limiter = limiter();
+        final Transfer a = transfer(1);
+        final Transfer b = transfer(2);
+        final Transfer c = transfer(3);
+        this.operations.submitResult = LibUsb.ERROR_NO_DEVICE;
+        assertEquals(LibUsb.ERROR_NO_DEVICE, limiter.submit(a,
+            this.callback));
+        assertEquals(LibUsb.SUCCESS, limiter.submit(b, this.callback));
+        assertEquals(LibUsb.SUCCESS, limiter.submit(c, this.callback));
+        assertEquals(Arrays.asList(b, c), this.operations.submitted);
+        assertEquals(0, limiter.getQueued());
+        assertTrue(this.retired.isEmpty());
+        limiter.close();
+    }
+
+    /**
+     * Tests that a deferred transfer which could not be submitted is
+     * retired with the error.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testDeferredSubmitFailure() throws Exception
+    {
+        final RateLimiter limiter = limiter();
+        final Transfer a = transfer(1);
+        final Transfer b = transfer(2);
+        final Transfer c = transfer(3);
+        limiter.submit(a, this.callback);
+        limiter.submit(b, this.callback);
+        this.operations.submitResult = LibUsb.ERROR_NO_DEVICE;
+        limiter.submit(c, this.callback);
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while ((limiter.getQueued() > 0)
+            && (System.currentTimeMillis() < deadline))
+        {
+            Thread.sleep(5);
+        }
+        synchronized (this)
+        {
+            assertEquals(Arrays.asList(c), this.retired);
+            assertEquals(Arrays.asList(LibUsb.ERROR_NO_DEVICE),
+                this.results);
+        }
+        assertEquals(2, limiter.getInFlight());
+        limiter.close();
+    }
+
+    /**
+     * Tests cancelling a waiting transfer, a transfer in flight and an
+     * unknown transfer.
+     */
+    @Test
+    public void testCancel()
+    {
+        final RateLimiter limiter = limiter();
+        final Transfer a = transfer(1);
+        final Transfer b = transfer(2);
+        final Transfer c = transfer(3);
+        limiter.submit(a, this.callback);
+        limiter.submit(b, this.callback);
+        limiter.submit(c, this.callback);
+        assertEquals(1, limiter.getQueued());
+
+        assertEquals(LibUsb.SUCCESS, limiter.cancel(c));
+        assertEquals(0, limiter.getQueued());
+        assertEquals(Arrays.asList(c), this.retired);
+        assertEquals(Arrays.asList(LibUsb.ERROR_INTERRUPTED), this.results);
+
+        // Without the refund the next transfer would wait 200 ms
+        assertTrue(limiter.getBucket().reserve(LENGTH, System.nanoTime())
+            <= 100000000);
+
+        assertEquals(LibUsb.SUCCESS, limiter.cancel(a));
+        assertEquals(Arrays.asList(a), this.operations.cancelled);
+        assertEquals(LibUsb.ERROR_NOT_FOUND, limiter.cancel(c));
+        limiter.close();
+    }
+
+    /**
+     * Tests that closing fails the waiting transfers in submission order
+     * and rejects new ones.
+     */
+    @Test
+    public void testClose()
+    {
+        final RateLimiter limiter = limiter();
+        final Transfer a = transfer(1);
+        final Transfer b = transfer(2);
+        final Transfer c = transfer(3);
+        final Transfer d = transfer(4);
+        limiter.submit(a, this.callback);
+        limiter.submit(b, this.callback);
+        limiter.submit(c, this.callback);
+        limiter.submit(d, this.callback);
+
+        limiter.close();
+        assertEquals(0, limiter.getQueued());
+        assertEquals(2, limiter.getInFlight());
+        synchronized (this)
+        {
+            assertEquals(Arrays.asList(c, d), this.retired);
+            assertEquals(Arrays.asList(LibUsb.ERROR_INTERRUPTED,
+                LibUsb.ERROR_INTERRUPTED), this.results);
+        }
+        try
+        {
+            limiter.submit(transfer(5), this.callback);
+            fail("Submit after close must fail");
+        }
+        catch (final IllegalStateException e)
+        {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ReplayDevice} and {@link TraceReader} classes.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class ReplayDeviceTest
+{
+    /**
+     * Records a trace with a control IN transfer and two bulk IN transfers.
+     *
+     * @return The pcap data.
+     * @throws Exception
+     *             When recording failed.
+     */
+    private static byte[] recordTrace() throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final TransferTracer tracer = new TransferTracer(out, 16, 64);
+        final ByteBuffer control = ByteBuffer.allocate(
+            LibUsb.CONTROL_SETUP_SIZE + 4).order(ByteOrder.LITTLE_ENDIAN);
+        control.put((byte) 0x80).put((byte) 6).putShort((short) 0x0100)
+            .putShort((short) 0).putShort((short) 4);
+        tracer.record(1, (byte) 'S', null, (byte) 0,
+            LibUsb.TRANSFER_TYPE_CONTROL, -115, control, 12, 0);
+        control.put(8, (byte) 0x12).put(9, (byte) 0x01);
+        tracer.record(1, (byte) 'C', null, (byte) 0,
+            LibUsb.TRANSFER_TYPE_CONTROL, 0, control, 2, 2);
+        final ByteBuffer bulk = ByteBuffer.allocate(8);
+        for (int i = 0; i < 2; i++)
+        {
+            tracer.record(2, (byte) 'S', null, (byte) 0x81,
+                LibUsb.TRANSFER_TYPE_BULK, -115, bulk, 8, 0);
+            bulk.put(0, (byte) (i + 10)).put(1, (byte) (i + 20));
+            tracer.record(2, (byte) 'C', null, (byte) 0x81,
+                LibUsb.TRANSFER_TYPE_BULK, 0, bulk, 2, 2);
+        }
+        tracer.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Tests reading a trace.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testRead() throws Exception
+    {
+        final List<TraceRecord> records = TraceReader.read(
+            new ByteArrayInputStream(recordTrace()));
+        assertEquals(6, records.size());
+        final TraceRecord submit = records.get(0);
+        assertEquals(TraceRecord.SUBMIT, submit.getType());
+        assertEquals(2, submit.getTransferType());
+        assertEquals((byte) 0x80, submit.getEndpoint());
+        assertEquals(6, submit.getSetup()[1]);
+        assertEquals(0, submit.getData().length);
+        final TraceRecord callback = records.get(3);
+        assertEquals(TraceRecord.CALLBACK, callback.getType());
+        assertEquals((byte) 0x81, callback.getEndpoint());
+        assertEquals(0, callback.getBusNumber());
+        assertEquals(0, callback.getDeviceAddress());
+        assertEquals(2, callback.getLength());
+        assertEquals(10, callback.getData()[0]);
+    }
+
+    /**
+     * Tests replaying synchronous transfers.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testSyncReplay() throws Exception
+    {
+        final ReplayDevice device = ReplayDevice.load(
+            new ByteArrayInputStream(recordTrace()));
+        device.setTimeScale(0);
+        assertEquals(1, device.getRemaining((byte) 0));
+        assertEquals(2, device.getRemaining((byte) 0x81));
+
+        final ByteBuffer descriptor = ByteBuffer.allocateDirect(4);
+        assertEquals(2, device.controlTransfer((byte) 0x80, (byte) 6,
+            (short) 0x0100, (short) 0, descriptor, 0));
+        assertEquals(0x12, descriptor.get(0));
+        assertEquals(0x01, descriptor.get(1));
+
+        final ByteBuffer data = ByteBuffer.allocateDirect(8);
+        final IntBuffer transferred = IntBuffer.allocate(1);
+        assertEquals(LibUsb.SUCCESS, device.bulkTransfer((byte) 0x81, data,
+            transferred, 0));
+        assertEquals(2, transferred.get(0));
+        assertEquals(10, data.get(0));
+        assertEquals(20, data.get(1));
+        assertEquals(0, device.getMismatches());
+        assertEquals(1, device.getRemaining((byte) 0x81));
+        device.close();
+    }
+
+    /**
+     * Tests that a mismatching request is counted.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testMismatch() throws Exception
+    {
+        final ReplayDevice device = ReplayDevice.load(
+            new ByteArrayInputStream(recordTrace()));
+        device.setTimeScale(0);
+        device.controlTransfer((byte) 0x80, (byte) 6, (short) 0x0200,
+            (short) 0, ByteBuffer.allocateDirect(4), 0);
+        assertEquals(1, device.getMismatches());
+        assertEquals(LibUsb.ERROR_NO_DEVICE, device.controlTransfer(
+            (byte) 0x80, (byte) 6, (short) 0x0100, (short) 0,
+            ByteBuffer.allocateDirect(4), 0));
+    }
+
+    /**
+     * Tests replaying asynchronous transfers.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testAsyncReplay() throws Exception
+    {
+        final ReplayDevice device = ReplayDevice.load(
+            new ByteArrayInputStream(recordTrace()));
+        device.setTimeScale(0);
+        final CountDownLatch done = new CountDownLatch(3);
+        final AtomicInteger sum = new AtomicInteger();
+        final ReplayListener listener = new ReplayListener()
+        {
+            @Override
+            public void transferCompleted(final byte endpoint,
+                final ByteBuffer buffer, final int status,
+                final int actualLength)
+            {
+                sum.addAndGet(status == LibUsb.TRANSFER_COMPLETED
+                    ? buffer.get(0) : 100);
+                done.countDown();
+            }
+        };
+        for (int i = 0; i < 3; i++)
+        {
+            device.submit((byte) 0x81, ByteBuffer.allocateDirect(8),
+                listener);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(10 + 11 + 100, sum.get());
+        device.close();
+    }
+
+    /**
+     * Tests that a mismatching setup packet of an asynchronous control
+     * transfer is counted.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testAsyncSetupMismatch() throws Exception
+    {
+        final ReplayDevice device = ReplayDevice.load(
+            new ByteArrayInputStream(recordTrace()));
+        device.setTimeScale(0);
+        final CountDownLatch done = new CountDownLatch(1);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(
+            LibUsb.CONTROL_SETUP_SIZE + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 0x80).put((byte) 6).putShort((short) 0x0200)
+            .putShort((short) 0).putShort((short) 4);
+        device.submit((byte) 0, buffer, new ReplayListener()
+        {
+            @Override
+            public void transferCompleted(final byte endpoint,
+                final ByteBuffer data, final int status,
+                final int actualLength)
+            {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, device.getMismatches());
+        assertEquals(0x12, buffer.get(LibUsb.CONTROL_SETUP_SIZE));
+        device.close();
+    }
+
+    /**
+     * Tests setting a negative time scale.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetNegativeTimeScale()
+    {
+        new ReplayDevice(new ArrayList<TraceRecord>())
+            .setTimeScale(-1);
+    }
+
+    /**
+     * Creates a bulk IN exchange of the specified device.
+     *
+     * @param records
+     *            The list to add the records to.
+     * @param bus
+     *            The bus number.
+     * @param address
+     *            The device address.
+     * @param value
+     *            The value of the single response byte.
+     */
+    private static void addExchange(final List<TraceRecord> records,
+        final int bus, final int address, final byte value)
+    {
+        records.add(new TraceRecord(address, TraceRecord.SUBMIT, (byte) 3,
+            (byte) 0x81, address, bus, 0, -115, 1, null, new byte[0]));
+        records.add(new TraceRecord(address, TraceRecord.CALLBACK, (byte) 3,
+            (byte) 0x81, address, bus, 10, 0, 1, null, new byte[] { value }));
+    }
+
+    /**
+     * Tests that a trace with several devices is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMixedDevices()
+    {
+        final List<TraceRecord> records = new ArrayList<TraceRecord>();
+        addExchange(records, 1, 5, (byte) 1);
+        addExchange(records, 1, 6, (byte) 2);
+        new ReplayDevice(records);
+    }
+
+    /**
+     * Tests replaying a single device of a trace with several devices.
+     */
+    @Test
+    public void testSelectDevice()
+    {
+        final List<TraceRecord> records = new ArrayList<TraceRecord>();
+        addExchange(records, 1, 5, (byte) 1);
+        addExchange(records, 1, 6, (byte) 2);
+        addExchange(records, 2, 6, (byte) 3);
+        final ReplayDevice device = new ReplayDevice(records, 1, 6);
+        device.setTimeScale(0);
+        assertEquals(1, device.getRemaining((byte) 0x81));
+        final ByteBuffer data = ByteBuffer.allocateDirect(1);
+        final IntBuffer transferred = IntBuffer.allocate(1);
+        assertEquals(LibUsb.SUCCESS, device.bulkTransfer((byte) 0x81, data,
+            transferred, 0));
+        assertEquals(2, data.get(0));
+        device.close();
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the {@link RetryHandler} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class RetryHandlerTest
+{
+    /** The endpoint used by the tests. */
+    private static final byte ENDPOINT = (byte) 0x81;
+
+    /** Executor running the recovery actions in the calling thread. */
+    private static final Executor DIRECT = new Executor()
+    {
+        @Override
+        public void execute(final Runnable command)
+        {
+            command.run();
+        }
+    };
+
+    /** The fake libusb operations. */
+    private FakeOperations operations;
+
+    /** The timer wheel. */
+    private TimerWheel wheel;
+
+    /** The retired transfers. */
+    private List<Transfer> retired;
+
+    /** The results of the retired transfers. */
+    private List<Integer> results;
+
+    /** The callback recording retired transfers. */
+    private ScheduledTransferCallback callback;
+
+    /**
+     * Fake libusb operations recording submissions, cancellations and
+     * recoveries.
+     */
+    private static final class FakeOperations
+        implements RetryHandler.Operations
+    {
+        /** The submitted transfers in submission order. */
+        final List<Transfer> submitted = new ArrayList<Transfer>();
+
+        /** The cancelled transfers in cancellation order. */
+        final List<Transfer> cancelled = new ArrayList<Transfer>();
+
+        /** The performed recovery actions. */
+        final List<Integer> recoveries = new ArrayList<Integer>();
+
+        /** The status of each transfer. */
+        final Map<Transfer, Integer> statuses =
+            new HashMap<Transfer, Integer>();
+
+        /** The actual length of each transfer. */
+        final Map<Transfer, Integer> actualLengths =
+            new HashMap<Transfer, Integer>();
+
+        @Override
+        public void setCallback(final Transfer transfer,
+            final TransferCallback callback)
+        {
+            // Empty
+        }
+
+        @Override
+        public byte endpoint(final Transfer transfer)
+        {
+            return ENDPOINT;
+        }
+
+        @Override
+        public int status(final Transfer transfer)
+        {
+            return this.statuses.get(transfer);
+        }
+
+        @Override
+        public int actualLength(final Transfer transfer)
+        {
+            final Integer length = this.actualLengths.get(transfer);
+            return length == null ? 0 : length;
+        }
+
+        @Override
+        public int transferStatusToError(final int status)
+        {
+            switch (status)
+            {
+                case LibUsb.TRANSFER_STALL:
+                    return LibUsb.ERROR_PIPE;
+                case LibUsb.TRANSFER_TIMED_OUT:
+                    return LibUsb.ERROR_TIMEOUT;
+                default:
+                    return LibUsb.ERROR_OTHER;
+            }
+        }
+
+        @Override
+        public synchronized int submitTransfer(final Transfer transfer)
+        {
+            this.submitted.add(transfer);
+            return LibUsb.SUCCESS;
+        }
+
+        @Override
+        public int cancelTransfer(final Transfer transfer)
+        {
+            this.cancelled.add(transfer);
+            return LibUsb.SUCCESS;
+        }
+
+        @Override
+        public int recover(final DeviceHandle handle, final byte endpoint,
+            final int recovery)
+        {
+            this.recoveries.add(recovery);
+            return LibUsb.SUCCESS;
+        }
+    }
+
+    /**
+     * Sets up the test.
+     */
+    @Before
+    public void setUp()
+    {
+        this.operations = new FakeOperations();
+        this.wheel = new TimerWheel(1000000, 64);
+        this.wheel.start();
+        this.retired = new ArrayList<Transfer>();
+        this.results = new ArrayList<Integer>();
+        this.callback = new ScheduledTransferCallback()
+        {
+            @Override
+            public void processTransfer(final Transfer transfer,
+                final int result)
+            {
+                RetryHandlerTest.this.retired.add(transfer);
+                RetryHandlerTest.this.results.add(result);
+            }
+        };
+    }
+
+    /**
+     * Tears down the test.
+     *
+     * @throws Exception
+     *             When closing the timer wheel fails.
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        this.wheel.close();
+    }
+
+    /**
+     * Creates a transfer with a unique pointer so transfers can be told
+     * apart without native code.
+     *
+     * @param pointer
+     *            The pointer to set.
+     * @return The transfer.
+     */
+    private static Transfer transfer(final long pointer)
+    {
+        final Transfer transfer = new Transfer();
+        try
+        {
+            final Field field = Transfer.class
+                .getDeclaredField("transferPointer");
+            field.setAccessible(true);
+            field.set(transfer, pointer);
+        }
+        catch (final Exception e)
+        {
+            throw new RuntimeException(e.toString(), e);
+        }
+        return transfer;
+    }
+
+    /**
+     * Creates a retry handler with the specified policy.
+     *
+     * @param policy
+     *            The retry policy.
+     * @return The retry handler.
+     */
+    private RetryHandler handler(final RetryPolicy policy)
+    {
+        return new RetryHandler(new DeviceHandle(), policy, this.wheel,
+            DIRECT, this.operations);
+    }
+
+    /**
+     * Completes a transfer with the specified status and no data.
+     *
+     * @param handler
+     *            The retry handler.
+     * @param transfer
+     *            The transfer to complete.
+     * @param status
+     *            The transfer status.
+     */
+    private void complete(final RetryHandler handler, final Transfer transfer,
+        final int status)
+    {
+        this.operations.statuses.put(transfer, status);
+        handler.processTransfer(transfer);
+    }
+
+    /**
+     * Tests that the transfers of a stalled endpoint are held back and
+     * resubmitted in submission order after the halt has been cleared.
+     */
+    @Test
+    public void testHoldAndRelease()
+    {
+        final RetryHandler handler = handler(new BackoffRetryPolicy());
+        final Transfer a = transfer(1);
+        final Transfer b = transfer(2);
+        final Transfer c = transfer(3);
+        final Transfer d = transfer(4);
+        handler.submit(a, this.callback);
+        handler.submit(b, this.callback);
+        handler.submit(c, this.callback);
+        this.operations.submitted.clear();
+
+        complete(handler, a, LibUsb.TRANSFER_STALL);
+        assertEquals(Arrays.asList(b, c), this.operations.cancelled);
+        assertEquals(LibUsb.SUCCESS, handler.submit(d, this.callback));
+        assertTrue(this.operations.submitted.isEmpty());
+
+        // The recovery starts when the last recalled transfer is back
+        complete(handler, c, LibUsb.TRANSFER_CANCELLED);
+        assertTrue(this.operations.recoveries.isEmpty());
+        complete(handler, b, LibUsb.TRANSFER_CANCELLED);
+        assertEquals(Arrays.asList(RetryPolicy.RECOVER_CLEAR_HALT),
+            this.operations.recoveries);
+        assertEquals(Arrays.asList(a, b, c, d), this.operations.submitted);
+        assertTrue(this.retired.isEmpty());
+        assertEquals(1, handler.getRetries());
+        assertEquals(1, handler.getRecoveries());
+
+        complete(handler, a, LibUsb.TRANSFER_COMPLETED);
+        assertEquals(Arrays.asList(a), this.retired);
+        assertEquals(Arrays.asList(LibUsb.SUCCESS), this.results);
+    }
+
+    /**
+     * Tests that a recalled transfer which failed instead of being cancelled
+     * is recalled again by the next recovery.
+     */
+    @Test
+    public void testRecallAfterFailedRecall()
+    {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setMaxAttempts(5);
+        final RetryHandler handler = handler(policy);
+        final Transfer a = transfer(1);
+        final Transfer b = transfer(2);
+        handler.submit(a, this.callback);
+        handler.submit(b, this.callback);
+
+        complete(handler, a, LibUsb.TRANSFER_STALL);
+        complete(handler, b, LibUsb.TRANSFER_STALL);
+        assertEquals(1, this.operations.recoveries.size());
+        this.operations.cancelled.clear();
+
+        complete(handler, a, LibUsb.TRANSFER_STALL);
+        assertEquals(Arrays.asList(b), this.operations.cancelled);
+        complete(handler, b, LibUsb.TRANSFER_CANCELLED);
+        assertEquals(2, this.operations.recoveries.size());
+        assertTrue(this.retired.isEmpty());
+    }
+
+    /**
+     * Tests cancelling a transfer held back during a recovery.
+     */
+    @Test
+    public void testCancelWhileHeld()
+    {
+        final RetryHandler handler = handler(new BackoffRetryPolicy());
+        final Transfer a = transfer(1);
+        final Transfer b = transfer(2);
+        final Transfer c = transfer(3);
+        handler.submit(a, this.callback);
+        handler.submit(b, this.callback);
+        complete(handler, a, LibUsb.TRANSFER_STALL);
+        handler.submit(c, this.callback);
+        this.operations.submitted.clear();
+
+        assertEquals(LibUsb.SUCCESS, handler.cancel(c));
+        assertEquals(Arrays.asList(c), this.retired);
+        assertEquals(Arrays.asList(LibUsb.ERROR_INTERRUPTED), this.results);
+        assertEquals(LibUsb.ERROR_NOT_FOUND, handler.cancel(c));
+
+        complete(handler, b, LibUsb.TRANSFER_CANCELLED);
+        assertEquals(Arrays.asList(a, b), this.operations.submitted);
+    }
+
+    /**
+     * Tests that a transfer cancelled while waiting for its retry is not
+     * resubmitted.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testRetryAfterCancel() throws Exception
+    {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setDelay(20, 20, TimeUnit.MILLISECONDS);
+        policy.setJitter(0);
+        final RetryHandler handler = handler(policy);
+        final Transfer a = transfer(1);
+        final Transfer b = transfer(2);
+        handler.submit(a, this.callback);
+        handler.submit(b, this.callback);
+        this.operations.submitted.clear();
+
+        complete(handler, a, LibUsb.TRANSFER_TIMED_OUT);
+        complete(handler, b, LibUsb.TRANSFER_TIMED_OUT);
+        assertTrue(this.operations.cancelled.isEmpty());
+        assertEquals(LibUsb.SUCCESS, handler.cancel(b));
+        assertEquals(Arrays.asList(b), this.retired);
+
+        final long deadline = System.nanoTime()
+            + TimeUnit.SECONDS.toNanos(5);
+        while (this.operations.submitted.isEmpty()
+            && (System.nanoTime() - deadline < 0))
+        {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        synchronized (this.operations)
+        {
+            assertEquals(Arrays.asList(a), this.operations.submitted);
+        }
+        assertEquals(2, handler.getRetries());
+    }
+
+    /**
+     * Tests that transfers are retired when the policy gives up.
+     */
+    @Test
+    public void testGiveUp()
+    {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setMaxAttempts(1);
+        final RetryHandler handler = handler(policy);
+        final Transfer a = transfer(1);
+        handler.submit(a, this.callback);
+        complete(handler, a, LibUsb.TRANSFER_STALL);
+        assertEquals(Arrays.asList(a), this.retired);
+        assertEquals(Arrays.asList(LibUsb.SUCCESS), this.results);
+        assertTrue(this.operations.recoveries.isEmpty());
+        assertEquals(0, handler.getRetries());
+    }
+}
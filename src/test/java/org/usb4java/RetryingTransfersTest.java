@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link RetryingTransfers} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class RetryingTransfersTest
+{
+    /**
+     * Fake operations replaying a fixed sequence of attempt results.
+     */
+    private static final class FakeOperations
+        implements RetryingTransfers.Operations
+    {
+        /** The result codes of the attempts. */
+        private final int[] results;
+
+        /** The number of bytes transferred by each attempt. */
+        private final int[] counts;
+
+        /** The result code of the recovery actions. */
+        private final int recoveryResult;
+
+        /** The sizes of the buffers passed to the attempts. */
+        final List<Integer> sizes = new ArrayList<Integer>();
+
+        /** The performed recovery actions. */
+        final List<Integer> recoveries = new ArrayList<Integer>();
+
+        /**
+         * Constructs new fake operations.
+         *
+         * @param results
+         *            The result codes of the attempts.
+         * @param counts
+         *            The number of bytes transferred by each attempt.
+         * @param recoveryResult
+         *            The result code of the recovery actions.
+         */
+        FakeOperations(final int[] results, final int[] counts,
+            final int recoveryResult)
+        {
+            this.results = results;
+            this.counts = counts;
+            this.recoveryResult = recoveryResult;
+        }
+
+        @Override
+        public int transfer(final ByteBuffer data,
+            final IntBuffer transferred)
+        {
+            final int attempt = this.sizes.size();
+            this.sizes.add(data.capacity());
+            data.put(0, (byte) attempt);
+            transferred.put(0, this.counts[attempt]);
+            return this.results[attempt];
+        }
+
+        @Override
+        public int recover(final int recovery)
+        {
+            this.recoveries.add(recovery);
+            return this.recoveryResult;
+        }
+    }
+
+    /**
+     * Creates a policy retrying stalls and timeouts without delay.
+     *
+     * @param maxAttempts
+     *            The maximum number of attempts.
+     * @return The retry policy.
+     */
+    private static BackoffRetryPolicy policy(final int maxAttempts)
+    {
+        final BackoffRetryPolicy policy = new BackoffRetryPolicy();
+        policy.setMaxAttempts(maxAttempts);
+        policy.setDelay(0, 0, TimeUnit.MILLISECONDS);
+        return policy;
+    }
+
+    /**
+     * Tests that a retry continues behind the data already transferred by a
+     * failed attempt.
+     */
+    @Test
+    public void testResume()
+    {
+        final FakeOperations operations = new FakeOperations(
+            new int[] { LibUsb.ERROR_TIMEOUT, LibUsb.SUCCESS },
+            new int[] { 6, 10 }, LibUsb.SUCCESS);
+        final ByteBuffer data = ByteBuffer.allocateDirect(16);
+        final IntBuffer transferred = BufferUtils.allocateIntBuffer();
+        assertEquals(LibUsb.SUCCESS, RetryingTransfers.transfer(policy(3),
+            data, transferred, operations));
+        assertEquals(16, transferred.get(0));
+        assertEquals(Arrays.asList(16, 10), operations.sizes);
+        assertEquals(0, data.get(0));
+        assertEquals(1, data.get(6));
+        assertEquals(Arrays.asList(RetryPolicy.RECOVER_NONE),
+            operations.recoveries);
+    }
+
+    /**
+     * Tests that a transfer which failed after transferring all data is
+     * reported as successful.
+     */
+    @Test
+    public void testCompleteOnError()
+    {
+        final FakeOperations operations = new FakeOperations(
+            new int[] { LibUsb.ERROR_TIMEOUT }, new int[] { 8 },
+            LibUsb.SUCCESS);
+        final IntBuffer transferred = BufferUtils.allocateIntBuffer();
+        assertEquals(LibUsb.SUCCESS, RetryingTransfers.transfer(policy(3),
+            ByteBuffer.allocateDirect(8), transferred, operations));
+        assertEquals(8, transferred.get(0));
+        assertTrue(operations.recoveries.isEmpty());
+    }
+
+    /**
+     * Tests that the last error is returned after the maximum number of
+     * attempts.
+     */
+    @Test
+    public void testGiveUp()
+    {
+        final FakeOperations operations = new FakeOperations(
+            new int[] { LibUsb.ERROR_PIPE, LibUsb.ERROR_PIPE },
+            new int[] { 2, 3 }, LibUsb.SUCCESS);
+        final IntBuffer transferred = BufferUtils.allocateIntBuffer();
+        assertEquals(LibUsb.ERROR_PIPE, RetryingTransfers.transfer(policy(2),
+            ByteBuffer.allocateDirect(8), transferred, operations));
+        assertEquals(5, transferred.get(0));
+        assertEquals(Arrays.asList(8, 6), operations.sizes);
+        assertEquals(Arrays.asList(RetryPolicy.RECOVER_CLEAR_HALT),
+            operations.recoveries);
+    }
+
+    /**
+     * Tests that errors which are not retried are returned right away.
+     */
+    @Test
+    public void testNotRetried()
+    {
+        final FakeOperations operations = new FakeOperations(
+            new int[] { LibUsb.ERROR_NO_DEVICE }, new int[] { 0 },
+            LibUsb.SUCCESS);
+        final IntBuffer transferred = BufferUtils.allocateIntBuffer();
+        assertEquals(LibUsb.ERROR_NO_DEVICE, RetryingTransfers.transfer(
+            policy(3), ByteBuffer.allocateDirect(8), transferred, operations));
+        assertEquals(0, transferred.get(0));
+        assertEquals(1, operations.sizes.size());
+    }
+
+    /**
+     * Tests that the error of a failed recovery action is returned.
+     */
+    @Test
+    public void testRecoveryFailed()
+    {
+        final FakeOperations operations = new FakeOperations(
+            new int[] { LibUsb.ERROR_PIPE }, new int[] { 4 },
+            LibUsb.ERROR_NO_DEVICE);
+        final IntBuffer transferred = BufferUtils.allocateIntBuffer();
+        assertEquals(LibUsb.ERROR_NO_DEVICE, RetryingTransfers.transfer(
+            policy(3), ByteBuffer.allocateDirect(8), transferred, operations));
+        assertEquals(4, transferred.get(0));
+        assertEquals(1, operations.sizes.size());
+    }
+
+    /**
+     * Tests that an interrupted wait for a retry stops the transfer.
+     */
+    @Test
+    public void testInterrupted()
+    {
+        final BackoffRetryPolicy policy = policy(3);
+        policy.setDelay(1, 1, TimeUnit.SECONDS);
+        final FakeOperations operations = new FakeOperations(
+            new int[] { LibUsb.ERROR_TIMEOUT }, new int[] { 1 },
+            LibUsb.SUCCESS);
+        final IntBuffer transferred = BufferUtils.allocateIntBuffer();
+        Thread.currentThread().interrupt();
+        try
+        {
+            assertEquals(LibUsb.ERROR_INTERRUPTED, RetryingTransfers.transfer(
+                policy, ByteBuffer.allocateDirect(8), transferred,
+                operations));
+            assertTrue(Thread.currentThread().isInterrupted());
+            assertEquals(1, transferred.get(0));
+        }
+        finally
+        {
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Tests a transfer without data buffer.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testTransferWithoutData()
+    {
+        RetryingTransfers.transfer(policy(3), null,
+            BufferUtils.allocateIntBuffer(), new FakeOperations(new int[0],
+                new int[0], LibUsb.SUCCESS));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link RingBuffer} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class RingBufferTest
+{
+    /**
+     * Tests a new ring buffer.
+     */
+    @Test
+    public void testEmpty()
+    {
+        final RingBuffer ring = new RingBuffer(16);
+        assertEquals(16, ring.capacity());
+        assertEquals(0, ring.available());
+        assertEquals(16, ring.free());
+        assertEquals(0, ring.read(ByteBuffer.allocate(4)));
+    }
+
+    /**
+     * Tests writing and reading data.
+     */
+    @Test
+    public void testWriteAndRead()
+    {
+        final RingBuffer ring = new RingBuffer(16);
+        final ByteBuffer src = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 });
+        assertEquals(5, ring.write(src));
+        assertEquals(5, src.position());
+        assertEquals(5, ring.available());
+        assertEquals(11, ring.free());
+        final byte[] data = new byte[5];
+        assertEquals(5, ring.read(ByteBuffer.wrap(data)));
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, data);
+        assertEquals(0, ring.available());
+        assertEquals(5, ring.getWritePosition());
+        assertEquals(5, ring.getReadPosition());
+    }
+
+    /**
+     * Tests writing into a full ring buffer.
+     */
+    @Test
+    public void testOverflow()
+    {
+        final RingBuffer ring = new RingBuffer(4);
+        final ByteBuffer src = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 });
+        assertEquals(4, ring.write(src));
+        assertEquals(1, src.remaining());
+        assertEquals(0, ring.write(src));
+        assertEquals(0, ring.free());
+    }
+
+    /**
+     * Tests data wrapping around the end of the ring.
+     */
+    @Test
+    public void testWrapAround()
+    {
+        final RingBuffer ring = new RingBuffer(8);
+        ring.write(ByteBuffer.wrap(new byte[6]));
+        assertEquals(6, ring.skip(6));
+        final ByteBuffer src = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5 });
+        assertEquals(5, ring.write(src));
+        final byte[] data = new byte[5];
+        assertEquals(5, ring.read(ByteBuffer.wrap(data)));
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, data);
+    }
+
+    /**
+     * Tests the absolute write and read methods.
+     */
+    @Test
+    public void testAbsolute()
+    {
+        final RingBuffer ring = new RingBuffer(8);
+        final ByteBuffer src = ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 });
+        src.position(1);
+        assertEquals(2, ring.write(src, 2, 2));
+        assertEquals(1, src.position());
+        assertEquals(4, src.limit());
+        final ByteBuffer dst = ByteBuffer.allocate(4);
+        assertEquals(2, ring.read(dst, 1, 3));
+        assertEquals(0, dst.position());
+        assertArrayEquals(new byte[] { 0, 3, 4, 0 }, dst.array());
+    }
+
+    /**
+     * Tests a producer and a consumer thread streaming data through the
+     * ring.
+     *
+     * @throws Exception
+     *             When test fails.
+     */
+    @Test
+    public void testConcurrent() throws Exception
+    {
+        final RingBuffer ring = new RingBuffer(61);
+        final int total = 100000;
+        final Thread producer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                final ByteBuffer src = ByteBuffer.allocate(7);
+                int value = 0;
+                while (value < total)
+                {
+                    src.clear();
+                    while (src.hasRemaining())
+                    {
+                        src.put((byte) value++);
+                    }
+                    src.flip();
+                    while (src.hasRemaining())
+                    {
+                        ring.write(src);
+                    }
+                }
+            }
+        };
+        producer.start();
+        final ByteBuffer dst = ByteBuffer.allocate(13);
+        int expected = 0;
+        while (expected < total)
+        {
+            dst.clear();
+            ring.read(dst);
+            dst.flip();
+            while (dst.hasRemaining())
+            {
+                assertEquals((byte) expected++, dst.get());
+            }
+        }
+        producer.join();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.usb4java.test.UsbAssume.assumeUsbTestsEnabled;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link SharedEventHandler} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class SharedEventHandlerTest
+{
+    /**
+     * Tests waiting for a flag which is already set.
+     */
+    @Test
+    public void testAlreadyCompleted()
+    {
+        final SharedEventHandler handler = new SharedEventHandler(null);
+        assertTrue(handler.await(new AtomicBoolean(true), 0));
+        assertEquals(0, handler.getLeaderRounds());
+        assertEquals(0, handler.getFollowerWaits());
+    }
+
+    /**
+     * Tests waiting with a negative timeout.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTimeout()
+    {
+        new SharedEventHandler(null).await(new AtomicBoolean(), -1);
+    }
+
+    /**
+     * Tests waiting without a flag.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullFlag()
+    {
+        new SharedEventHandler(null).await(null, 0);
+    }
+
+    /**
+     * Tests that multiple threads waiting for flags which are never set
+     * share the event handling and time out.
+     *
+     * @throws Exception
+     *             When test fails.
+     */
+    @Test
+    public void testTimeout() throws Exception
+    {
+        assumeUsbTestsEnabled();
+        final Context context = new Context();
+        LibUsb.init(context);
+        try
+        {
+            final SharedEventHandler handler =
+                new SharedEventHandler(context);
+            final boolean[] results = new boolean[4];
+            final Thread[] threads = new Thread[results.length];
+            for (int i = 0; i < threads.length; i++)
+            {
+                final int index = i;
+                threads[i] = new Thread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        results[index] = handler.await(new AtomicBoolean(),
+                            50000);
+                    }
+                });
+                threads[i].start();
+            }
+            for (final Thread thread: threads)
+            {
+                thread.join();
+            }
+            for (final boolean result: results)
+            {
+                assertFalse(result);
+            }
+            assertTrue(handler.getLeaderRounds() > 0);
+        }
+        finally
+        {
+            LibUsb.exit(context);
+        }
+    }
+}
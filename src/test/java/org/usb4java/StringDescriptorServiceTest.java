@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link StringDescriptorService} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class StringDescriptorServiceTest
+{
+    /** A listener which does nothing. */
+    private static final StringDescriptorListener LISTENER =
+        new StringDescriptorListener()
+        {
+            @Override
+            public void stringsFetched(final DeviceHandle handle,
+                final byte[] indices, final String[] strings)
+            {
+                // Empty
+            }
+        };
+
+    /**
+     * Fake libusb operations recording allocated, submitted and freed
+     * transfers.
+     */
+    private static final class FakeOperations
+        implements StringDescriptorService.Operations
+    {
+        /** The allocated transfers. */
+        final List<Transfer> allocated = new ArrayList<Transfer>();
+
+        /** The submitted transfers not yet completed. */
+        final List<Transfer> submitted = new ArrayList<Transfer>();
+
+        /** The freed transfers. */
+        final List<Transfer> freed = new ArrayList<Transfer>();
+
+        /** The buffers of the submitted transfers. */
+        final Map<Transfer, ByteBuffer> buffers =
+            new HashMap<Transfer, ByteBuffer>();
+
+        /** The actual lengths of the completed transfers. */
+        final Map<Transfer, Integer> actualLengths =
+            new HashMap<Transfer, Integer>();
+
+        @Override
+        public Transfer allocTransfer(final TransferCallback callback)
+        {
+            final Transfer transfer = new Transfer();
+            try
+            {
+                final Field field = Transfer.class
+                    .getDeclaredField("transferPointer");
+                field.setAccessible(true);
+                field.set(transfer, (long) this.allocated.size() + 1);
+            }
+            catch (final Exception e)
+            {
+                throw new RuntimeException(e.toString(), e);
+            }
+            this.allocated.add(transfer);
+            return transfer;
+        }
+
+        @Override
+        public void freeTransfer(final Transfer transfer)
+        {
+            this.freed.add(transfer);
+        }
+
+        @Override
+        public int submitTransfer(final Transfer transfer,
+            final DeviceHandle handle, final ByteBuffer buffer,
+            final long timeout)
+        {
+            this.submitted.add(transfer);
+            this.buffers.put(transfer, buffer);
+            return LibUsb.SUCCESS;
+        }
+
+        @Override
+        public int status(final Transfer transfer)
+        {
+            return LibUsb.TRANSFER_COMPLETED;
+        }
+
+        @Override
+        public int actualLength(final Transfer transfer)
+        {
+            return this.actualLengths.get(transfer);
+        }
+
+        /**
+         * Completes the oldest submitted transfer with the specified
+         * descriptor.
+         *
+         * @param service
+         *            The service to pass the completed transfer to.
+         * @param bytes
+         *            The received descriptor bytes.
+         */
+        void complete(final StringDescriptorService service,
+            final int... bytes)
+        {
+            final Transfer transfer = this.submitted.remove(0);
+            final ByteBuffer buffer = this.buffers.get(transfer);
+            for (int i = 0; i < bytes.length; i++)
+            {
+                buffer.put(LibUsb.CONTROL_SETUP_SIZE + i, (byte) bytes[i]);
+            }
+            this.actualLengths.put(transfer, bytes.length);
+            service.processTransfer(transfer);
+        }
+    }
+
+    /**
+     * Listener recording the fetched strings.
+     */
+    private static final class RecordingListener
+        implements StringDescriptorListener
+    {
+        /** The fetched strings. Null if not yet fetched. */
+        String[] strings;
+
+        @Override
+        public void stringsFetched(final DeviceHandle handle,
+            final byte[] indices, final String[] strings)
+        {
+            this.strings = strings;
+        }
+    }
+
+    /**
+     * Creates a descriptor buffer.
+     *
+     * @param bytes
+     *            The descriptor bytes.
+     * @return The buffer.
+     */
+    private static ByteBuffer descriptor(final int... bytes)
+    {
+        final ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 8);
+        for (int i = 0; i < bytes.length; i++)
+        {
+            buffer.put(8 + i, (byte) bytes[i]);
+        }
+        return buffer;
+    }
+
+    /**
+     * Tests decoding a string descriptor with a surrogate pair.
+     */
+    @Test
+    public void testDecode()
+    {
+        // "A" followed by U+1F600 encoded as surrogate pair
+        final ByteBuffer buffer = descriptor(8, 3, 0x41, 0, 0x3d, 0xd8, 0x00,
+            0xde);
+        assertEquals("A\ud83d\ude00", StringDescriptorService.decode(
+            buffer, 8, 8));
+    }
+
+    /**
+     * Tests decoding a truncated string descriptor.
+     */
+    @Test
+    public void testDecodeTruncated()
+    {
+        final ByteBuffer buffer = descriptor(8, 3, 0x41, 0, 0x42, 0, 0x43, 0);
+        assertEquals("AB", StringDescriptorService.decode(buffer, 8, 6));
+    }
+
+    /**
+     * Tests decoding an invalid descriptor.
+     */
+    @Test
+    public void testDecodeInvalid()
+    {
+        assertNull(StringDescriptorService.decode(descriptor(4, 2, 0x41, 0),
+            8, 4));
+        assertNull(StringDescriptorService.decode(descriptor(4), 8, 1));
+    }
+
+    /**
+     * Tests selecting the language from the language table.
+     */
+    @Test
+    public void testSelectLanguage()
+    {
+        final ByteBuffer buffer = descriptor(6, 3, 0x07, 0x04, 0x09, 0x04);
+        assertEquals(0x0409, StringDescriptorService.selectLanguage(buffer, 8,
+            6, 0x0409));
+        assertEquals(0x0407, StringDescriptorService.selectLanguage(buffer, 8,
+            6, 0x040c));
+        assertEquals(0, StringDescriptorService.selectLanguage(
+            descriptor(2, 3), 8, 2, 0x0409));
+    }
+
+    /**
+     * Tests fetching string descriptor 0.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testFetchIndexZero()
+    {
+        new StringDescriptorService(16).fetch(new DeviceHandle(),
+            new byte[] { 1, 0 }, LISTENER);
+    }
+
+    /**
+     * Tests the cache of an unknown device.
+     */
+    @Test
+    public void testGetCachedUnknownDevice()
+    {
+        assertNull(new StringDescriptorService(16).getCached(
+            new DeviceHandle(), (byte) 1));
+    }
+
+    /**
+     * Tests constructing with an invalid cache size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCacheSize()
+    {
+        new StringDescriptorService(0);
+    }
+
+    /**
+     * Tests fetching strings through the language table and the cache.
+     */
+    @Test
+    public void testFetch()
+    {
+        final FakeOperations operations = new FakeOperations();
+        final StringDescriptorService service = new StringDescriptorService(
+            16, StringDescriptorService.DEFAULT_LANGUAGE, operations);
+        final DeviceHandle handle = new DeviceHandle();
+        final RecordingListener listener = new RecordingListener();
+        service.fetch(handle, new byte[] { 1, 2 }, listener);
+        assertEquals(1, operations.submitted.size());
+        final ByteBuffer setup = operations.buffers.get(
+            operations.submitted.get(0));
+        assertEquals((byte) 0x80, setup.get(0));
+        assertEquals(LibUsb.REQUEST_GET_DESCRIPTOR, setup.get(1));
+        assertEquals(LibUsb.DT_STRING, setup.get(3));
+
+        operations.complete(service, 4, 3, 0x09, 0x04);
+        assertEquals(2, operations.submitted.size());
+        assertEquals(0x09, operations.buffers.get(
+            operations.submitted.get(0)).get(4));
+        operations.complete(service, 4, 3, 0x41, 0);
+        operations.complete(service, 4, 3, 0x42, 0);
+        assertArrayEquals(new String[] { "A", "B" }, listener.strings);
+        assertEquals("B", service.getCached(handle, (byte) 2));
+        assertEquals(2, operations.allocated.size());
+        assertEquals(2, service.getIdleCount());
+        service.close();
+        assertEquals(operations.allocated, operations.freed);
+    }
+
+    /**
+     * Tests that no more than the maximum number of idle transfers are kept
+     * and that closing the service frees them.
+     */
+    @Test
+    public void testIdleLimit()
+    {
+        final FakeOperations operations = new FakeOperations();
+        final StringDescriptorService service = new StringDescriptorService(
+            64, StringDescriptorService.DEFAULT_LANGUAGE, operations);
+        final int count = StringDescriptorService.MAX_IDLE_REQUESTS + 4;
+        final byte[] indices = new byte[count];
+        for (int i = 0; i < count; i++)
+        {
+            indices[i] = (byte) (i + 1);
+        }
+        final RecordingListener listener = new RecordingListener();
+        service.fetch(new DeviceHandle(), indices, listener);
+        operations.complete(service, 4, 3, 0x09, 0x04);
+        assertEquals(count, operations.submitted.size());
+        while (!operations.submitted.isEmpty())
+        {
+            operations.complete(service, 4, 3, 0x41, 0);
+        }
+        assertEquals(count, listener.strings.length);
+        assertEquals(count, operations.allocated.size());
+        assertEquals(StringDescriptorService.MAX_IDLE_REQUESTS,
+            service.getIdleCount());
+        assertEquals(count - StringDescriptorService.MAX_IDLE_REQUESTS,
+            operations.freed.size());
+        service.close();
+        assertEquals(0, service.getIdleCount());
+        assertEquals(count, operations.freed.size());
+    }
+
+    /**
+     * Tests that transfers completing after closing are freed.
+     */
+    @Test
+    public void testCloseWithTransferInFlight()
+    {
+        final FakeOperations operations = new FakeOperations();
+        final StringDescriptorService service = new StringDescriptorService(
+            16, StringDescriptorService.DEFAULT_LANGUAGE, operations);
+        final RecordingListener listener = new RecordingListener();
+        service.fetch(new DeviceHandle(), new byte[] { 1 }, listener);
+        service.close();
+        assertEquals(0, operations.freed.size());
+        operations.complete(service, 4, 3, 0x09, 0x04);
+        assertEquals(1, operations.freed.size());
+        assertEquals(0, service.getIdleCount());
+    }
+
+    /**
+     * Tests fetching strings after closing the service.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testFetchAfterClose()
+    {
+        final StringDescriptorService service =
+            new StringDescriptorService(16);
+        service.close();
+        service.fetch(new DeviceHandle(), new byte[] { 1 }, LISTENER);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TimerWheel} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class TimerWheelTest
+{
+    /**
+     * Tests that timers run in deadline order and not before their
+     * deadline.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testOrder() throws Exception
+    {
+        final TimerWheel wheel = new TimerWheel(1000000, 8);
+        wheel.start();
+        try
+        {
+            final List<Integer> order = new CopyOnWriteArrayList<Integer>();
+            final CountDownLatch latch = new CountDownLatch(3);
+            final long now = System.nanoTime();
+            final long[] deadlines = { now + 30000000, now + 5000000,
+                now + 15000000 };
+            final long[] runTimes = new long[3];
+            for (int i = 0; i < deadlines.length; i++)
+            {
+                final int index = i;
+                wheel.schedule(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        runTimes[index] = System.nanoTime();
+                        order.add(index);
+                        latch.countDown();
+                    }
+                }, deadlines[i]);
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(1), order.get(0));
+            assertEquals(Integer.valueOf(2), order.get(1));
+            assertEquals(Integer.valueOf(0), order.get(2));
+            for (int i = 0; i < deadlines.length; i++)
+            {
+                assertTrue(runTimes[i] >= deadlines[i]);
+            }
+        }
+        finally
+        {
+            wheel.close();
+        }
+    }
+
+    /**
+     * Tests timers with deadlines in the past and beyond one wheel
+     * rotation.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testPastAndFarDeadlines() throws Exception
+    {
+        final TimerWheel wheel = new TimerWheel(1000000, 4);
+        wheel.start();
+        try
+        {
+            final CountDownLatch latch = new CountDownLatch(2);
+            final Runnable task = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    latch.countDown();
+                }
+            };
+            final long now = System.nanoTime();
+            wheel.schedule(task, now - 1000000000L);
+            wheel.schedule(task, now + 20000000);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - now >= 20000000);
+        }
+        finally
+        {
+            wheel.close();
+        }
+    }
+
+    /**
+     * Tests constructing a wheel with an invalid number of slots.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSlots()
+    {
+        new TimerWheel(1000, 3);
+    }
+
+    /**
+     * Tests closing a wheel which was not started.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testCloseNotStarted() throws Exception
+    {
+        new TimerWheel().close();
+    }
+
+    /**
+     * Tests that tasks can't be scheduled after the wheel has been closed.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testScheduleAfterClose() throws Exception
+    {
+        final TimerWheel wheel = new TimerWheel();
+        wheel.start();
+        wheel.close();
+        wheel.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                // Empty
+            }
+        }, System.nanoTime());
+    }
+}
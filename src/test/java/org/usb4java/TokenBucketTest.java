@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TokenBucket} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class TokenBucketTest
+{
+    /**
+     * Tests that the burst is sent right away and the rest is paced.
+     */
+    @Test
+    public void testBurst()
+    {
+        // 1000 bytes per second, 100 bytes burst (100 ms tolerance)
+        final TokenBucket bucket = new TokenBucket(1000, 100);
+        final long start = 5000000000L;
+        assertEquals(0, bucket.reserve(100, start));
+        assertEquals(0, bucket.reserve(100, start));
+        assertEquals(100000000, bucket.reserve(100, start));
+        assertEquals(200000000, bucket.reserve(100, start));
+    }
+
+    /**
+     * Tests that the long-term rate is exact even when the data is sent
+     * late.
+     */
+    @Test
+    public void testRate()
+    {
+        final TokenBucket bucket = new TokenBucket(3, 0);
+        long now = 0;
+        long release = 0;
+        for (int i = 0; i < 300; i++)
+        {
+            release = now + bucket.reserve(1, now);
+
+            // Sent 1 ms late each time
+            now = release + 1000000;
+        }
+        assertEquals(99666666667L, release, 1);
+    }
+
+    /**
+     * Tests that idle time refills the bucket only up to the burst size.
+     */
+    @Test
+    public void testIdle()
+    {
+        final TokenBucket bucket = new TokenBucket(1000, 100);
+        assertEquals(0, bucket.reserve(1000, 0));
+        assertEquals(900000000, bucket.reserve(10, 0));
+        final long later = 60000000000L;
+        assertEquals(0, bucket.reserve(100, later));
+        assertEquals(0, bucket.reserve(100, later));
+        assertEquals(100000000, bucket.reserve(100, later));
+    }
+
+    /**
+     * Tests that times wrapping around are handled.
+     */
+    @Test
+    public void testWrapAround()
+    {
+        final TokenBucket bucket = new TokenBucket(1000, 0);
+        final long now = Long.MAX_VALUE - 500000000L;
+        assertEquals(0, bucket.reserve(1000, now));
+        assertEquals(1000000000, bucket.reserve(1000, now));
+    }
+
+    /**
+     * Tests that refunded bytes can be reserved again right away.
+     */
+    @Test
+    public void testRefund()
+    {
+        final TokenBucket bucket = new TokenBucket(3, 0);
+        assertEquals(0, bucket.reserve(1, 0));
+        assertEquals(333333333, bucket.reserve(1, 0));
+        bucket.refund(1);
+        assertEquals(333333333, bucket.reserve(1, 0));
+        assertEquals(666666666, bucket.reserve(1, 0));
+        bucket.refund(2);
+        assertEquals(333333333, bucket.reserve(1, 0));
+    }
+
+    /**
+     * Tests constructing a bucket with an invalid rate.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate()
+    {
+        new TokenBucket(0, 100);
+    }
+}
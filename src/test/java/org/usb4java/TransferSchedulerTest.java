@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TransferScheduler} and {@link TrafficClass} classes.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class TransferSchedulerTest
+{
+    /** A callback which ignores retired transfers. */
+    private static final ScheduledTransferCallback CALLBACK =
+        new ScheduledTransferCallback()
+        {
+            @Override
+            public void processTransfer(final Transfer transfer,
+                final int result)
+            {
+                // Empty
+            }
+        };
+
+    /**
+     * Queues a request.
+     *
+     * @param scheduler
+     *            The scheduler.
+     * @param endpoint
+     *            The endpoint address.
+     * @param length
+     *            The transfer length.
+     * @return The queued request.
+     */
+    private static TransferScheduler.Request enqueue(
+        final TransferScheduler scheduler, final int endpoint,
+        final int length)
+    {
+        synchronized (scheduler)
+        {
+            return scheduler.enqueue(new Transfer(), (byte) endpoint, length,
+                CALLBACK);
+        }
+    }
+
+    /**
+     * Removes the next request to submit.
+     *
+     * @param scheduler
+     *            The scheduler.
+     * @return The next request or null if none.
+     */
+    private static TransferScheduler.Request next(
+        final TransferScheduler scheduler)
+    {
+        synchronized (scheduler)
+        {
+            return scheduler.next();
+        }
+    }
+
+    /**
+     * Tests that endpoints are assigned to classes.
+     */
+    @Test
+    public void testAssign()
+    {
+        final TransferScheduler scheduler = new TransferScheduler();
+        final TrafficClass control = scheduler.createClass("control", 10, 1,
+            0);
+        scheduler.assign((byte) 0, control);
+        assertSame(control, scheduler.getTrafficClass((byte) 0));
+        assertSame(scheduler.getDefaultClass(),
+            scheduler.getTrafficClass((byte) 0x81));
+        scheduler.assign((byte) 0, null);
+        assertSame(scheduler.getDefaultClass(),
+            scheduler.getTrafficClass((byte) 0));
+    }
+
+    /**
+     * Tests that a class with higher priority is always served first.
+     */
+    @Test
+    public void testPriority()
+    {
+        final TransferScheduler scheduler = new TransferScheduler(1);
+        scheduler.assign((byte) 0, scheduler.createClass("control", 10, 1,
+            0));
+        final TransferScheduler.Request bulk1 = enqueue(scheduler, 2, 65536);
+        final TransferScheduler.Request bulk2 = enqueue(scheduler, 2, 65536);
+        final TransferScheduler.Request control = enqueue(scheduler, 0, 8);
+        assertSame(control, next(scheduler));
+        assertNull(next(scheduler));
+        scheduler.retire(control);
+        assertSame(bulk1, next(scheduler));
+        scheduler.retire(bulk1);
+        assertSame(bulk2, next(scheduler));
+        assertEquals(1, scheduler.getInFlight());
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    /**
+     * Tests that the in-flight limit of a class leaves room for other
+     * classes.
+     */
+    @Test
+    public void testClassLimit()
+    {
+        final TransferScheduler scheduler = new TransferScheduler();
+        final TrafficClass upload = scheduler.createClass("upload", 5, 1, 2);
+        scheduler.assign((byte) 2, upload);
+        for (int i = 0; i < 4; i++)
+        {
+            enqueue(scheduler, 2, 65536);
+        }
+        final TransferScheduler.Request event = enqueue(scheduler, 0x81, 64);
+        next(scheduler);
+        next(scheduler);
+        assertSame(event, next(scheduler));
+        assertNull(next(scheduler));
+        assertEquals(2, upload.getInFlight());
+        assertEquals(2, upload.getQueued());
+    }
+
+    /**
+     * Tests that classes with the same priority share the bandwidth by
+     * weight.
+     */
+    @Test
+    public void testFairQueueing()
+    {
+        final TransferScheduler scheduler = new TransferScheduler();
+        final TrafficClass a = scheduler.createClass("a", 1, 3, 0);
+        final TrafficClass b = scheduler.createClass("b", 1, 1, 0);
+        scheduler.assign((byte) 1, a);
+        scheduler.assign((byte) 2, b);
+        for (int i = 0; i < 100; i++)
+        {
+            enqueue(scheduler, 1, 1000);
+            enqueue(scheduler, 2, 4000);
+        }
+        for (int i = 0; i < 60; i++)
+        {
+            scheduler.retire(next(scheduler));
+        }
+        // a gets 3/4 of the bytes: 36 KB per 12 KB of b
+        final long bytesA = a.getSubmittedBytes();
+        final long bytesB = b.getSubmittedBytes();
+        assertEquals(3.0, (double) bytesA / bytesB, 0.5);
+    }
+
+    /**
+     * Tests creating a class with an invalid weight.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWeight()
+    {
+        new TransferScheduler().createClass("x", 0, 0, 0);
+    }
+
+    /**
+     * Tests assigning a class of another scheduler.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testForeignClass()
+    {
+        final TrafficClass other = new TransferScheduler().createClass("x",
+            0, 1, 0);
+        new TransferScheduler().assign((byte) 1, other);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TransferTable} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class TransferTableTest
+{
+    /**
+     * Tests registering and unregistering many pointers in random order.
+     */
+    @Test
+    public void testRegister()
+    {
+        final TransferTable table = new TransferTable(64);
+        final Map<Long, Integer> expected = new HashMap<Long, Integer>();
+        final List<Long> pointers = new ArrayList<Long>();
+        final Random random = new Random(42);
+        for (int round = 0; round < 10000; round++)
+        {
+            if (pointers.size() < 64 && (pointers.isEmpty()
+                || random.nextBoolean()))
+            {
+                final long pointer = 0x7f0000000000L
+                    + (random.nextInt(4096) << 4);
+                if (expected.containsKey(pointer))
+                {
+                    continue;
+                }
+                final int tag = table.register(pointer);
+                assertTrue(tag >= 0 && tag < 64);
+                assertTrue(!expected.containsValue(tag));
+                expected.put(pointer, tag);
+                pointers.add(pointer);
+            }
+            else
+            {
+                final Long pointer = pointers.remove(random.nextInt(
+                    pointers.size()));
+                assertEquals(expected.remove(pointer).intValue(),
+                    table.unregister(pointer));
+            }
+            for (final Map.Entry<Long, Integer> entry: expected.entrySet())
+            {
+                assertEquals(entry.getValue().intValue(),
+                    table.lookup(entry.getKey()));
+            }
+            assertEquals(expected.size(), table.size());
+        }
+    }
+
+    /**
+     * Tests that lookups without the lock always find stable entries while
+     * another thread keeps registering and unregistering colliding entries.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testConcurrentLookup() throws Exception
+    {
+        final TransferTable table = new TransferTable(64);
+        final long[] stable = new long[32];
+        final int[] tags = new int[stable.length];
+        for (int i = 0; i < stable.length; i++)
+        {
+            stable[i] = 0x7f0000000000L + (i << 4);
+            tags[i] = table.register(stable[i]);
+        }
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Thread writer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final Random random = new Random(42);
+                while (running.get())
+                {
+                    final long pointer = 0x7f0000100000L
+                        + (random.nextInt(4096) << 4);
+                    table.register(pointer);
+                    table.unregister(pointer);
+                }
+            }
+        });
+        writer.start();
+        try
+        {
+            for (int round = 0; round < 20000; round++)
+            {
+                final int i = round % stable.length;
+                assertEquals(tags[i], table.lookup(stable[i]));
+            }
+        }
+        finally
+        {
+            running.set(false);
+            writer.join();
+        }
+        assertEquals(stable.length, table.size());
+    }
+
+    /**
+     * Tests looking up an unknown pointer.
+     */
+    @Test
+    public void testUnknown()
+    {
+        final TransferTable table = new TransferTable(4);
+        assertEquals(-1, table.lookup(0x1000));
+        assertEquals(-1, table.unregister(0x1000));
+        table.processTransfer(new Transfer());
+    }
+
+    /**
+     * Tests that the callback and user data are released with the tag.
+     */
+    @Test
+    public void testRelease()
+    {
+        final TransferTable table = new TransferTable(1);
+        final int tag = table.register(0x1000);
+        table.setUserData(tag, "data");
+        assertEquals("data", table.getUserData(tag));
+        table.unregister(0x1000);
+        assertNull(table.getUserData(tag));
+        assertEquals(tag, table.register(0x2000));
+    }
+
+    /**
+     * Tests registering more transfers than the capacity.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testFull()
+    {
+        final TransferTable table = new TransferTable(1);
+        table.register(0x1000);
+        table.register(0x2000);
+    }
+
+    /**
+     * Tests registering the same pointer twice.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicate()
+    {
+        final TransferTable table = new TransferTable(2);
+        table.register(0x1000);
+        table.register(0x1000);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TransferTracer} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class TransferTracerTest
+{
+    /**
+     * Tests the constructor with a capacity which is not a power of two.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWithInvalidCapacity() throws Exception
+    {
+        new TransferTracer(new ByteArrayOutputStream(), 100, 64);
+    }
+
+    /**
+     * Tests the conversion of libusb errors into usbmon status values.
+     */
+    @Test
+    public void testErrorToStatus()
+    {
+        assertEquals(0, TransferTracer.errorToStatus(LibUsb.SUCCESS));
+        assertEquals(0, TransferTracer.errorToStatus(64));
+        assertEquals(-110, TransferTracer.errorToStatus(LibUsb.ERROR_TIMEOUT));
+        assertEquals(-32, TransferTracer.errorToStatus(LibUsb.ERROR_PIPE));
+        assertEquals(-19,
+            TransferTracer.errorToStatus(LibUsb.ERROR_NO_DEVICE));
+        assertEquals(-5, TransferTracer.errorToStatus(LibUsb.ERROR_IO));
+    }
+
+    /**
+     * Tests the conversion of transfer types.
+     */
+    @Test
+    public void testToUsbmonType()
+    {
+        assertEquals(0, TransferTracer.toUsbmonType(
+            LibUsb.TRANSFER_TYPE_ISOCHRONOUS));
+        assertEquals(1, TransferTracer.toUsbmonType(
+            LibUsb.TRANSFER_TYPE_INTERRUPT));
+        assertEquals(2, TransferTracer.toUsbmonType(
+            LibUsb.TRANSFER_TYPE_CONTROL));
+        assertEquals(3, TransferTracer.toUsbmonType(
+            LibUsb.TRANSFER_TYPE_BULK));
+        assertEquals(3, TransferTracer.toUsbmonType(
+            LibUsb.TRANSFER_TYPE_BULK_STREAM));
+    }
+
+    /**
+     * Tests writing a pcap file with a truncated bulk OUT submission.
+     *
+     * @throws Exception
+     *             When the test fails.
+     */
+    @Test
+    public void testWrite() throws Exception
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final TransferTracer tracer = new TransferTracer(out, 16, 4);
+        final ByteBuffer data = ByteBuffer.allocate(10);
+        for (int i = 0; i < 10; i++)
+        {
+            data.put(i, (byte) (i + 1));
+        }
+        tracer.record(42, (byte) 'S', null, (byte) 0x02,
+            LibUsb.TRANSFER_TYPE_BULK, -115, data, 10, 10);
+        tracer.close();
+        assertEquals(1, tracer.getWrittenCount());
+        assertEquals(0, tracer.getDroppedCount());
+
+        final ByteBuffer pcap = ByteBuffer.wrap(out.toByteArray()).order(
+            ByteOrder.LITTLE_ENDIAN);
+        assertEquals(24 + 16 + 48 + 4, pcap.capacity());
+        assertEquals(0xa1b2c3d4, pcap.getInt(0));
+        assertEquals(52, pcap.getInt(16));
+        assertEquals(TransferTracer.LINKTYPE_USB_LINUX, pcap.getInt(20));
+        assertEquals(52, pcap.getInt(24 + 8));
+        assertEquals(58, pcap.getInt(24 + 12));
+        final int header = 24 + 16;
+        assertEquals(42, pcap.getLong(header));
+        assertEquals('S', pcap.get(header + 8));
+        assertEquals(3, pcap.get(header + 9));
+        assertEquals(2, pcap.get(header + 10));
+        assertEquals('-', pcap.get(header + 14));
+        assertEquals(0, pcap.get(header + 15));
+        assertEquals(-115, pcap.getInt(header + 28));
+        assertEquals(10, pcap.getInt(header + 32));
+        assertEquals(4, pcap.getInt(header + 36));
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(i + 1, pcap.get(header + 48 + i));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2026 Klaus Reimer <k@ailis.de>
+ * See LICENSE.md for licensing information.
+ */
+
+package org.usb4java;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link TransferTuner} class.
+ *
+ * @author Klaus Reimer (k@ailis.de)
+ */
+public class TransferTunerTest
+{
+    /**
+     * Simulated throughput in bytes per second with a peak at 16 KiB chunks
+     * and a depth of 4.
+     *
+     * @param chunkSize
+     *            The chunk size.
+     * @param depth
+     *            The pipeline depth.
+     * @return The throughput.
+     */
+    private static double throughput(final int chunkSize, final int depth)
+    {
+        final double chunkPenalty = Math.abs(Math.log(chunkSize / 16384.0)
+            / Math.log(2));
+        return 40000000.0 / (1 + 0.3 * chunkPenalty + 0.2 * Math.abs(
+            depth - 4));
+    }
+
+    /**
+     * Feeds the tuner with simulated measurements.
+     *
+     * @param tuner
+     *            The tuner.
+     * @param count
+     *            The number of measurements.
+     */
+    private static void simulate(final TransferTuner tuner, final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            final double throughput = throughput(tuner.getChunkSize(),
+                tuner.getDepth());
+            tuner.record(1000000, (long) (1000000 * 1e9 / throughput),
+                tuner.getDepth() * 1000000L);
+        }
+    }
+
+    /**
+     * Tests that the tuner converges to the peak throughput.
+     */
+    @Test
+    public void testConvergence()
+    {
+        final TransferTuner tuner = new TransferTuner(512);
+        assertEquals(LargeTransfer.DEFAULT_CHUNK_SIZE, tuner.getChunkSize());
+        assertEquals(LargeTransfer.DEFAULT_DEPTH, tuner.getDepth());
+        assertFalse(tuner.isConverged());
+        simulate(tuner, 200);
+        assertTrue(tuner.isConverged());
+        assertEquals(16384, tuner.getBestChunkSize());
+        assertEquals(4, tuner.getBestDepth());
+        assertEquals(16384, tuner.getChunkSize());
+        assertEquals(4, tuner.getDepth());
+        assertEquals(40000000.0, tuner.getBestThroughput(), 1);
+    }
+
+    /**
+     * Tests that the latency limit prevents deeper pipelines.
+     */
+    @Test
+    public void testMaxLatency()
+    {
+        final TransferTuner tuner = new TransferTuner(512);
+        tuner.setMaxLatency(2000000);
+        simulate(tuner, 200);
+        assertEquals(16384, tuner.getBestChunkSize());
+        assertEquals(2, tuner.getBestDepth());
+    }
+
+    /**
+     * Tests that the chunk size is limited and stays a multiple of the
+     * packet size.
+     */
+    @Test
+    public void testLimits()
+    {
+        final TransferTuner tuner = new TransferTuner(1000, 5000, 2);
+        assertEquals(4000, tuner.getChunkSize());
+        assertEquals(2, tuner.getDepth());
+        simulate(tuner, 100);
+        assertTrue(tuner.getBestChunkSize() <= 4000);
+        assertEquals(0, tuner.getBestChunkSize() % 1000);
+        assertTrue(tuner.getBestDepth() <= 2);
+    }
+
+    /**
+     * Tests that results of other settings are ignored.
+     */
+    @Test
+    public void testIgnoreOtherSettings()
+    {
+        final TransferTuner tuner = new TransferTuner(512);
+        for (int i = 0; i < TransferTuner.SAMPLES_PER_SETTING; i++)
+        {
+            tuner.record(new LargeTransferResult(LibUsb.SUCCESS, 1000000,
+                false, 16, 512, 8, 1000, 1000000));
+        }
+        assertEquals(LargeTransfer.DEFAULT_CHUNK_SIZE, tuner.getChunkSize());
+        assertEquals(LargeTransfer.DEFAULT_DEPTH, tuner.getDepth());
+    }
+
+    /**
+     * Tests that the tuner searches again when the throughput drops.
+     */
+    @Test
+    public void testRetune()
+    {
+        final TransferTuner tuner = new TransferTuner(512);
+        simulate(tuner, 200);
+        final int searches = tuner.getSearches();
+        for (int i = 0; i < TransferTuner.SAMPLES_PER_SETTING; i++)
+        {
+            tuner.record(1000000, 1000000000, 1000000);
+        }
+        assertFalse(tuner.isConverged());
+        simulate(tuner, 200);
+        assertTrue(tuner.getSearches() > searches);
+    }
+
+    /**
+     * Tests constructing a tuner with an invalid packet size.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPacketSize()
+    {
+        new TransferTuner(0);
+    }
+}